@@ -0,0 +1,78 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.leaderboard.PointsLeaderboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard reads while points totals change: two threads move random users to new totals, as ingestion does
+ * after each commit, while one thread reads the top 10 and another ranks random users. The read latencies are
+ * the ones the leaderboard endpoints add on top of HTTP.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Group)
+public class LeaderboardBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int users;
+
+    private String[] userIds;
+    private PointsLeaderboard leaderboard;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userIds = new String[users];
+        leaderboard = new PointsLeaderboard(null, null, 1 << 20);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < users; i++) {
+            userIds[i] = "user-" + i;
+            leaderboard.set(userIds[i], random.nextInt(200_000));
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void update(Cursor cursor) {
+        leaderboard.set(userIds[cursor.random.nextInt(users)], cursor.random.nextInt(200_000));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public List<PointsLeaderboard.Standing> top10() {
+        return leaderboard.top(10);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public long rank(Cursor cursor) {
+        return leaderboard.rankOf(leaderboard.pointsOf(userIds[cursor.random.nextInt(users)]));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.cache.OffHeapPointsIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Points lookups by receipt ID in an {@link OffHeapPointsIndex} next to a {@code ConcurrentHashMap<String, Integer>}
+ * holding the same receipts, from four reader threads. Like a request path, {@code mapGet} and {@code offHeapGetById}
+ * look up a freshly built ID string, so the cost of building it (measured alone by {@code idStringOnly}) is in both;
+ * {@code offHeapGet} starts from the two longs.
+ * <p>
+ * Setup reports the live heap each structure retains. Run with a heap large enough for the map at the chosen size
+ * (e.g. {@code -jvmArgs -Xmx16g} for 10M entries) to see its GC cost in the profiler output.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class OffHeapPointsIndexBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int entries;
+
+    private long[] msbs;
+    private long[] lsbs;
+    private ConcurrentHashMap<String, Integer> map;
+    private OffHeapPointsIndex index;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        msbs = new long[entries];
+        lsbs = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            UUID id = UUID.randomUUID();
+            msbs[i] = id.getMostSignificantBits();
+            lsbs[i] = id.getLeastSignificantBits();
+        }
+
+        long before = usedHeap();
+        map = new ConcurrentHashMap<>();
+        for (int i = 0; i < entries; i++) {
+            map.put(new UUID(msbs[i], lsbs[i]).toString(), i & 0xFFF);
+        }
+        long mapHeap = usedHeap() - before;
+
+        index = new OffHeapPointsIndex(64, entries);
+        for (int i = 0; i < entries; i++) {
+            index.put(msbs[i], lsbs[i], i & 0xFFF);
+        }
+        System.out.printf("%n%d entries: ConcurrentHashMap ~%d MB heap, off-heap index %d MB direct%n",
+                entries, mapHeap >> 20, index.offHeapBytes() >> 20);
+    }
+
+    @Benchmark
+    public String idStringOnly(Cursor cursor) {
+        int i = cursor.next(entries);
+        return new UUID(msbs[i], lsbs[i]).toString();
+    }
+
+    @Benchmark
+    public Integer mapGet(Cursor cursor) {
+        int i = cursor.next(entries);
+        return map.get(new UUID(msbs[i], lsbs[i]).toString());
+    }
+
+    @Benchmark
+    public int offHeapGet(Cursor cursor) {
+        int i = cursor.next(entries);
+        return index.getOrDefault(msbs[i], lsbs[i], -1);
+    }
+
+    @Benchmark
+    public int offHeapGetById(Cursor cursor) {
+        int i = cursor.next(entries);
+        return index.getOrDefault(new UUID(msbs[i], lsbs[i]).toString(), -1);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
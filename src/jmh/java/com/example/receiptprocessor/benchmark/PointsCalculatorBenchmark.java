@@ -0,0 +1,91 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.dto.BonusCalculationRequest;
+import com.example.receiptprocessor.metrics.RuleHitCounters;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.rules.CompiledRuleSet;
+import com.example.receiptprocessor.rules.RuleSetCompiler;
+import com.example.receiptprocessor.rules.RuleSetDefinition;
+import com.example.receiptprocessor.util.PointsCalculator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring cost per receipt for different item counts, with no I/O involved: the hand-written
+ * {@link PointsCalculator} next to the default configured rule set compiled by {@link RuleSetCompiler}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PointsCalculatorBenchmark {
+
+    private static final int RECEIPTS = 1024;
+
+    @Param({"1", "5", "25", "100"})
+    private int itemCount;
+
+    private Receipt[] receipts;
+    private BonusCalculationRequest[] bonusRequests;
+    private CompiledRuleSet compiledRules;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = PointsCalculatorBenchmark.class.getResourceAsStream("/points-rules.json")) {
+            RuleSetDefinition definition = new ObjectMapper().readValue(in, RuleSetDefinition.class);
+            compiledRules = RuleSetCompiler.compile(definition, new RuleHitCounters());
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        receipts = new Receipt[RECEIPTS];
+        for (int i = 0; i < RECEIPTS; i++) {
+            receipts[i] = SyntheticReceipts.receipt(i, itemCount, 100, random);
+        }
+        bonusRequests = new BonusCalculationRequest[RECEIPTS];
+        for (int i = 0; i < RECEIPTS; i++) {
+            bonusRequests[i] = new BonusCalculationRequest(1 + i % 5);
+        }
+    }
+
+    @Benchmark
+    public int calculateBasePoints() {
+        return PointsCalculator.calculateBasePoints(receipts[nextIndex()]);
+    }
+
+    @Benchmark
+    public int calculateBonusPoints() {
+        return PointsCalculator.calculateBonusPoints(bonusRequests[nextIndex()]);
+    }
+
+    @Benchmark
+    public int compiledBasePoints() {
+        return compiledRules.basePoints(receipts[nextIndex()]);
+    }
+
+    @Benchmark
+    public int compiledBonusPoints() {
+        return compiledRules.bonusPoints(bonusRequests[nextIndex()].getReceiptCount());
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (RECEIPTS - 1);
+        return next;
+    }
+}
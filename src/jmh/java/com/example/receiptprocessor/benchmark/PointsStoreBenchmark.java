@@ -0,0 +1,129 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.model.ReceiptPoint;
+import com.example.receiptprocessor.store.MappedLogPointsStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Single-receipt point writes and reads against the memory-mapped points log, next to the same key-value access
+ * through JDBC on a file-backed H2 database, which is what persisting points would cost with the default backend.
+ * Both start with {@code preloaded} receipts; writes insert new receipts, reads look the preloaded ones up in turn.
+ * <p>
+ * H2 writes run in auto-commit mode, so each one is a committed transaction; the log is not forced to disk
+ * (the default {@code receipt.points-store.sync=false}), and H2 is likewise left to its default write delay.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PointsStoreBenchmark {
+
+    @Param({"100000"})
+    private int preloaded;
+
+    private Path directory;
+    private MappedLogPointsStore logStore;
+    private Connection h2;
+    private PreparedStatement h2Insert;
+    private PreparedStatement h2Select;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("points-store-benchmark");
+        logStore = new MappedLogPointsStore(directory.resolve("log").toString(), 64 * 1024 * 1024, false, 0.5);
+        h2 = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("h2").toAbsolutePath(), "sa", "");
+        try (Statement statement = h2.createStatement()) {
+            statement.execute("create table receipt_point (receipt_id varchar(255) primary key, points integer not null, "
+                    + "user_ordinal bigint, alias_of varchar(255))");
+        }
+        h2Insert = h2.prepareStatement("insert into receipt_point (receipt_id, points, user_ordinal) values (?, ?, ?)");
+        h2Select = h2.prepareStatement("select points, user_ordinal, alias_of from receipt_point where receipt_id = ?");
+
+        ids = new String[preloaded];
+        for (int i = 0; i < preloaded; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            logStore.save(point(ids[i], i));
+            insertH2(ids[i], i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        logStore.close();
+        h2.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void logPut() {
+        logStore.save(point(UUID.randomUUID().toString(), next++));
+    }
+
+    @Benchmark
+    public void h2Put() throws SQLException {
+        insertH2(UUID.randomUUID().toString(), next++);
+    }
+
+    @Benchmark
+    public int logGet() {
+        return logStore.findById(ids[next++ % ids.length]).orElseThrow().getPoints();
+    }
+
+    @Benchmark
+    public int h2Get() throws SQLException {
+        h2Select.setString(1, ids[next++ % ids.length]);
+        try (ResultSet resultSet = h2Select.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void insertH2(String id, int points) throws SQLException {
+        h2Insert.setString(1, id);
+        h2Insert.setInt(2, points);
+        h2Insert.setLong(3, 1);
+        h2Insert.executeUpdate();
+    }
+
+    private static ReceiptPoint point(String id, int points) {
+        ReceiptPoint point = new ReceiptPoint();
+        point.setReceipt_id(id);
+        point.setPoints(points);
+        point.setUserOrdinal(1L);
+        return point;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.dto.ReceiptRequest;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.util.ReceiptRequestValidator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request body to validated entity for {@code POST /receipts/process}: binding the JPA entity and running bean
+ * validation on it, as the endpoint used to, against binding {@link ReceiptRequest} and checking it with
+ * {@link ReceiptRequestValidator}, in time and (through the GC profiler) allocation per receipt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReceiptBindingBenchmark {
+
+    private static final int RECEIPTS = 1024;
+
+    @Param({"1", "5", "25"})
+    private int itemCount;
+
+    private byte[][] bodies;
+    private ObjectReader entityReader;
+    private ObjectReader requestReader;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        // As configured by Spring Boot.
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        entityReader = objectMapper.readerFor(Receipt.class);
+        requestReader = objectMapper.readerFor(ReceiptRequest.class);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        SplittableRandom random = new SplittableRandom(42);
+        bodies = new byte[RECEIPTS][];
+        for (int i = 0; i < RECEIPTS; i++) {
+            bodies[i] = objectMapper.writeValueAsBytes(SyntheticReceipts.receipt(i, itemCount, 100, random));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Receipt entityWithBeanValidation() throws IOException {
+        Receipt receipt = entityReader.readValue(nextBody());
+        Set<ConstraintViolation<Receipt>> violations = validator.validate(receipt);
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException(violations.toString());
+        }
+        return receipt;
+    }
+
+    @Benchmark
+    public Receipt requestWithCompiledValidator() throws IOException {
+        ReceiptRequest request = requestReader.readValue(nextBody());
+        List<String> errors = ReceiptRequestValidator.validate(request);
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(errors.toString());
+        }
+        return request.toReceipt();
+    }
+
+    private byte[] nextBody() {
+        byte[] body = bodies[next];
+        next = (next + 1) & (RECEIPTS - 1);
+        return body;
+    }
+}
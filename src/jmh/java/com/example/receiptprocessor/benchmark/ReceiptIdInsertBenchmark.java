@@ -0,0 +1,114 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.model.ReceiptIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Bulk insert of {@code rows} receipts into an empty file-backed H2 table keyed by receipt ID, once per trial, with
+ * random (version 4, the previous generator) or time-ordered (version 7, {@link ReceiptIdGenerator}) IDs. Random keys
+ * land on random B-tree pages, so once the index outgrows the page cache most inserts touch a cold page; time-ordered
+ * keys always append to the right-hand edge. The key is stored either as the application stores it, a
+ * {@code varchar(36)}, or as a 16-byte {@code uuid} column.
+ * <p>
+ * The 50M-row trials write several gigabytes and take minutes each; pick sizes with
+ * {@code -p rows=1000000,10000000}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class ReceiptIdInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000000", "10000000", "50000000"})
+    private int rows;
+
+    @Param({"random", "timeOrdered"})
+    private String generator;
+
+    @Param({"varchar", "uuid"})
+    private String column;
+
+    private Path directory;
+    private Connection h2;
+    private PreparedStatement insert;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("receipt-id-benchmark");
+        h2 = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("h2").toAbsolutePath(), "sa", "");
+        h2.setAutoCommit(false);
+        try (Statement statement = h2.createStatement()) {
+            statement.execute("create table receipt (id " + ("uuid".equals(column) ? "uuid" : "varchar(36)")
+                    + " primary key, retailer varchar(255), purchase_day integer, purchase_minute integer, "
+                    + "total_cents bigint, user_id varchar(255))");
+        }
+        insert = h2.prepareStatement("insert into receipt (id, retailer, purchase_day, purchase_minute, total_cents, "
+                + "user_id) values (?, ?, ?, ?, ?, ?)");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException, SQLException {
+        h2.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        boolean timeOrdered = "timeOrdered".equals(generator);
+        boolean uuidColumn = "uuid".equals(column);
+        for (int i = 0; i < rows; i++) {
+            UUID id = timeOrdered ? ReceiptIdGenerator.newUuid() : UUID.randomUUID();
+            if (uuidColumn) {
+                insert.setObject(1, id);
+            } else {
+                insert.setString(1, id.toString());
+            }
+            insert.setString(2, "Target");
+            insert.setInt(3, 19_358 + i % 365);
+            insert.setInt(4, i % 1440);
+            insert.setLong(5, 3535);
+            insert.setString(6, "user-" + (i & 1023));
+            insert.addBatch();
+            if ((i + 1) % BATCH_SIZE == 0) {
+                insert.executeBatch();
+                h2.commit();
+            }
+        }
+        insert.executeBatch();
+        h2.commit();
+        return rows;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.ReceiptProcessorApplication;
+import com.example.receiptprocessor.dto.ReceiptIdResponse;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.service.ReceiptService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end ingestion cost against the embedded H2 database, comparing the single-receipt
+ * path with the batch path. Both report per-receipt numbers so they can be read side by side.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptServiceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1", "5", "25"})
+    private int itemCount;
+
+    @Param({"1000"})
+    private int userCount;
+
+    private ConfigurableApplicationContext context;
+    private ReceiptService receiptService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(ReceiptProcessorApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.root=WARN", "--spring.h2.console.enabled=false");
+        receiptService = context.getBean(ReceiptService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReceiptIdResponse storeReceipt(ThreadRandom state) {
+        return receiptService.storeReceipt(nextReceipt(state.random));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<ReceiptIdResponse> storeReceipts(ThreadRandom state) {
+        List<Receipt> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(nextReceipt(state.random));
+        }
+        return receiptService.storeReceipts(batch);
+    }
+
+    private Receipt nextReceipt(SplittableRandom random) {
+        return SyntheticReceipts.receipt(sequence.getAndIncrement(), itemCount, userCount, random);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.ReceiptProcessorApplication;
+import com.example.receiptprocessor.service.ReceiptSubmissionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write throughput of {@code POST /receipts/process} submissions by shard count: each invocation submits
+ * {@value #REQUESTS} new receipts of {@value #USERS} users from {@code concurrency} threads and waits for all of
+ * them, so results are per receipt. Every shard is its own H2 database, in memory or in files under a temporary
+ * directory, with a pool of {@code concurrency} connections, so the pools never limit the single-shard case.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardedIngestBenchmark {
+
+    private static final int REQUESTS = 1000;
+    private static final int USERS = 10_000;
+
+    @Param({"1", "2", "4", "8"})
+    private int shards;
+
+    @Param({"mem", "file"})
+    private String database;
+
+    @Param({"64"})
+    private int concurrency;
+
+    @Param({"5"})
+    private int itemCount;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private ReceiptSubmissionService receiptSubmissionService;
+    private ExecutorService executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sharded-ingest-benchmark");
+        String urlPrefix = "mem".equals(database)
+                ? "jdbc:h2:mem:sharded-ingest-" + shards + "-"
+                : "jdbc:h2:file:" + directory.toAbsolutePath() + "/shard-";
+        context = new SpringApplicationBuilder(ReceiptProcessorApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.root=WARN", "--spring.h2.console.enabled=false",
+                        "--spring.datasource.url=" + urlPrefix + "0",
+                        "--spring.datasource.hikari.maximum-pool-size=" + concurrency,
+                        "--receipt.sharding.shards=" + shards,
+                        "--receipt.sharding.url-template=" + urlPrefix + "{shard}",
+                        "--receipt.sharding.maximum-pool-size=" + concurrency);
+        receiptSubmissionService = context.getBean(ReceiptSubmissionService.class);
+        executor = Executors.newFixedThreadPool(concurrency);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int submitReceipts() throws Exception {
+        List<Future<?>> futures = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            long receiptSequence = sequence.getAndIncrement();
+            futures.add(executor.submit(() -> receiptSubmissionService.submit(
+                    SyntheticReceipts.receipt(receiptSequence, itemCount, USERS, new SplittableRandom(receiptSequence)),
+                    null)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return futures.size();
+    }
+}
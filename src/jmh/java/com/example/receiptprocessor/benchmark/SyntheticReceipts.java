@@ -0,0 +1,61 @@
+package com.example.receiptprocessor.benchmark;
+
+import com.example.receiptprocessor.model.Item;
+import com.example.receiptprocessor.model.Receipt;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds valid receipts for benchmarks. Every sequence number maps to a distinct
+ * (retailer, purchaseDate, purchaseTime) key, so stored receipts never collide as duplicates.
+ */
+final class SyntheticReceipts {
+
+    private static final String[] RETAILERS = {
+            "Target", "Walgreens", "M&M Corner Market", "Costco", "Whole Foods", "Trader Joes",
+            "Best Buy", "Home Depot", "Kroger", "Safeway", "CVS Pharmacy", "Walmart",
+            "Aldi", "Publix", "Wegmans", "7-Eleven"
+    };
+    private static final String[] DESCRIPTIONS = {
+            "Mountain Dew 12PK", "Emils Cheese Pizza", "Knorr Creamy Chicken", "Doritos Nacho Cheese",
+            "Klarbrunn 12-PK 12 FL OZ", "Gatorade", "abc", "abcdef", "Pepsi 2L", "Paper Towels"
+    };
+    private static final long BASE_EPOCH_DAY = LocalDate.of(2020, 1, 1).toEpochDay();
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private SyntheticReceipts() {
+    }
+
+    static Receipt receipt(long sequence, int itemCount, int userCount, SplittableRandom random) {
+        int retailer = (int) (sequence % RETAILERS.length);
+        long slot = sequence / RETAILERS.length;
+        int minuteOfDay = (int) (slot % MINUTES_PER_DAY);
+
+        Receipt receipt = new Receipt();
+        receipt.setUserId("user-" + (sequence % userCount));
+        receipt.setRetailer(RETAILERS[retailer]);
+        receipt.setPurchaseDate(LocalDate.ofEpochDay(BASE_EPOCH_DAY + slot / MINUTES_PER_DAY).toString());
+        receipt.setPurchaseTime(String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60));
+
+        List<Item> items = new ArrayList<>(itemCount);
+        long totalCents = 0;
+        for (int i = 0; i < itemCount; i++) {
+            long cents = 100 + random.nextInt(5_000);
+            totalCents += cents;
+            Item item = new Item();
+            item.setShortDescription(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+            item.setPrice(formatCents(cents));
+            items.add(item);
+        }
+        receipt.setItems(items);
+        receipt.setTotal(formatCents(totalCents));
+        return receipt;
+    }
+
+    private static String formatCents(long cents) {
+        return (cents / 100) + "." + (cents % 100 < 10 ? "0" : "") + (cents % 100);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.receiptprocessor.loadgen;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load run, read from {@code --name=value} arguments; see {@link #DEFAULTS} for names and defaults.
+ *
+ * @param rate           arrivals per second, kept regardless of how fast responses come back
+ * @param duplicateRatio share of submissions that resend an earlier receipt
+ * @param readRatio      share of arrivals that read the points of an earlier receipt instead of submitting one
+ * @param maxInFlight    requests allowed to be outstanding; arrivals beyond it are counted as dropped, not sent
+ * @param seed           seeds receipt contents and where the run starts in the receipt key space
+ */
+record LoadConfig(URI baseUrl, double rate, Duration warmup, Duration duration, int users, int retailers,
+                  int minItems, int maxItems, double duplicateRatio, double readRatio, String shapes,
+                  int maxInFlight, Duration timeout, long seed, Path report) {
+
+    static final Map<String, String> DEFAULTS = defaults();
+
+    private static Map<String, String> defaults() {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("base-url", "http://localhost:8080");
+        defaults.put("rate", "200");
+        defaults.put("warmup-seconds", "10");
+        defaults.put("duration-seconds", "60");
+        defaults.put("users", "10000");
+        defaults.put("retailers", "500");
+        defaults.put("min-items", "1");
+        defaults.put("max-items", "10");
+        defaults.put("duplicate-ratio", "0.05");
+        defaults.put("read-ratio", "0.5");
+        defaults.put("shapes", "classpath*:testReceipt*.json");
+        defaults.put("max-in-flight", "10000");
+        defaults.put("timeout-seconds", "30");
+        defaults.put("seed", "");
+        defaults.put("report", "target/loadgen-report.json");
+        return Map.copyOf(defaults);
+    }
+
+    static LoadConfig parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0 || !values.containsKey(arg.substring(2, equals))) {
+                throw new IllegalArgumentException("Unknown argument '" + arg + "'; expected --name=value with name one of "
+                        + DEFAULTS.keySet());
+            }
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        String seed = values.get("seed");
+        LoadConfig config = new LoadConfig(
+                URI.create(values.get("base-url")),
+                Double.parseDouble(values.get("rate")),
+                Duration.ofSeconds(Long.parseLong(values.get("warmup-seconds"))),
+                Duration.ofSeconds(Long.parseLong(values.get("duration-seconds"))),
+                Integer.parseInt(values.get("users")),
+                Integer.parseInt(values.get("retailers")),
+                Integer.parseInt(values.get("min-items")),
+                Integer.parseInt(values.get("max-items")),
+                Double.parseDouble(values.get("duplicate-ratio")),
+                Double.parseDouble(values.get("read-ratio")),
+                values.get("shapes"),
+                Integer.parseInt(values.get("max-in-flight")),
+                Duration.ofSeconds(Long.parseLong(values.get("timeout-seconds"))),
+                seed.isEmpty() ? System.nanoTime() : Long.parseLong(seed),
+                Path.of(values.get("report")));
+        config.check();
+        return config;
+    }
+
+    LoadConfig withBaseUrl(URI url) {
+        return new LoadConfig(url, rate, warmup, duration, users, retailers, minItems, maxItems, duplicateRatio,
+                readRatio, shapes, maxInFlight, timeout, seed, report);
+    }
+
+    private void check() {
+        if (rate <= 0 || duration.isZero() || users < 1 || retailers < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("rate, duration-seconds, users, retailers and max-in-flight must be positive");
+        }
+        if (minItems < 1 || maxItems < minItems) {
+            throw new IllegalArgumentException("Need 1 <= min-items <= max-items");
+        }
+        if (duplicateRatio < 0 || duplicateRatio > 1 || readRatio < 0 || readRatio > 1) {
+            throw new IllegalArgumentException("duplicate-ratio and read-ratio must be between 0 and 1");
+        }
+    }
+}
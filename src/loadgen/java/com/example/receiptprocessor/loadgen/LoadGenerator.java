@@ -0,0 +1,52 @@
+package com.example.receiptprocessor.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Open-loop load generator for a running instance: drives {@code POST /receipts/process} and
+ * {@code GET /receipts/{id}/points} at a fixed arrival rate and writes a JSON report of latency percentiles and
+ * throughput per operation.
+ * <pre>
+ * ./mvnw -Ploadgen test-compile exec:exec -Dloadgen.args="--rate=500 --duration-seconds=120 --report=report.json"
+ * </pre>
+ * Arguments are {@code --name=value}; see {@link LoadConfig} for the settings and their defaults. Progress is
+ * printed to standard error every second, and the report to standard output as well as the report file.
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Settings and defaults: " + LoadConfig.DEFAULTS);
+            System.exit(2);
+            return;
+        }
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        SyntheticReceiptFactory receipts = new SyntheticReceiptFactory(config, objectMapper);
+        System.err.printf("Sending %.0f requests/s to %s for %d s after a %d s warmup (seed %d)%n", config.rate(),
+                config.baseUrl(), config.duration().toSeconds(), config.warmup().toSeconds(), config.seed());
+        LoadReport report = new OpenLoopDriver(config, receipts, objectMapper).run();
+
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        Path reportPath = config.report();
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        Files.writeString(reportPath, json);
+        System.out.println(json);
+        if (report.dropped() > 0 || report.unfinished() > 0) {
+            System.err.printf("%d arrivals dropped at --max-in-flight=%d and %d requests unfinished; the client, not "
+                    + "only the server, limited this run%n", report.dropped(), config.maxInFlight(), report.unfinished());
+        }
+    }
+}
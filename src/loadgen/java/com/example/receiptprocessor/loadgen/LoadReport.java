@@ -0,0 +1,83 @@
+package com.example.receiptprocessor.loadgen;
+
+import com.example.receiptprocessor.loadgen.OpenLoopDriver.Operation;
+import com.example.receiptprocessor.loadgen.OpenLoopDriver.Stats;
+import org.HdrHistogram.Histogram;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Outcome of a load run, written as JSON. Counts, throughput and latencies cover the measured window only (after
+ * the warmup); latencies are in microseconds, from when each request was due. Every arrival has a latency, including
+ * the dropped and unfinished ones (see {@link OpenLoopDriver}).
+ *
+ * @param targetRate         arrivals per second asked for
+ * @param offeredRate        requests per second actually sent in the measured window
+ * @param achievedThroughput successful responses per second of the measured window, over all operations
+ * @param dropped            arrivals not sent because {@code max-in-flight} requests were outstanding
+ * @param unfinished         requests still without a response when the run gave up waiting, recorded at the timeout
+ */
+record LoadReport(Instant startedAt, Map<String, Object> config, double targetRate, double offeredRate,
+                  double achievedThroughput, long dropped, int unfinished, Map<String, OperationReport> operations) {
+
+    /**
+     * @param requests arrivals with a recorded latency, sent or dropped
+     * @param ok       responses with a 2xx status (including 202 for receipts still being stored)
+     * @param errors   responses with any other status
+     * @param failures requests that got no response (connection errors, timeouts, unfinished), and dropped arrivals
+     *                 that no slot was freed for before the run ended
+     * @param dropped  arrivals not sent because {@code max-in-flight} requests were outstanding
+     */
+    record OperationReport(long requests, long ok, long errors, long failures, long dropped, double throughput,
+                           Latency latencyMicros) {
+    }
+
+    record Latency(double mean, long p50, long p90, long p99, long p999, long p9999, long max) {
+
+        static Latency of(Histogram histogram) {
+            return new Latency(histogram.getMean(), histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9), histogram.getValueAtPercentile(99.99),
+                    histogram.getMaxValue());
+        }
+    }
+
+    static LoadReport of(LoadConfig config, Instant startedAt, long sent, long sentWhileRecording, int unfinished,
+                         Map<Operation, Stats> stats) {
+        double seconds = config.duration().toNanos() / 1e9;
+        Map<String, OperationReport> operations = new LinkedHashMap<>();
+        long ok = 0;
+        long dropped = 0;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats operationStats = entry.getValue();
+            Histogram total = operationStats.total;
+            operations.put(entry.getKey().name().toLowerCase(Locale.ROOT), new OperationReport(
+                    total.getTotalCount(), operationStats.ok.sum(), operationStats.errors.sum(),
+                    operationStats.failures.sum(), operationStats.dropped.sum(), operationStats.ok.sum() / seconds,
+                    Latency.of(total)));
+            ok += operationStats.ok.sum();
+            dropped += operationStats.dropped.sum();
+        }
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("baseUrl", config.baseUrl().toString());
+        settings.put("rate", config.rate());
+        settings.put("warmupSeconds", config.warmup().toSeconds());
+        settings.put("durationSeconds", config.duration().toSeconds());
+        settings.put("users", config.users());
+        settings.put("retailers", config.retailers());
+        settings.put("minItems", config.minItems());
+        settings.put("maxItems", config.maxItems());
+        settings.put("duplicateRatio", config.duplicateRatio());
+        settings.put("readRatio", config.readRatio());
+        settings.put("shapes", config.shapes());
+        settings.put("maxInFlight", config.maxInFlight());
+        settings.put("timeoutSeconds", config.timeout().toSeconds());
+        settings.put("seed", config.seed());
+        settings.put("requestsSent", sent);
+        return new LoadReport(startedAt, settings, config.rate(), sentWhileRecording / seconds, ok / seconds,
+                dropped, unfinished, operations);
+    }
+}
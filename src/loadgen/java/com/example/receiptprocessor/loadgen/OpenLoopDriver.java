@@ -0,0 +1,289 @@
+package com.example.receiptprocessor.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed arrival rate, whatever the response times: request {@code i} is due at
+ * {@code start + i / rate}, and is sent then without waiting for earlier responses. Latency is measured from the
+ * time a request was due, not from when it was actually sent, so a stall on either side shows up in full in the
+ * percentiles instead of thinning out the samples (coordinated omission).
+ * <p>
+ * For the same reason, no arrival goes unrecorded. One that finds {@code max-in-flight} requests outstanding is
+ * dropped, not sent, and is recorded with its latency from when it was due until a request finishes and frees a
+ * slot for it. A request still without a response when the run stops waiting is recorded at the timeout, as a
+ * failure, and so is a dropped arrival still waiting for a slot then.
+ * <p>
+ * Each operation records into an HdrHistogram {@link Recorder}; once a second the interval is folded into the run
+ * totals and a progress line is written to standard error. Responses during the warmup are not recorded.
+ */
+final class OpenLoopDriver {
+
+    enum Operation {
+        SUBMIT, SUBMIT_DUPLICATE, GET_POINTS
+    }
+
+    private static final int RECENT_IDS = 65_536;
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LoadConfig config;
+    private final SyntheticReceiptFactory receipts;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final AtomicReferenceArray<String> recentIds = new AtomicReferenceArray<>(RECENT_IDS);
+    private final AtomicLong storedIds = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Recorded requests without a response yet, and recorded arrivals dropped that no finished request made room for.
+    private final Set<Pending> outstanding = ConcurrentHashMap.newKeySet();
+    private final Queue<Pending> waitingForSlot = new ConcurrentLinkedQueue<>();
+    private volatile boolean recording;
+
+    /**
+     * A recorded arrival and the time it was due; equal only to itself.
+     */
+    private static final class Pending {
+        final Operation operation;
+        final long due;
+
+        Pending(Operation operation, long due) {
+            this.operation = operation;
+            this.due = due;
+        }
+    }
+
+    static final class Stats {
+        final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final LongAdder ok = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        private Histogram interval;
+
+        // Called by the reporting thread, and by the driver once that has stopped.
+        Histogram fold() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return interval;
+        }
+    }
+
+    OpenLoopDriver(LoadConfig config, SyntheticReceiptFactory receipts, ObjectMapper objectMapper) {
+        this.config = config;
+        this.receipts = receipts;
+        this.objectMapper = objectMapper;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .connectTimeout(config.timeout())
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    LoadReport run() throws InterruptedException {
+        double intervalNanos = 1e9 / config.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        long sent = 0;
+        long sentWhileRecording = 0;
+        Instant startedAt = Instant.now();
+        Thread reporter = Thread.ofPlatform().daemon().name("loadgen-reporter").start(() -> report(measureFrom));
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!recording && due >= measureFrom) {
+                recording = true;
+            }
+            send(due);
+            sent++;
+            if (recording) {
+                sentWhileRecording++;
+            }
+        }
+        awaitInFlight();
+        reporter.interrupt();
+        reporter.join();
+        int unfinished = recordUnanswered();
+        for (Stats operationStats : stats.values()) {
+            operationStats.fold();
+        }
+        executor.shutdownNow();
+        return LoadReport.of(config, startedAt, sent, sentWhileRecording, unfinished, stats);
+    }
+
+    private void send(long due) {
+        SplittableRandom random = receipts.random();
+        String id = random.nextDouble() < config.readRatio() ? recentId(random) : null;
+        boolean duplicate = id == null && random.nextDouble() < config.duplicateRatio();
+        Operation operation = id != null ? Operation.GET_POINTS
+                : duplicate ? Operation.SUBMIT_DUPLICATE : Operation.SUBMIT;
+        if (inFlight.get() >= config.maxInFlight()) {
+            if (recording) {
+                stats.get(operation).dropped.increment();
+                waitingForSlot.add(new Pending(operation, due));
+            }
+            return;
+        }
+        HttpRequest request;
+        if (id != null) {
+            request = HttpRequest.newBuilder(config.baseUrl().resolve("/receipts/" + id + "/points"))
+                    .timeout(config.timeout())
+                    .GET()
+                    .build();
+        } else {
+            byte[] body = duplicate ? receipts.duplicateReceipt() : receipts.newReceipt();
+            request = HttpRequest.newBuilder(config.baseUrl().resolve("/receipts/process"))
+                    .timeout(config.timeout())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+        }
+        Pending pending = recording ? new Pending(operation, due) : null;
+        if (pending != null) {
+            outstanding.add(pending);
+        }
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+            long now = System.nanoTime();
+            inFlight.decrementAndGet();
+            Pending dropped = waitingForSlot.poll();
+            if (dropped != null) {
+                // The slot this request held is the first one a dropped arrival could have been sent in.
+                record(dropped.operation, (now - dropped.due) / 1000);
+            }
+            if (response != null && response.statusCode() / 100 == 2 && operation != Operation.GET_POINTS) {
+                rememberId(response.body());
+            }
+            // Not removed if the run already recorded it as unfinished.
+            if (pending == null || !outstanding.remove(pending)) {
+                return;
+            }
+            Stats operationStats = stats.get(operation);
+            record(operation, (now - due) / 1000);
+            if (failure != null) {
+                operationStats.failures.increment();
+            } else if (response.statusCode() / 100 == 2) {
+                operationStats.ok.increment();
+            } else {
+                operationStats.errors.increment();
+            }
+        });
+    }
+
+    private void record(Operation operation, long latencyMicros) {
+        stats.get(operation).recorder.recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    /**
+     * Records the requests still without a response, and the dropped arrivals still without a slot, at the timeout
+     * and as failures.
+     *
+     * @return the number of requests still without a response
+     */
+    private int recordUnanswered() {
+        long timeoutMicros = config.timeout().toNanos() / 1000;
+        int unfinished = 0;
+        for (Pending pending : outstanding) {
+            if (outstanding.remove(pending)) {
+                record(pending.operation, timeoutMicros);
+                stats.get(pending.operation).failures.increment();
+                unfinished++;
+            }
+        }
+        Pending dropped;
+        while ((dropped = waitingForSlot.poll()) != null) {
+            record(dropped.operation, timeoutMicros);
+            stats.get(dropped.operation).failures.increment();
+        }
+        return unfinished;
+    }
+
+    /**
+     * @return one of the most recently returned receipt IDs, or {@code null} if there is none yet
+     */
+    private String recentId(SplittableRandom random) {
+        long stored = storedIds.get();
+        if (stored == 0) {
+            return null;
+        }
+        // A slot claimed by a response that has not written its ID yet reads as null, and a submission is sent.
+        return recentIds.get((int) ((stored - 1 - random.nextLong(Math.min(stored, RECENT_IDS))) % RECENT_IDS));
+    }
+
+    private void rememberId(String body) {
+        try {
+            String id = objectMapper.readTree(body).path("id").asText(null);
+            if (id != null) {
+                long slot = storedIds.getAndIncrement();
+                recentIds.set((int) (slot % RECENT_IDS), id);
+            }
+        } catch (IOException e) {
+            // Not a receipt ID response; nothing to read back later.
+        }
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + config.timeout().toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void report(long measureFrom) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(1000);
+                if (System.nanoTime() < measureFrom) {
+                    System.err.printf("warmup: %d in flight%n", inFlight.get());
+                    continue;
+                }
+                StringBuilder line = new StringBuilder();
+                for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+                    Histogram interval = entry.getValue().fold();
+                    line.append(String.format("%s %d/s p50=%dus p99=%dus max=%dus  ",
+                            entry.getKey().name().toLowerCase(), interval.getTotalCount(),
+                            interval.getValueAtPercentile(50), interval.getValueAtPercentile(99),
+                            interval.getMaxValue()));
+                }
+                System.err.println(line.append("in flight ").append(inFlight.get())
+                        .append(", waiting for a slot ").append(waitingForSlot.size()));
+            }
+        } catch (InterruptedException e) {
+            // Run finished.
+        }
+    }
+}
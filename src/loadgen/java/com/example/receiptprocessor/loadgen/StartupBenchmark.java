@@ -0,0 +1,214 @@
+package com.example.receiptprocessor.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start comparison of the application as a plain jar and as built by the {@code fast-startup} profile: each
+ * variant is started several times, and each time the benchmark measures how long it takes from launching the JVM
+ * until {@code POST /receipts/process} first succeeds, and the process's resident set size at that moment.
+ * <pre>
+ * ./mvnw -Pfast-startup package -DskipTests
+ * ./mvnw -Ploadgen test-compile exec:exec -Dloadgen.main=com.example.receiptprocessor.loadgen.StartupBenchmark \
+ *     -Dloadgen.args="--runs=5"
+ * </pre>
+ * Variants: {@code jar} ({@code java -jar} on the repackaged jar, as before), {@code aot} (the extracted
+ * application with Spring AOT initialization) and {@code aot-cds} (the same with the class data sharing archive).
+ * Every run uses its own in-memory database and port. Results go to {@code --report} (default
+ * {@code target/startup-report.json}) and standard output; RSS is read from {@code /proc}, so it is only reported
+ * on Linux.
+ */
+public class StartupBenchmark {
+
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    record Variant(String name, Path jar, List<String> jvmOptions) {
+    }
+
+    record RunResult(long timeToFirstRequestMillis, Long rssKilobytes) {
+    }
+
+    record Summary(int runs, long medianTimeToFirstRequestMillis, long minTimeToFirstRequestMillis,
+                   long maxTimeToFirstRequestMillis, Long medianRssKilobytes, Double timeRelativeToJar,
+                   Double rssRelativeToJar, List<RunResult> results) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("jar", "target/ReceiptProcessor-0.0.1-SNAPSHOT.jar");
+        options.put("application", "target/application");
+        options.put("runs", "5");
+        options.put("report", "target/startup-report.json");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0 || !options.containsKey(arg.substring(2, equals))) {
+                System.err.println("Unknown argument '" + arg + "'; settings and defaults: " + options);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        Path jar = Path.of(options.get("jar"));
+        Path application = Path.of(options.get("application"));
+        Path extractedJar = application.resolve(jar.getFileName());
+        Path archive = application.resolve("application.jsa");
+        List<Variant> variants = List.of(
+                new Variant("jar", jar, List.of()),
+                new Variant("aot", extractedJar, List.of("-Dspring.aot.enabled=true")),
+                new Variant("aot-cds", extractedJar,
+                        List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true")));
+        for (Variant variant : variants) {
+            if (!Files.exists(variant.jar())) {
+                throw new IllegalStateException(variant.jar() + " not found; build with ./mvnw -Pfast-startup package");
+            }
+        }
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException(archive + " not found; the fast-startup build records it");
+        }
+        int runs = Integer.parseInt(options.get("runs"));
+        byte[] receipt = sampleReceipt();
+
+        Map<String, List<RunResult>> results = new LinkedHashMap<>();
+        for (Variant variant : variants) {
+            results.put(variant.name(), new ArrayList<>());
+        }
+        // Interleave the variants so drifting machine load affects them alike.
+        for (int run = 0; run < runs; run++) {
+            for (Variant variant : variants) {
+                RunResult result = start(variant, run, receipt);
+                System.err.printf("%s run %d: first request after %d ms, RSS %s kB%n", variant.name(), run + 1,
+                        result.timeToFirstRequestMillis(), result.rssKilobytes());
+                results.get(variant.name()).add(result);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        Summary baseline = summarize(results.get("jar"), null);
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        for (Map.Entry<String, List<RunResult>> entry : results.entrySet()) {
+            summaries.put(entry.getKey(), summarize(entry.getValue(), baseline));
+        }
+        report.put("variants", summaries);
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        Path reportPath = Path.of(options.get("report"));
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        Files.writeString(reportPath, json);
+        System.out.println(json);
+    }
+
+    private static RunResult start(Variant variant, int run, byte[] receipt) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(variant.jvmOptions());
+        command.addAll(List.of("-jar", variant.jar().toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:startup-" + variant.name() + "-" + run));
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/receipts/process"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(receipt))
+                .build();
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = launched + START_TIMEOUT.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant.name() + " exited with " + process.exitValue()
+                            + " before answering; command: " + String.join(" ", command));
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(variant.name() + " did not answer within " + START_TIMEOUT);
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+                        return new RunResult(millis, rssKilobytes(process.pid()));
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet.
+                }
+                Thread.sleep(5);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static Long rssKilobytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException e) {
+            // Not Linux.
+        }
+        return null;
+    }
+
+    private static Summary summarize(List<RunResult> results, Summary baseline) {
+        long[] times = results.stream().mapToLong(RunResult::timeToFirstRequestMillis).sorted().toArray();
+        long[] rss = results.stream().filter(result -> result.rssKilobytes() != null)
+                .mapToLong(RunResult::rssKilobytes).sorted().toArray();
+        long medianTime = times[times.length / 2];
+        Long medianRss = rss.length == 0 ? null : rss[rss.length / 2];
+        Double timeRelative = baseline == null ? null
+                : (double) medianTime / baseline.medianTimeToFirstRequestMillis();
+        Double rssRelative = baseline == null || medianRss == null || baseline.medianRssKilobytes() == null ? null
+                : (double) medianRss / baseline.medianRssKilobytes();
+        return new Summary(results.size(), medianTime, times[0], times[times.length - 1], medianRss, timeRelative,
+                rssRelative, results);
+    }
+
+    static byte[] sampleReceipt() throws IOException {
+        try (InputStream in = StartupBenchmark.class.getResourceAsStream("/testReceipt.json")) {
+            if (in == null) {
+                throw new IllegalStateException("testReceipt.json not on the classpath");
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
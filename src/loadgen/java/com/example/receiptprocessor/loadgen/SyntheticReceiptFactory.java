@@ -0,0 +1,152 @@
+package com.example.receiptprocessor.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Receipt bodies modelled on the sample receipts ({@code src/test/resources/testReceipt*.json} by default):
+ * retailer names, item descriptions and prices are taken from the samples and varied, with a configurable number
+ * of users, retailers and items per receipt.
+ * <p>
+ * Every new receipt gets a purchase date and time no earlier receipt of the run had for its retailer, so
+ * duplicates happen only when asked for. The run starts at a seed-dependent point of a key space of about four
+ * billion minutes per retailer, so runs with different seeds do not collide on a shared database.
+ * Not thread-safe; the driver calls it from its one scheduling thread.
+ */
+final class SyntheticReceiptFactory {
+
+    private static final LocalDate BASE_DATE = LocalDate.of(2000, 1, 1);
+    private static final long MINUTES_PER_DAY = 24 * 60;
+    // Dates up to 9999-12-31 keep the four-digit year of the wire format.
+    private static final long KEY_SLOTS =
+            (LocalDate.of(9999, 12, 31).toEpochDay() - BASE_DATE.toEpochDay()) * MINUTES_PER_DAY;
+    private static final int RECENT_BODIES = 4096;
+
+    private record SampleItem(String shortDescription, long cents) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final SplittableRandom random;
+    private final String[] retailers;
+    private final List<SampleItem> sampleItems = new ArrayList<>();
+    private final int users;
+    private final int minItems;
+    private final int maxItems;
+    private final long firstSlot;
+    private final byte[][] recentBodies = new byte[RECENT_BODIES][];
+    private long sequence;
+
+    SyntheticReceiptFactory(LoadConfig config, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.random = new SplittableRandom(config.seed());
+        this.users = config.users();
+        this.minItems = config.minItems();
+        this.maxItems = config.maxItems();
+        Set<String> sampleRetailers = new LinkedHashSet<>();
+        for (JsonNode sample : readSamples(config.shapes())) {
+            sampleRetailers.add(sample.path("retailer").asText());
+            for (JsonNode item : sample.path("items")) {
+                long cents = Math.round(Double.parseDouble(item.path("price").asText()) * 100);
+                sampleItems.add(new SampleItem(item.path("shortDescription").asText().trim(), cents));
+            }
+        }
+        if (sampleItems.isEmpty()) {
+            throw new IllegalArgumentException("No sample receipts with items found at " + config.shapes());
+        }
+        List<String> names = new ArrayList<>(sampleRetailers);
+        this.retailers = new String[config.retailers()];
+        for (int i = 0; i < retailers.length; i++) {
+            String name = names.get(i % names.size());
+            retailers[i] = i < names.size() ? name : name + " " + (i / names.size());
+        }
+        long receiptsSent = (long) Math.ceil(config.rate()
+                * (config.warmup().toSeconds() + config.duration().toSeconds()));
+        long slotsUsed = receiptsSent / retailers.length + 1;
+        this.firstSlot = random.nextLong(Math.max(1, KEY_SLOTS - slotsUsed));
+    }
+
+    /**
+     * @return the body of a receipt not submitted before in this run
+     */
+    byte[] newReceipt() {
+        long current = sequence++;
+        int retailer = (int) (current % retailers.length);
+        long slot = firstSlot + current / retailers.length;
+        ObjectNode receipt = objectMapper.createObjectNode();
+        receipt.put("userId", "loadgen-user-" + random.nextInt(users));
+        receipt.put("retailer", retailers[retailer]);
+        receipt.put("purchaseDate", BASE_DATE.plusDays(slot / MINUTES_PER_DAY).toString());
+        int minute = (int) (slot % MINUTES_PER_DAY);
+        receipt.put("purchaseTime", String.format("%02d:%02d", minute / 60, minute % 60));
+        ArrayNode items = receipt.putArray("items");
+        long total = 0;
+        for (int i = random.nextInt(minItems, maxItems + 1); i > 0; i--) {
+            SampleItem sample = sampleItems.get(random.nextInt(sampleItems.size()));
+            // Half to double the sample price, so totals and per-item rules vary.
+            long cents = Math.max(1, sample.cents() / 2 + random.nextLong(sample.cents() * 3 / 2 + 1));
+            items.addObject()
+                    .put("shortDescription", sample.shortDescription())
+                    .put("price", formatCents(cents));
+            total += cents;
+        }
+        receipt.put("total", formatCents(total));
+        byte[] body = toBytes(receipt);
+        recentBodies[(int) (current % RECENT_BODIES)] = body;
+        return body;
+    }
+
+    /**
+     * @return the body of a recently generated receipt, or a new receipt if none has been generated yet
+     */
+    byte[] duplicateReceipt() {
+        if (sequence == 0) {
+            return newReceipt();
+        }
+        int recent = (int) Math.min(sequence, RECENT_BODIES);
+        return recentBodies[(int) ((sequence - 1 - random.nextInt(recent)) % RECENT_BODIES)];
+    }
+
+    SplittableRandom random() {
+        return random;
+    }
+
+    private List<JsonNode> readSamples(String pattern) {
+        try {
+            List<JsonNode> samples = new ArrayList<>();
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(pattern)) {
+                try (InputStream in = resource.getInputStream()) {
+                    samples.add(objectMapper.readTree(in));
+                }
+            }
+            return samples;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read sample receipts at " + pattern, e);
+        }
+    }
+
+    private byte[] toBytes(JsonNode receipt) {
+        try {
+            return objectMapper.writeValueAsBytes(receipt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String formatCents(long cents) {
+        return (cents / 100) + "." + (cents % 100 < 10 ? "0" : "") + (cents % 100);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.receiptprocessor.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request handling on Tomcat's pool of platform threads versus one virtual thread per request: the packaged
+ * application is started once per variant, driven over HTTP by the {@link OpenLoopDriver} at the same arrival rate,
+ * and stopped again. Both variants run with {@code -Djdk.tracePinnedThreads=full}; the application's output goes to
+ * {@code target/thread-model-<variant>.log}, and the report counts the pinned stacks the JVM printed there.
+ * <pre>
+ * ./mvnw package -DskipTests
+ * ./mvnw -Ploadgen test-compile exec:exec -Dloadgen.main=com.example.receiptprocessor.loadgen.ThreadModelBenchmark \
+ *     -Dloadgen.args="--rate=2000 --duration-seconds=60"
+ * </pre>
+ * Variants: {@code platform} (the default, up to {@code server.tomcat.threads.max} request threads) and
+ * {@code virtual} (the {@code virtual-threads} profile). Both get a connection pool of {@code --pool-size}
+ * connections (default 50), so only the threading differs. Other arguments are load settings, see
+ * {@link LoadConfig}; {@code --base-url} is set per variant.
+ */
+public class ThreadModelBenchmark {
+
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    record Variant(String name, List<String> applicationArguments) {
+    }
+
+    record VariantResult(LoadReport load, int pinnedStacks, Path log) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("jar", "target/ReceiptProcessor-0.0.1-SNAPSHOT.jar");
+        options.put("pool-size", "50");
+        options.put("report", "target/thread-model-report.json");
+        List<String> loadArgs = new ArrayList<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") && equals > 0 ? arg.substring(2, equals) : "";
+            if (options.containsKey(name)) {
+                options.put(name, arg.substring(equals + 1));
+            } else if (!name.equals("base-url") && !name.equals("report")) {
+                loadArgs.add(arg);
+            }
+        }
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(loadArgs.toArray(String[]::new));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Settings and defaults: " + options + " and " + LoadConfig.DEFAULTS);
+            System.exit(2);
+            return;
+        }
+        Path jar = Path.of(options.get("jar"));
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException(jar + " not found; build with ./mvnw package");
+        }
+        String poolSize = "--spring.datasource.hikari.maximum-pool-size=" + options.get("pool-size");
+        List<Variant> variants = List.of(
+                new Variant("platform", List.of(poolSize)),
+                new Variant("virtual", List.of("--spring.profiles.active=virtual-threads", poolSize)));
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        Map<String, VariantResult> results = new LinkedHashMap<>();
+        for (Variant variant : variants) {
+            results.put(variant.name(), run(variant, jar, config, objectMapper));
+        }
+        report.put("variants", results);
+
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        Path reportPath = Path.of(options.get("report"));
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        Files.writeString(reportPath, json);
+        System.out.println(json);
+    }
+
+    private static VariantResult run(Variant variant, Path jar, LoadConfig config, ObjectMapper objectMapper)
+            throws Exception {
+        int port = StartupBenchmark.freePort();
+        Path log = Path.of("target", "thread-model-" + variant.name() + ".log");
+        Files.createDirectories(log.getParent());
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of("-Djdk.tracePinnedThreads=full", "-jar", jar.toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:thread-model-" + variant.name()));
+        command.addAll(variant.applicationArguments());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            URI baseUrl = URI.create("http://localhost:" + port);
+            awaitFirstResponse(variant, process, baseUrl);
+            System.err.printf("%s: sending %.0f requests/s for %d s after a %d s warmup (seed %d)%n", variant.name(),
+                    config.rate(), config.duration().toSeconds(), config.warmup().toSeconds(), config.seed());
+            LoadConfig variantConfig = config.withBaseUrl(baseUrl);
+            LoadReport load = new OpenLoopDriver(variantConfig, new SyntheticReceiptFactory(variantConfig, objectMapper),
+                    objectMapper).run();
+            return new VariantResult(load, pinnedStacks(log), log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static void awaitFirstResponse(Variant variant, Process process, URI baseUrl) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(baseUrl.resolve("/receipts/process"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(StartupBenchmark.sampleReceipt()))
+                .build();
+        long deadline = System.nanoTime() + START_TIMEOUT.toNanos();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(variant.name() + " exited with " + process.exitValue()
+                        + " before answering");
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(variant.name() + " did not answer within " + START_TIMEOUT);
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * The JVM prints each distinct pinned stack once, headed by the carrier thread's name.
+     */
+    private static int pinnedStacks(Path log) throws IOException {
+        int stacks = 0;
+        for (String line : Files.readAllLines(log)) {
+            if (line.startsWith("Thread[#")) {
+                stacks++;
+            }
+        }
+        return stacks;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.receiptprocessor;
+
+import com.example.receiptprocessor.dto.ImportReport;
+import com.example.receiptprocessor.service.ReceiptImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Command-line bulk import without the web server:
+ * <pre>
+ * java -cp receipt-processor.jar -Dloader.main=com.example.receiptprocessor.ReceiptImportCli \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher receipts.ndjson --spring.datasource.url=...
+ * </pre>
+ * The first argument is the NDJSON file ({@code -} for standard input); the rest are passed to Spring.
+ * Prints the import report as JSON and exits non-zero if any line was rejected.
+ */
+public class ReceiptImportCli {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ReceiptImportCli <file.ndjson|-> [--spring.property=value ...]");
+            System.exit(2);
+        }
+        ImportReport report;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ReceiptProcessorApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(Arrays.copyOfRange(args, 1, args.length));
+             InputStream in = "-".equals(args[0]) ? System.in : Files.newInputStream(Path.of(args[0]))) {
+            report = context.getBean(ReceiptImportService.class).importNdjson(in);
+            System.out.println(context.getBean(ObjectMapper.class).writerWithDefaultPrettyPrinter()
+                    .writeValueAsString(report));
+        }
+        System.exit(report.getRejected() == 0 ? 0 : 1);
+    }
+}
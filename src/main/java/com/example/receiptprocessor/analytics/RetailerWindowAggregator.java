@@ -0,0 +1,250 @@
+package com.example.receiptprocessor.analytics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Receipts, points and duplicate submissions per retailer in tumbling minute, hour and day windows, counted in
+ * memory as receipts are stored, so watching for spikes never queries the receipt table.
+ * <p>
+ * Each granularity keeps a ring of its most recent windows ({@code receipt.analytics.*-windows}). A window is split
+ * into lock-striped buckets by retailer, and a bucket is reset in place when the ring comes round to it for a newer
+ * window. Each window tracks at most {@code receipt.analytics.retailers-per-window} retailers, so memory is bounded
+ * however many retailers there are. Once a bucket is full, a retailer it does not track replaces the one with the
+ * fewest receipts and takes over its counts (the Space-Saving algorithm), so a retailer that turns busy late in the
+ * window still reaches the top; the counts of a tracked retailer are then upper bounds. Window totals are exact.
+ * Windows are aligned to UTC and use the time a receipt was stored, not its purchase time.
+ */
+@Component
+public class RetailerWindowAggregator {
+
+    private static final int STRIPES = 16;
+    // Positions in the counts array of a tracked retailer.
+    private static final int RECEIPTS = 0;
+    private static final int POINTS = 1;
+    private static final int DUPLICATES = 2;
+    private static final int OVERCOUNT = 3;
+
+    public enum Granularity {
+        MINUTE(Duration.ofMinutes(1)),
+        HOUR(Duration.ofHours(1)),
+        DAY(Duration.ofDays(1));
+
+        private final long millis;
+
+        Granularity(Duration length) {
+            this.millis = length.toMillis();
+        }
+    }
+
+    /**
+     * Counts of one retailer in one window. {@code overcount} receipts, and the points and duplicates that came with
+     * them, were taken over from the retailers it replaced; 0 if it was tracked since its first receipt.
+     */
+    public record RetailerCounts(String retailer, long receipts, long points, long duplicates, long overcount) {
+    }
+
+    /**
+     * One window: totals over every retailer, and the tracked retailers with the most receipts.
+     */
+    public record Window(Instant start, Instant end, long receipts, long points, long duplicates,
+                         List<RetailerCounts> retailers) {
+    }
+
+    private final Ring[] rings = new Ring[Granularity.values().length];
+
+    public RetailerWindowAggregator(@Value("${receipt.analytics.minute-windows:60}") int minuteWindows,
+                                    @Value("${receipt.analytics.hour-windows:48}") int hourWindows,
+                                    @Value("${receipt.analytics.day-windows:30}") int dayWindows,
+                                    @Value("${receipt.analytics.retailers-per-window:1024}") int retailersPerWindow) {
+        int retailersPerStripe = Math.max(1, retailersPerWindow / STRIPES);
+        rings[Granularity.MINUTE.ordinal()] = new Ring(Granularity.MINUTE, minuteWindows, retailersPerStripe);
+        rings[Granularity.HOUR.ordinal()] = new Ring(Granularity.HOUR, hourWindows, retailersPerStripe);
+        rings[Granularity.DAY.ordinal()] = new Ring(Granularity.DAY, dayWindows, retailersPerStripe);
+    }
+
+    /**
+     * Counts a stored receipt once the surrounding transaction commits, or right away outside a transaction.
+     */
+    public void recordAfterCommit(String retailer, int points) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(retailer, 1, points, 0, System.currentTimeMillis());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(retailer, 1, points, 0, System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Counts a submission that was resolved to an already stored receipt.
+     */
+    public void recordDuplicate(String retailer) {
+        record(retailer, 0, 0, 1, System.currentTimeMillis());
+    }
+
+    /**
+     * @return up to {@code windows} most recent windows of the granularity, newest (the current one) first, each with
+     * its {@code limit} busiest retailers
+     */
+    public List<Window> recent(Granularity granularity, int windows, int limit) {
+        return recent(granularity, windows, limit, System.currentTimeMillis());
+    }
+
+    void record(String retailer, long receipts, long points, long duplicates, long epochMillis) {
+        int stripe = stripeIndex(retailer);
+        for (Ring ring : rings) {
+            long window = epochMillis / ring.granularity.millis;
+            Bucket bucket = ring.slot(window)[stripe];
+            bucket.lock.lock();
+            try {
+                if (bucket.window != window) {
+                    if (bucket.window > window) {
+                        // Older than anything the ring still holds for this slot.
+                        continue;
+                    }
+                    bucket.reset(window);
+                }
+                bucket.add(retailer, receipts, points, duplicates);
+            } finally {
+                bucket.lock.unlock();
+            }
+        }
+    }
+
+    List<Window> recent(Granularity granularity, int windows, int limit, long epochMillis) {
+        Ring ring = rings[granularity.ordinal()];
+        long current = epochMillis / granularity.millis;
+        int count = Math.min(windows, ring.slots.length);
+        List<Window> recent = new ArrayList<>(count);
+        for (long window = current; window > current - count; window--) {
+            recent.add(ring.snapshot(window, limit));
+        }
+        return recent;
+    }
+
+    private static int stripeIndex(String retailer) {
+        int hash = retailer.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private static final class Ring {
+        private final Granularity granularity;
+        private final Bucket[][] slots;
+
+        Ring(Granularity granularity, int windows, int retailersPerStripe) {
+            this.granularity = granularity;
+            this.slots = new Bucket[Math.max(1, windows)][STRIPES];
+            for (Bucket[] slot : slots) {
+                for (int i = 0; i < STRIPES; i++) {
+                    slot[i] = new Bucket(retailersPerStripe);
+                }
+            }
+        }
+
+        Bucket[] slot(long window) {
+            return slots[(int) Math.floorMod(window, (long) slots.length)];
+        }
+
+        Window snapshot(long window, int limit) {
+            long receipts = 0;
+            long points = 0;
+            long duplicates = 0;
+            List<RetailerCounts> retailers = new ArrayList<>();
+            for (Bucket bucket : slot(window)) {
+                bucket.lock.lock();
+                try {
+                    if (bucket.window != window) {
+                        continue;
+                    }
+                    receipts += bucket.receipts;
+                    points += bucket.points;
+                    duplicates += bucket.duplicates;
+                    for (Map.Entry<String, long[]> entry : bucket.retailers.entrySet()) {
+                        long[] counts = entry.getValue();
+                        retailers.add(new RetailerCounts(entry.getKey(), counts[RECEIPTS], counts[POINTS],
+                                counts[DUPLICATES], counts[OVERCOUNT]));
+                    }
+                } finally {
+                    bucket.lock.unlock();
+                }
+            }
+            retailers.sort(Comparator.comparingLong(RetailerCounts::receipts)
+                    .thenComparingLong(RetailerCounts::duplicates).reversed()
+                    .thenComparing(RetailerCounts::retailer));
+            long start = window * granularity.millis;
+            return new Window(Instant.ofEpochMilli(start), Instant.ofEpochMilli(start + granularity.millis),
+                    receipts, points, duplicates, List.copyOf(retailers.subList(0, Math.min(limit, retailers.size()))));
+        }
+    }
+
+    private static final class Bucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int maxRetailers;
+        // All fields below are guarded by the lock.
+        private final Map<String, long[]> retailers = new HashMap<>();
+        private long window = Long.MIN_VALUE;
+        private long receipts;
+        private long points;
+        private long duplicates;
+
+        Bucket(int maxRetailers) {
+            this.maxRetailers = maxRetailers;
+        }
+
+        void reset(long window) {
+            this.window = window;
+            retailers.clear();
+            receipts = 0;
+            points = 0;
+            duplicates = 0;
+        }
+
+        void add(String retailer, long receipts, long points, long duplicates) {
+            this.receipts += receipts;
+            this.points += points;
+            this.duplicates += duplicates;
+            long[] counts = retailers.get(retailer);
+            if (counts == null) {
+                counts = retailers.size() < maxRetailers ? new long[4] : evictLeastBusy();
+                retailers.put(retailer, counts);
+            }
+            counts[RECEIPTS] += receipts;
+            counts[POINTS] += points;
+            counts[DUPLICATES] += duplicates;
+        }
+
+        /**
+         * Removes the retailer with the fewest receipts, then duplicates, and returns its counts to be taken over.
+         */
+        private long[] evictLeastBusy() {
+            Map.Entry<String, long[]> least = null;
+            for (Map.Entry<String, long[]> entry : retailers.entrySet()) {
+                long[] counts = entry.getValue();
+                if (least == null || counts[RECEIPTS] < least.getValue()[RECEIPTS]
+                        || counts[RECEIPTS] == least.getValue()[RECEIPTS]
+                        && counts[DUPLICATES] < least.getValue()[DUPLICATES]) {
+                    least = entry;
+                }
+            }
+            retailers.remove(least.getKey());
+            long[] counts = least.getValue();
+            counts[OVERCOUNT] = counts[RECEIPTS];
+            return counts;
+        }
+    }
+}
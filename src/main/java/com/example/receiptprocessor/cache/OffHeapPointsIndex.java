@@ -0,0 +1,292 @@
+package com.example.receiptprocessor.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hash map from a receipt UUID, as its two longs, to an int of points, kept in direct memory so that tens of
+ * millions of entries add nothing for the garbage collector to trace.
+ * <p>
+ * Keys are spread over a fixed number of stripes, each an open-addressing table with linear probing in its own
+ * direct buffer. Writers lock their stripe; readers take no lock. A slot is published by writing the points and
+ * the low key half first and the high key half last with release semantics; readers load the high half with
+ * acquire semantics and treat 0 as an empty slot. Every RFC 4122/9562 UUID has a non-zero high half (it holds the
+ * version), so no real key is lost to that marker. A stripe grows by copying into a table twice the size, which is
+ * then published; readers still probing the old table see the values it had when it was replaced, and its memory is
+ * released once they are done with it. Entries are never removed.
+ */
+public final class OffHeapPointsIndex {
+
+    // High key half, low key half, points and 4 bytes of padding, so every long stays 8-byte aligned.
+    private static final int SLOT_BYTES = 24;
+    private static final int LSB_OFFSET = 8;
+    private static final int POINTS_OFFSET = 16;
+    private static final int MIN_STRIPE_SLOTS = 16;
+    private static final int MAX_STRIPE_SLOTS = 1 << 26;
+
+    private static final byte[] NIBBLES = new byte[128];
+
+    static {
+        Arrays.fill(NIBBLES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            NIBBLES[Character.forDigit(i, 16)] = (byte) i;
+        }
+    }
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * @param stripes         number of independently locked tables, rounded up to a power of two
+     * @param initialCapacity entries the index holds before any stripe needs to grow
+     */
+    public OffHeapPointsIndex(int stripes, long initialCapacity) {
+        int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        long perStripe = (initialCapacity + stripeCount - 1) / stripeCount;
+        // At most three quarters of the slots are used, so probes stay short and always reach an empty slot.
+        int slots = (int) Math.min(MAX_STRIPE_SLOTS, Math.max(MIN_STRIPE_SLOTS, Long.highestOneBit(perStripe * 4 / 3) << 1));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(slots);
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /**
+     * @return the points stored for the UUID, or {@code defaultValue} if there are none
+     */
+    public int getOrDefault(long mostSigBits, long leastSigBits, int defaultValue) {
+        long hash = hash(mostSigBits, leastSigBits);
+        Table table = stripe(hash).table;
+        for (int slot = (int) hash & table.mask; ; slot = (slot + 1) & table.mask) {
+            int base = slot * SLOT_BYTES;
+            long msb = (long) LONGS.getAcquire(table.buffer, base);
+            if (msb == 0) {
+                return defaultValue;
+            }
+            if (msb == mostSigBits && (long) LONGS.get(table.buffer, base + LSB_OFFSET) == leastSigBits) {
+                return (int) INTS.getAcquire(table.buffer, base + POINTS_OFFSET);
+            }
+        }
+    }
+
+    /**
+     * Looks up a receipt by its ID string. The ID is decoded in place, without the {@link java.util.UUID} parser and
+     * its allocations; IDs that are not canonical UUIDs (see {@link #isCanonicalUuid(String)}) are never found.
+     */
+    public int getOrDefault(String id, int defaultValue) {
+        if (!hasUuidShape(id)) {
+            return defaultValue;
+        }
+        int a = hex4(id, 0);
+        int b = hex4(id, 4);
+        int c = hex4(id, 9);
+        int d = hex4(id, 14);
+        int e = hex4(id, 19);
+        int f = hex4(id, 24);
+        int g = hex4(id, 28);
+        int h = hex4(id, 32);
+        if ((a | b | c | d | e | f | g | h) < 0) {
+            return defaultValue;
+        }
+        return getOrDefault(bits(a, b, c, d), bits(e, f, g, h), defaultValue);
+    }
+
+    /**
+     * Stores or replaces the points of a receipt by its ID string.
+     *
+     * @throws IllegalArgumentException if the ID is not a canonical UUID
+     */
+    public void put(String id, int points) {
+        put(id, points, true);
+    }
+
+    /**
+     * Stores the points of a receipt by its ID string unless the receipt already has an entry.
+     *
+     * @throws IllegalArgumentException if the ID is not a canonical UUID
+     */
+    public void putIfAbsent(String id, int points) {
+        put(id, points, false);
+    }
+
+    /**
+     * Stores or replaces the points of the UUID.
+     *
+     * @throws IllegalArgumentException if {@code mostSigBits} is 0, which no versioned UUID has
+     */
+    public void put(long mostSigBits, long leastSigBits, int points) {
+        put(mostSigBits, leastSigBits, points, true);
+    }
+
+    private void put(String id, int points, boolean replace) {
+        if (!isCanonicalUuid(id)) {
+            throw new IllegalArgumentException("Not a canonical UUID: " + id);
+        }
+        put(bits(hex4(id, 0), hex4(id, 4), hex4(id, 9), hex4(id, 14)),
+                bits(hex4(id, 19), hex4(id, 24), hex4(id, 28), hex4(id, 32)), points, replace);
+    }
+
+    private void put(long mostSigBits, long leastSigBits, int points, boolean replace) {
+        if (mostSigBits == 0) {
+            throw new IllegalArgumentException("UUIDs with zero high bits cannot be indexed");
+        }
+        long hash = hash(mostSigBits, leastSigBits);
+        Stripe stripe = stripe(hash);
+        stripe.lock.lock();
+        try {
+            if (stripe.size >= stripe.table.maxSize()) {
+                stripe.grow();
+            }
+            Table table = stripe.table;
+            for (int slot = (int) hash & table.mask; ; slot = (slot + 1) & table.mask) {
+                int base = slot * SLOT_BYTES;
+                long msb = (long) LONGS.get(table.buffer, base);
+                if (msb == 0) {
+                    INTS.set(table.buffer, base + POINTS_OFFSET, points);
+                    LONGS.set(table.buffer, base + LSB_OFFSET, leastSigBits);
+                    LONGS.setRelease(table.buffer, base, mostSigBits);
+                    stripe.size++;
+                    return;
+                }
+                if (msb == mostSigBits && (long) LONGS.get(table.buffer, base + LSB_OFFSET) == leastSigBits) {
+                    if (replace) {
+                        INTS.setRelease(table.buffer, base + POINTS_OFFSET, points);
+                    }
+                    return;
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries; may lag behind concurrent puts
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    /**
+     * @return the direct memory currently held by the tables
+     */
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.table.buffer.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Whether {@code id} is a UUID in canonical form (36 characters, lower-case hex). {@link java.util.UUID#fromString}
+     * also accepts upper case and shortened groups, so other spellings would share a key with a different ID.
+     */
+    public static boolean isCanonicalUuid(String id) {
+        return hasUuidShape(id) && (hex4(id, 0) | hex4(id, 4) | hex4(id, 9) | hex4(id, 14)
+                | hex4(id, 19) | hex4(id, 24) | hex4(id, 28) | hex4(id, 32)) >= 0;
+    }
+
+    private static boolean hasUuidShape(String id) {
+        return id.length() == 36
+                && id.charAt(8) == '-' && id.charAt(13) == '-' && id.charAt(18) == '-' && id.charAt(23) == '-';
+    }
+
+    private static long bits(long a, long b, long c, long d) {
+        return a << 48 | b << 32 | c << 16 | d;
+    }
+
+    /**
+     * Decodes four hex digits through a lookup table rather than per-character branches, which mispredict on random
+     * IDs. Returns -1 if any of them is not a lower-case hex digit.
+     */
+    private static int hex4(String id, int from) {
+        char c1 = id.charAt(from);
+        char c2 = id.charAt(from + 1);
+        char c3 = id.charAt(from + 2);
+        char c4 = id.charAt(from + 3);
+        if ((c1 | c2 | c3 | c4) >= NIBBLES.length) {
+            return -1;
+        }
+        int n1 = NIBBLES[c1];
+        int n2 = NIBBLES[c2];
+        int n3 = NIBBLES[c3];
+        int n4 = NIBBLES[c4];
+        return (n1 | n2 | n3 | n4) < 0 ? -1 : n1 << 12 | n2 << 8 | n3 << 4 | n4;
+    }
+
+    private Stripe stripe(long hash) {
+        return stripes[stripeShift == 64 ? 0 : (int) (hash >>> stripeShift)];
+    }
+
+    /**
+     * Version 7 UUIDs carry a timestamp in the high bits, so both halves are mixed before the bits are used.
+     */
+    private static long hash(long mostSigBits, long leastSigBits) {
+        long hash = mostSigBits * 0x9E3779B97F4A7C15L + leastSigBits;
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        return hash ^ hash >>> 32;
+    }
+
+    private record Table(ByteBuffer buffer, int mask) {
+
+        static Table allocate(int slots) {
+            return new Table(ByteBuffer.allocateDirect(slots * SLOT_BYTES), slots - 1);
+        }
+
+        int maxSize() {
+            return (mask + 1) / 4 * 3;
+        }
+    }
+
+    private static final class Stripe {
+
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Table table;
+        // Written under the lock; volatile only for size().
+        volatile int size;
+
+        Stripe(int slots) {
+            this.table = Table.allocate(slots);
+        }
+
+        void grow() {
+            Table old = table;
+            int slots = (old.mask + 1) * 2;
+            if (slots > MAX_STRIPE_SLOTS) {
+                throw new IllegalStateException("Off-heap points index stripe is full at " + size + " entries");
+            }
+            Table grown = Table.allocate(slots);
+            for (int base = 0; base < old.buffer.capacity(); base += SLOT_BYTES) {
+                long msb = (long) LONGS.get(old.buffer, base);
+                if (msb == 0) {
+                    continue;
+                }
+                long lsb = (long) LONGS.get(old.buffer, base + LSB_OFFSET);
+                int slot = (int) hash(msb, lsb) & grown.mask;
+                while ((long) LONGS.get(grown.buffer, slot * SLOT_BYTES) != 0) {
+                    slot = (slot + 1) & grown.mask;
+                }
+                int target = slot * SLOT_BYTES;
+                INTS.set(grown.buffer, target + POINTS_OFFSET, (int) INTS.get(old.buffer, base + POINTS_OFFSET));
+                LONGS.set(grown.buffer, target + LSB_OFFSET, lsb);
+                LONGS.set(grown.buffer, target, msb);
+            }
+            // The volatile write publishes the filled table to readers.
+            table = grown;
+        }
+    }
+}
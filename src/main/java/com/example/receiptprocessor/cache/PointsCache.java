@@ -0,0 +1,192 @@
+package com.example.receiptprocessor.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-memory cache of receipt ID to points, filled write-through by ingestion and by reads that miss.
+ * <p>
+ * Points only change when the re-scoring job rewrites them, which invalidates the entries it rewrites once it
+ * commits; otherwise entries leave the cache through size-based eviction. A read that missed may have loaded the
+ * old points before that commit, so it fills the cache with {@link #fill}, which drops the points if an
+ * invalidation happened since the read's {@link #fillStamp}. Entries are weighed by an estimate of their heap footprint, and the
+ * weight budget is the smaller of {@code receipt.points-cache.max-bytes} and
+ * {@code receipt.points-cache.max-entries} entries of a UUID-keyed size.
+ * Hit, miss and eviction counts are published under the cache name {@code receipt.points}.
+ * <p>
+ * With {@code receipt.points-cache.off-heap.enabled=true}, the points of every receipt with a canonical UUID ID are
+ * kept in an {@link OffHeapPointsIndex} instead, without eviction and outside the garbage-collected heap; other IDs
+ * still go through the bounded cache. The index is published as {@code receipt.points.offheap.*}.
+ */
+@Component
+public class PointsCache implements MeterBinder {
+
+    // String key header and array (~56 bytes + 1 byte per Latin-1 char), boxed Integer (16 bytes),
+    // and the cache node plus table slot (~64 bytes).
+    private static final int ENTRY_OVERHEAD_BYTES = 136;
+    private static final int UUID_LENGTH = 36;
+
+    // Points are never this low, so it can stand for a miss without boxing.
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    private final Cache<String, Integer> cache;
+    private final OffHeapPointsIndex offHeapIndex;
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder offHeapMisses = new LongAdder();
+    // Advanced by every invalidation, before the entry is removed.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PointsCache(@Value("${receipt.points-cache.max-entries:500000}") long maxEntries,
+                       @Value("${receipt.points-cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${receipt.points-cache.off-heap.enabled:false}") boolean offHeap,
+                       @Value("${receipt.points-cache.off-heap.stripes:64}") int offHeapStripes,
+                       @Value("${receipt.points-cache.off-heap.initial-capacity:1048576}") long offHeapInitialCapacity) {
+        long maxWeight = Math.min(maxBytes, maxEntries * (ENTRY_OVERHEAD_BYTES + UUID_LENGTH));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String id, Integer points) -> ENTRY_OVERHEAD_BYTES + id.length())
+                .recordStats()
+                .build();
+        this.offHeapIndex = offHeap ? new OffHeapPointsIndex(offHeapStripes, offHeapInitialCapacity) : null;
+    }
+
+    /**
+     * @return the cached points, or {@code null} on a miss
+     */
+    public Integer get(String id) {
+        if (offHeapIndex != null) {
+            int points = offHeapIndex.getOrDefault(id, ABSENT);
+            if (points != ABSENT) {
+                offHeapHits.increment();
+                return points;
+            }
+            if (OffHeapPointsIndex.isCanonicalUuid(id)) {
+                offHeapMisses.increment();
+                return null;
+            }
+        }
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * @return the stamp to pass to {@link #fill}, taken before the points are read from the store
+     */
+    public long fillStamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches points read from the store after a miss, unless the receipt is cached meanwhile or any entry was
+     * invalidated since {@code stamp}; the points read may then predate a re-scoring commit.
+     */
+    public void fill(String id, int points, long stamp) {
+        if (offHeapIndex != null && OffHeapPointsIndex.isCanonicalUuid(id)) {
+            // Invalidation replaces off-heap entries rather than removing them, so an entry that is absent has
+            // not been re-scored since the read.
+            offHeapIndex.putIfAbsent(id, points);
+            return;
+        }
+        // The check runs under the entry's lock, so an invalidation either sees the filled entry and removes it,
+        // or has advanced the count before the check.
+        cache.asMap().computeIfAbsent(id, key -> invalidations.get() == stamp ? points : null);
+    }
+
+    private void put(String id, int points) {
+        if (offHeapIndex != null && OffHeapPointsIndex.isCanonicalUuid(id)) {
+            offHeapIndex.put(id, points);
+            return;
+        }
+        cache.put(id, points);
+    }
+
+    private void invalidate(String id, int points) {
+        if (offHeapIndex != null && OffHeapPointsIndex.isCanonicalUuid(id)) {
+            offHeapIndex.put(id, points);
+            return;
+        }
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * Caches the points once the surrounding transaction commits, so a rolled-back receipt never becomes
+     * visible through the cache. Outside a transaction the entry is added immediately.
+     */
+    public void putAfterCommit(String id, int points) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(id, points);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(id, points);
+            }
+        });
+    }
+
+    /**
+     * Invalidates the cached points of a receipt once the surrounding transaction commits, after which reads load
+     * the new points from the store. The off-heap index never removes entries; it takes the new {@code points}
+     * instead. Outside a transaction the entry is invalidated immediately.
+     */
+    public void invalidateAfterCommit(String id, int points) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(id, points);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(id, points);
+            }
+        });
+    }
+
+    /**
+     * Hit, miss and eviction counts of the bounded cache since startup; lookups served by the off-heap index are
+     * not included.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize() + (offHeapIndex != null ? offHeapIndex.size() : 0);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "receipt.points");
+        if (offHeapIndex != null) {
+            Gauge.builder("receipt.points.offheap.entries", offHeapIndex, OffHeapPointsIndex::size)
+                    .description("Receipts in the off-heap points index")
+                    .register(registry);
+            Gauge.builder("receipt.points.offheap.memory", offHeapIndex, OffHeapPointsIndex::offHeapBytes)
+                    .description("Direct memory held by the off-heap points index")
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("receipt.points.offheap.gets", offHeapHits, LongAdder::sum)
+                    .description("Lookups in the off-heap points index")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("receipt.points.offheap.gets", offHeapMisses, LongAdder::sum)
+                    .description("Lookups in the off-heap points index")
+                    .tag("result", "miss")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.receiptprocessor.controller;
+
+import com.example.receiptprocessor.analytics.RetailerWindowAggregator;
+import com.example.receiptprocessor.dto.RescoreJobStatus;
+import com.example.receiptprocessor.rules.PointsRuleEngine;
+import com.example.receiptprocessor.rules.RuleSetDefinition;
+import com.example.receiptprocessor.service.RescoreService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+@Validated
+public class AdminController {
+
+    private final PointsRuleEngine pointsRuleEngine;
+
+    private final RescoreService rescoreService;
+
+    private final RetailerWindowAggregator retailerWindows;
+
+    @GetMapping("/rules")
+    public ResponseEntity<RuleSetDefinition> getRules() {
+        return ResponseEntity.ok(pointsRuleEngine.current().getDefinition());
+    }
+
+    /**
+     * Re-reads the configured rule set and activates it; an invalid rule set is rejected with 400 and the
+     * active one is kept.
+     */
+    @PostMapping("/rules/reload")
+    public ResponseEntity<RuleSetDefinition> reloadRules() {
+        return ResponseEntity.ok(pointsRuleEngine.reload().getDefinition());
+    }
+
+    /**
+     * Starts re-scoring every stored receipt with the active rule set; 409 while another job is running.
+     */
+    @PostMapping("/rescore")
+    public ResponseEntity<RescoreJobStatus> startRescore() {
+        return ResponseEntity.accepted().body(rescoreService.startJob());
+    }
+
+    @GetMapping("/rescore/{jobId}")
+    public ResponseEntity<RescoreJobStatus> getRescore(@PathVariable String jobId) {
+        return ResponseEntity.ok(rescoreService.getJobStatus(jobId));
+    }
+
+    @PostMapping("/rescore/{jobId}/cancel")
+    public ResponseEntity<RescoreJobStatus> cancelRescore(@PathVariable String jobId) {
+        return ResponseEntity.ok(rescoreService.cancelJob(jobId));
+    }
+
+    /**
+     * Continues a cancelled or failed job from its checkpoints.
+     */
+    @PostMapping("/rescore/{jobId}/resume")
+    public ResponseEntity<RescoreJobStatus> resumeRescore(@PathVariable String jobId) {
+        return ResponseEntity.accepted().body(rescoreService.resumeJob(jobId));
+    }
+
+    /**
+     * Receipts, points and duplicate submissions per retailer in the most recent tumbling windows, newest first,
+     * counted in memory as receipts are stored.
+     */
+    @GetMapping("/analytics/retailers")
+    public ResponseEntity<List<RetailerWindowAggregator.Window>> getRetailerWindows(
+            @RequestParam(defaultValue = "hour")
+            @Pattern(regexp = "minute|hour|day", message = "Granularity must be 'minute', 'hour' or 'day'") String granularity,
+            @RequestParam(defaultValue = "1")
+            @Min(value = 1, message = "Windows must be at least 1") int windows,
+            @RequestParam(defaultValue = "20")
+            @Min(value = 1, message = "Limit must be between 1 and 1000")
+            @Max(value = 1000, message = "Limit must be between 1 and 1000") int limit) {
+        RetailerWindowAggregator.Granularity windowGranularity =
+                RetailerWindowAggregator.Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        return ResponseEntity.ok(retailerWindows.recent(windowGranularity, windows, limit));
+    }
+}
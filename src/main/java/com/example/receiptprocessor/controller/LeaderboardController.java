@@ -0,0 +1,62 @@
+package com.example.receiptprocessor.controller;
+
+import com.example.receiptprocessor.dto.LeaderboardEntry;
+import com.example.receiptprocessor.leaderboard.PointsLeaderboard;
+import com.example.receiptprocessor.service.UserReceiptCounterService;
+import com.example.receiptprocessor.shard.ShardRouter;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/leaderboard")
+@RequiredArgsConstructor
+@Validated
+public class LeaderboardController {
+
+    private final PointsLeaderboard leaderboard;
+
+    private final UserReceiptCounterService userReceiptCounterService;
+
+    private final ShardRouter shardRouter;
+
+    /**
+     * The users with the most lifetime points, highest first. Users with equal points share a rank.
+     */
+    @GetMapping
+    public ResponseEntity<List<LeaderboardEntry>> getTop(
+            @RequestParam(defaultValue = "10")
+            @Min(value = 1, message = "Limit must be between 1 and 1000")
+            @Max(value = 1000, message = "Limit must be between 1 and 1000") int limit) {
+        List<LeaderboardEntry> entries = new ArrayList<>(limit);
+        long rank = 0;
+        long previousPoints = -1;
+        for (PointsLeaderboard.Standing standing : leaderboard.top(limit)) {
+            if (standing.points() != previousPoints) {
+                rank = entries.size() + 1;
+                previousPoints = standing.points();
+            }
+            entries.add(new LeaderboardEntry(rank, standing.userId(), standing.points()));
+        }
+        return ResponseEntity.ok(entries);
+    }
+
+    /**
+     * The user's rank among all ranked users; a user without points ranks behind everyone who has some.
+     */
+    @GetMapping("/{userId}")
+    public ResponseEntity<LeaderboardEntry> getRank(@PathVariable String userId) {
+        Long points = leaderboard.pointsOf(userId);
+        if (points == null) {
+            // Not ranked yet, e.g. a total that was never seeded; the total lives on the user's shard.
+            points = shardRouter.onUserShard(userId, () -> userReceiptCounterService.pointsTotal(userId));
+        }
+        return ResponseEntity.ok(new LeaderboardEntry(leaderboard.rankOf(points), userId, points));
+    }
+}
@@ -1,14 +1,32 @@
 package com.example.receiptprocessor.controller;
 
+import com.example.receiptprocessor.dto.ImportReport;
 import com.example.receiptprocessor.dto.PointsResponse;
 import com.example.receiptprocessor.dto.ReceiptIdResponse;
+import com.example.receiptprocessor.dto.ReceiptRequest;
+import com.example.receiptprocessor.exception.InvalidReceiptException;
 import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.service.ReceiptExportService;
+import com.example.receiptprocessor.service.ReceiptImportService;
+import com.example.receiptprocessor.service.ReceiptIngestQueue;
 import com.example.receiptprocessor.service.ReceiptService;
+import com.example.receiptprocessor.service.ReceiptSubmissionService;
+import com.example.receiptprocessor.util.ReceiptRequestValidator;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/receipts")
@@ -18,9 +36,68 @@ public class ReceiptController {
 
     private final ReceiptService receiptService;
 
+    private final ReceiptIngestQueue receiptIngestQueue;
+
+    private final ReceiptImportService receiptImportService;
+
+    private final ReceiptExportService receiptExportService;
+
+    private final ReceiptSubmissionService receiptSubmissionService;
+
+    /**
+     * Binds the lightweight wire DTO rather than the entity and validates it in one pass; the entity is only built
+     * for a valid receipt. Retries of a submission, overlapping or carrying the same {@code Idempotency-Key}, get
+     * the first submission's ID (see {@link ReceiptSubmissionService}).
+     */
     @PostMapping("/process")
-    public ResponseEntity<ReceiptIdResponse> processReceipt(@Valid @RequestBody Receipt receipt) {
-        return ResponseEntity.ok(receiptService.storeReceipt(receipt));
+    public ResponseEntity<ReceiptIdResponse> processReceipt(
+            @RequestBody ReceiptRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false)
+            @Size(min = 1, max = 255, message = "Idempotency-Key must be between 1 and 255 characters")
+            String idempotencyKey) {
+        List<String> errors = ReceiptRequestValidator.validate(request);
+        if (!errors.isEmpty()) {
+            throw new InvalidReceiptException(errors);
+        }
+        ReceiptIdResponse response = receiptSubmissionService.submit(request.toReceipt(), idempotencyKey);
+        if (receiptIngestQueue.isAsync()) {
+            // Stored and scored in the background; points report 202 until then.
+            return ResponseEntity.accepted().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/process/batch")
+    public ResponseEntity<List<ReceiptIdResponse>> processReceipts(
+            @RequestBody @Size(min = 1, max = 1000, message = "A batch must contain between 1 and 1000 receipts")
+            List<@Valid Receipt> receipts) {
+        return ResponseEntity.ok(receiptSubmissionService.submitBatch(receipts));
+    }
+
+    /**
+     * Bulk import of newline-delimited JSON receipts. The body is consumed as a stream, and invalid lines are
+     * reported instead of failing the request.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportReport> importReceipts(InputStream body) throws IOException {
+        return ResponseEntity.ok(receiptImportService.importNdjson(body));
+    }
+
+    /**
+     * Streams every stored receipt with its points as NDJSON (default) or CSV, written while the rows are read.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportReceipts(
+            @RequestParam(defaultValue = "ndjson")
+            @Pattern(regexp = "ndjson|csv", message = "Format must be 'ndjson' or 'csv'") String format) {
+        ReceiptExportService.Format exportFormat = ReceiptExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        MediaType contentType = exportFormat == ReceiptExportService.Format.CSV
+                ? new MediaType("text", "csv")
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"receipts." + format + "\"")
+                .body(out -> receiptExportService.export(exportFormat, out));
     }
 
     @GetMapping("/{id}/points")
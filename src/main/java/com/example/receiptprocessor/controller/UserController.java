@@ -0,0 +1,28 @@
+package com.example.receiptprocessor.controller;
+
+import com.example.receiptprocessor.dto.UserPointsResponse;
+import com.example.receiptprocessor.service.UserReceiptCounterService;
+import com.example.receiptprocessor.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/users")
+@RequiredArgsConstructor
+public class UserController {
+
+    private final UserReceiptCounterService userReceiptCounterService;
+
+    private final ShardRouter shardRouter;
+
+    /**
+     * Lifetime points of the user across all their receipts, read from the maintained total on the user's shard;
+     * 0 for unknown users.
+     */
+    @GetMapping("/{userId}/points")
+    public ResponseEntity<UserPointsResponse> getPoints(@PathVariable String userId) {
+        long points = shardRouter.onUserShard(userId, () -> userReceiptCounterService.pointsTotal(userId));
+        return ResponseEntity.ok(new UserPointsResponse(userId, points));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.receiptprocessor.dedup;
+
+import com.example.receiptprocessor.model.ReceiptKey;
+import com.example.receiptprocessor.repository.ReceiptKeyView;
+import com.example.receiptprocessor.repository.ReceiptRepository;
+import com.example.receiptprocessor.shard.ShardRouter;
+import com.example.receiptprocessor.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter over the (retailer, purchaseDate, purchaseTime) keys of stored receipts.
+ * <p>
+ * A negative answer means the key was never stored, so ingestion can skip the duplicate lookup entirely.
+ * The filter is filled from every shard once the application is ready; until then every key is reported as
+ * a possible hit and callers keep querying. Keys added by ingestion during the rebuild land in the same filter.
+ * Keys of rolled-back receipts stay in the filter and only cost an extra lookup.
+ */
+@Component
+public class ReceiptKeyFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptKeyFilter.class);
+
+    private final ReceiptRepository receiptRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BloomFilter filter;
+    private final long expectedInsertions;
+    private final AtomicLong insertions = new AtomicLong();
+    private volatile boolean ready;
+
+    public ReceiptKeyFilter(ReceiptRepository receiptRepository, ShardRouter shardRouter,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${receipt.dedup-filter.expected-insertions:10000000}") long expectedInsertions,
+                            @Value("${receipt.dedup-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.receiptRepository = receiptRepository;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * @return {@code false} only if no receipt with this key has been stored
+     */
+    public boolean mightContain(ReceiptKey key) {
+        return !ready || filter.mightContain(hash(key));
+    }
+
+    public void add(ReceiptKey key) {
+        filter.put(hash(key));
+        if (insertions.incrementAndGet() == expectedInsertions + 1) {
+            logger.warn("Receipt key filter exceeded {} expected insertions; false positive rate will rise. "
+                    + "Increase receipt.dedup-filter.expected-insertions.", expectedInsertions);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        shardRouter.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ReceiptKeyView> keys = receiptRepository.streamAllKeys()) {
+                keys.forEach(view -> add(view.toKey()));
+            }
+        }));
+        ready = true;
+        logger.info("Receipt key filter holds {} keys after a rebuild of {} ms",
+                insertions.get(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static long hash(ReceiptKey key) {
+        return BloomFilter.hash(key.retailer(), key.purchaseDate(), key.purchaseTime());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.receiptprocessor.dedup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one call per key at a time: callers that arrive while a call for their key is running wait for it
+ * and share its result instead of repeating the work. Nothing is kept once a call finishes, so a later caller runs
+ * again.
+ * <p>
+ * If the running call fails, each waiting caller makes an attempt of its own (one at a time, again coalesced)
+ * rather than sharing the failure, which may have been specific to the first caller.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V run(K key, Supplier<V> work) {
+        while (true) {
+            CompletableFuture<V> call = new CompletableFuture<>();
+            CompletableFuture<V> running = calls.putIfAbsent(key, call);
+            if (running == null) {
+                try {
+                    V result = work.get();
+                    call.complete(result);
+                    return result;
+                } catch (RuntimeException | Error e) {
+                    call.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    calls.remove(key, call);
+                }
+            }
+            try {
+                V result = running.get();
+                coalesced.increment();
+                return result;
+            } catch (ExecutionException e) {
+                // The first call failed; try again, possibly as the one running it.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a call in flight for " + key, e);
+            }
+        }
+    }
+
+    /**
+     * @return how many callers were given the result of another caller's call
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of calls currently running
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+}
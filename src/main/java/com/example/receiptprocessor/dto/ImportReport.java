@@ -0,0 +1,30 @@
+package com.example.receiptprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO summarising a bulk import. {@code imported} counts receipts stored by this import and
+ * {@code duplicates} those that resolved to a receipt stored before. Only the first rejected lines are listed;
+ * {@code rejected} always holds the full count.
+ */
+@Data
+@NoArgsConstructor
+public class ImportReport {
+    private long processed;
+    private long imported;
+    private long duplicates;
+    private long rejected;
+    private List<RejectedLine> rejectedLines = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    public static class RejectedLine {
+        private long line;
+        private String error;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.receiptprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Wire form of a receipt item; see {@link ReceiptRequest}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemRequest {
+    private String shortDescription;
+    private String price;
+}
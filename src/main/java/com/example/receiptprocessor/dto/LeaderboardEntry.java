@@ -0,0 +1,15 @@
+package com.example.receiptprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Response DTO for a user's place on the points leaderboard.
+ */
+@Data
+@AllArgsConstructor
+public class LeaderboardEntry {
+    private long rank;
+    private String userId;
+    private long points;
+}
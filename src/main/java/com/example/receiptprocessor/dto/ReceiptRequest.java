@@ -0,0 +1,45 @@
+package com.example.receiptprocessor.dto;
+
+import com.example.receiptprocessor.model.Item;
+import com.example.receiptprocessor.model.Receipt;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire form of a submitted receipt: only the fields a client may send, bound without touching the JPA entity and
+ * checked by {@link com.example.receiptprocessor.util.ReceiptRequestValidator}. The entity is built from it only
+ * once the request is known to be valid.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptRequest {
+    private String retailer;
+    private String purchaseDate;
+    private String purchaseTime;
+    private List<ItemRequest> items;
+    private String total;
+    private String userId;
+
+    public Receipt toReceipt() {
+        Receipt receipt = new Receipt();
+        receipt.setRetailer(retailer);
+        receipt.setPurchaseDate(purchaseDate);
+        receipt.setPurchaseTime(purchaseTime);
+        receipt.setTotal(total);
+        receipt.setUserId(userId);
+        List<Item> receiptItems = new ArrayList<>(items.size());
+        for (ItemRequest itemRequest : items) {
+            Item item = new Item();
+            item.setShortDescription(itemRequest.getShortDescription());
+            item.setPrice(itemRequest.getPrice());
+            receiptItems.add(item);
+        }
+        receipt.setItems(receiptItems);
+        return receipt;
+    }
+}
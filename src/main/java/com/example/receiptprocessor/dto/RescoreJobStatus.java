@@ -0,0 +1,26 @@
+package com.example.receiptprocessor.dto;
+
+import com.example.receiptprocessor.model.RescoreJob;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Response DTO describing a re-scoring job and its progress, summed over its key ranges.
+ */
+@Data
+@NoArgsConstructor
+public class RescoreJobStatus {
+    private String jobId;
+    private String ruleSet;
+    private RescoreJob.Status status;
+    private int partitions;
+    private int partitionsDone;
+    // Receipts scored again so far, and how many of them got different points.
+    private long rescored;
+    private long changed;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
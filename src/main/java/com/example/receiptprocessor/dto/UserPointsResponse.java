@@ -0,0 +1,14 @@
+package com.example.receiptprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Response DTO for returning a user's lifetime points.
+ */
+@Data
+@AllArgsConstructor
+public class UserPointsResponse {
+    private String userId;
+    private long points;
+}
@@ -23,6 +23,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
     }
 
+    @ExceptionHandler(ReceiptPendingException.class)
+    public ResponseEntity<String> handleReceiptPendingException(ReceiptPendingException e) {
+        logger.debug("Receipt Pending: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRuleSetException.class)
+    public ResponseEntity<String> handleInvalidRuleSetException(InvalidRuleSetException e) {
+        logger.error("Invalid Rule Set: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    @ExceptionHandler(RescoreJobNotFoundException.class)
+    public ResponseEntity<String> handleRescoreJobNotFoundException(RescoreJobNotFoundException e) {
+        logger.error("Rescore Job Not Found Exception: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
+
+    @ExceptionHandler(RescoreJobConflictException.class)
+    public ResponseEntity<String> handleRescoreJobConflictException(RescoreJobConflictException e) {
+        logger.warn("Rescore Job Conflict: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
     @ExceptionHandler(Exception.class) // Catch other unexpected exceptions
     public ResponseEntity<String> handleGeneralException(Exception e) {
         logger.error("Unexpected Error: ", e);
@@ -40,6 +64,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
 
+    @ExceptionHandler(InvalidReceiptException.class)
+    public ResponseEntity<List<String>> handleInvalidReceiptException(InvalidReceiptException ex) {
+        logger.error("Validation errors: {}", ex.getErrors());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getErrors());
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<List<String>> handleConstraintViolationException(ConstraintViolationException ex) {
         List<String> errors = ex.getConstraintViolations()
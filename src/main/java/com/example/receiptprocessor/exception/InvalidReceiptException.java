@@ -0,0 +1,19 @@
+package com.example.receiptprocessor.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Thrown when a submitted receipt fails validation. Carries one "field: message" entry per violation, in the
+ * form bean validation errors are reported in.
+ */
+@Getter
+public class InvalidReceiptException extends RuntimeException {
+    private final List<String> errors;
+
+    public InvalidReceiptException(List<String> errors) {
+        super(String.join("; ", errors));
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.receiptprocessor.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a points rule set cannot be read or compiled. The previously active rule set stays in place.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidRuleSetException extends RuntimeException {
+    public InvalidRuleSetException(String message) {
+        super(message);
+    }
+
+    public InvalidRuleSetException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.receiptprocessor.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.ACCEPTED)
+public class ReceiptPendingException extends RuntimeException {
+    public ReceiptPendingException(String id) {
+        super("Receipt with ID '" + id + "' is still being processed");
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.receiptprocessor.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a re-scoring job is started or resumed while another one is running, or resumed after it completed.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class RescoreJobConflictException extends RuntimeException {
+    public RescoreJobConflictException(String message) {
+        super(message);
+    }
+}
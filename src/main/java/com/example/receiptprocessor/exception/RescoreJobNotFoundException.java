@@ -0,0 +1,11 @@
+package com.example.receiptprocessor.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class RescoreJobNotFoundException extends RuntimeException {
+    public RescoreJobNotFoundException(String id) {
+        super("Rescore job with ID '" + id + "' not found");
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.receiptprocessor.leaderboard;
+
+import com.example.receiptprocessor.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ranking of users by lifetime points, kept current by the transactions that change points totals.
+ * <p>
+ * Users are held in a concurrent skip list ordered by points (highest first, ties by user ID), so the top N are
+ * the first N entries. A user's move (insert the new standing, remove the old one) is applied under that user's map
+ * entry, and moves of different users run in parallel. A reader iterating past a moving user could miss it, so
+ * {@link #top(int)} reads without a lock and keeps the result only if no move started or was running meanwhile;
+ * after a few failed attempts it briefly shuts moves out and reads again. Ranks are counted in a Fenwick tree over
+ * point values up to {@code receipt.leaderboard.rank-index-max-points}, which answers "how many users have more
+ * points" in a few dozen reads; the rare users above that bound are counted by walking the head of the skip list.
+ * <p>
+ * The ranking is loaded from {@code user_receipt_counter} of every shard once the application is ready; a user's
+ * total lives on the user's shard only, so the shards add up to one ranking. Totals written meanwhile
+ * are absolute and win over the loaded ones, so nothing is counted twice. Users whose totals were never seeded
+ * (see {@code UserReceiptCounterService}) join the ranking when they are.
+ */
+@Component
+public class PointsLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointsLeaderboard.class);
+
+    private static final int OPTIMISTIC_TOP_ATTEMPTS = 3;
+
+    private static final Comparator<Standing> RANKING_ORDER = Comparator.comparingLong(Standing::points).reversed()
+            .thenComparing(Standing::userId);
+
+    /**
+     * A user's points at one point in time.
+     */
+    public record Standing(String userId, long points) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final ConcurrentSkipListSet<Standing> ranking = new ConcurrentSkipListSet<>(RANKING_ORDER);
+    private final ConcurrentHashMap<String, Long> totals = new ConcurrentHashMap<>();
+    // Fenwick tree of users per point value: slot i covers values below rankIndexMaxPoints, at index i + 1.
+    private final AtomicLongArray usersByPoints;
+    private final AtomicLong indexedUsers = new AtomicLong();
+    private final AtomicLong usersAboveIndex = new AtomicLong();
+    // Moves share the read lock; a top-N read that keeps losing to moves takes the write lock.
+    private final ReentrantReadWriteLock movesLock = new ReentrantReadWriteLock();
+    private final AtomicLong movesStarted = new AtomicLong();
+    private final AtomicLong movesFinished = new AtomicLong();
+    private volatile boolean ready;
+
+    public PointsLeaderboard(JdbcTemplate jdbcTemplate, ShardRouter shardRouter,
+                             @Value("${receipt.leaderboard.rank-index-max-points:1048576}") int rankIndexMaxPoints) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.usersByPoints = new AtomicLongArray(rankIndexMaxPoints + 1);
+    }
+
+    /**
+     * Records the user's new total once the current transaction commits, or right away outside a transaction.
+     */
+    public void setAfterCommit(String userId, long points) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            set(userId, points);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                set(userId, points);
+            }
+        });
+    }
+
+    public void set(String userId, long points) {
+        totals.compute(userId, (id, previous) -> {
+            if (previous == null || previous != points) {
+                move(id, previous, points);
+            }
+            return points;
+        });
+    }
+
+    /**
+     * @return the users with the most points, highest first; fewer than {@code limit} if there are not that many
+     */
+    public List<Standing> top(int limit) {
+        for (int attempt = 0; attempt < OPTIMISTIC_TOP_ATTEMPTS; attempt++) {
+            long started = movesStarted.get();
+            if (movesFinished.get() != started) {
+                Thread.onSpinWait();
+                continue;
+            }
+            List<Standing> top = readTop(limit);
+            if (movesStarted.get() == started) {
+                return top;
+            }
+        }
+        movesLock.writeLock().lock();
+        try {
+            return readTop(limit);
+        } finally {
+            movesLock.writeLock().unlock();
+        }
+    }
+
+    private List<Standing> readTop(int limit) {
+        List<Standing> top = new ArrayList<>(Math.min(limit, 1024));
+        // A user seen twice was caught between the two halves of a move; the result is discarded then anyway.
+        Set<String> seen = new HashSet<>();
+        for (Standing standing : ranking) {
+            if (top.size() == limit) {
+                break;
+            }
+            if (seen.add(standing.userId())) {
+                top.add(standing);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return the user's points, or {@code null} if the user is not ranked
+     */
+    public Long pointsOf(String userId) {
+        return totals.get(userId);
+    }
+
+    /**
+     * @return 1 plus the number of ranked users with more points; users with equal points share a rank
+     */
+    public long rankOf(long points) {
+        int maxIndexed = usersByPoints.length() - 1;
+        if (points >= maxIndexed) {
+            long above = 0;
+            for (Standing standing : ranking) {
+                if (standing.points() <= points) {
+                    break;
+                }
+                above++;
+            }
+            return above + 1;
+        }
+        long atOrBelow = 0;
+        for (int i = (int) Math.max(points + 1, 0); i > 0; i -= i & -i) {
+            atOrBelow += usersByPoints.get(i);
+        }
+        return Math.max(0, indexedUsers.get() - atOrBelow) + usersAboveIndex.get() + 1;
+    }
+
+    /**
+     * @return the number of ranked users
+     */
+    public int size() {
+        return totals.size();
+    }
+
+    /**
+     * Whether the startup load has finished; until then users stored earlier may be missing.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        shardRouter.forEachShard(shard -> jdbcTemplate.query(
+                "select user_id, points_total from user_receipt_counter where points_total is not null",
+                resultSet -> {
+                    long points = resultSet.getLong(2);
+                    // A total set since startup is newer than the row just read.
+                    totals.computeIfAbsent(resultSet.getString(1), id -> {
+                        move(id, null, points);
+                        return points;
+                    });
+                }));
+        ready = true;
+        logger.info("Points leaderboard holds {} users after a rebuild of {} ms",
+                totals.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Called inside the user's map entry, so moves of one user never interleave.
+    private void move(String userId, Long previous, long points) {
+        movesLock.readLock().lock();
+        movesStarted.incrementAndGet();
+        try {
+            ranking.add(new Standing(userId, points));
+            count(points, 1);
+            if (previous != null) {
+                ranking.remove(new Standing(userId, previous));
+                count(previous, -1);
+            }
+        } finally {
+            movesFinished.incrementAndGet();
+            movesLock.readLock().unlock();
+        }
+    }
+
+    private void count(long points, int delta) {
+        int maxIndexed = usersByPoints.length() - 1;
+        if (points >= maxIndexed) {
+            usersAboveIndex.addAndGet(delta);
+            return;
+        }
+        for (int i = (int) Math.max(points, 0) + 1; i <= maxIndexed; i += i & -i) {
+            usersByPoints.addAndGet(i, delta);
+        }
+        indexedUsers.addAndGet(delta);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.receiptprocessor.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms for the stages of single-receipt ingestion, published as {@code receipt.ingest.stage}
+ * with a {@code stage} tag.
+ * <p>
+ * Stages are timed with {@link System#nanoTime()} around each step; recording into a pre-registered timer is a
+ * lock-free bucket increment, cheap enough to leave on in production.
+ */
+@Component
+public class IngestStageTimers {
+
+    public enum Stage {
+        /** Bloom filter check and, for possible duplicates, the ID lookup. */
+        DEDUP,
+        /** Reserving the user's receipt ordinal from the counter table. */
+        COUNT,
+        /** Persisting the receipt and its items, including flushing their inserts. */
+        SAVE,
+        /** Applying the scoring rules. */
+        SCORE,
+        /** Saving the points to the {@code PointsStore} and adding them to the user's total. */
+        POINTS_SAVE,
+        /** Flushing the remaining inserts and committing, measured from the transaction's before-commit callback. */
+        COMMIT
+    }
+
+    private final Timer[] timers = new Timer[Stage.values().length];
+
+    public IngestStageTimers(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            timers[stage.ordinal()] = Timer.builder("receipt.ingest.stage")
+                    .description("Time spent in each stage of storing a receipt")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Records the time since {@code startNanos}, a {@link System#nanoTime()} reading, and returns the current
+     * reading so consecutive stages can be chained.
+     */
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        timers[stage.ordinal()].record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    /**
+     * Times the flush and commit of the surrounding transaction as {@link Stage#COMMIT}. Does nothing outside
+     * a transaction.
+     */
+    public void recordCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long beforeCommitNanos;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                beforeCommitNanos = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                record(Stage.COMMIT, beforeCommitNanos);
+            }
+        });
+    }
+}
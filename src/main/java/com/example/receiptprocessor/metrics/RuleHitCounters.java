@@ -0,0 +1,70 @@
+package com.example.receiptprocessor.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How often each scoring rule and bonus tier fired, published as {@code receipt.points.rule} and
+ * {@code receipt.points.bonus}.
+ * <p>
+ * Compiled rule sets resolve their counters once, when they are compiled, and scoring only increments a
+ * {@link LongAdder}; the registry reads the sums when scraped. Counters are kept by name across rule set reloads,
+ * and names that first appear in a reloaded rule set are registered as they come.
+ */
+@Component
+public class RuleHitCounters implements MeterBinder {
+
+    private final Map<String, LongAdder> rules = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> bonusTiers = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public LongAdder rule(String name) {
+        return rules.computeIfAbsent(name, ruleName -> {
+            LongAdder counter = new LongAdder();
+            registerRule(ruleName, counter);
+            return counter;
+        });
+    }
+
+    public LongAdder bonusTier(String tier) {
+        return bonusTiers.computeIfAbsent(tier, tierName -> {
+            LongAdder counter = new LongAdder();
+            registerBonusTier(tierName, counter);
+            return counter;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        // Registration is idempotent, so counters created while binding are safe to register twice.
+        rules.forEach(this::registerRule);
+        bonusTiers.forEach(this::registerBonusTier);
+    }
+
+    private void registerRule(String name, LongAdder counter) {
+        MeterRegistry boundRegistry = registry;
+        if (boundRegistry != null) {
+            FunctionCounter.builder("receipt.points.rule", counter, LongAdder::sum)
+                    .description("Receipts (items, for item-description rules) awarded points by each base rule")
+                    .tag("rule", name)
+                    .register(boundRegistry);
+        }
+    }
+
+    private void registerBonusTier(String tier, LongAdder counter) {
+        MeterRegistry boundRegistry = registry;
+        if (boundRegistry != null) {
+            FunctionCounter.builder("receipt.points.bonus", counter, LongAdder::sum)
+                    .description("Receipts scored in each receipt-count bonus tier")
+                    .tag("tier", tier)
+                    .register(boundRegistry);
+        }
+    }
+}
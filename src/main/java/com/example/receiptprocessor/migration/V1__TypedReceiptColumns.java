@@ -0,0 +1,148 @@
+package com.example.receiptprocessor.migration;
+
+import com.example.receiptprocessor.model.CentsConverter;
+import com.example.receiptprocessor.model.EpochDayConverter;
+import com.example.receiptprocessor.model.MinuteOfDayConverter;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Moves receipt amounts, dates and times from text columns to typed ones: amounts to cents ({@code bigint}),
+ * dates to epoch days ({@code integer}) and times to minutes of day ({@code smallint}). The duplicate-detection
+ * unique constraints are rebuilt on the typed columns.
+ * <p>
+ * Only databases created before the typed columns need this; on a new database there is nothing to convert and
+ * Hibernate creates the typed schema itself. Values are converted with the same converters the entities use.
+ */
+@Component
+public class V1__TypedReceiptColumns extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V1__TypedReceiptColumns.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private static final CentsConverter CENTS = new CentsConverter();
+    private static final EpochDayConverter EPOCH_DAY = new EpochDayConverter();
+    private static final MinuteOfDayConverter MINUTE_OF_DAY = new MinuteOfDayConverter();
+
+    private record ColumnChange(String from, String to, String type, Function<String, Object> converter) {
+    }
+
+    private static final ColumnChange PURCHASE_DATE =
+            new ColumnChange("purchase_date", "purchase_day", "integer", EPOCH_DAY::convertToDatabaseColumn);
+    private static final ColumnChange PURCHASE_TIME =
+            new ColumnChange("purchase_time", "purchase_minute", "smallint", MINUTE_OF_DAY::convertToDatabaseColumn);
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        migrate(context.getConnection());
+    }
+
+    void migrate(Connection connection) throws SQLException {
+        if (!hasColumn(connection, "receipt", "total")) {
+            logger.info("No text receipt columns to convert");
+            return;
+        }
+        dropUniqueConstraints(connection, "receipt");
+        convert(connection, "receipt", "id", List.of(PURCHASE_DATE, PURCHASE_TIME,
+                new ColumnChange("total", "total_cents", "bigint", CENTS::convertToDatabaseColumn)));
+        execute(connection, "alter table receipt add constraint uk_receipt_key "
+                + "unique (retailer, purchase_day, purchase_minute)");
+
+        convert(connection, "item", "id", List.of(
+                new ColumnChange("price", "price_cents", "bigint", CENTS::convertToDatabaseColumn)));
+
+        if (hasColumn(connection, "pending_receipt", "purchase_date")) {
+            dropUniqueConstraints(connection, "pending_receipt");
+            convert(connection, "pending_receipt", "id", List.of(PURCHASE_DATE, PURCHASE_TIME));
+            execute(connection, "alter table pending_receipt add constraint uk_pending_receipt_key "
+                    + "unique (retailer, purchase_day, purchase_minute)");
+        }
+    }
+
+    /**
+     * Adds the typed columns, fills them row by row with batched updates and drops the text columns.
+     */
+    private void convert(Connection connection, String table, String key, List<ColumnChange> changes)
+            throws SQLException {
+        List<String> assignments = new ArrayList<>();
+        List<String> sources = new ArrayList<>();
+        for (ColumnChange change : changes) {
+            execute(connection, "alter table " + table + " add column " + change.to() + " " + change.type());
+            assignments.add(change.to() + " = ?");
+            sources.add(change.from());
+        }
+        String select = "select " + key + ", " + String.join(", ", sources) + " from " + table;
+        String update = "update " + table + " set " + String.join(", ", assignments) + " where " + key + " = ?";
+
+        long rows = 0;
+        try (Statement query = connection.createStatement();
+             PreparedStatement statement = connection.prepareStatement(update)) {
+            query.setFetchSize(BATCH_SIZE);
+            try (ResultSet resultSet = query.executeQuery(select)) {
+                while (resultSet.next()) {
+                    for (int i = 0; i < changes.size(); i++) {
+                        String value = resultSet.getString(i + 2);
+                        statement.setObject(i + 1, value == null ? null : changes.get(i).converter().apply(value));
+                    }
+                    statement.setObject(changes.size() + 1, resultSet.getObject(1));
+                    statement.addBatch();
+                    if (++rows % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+            }
+            statement.executeBatch();
+        }
+
+        for (ColumnChange change : changes) {
+            execute(connection, "alter table " + table + " drop column " + change.from());
+        }
+        logger.info("Converted {} rows of {} to typed columns", rows, table);
+    }
+
+    private void dropUniqueConstraints(Connection connection, String table) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("select constraint_name "
+                + "from information_schema.table_constraints "
+                + "where constraint_type = 'UNIQUE' and lower(table_name) = ? and lower(table_schema) = lower(?)")) {
+            statement.setString(1, table);
+            statement.setString(2, connection.getSchema());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    names.add(resultSet.getString(1));
+                }
+            }
+        }
+        for (String name : names) {
+            execute(connection, "alter table " + table + " drop constraint \"" + name + "\"");
+        }
+    }
+
+    private boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        boolean upperCase = metaData.storesUpperCaseIdentifiers();
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                upperCase ? table.toUpperCase() : table, upperCase ? column.toUpperCase() : column)) {
+            return columns.next();
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
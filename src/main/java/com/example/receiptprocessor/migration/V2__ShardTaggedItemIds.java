@@ -0,0 +1,89 @@
+package com.example.receiptprocessor.migration;
+
+import com.example.receiptprocessor.model.ReceiptIdGenerator;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Replaces numeric item IDs from the {@code item_seq} sequence with the time-ordered, shard-tagged UUIDs of
+ * {@link ReceiptIdGenerator}, and drops the sequence.
+ * <p>
+ * With several shards the sequence numbers collided: every shard has a sequence of its own, but the single session
+ * factory shares one pooled optimizer, which handed out blocks of one shard's sequence on the others. Existing items
+ * get new IDs tagged with the shard being migrated (shards after the first are migrated with their shard bound, see
+ * {@code ShardSchemaInitializer}). Nothing refers to item IDs, so no other table changes. A new database has no item
+ * table yet, and Hibernate creates it with text IDs.
+ */
+@Component
+public class V2__ShardTaggedItemIds extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V2__ShardTaggedItemIds.class);
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        migrate(context.getConnection());
+    }
+
+    void migrate(Connection connection) throws SQLException {
+        Integer type = columnType(connection, "item", "id");
+        if (type == null || type != Types.BIGINT && type != Types.INTEGER) {
+            logger.info("No numeric item IDs to replace");
+            return;
+        }
+        execute(connection, "alter table item add column uuid_id varchar(255)");
+        long rows = 0;
+        try (Statement query = connection.createStatement();
+             PreparedStatement statement = connection.prepareStatement("update item set uuid_id = ? where id = ?")) {
+            query.setFetchSize(BATCH_SIZE);
+            // In ID order, so the new time-ordered IDs keep the order the items were stored in.
+            try (ResultSet resultSet = query.executeQuery("select id from item order by id")) {
+                while (resultSet.next()) {
+                    statement.setString(1, ReceiptIdGenerator.newId());
+                    statement.setLong(2, resultSet.getLong(1));
+                    statement.addBatch();
+                    if (++rows % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+            }
+            statement.executeBatch();
+        }
+        execute(connection, "alter table item drop primary key");
+        execute(connection, "alter table item drop column id");
+        execute(connection, "alter table item alter column uuid_id rename to id");
+        execute(connection, "alter table item alter column id set not null");
+        execute(connection, "alter table item add primary key (id)");
+        execute(connection, "drop sequence if exists item_seq");
+        logger.info("Replaced the IDs of {} items with shard-tagged IDs", rows);
+    }
+
+    /**
+     * @return the {@link Types} code of the column, or {@code null} if there is no such column
+     */
+    private Integer columnType(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        boolean upperCase = metaData.storesUpperCaseIdentifiers();
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                upperCase ? table.toUpperCase() : table, upperCase ? column.toUpperCase() : column)) {
+            return columns.next() ? columns.getInt("DATA_TYPE") : null;
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
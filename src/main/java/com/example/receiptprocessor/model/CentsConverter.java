@@ -0,0 +1,30 @@
+package com.example.receiptprocessor.model;
+
+import com.example.receiptprocessor.util.ReceiptFields;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores a "digits.dd" amount as a whole number of cents. The attribute keeps its wire form, so validation and
+ * JSON are unchanged; amounts read back are in canonical form (no leading zeros).
+ */
+@Converter
+public class CentsConverter implements AttributeConverter<String, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(String amount) {
+        if (amount == null) {
+            return null;
+        }
+        long cents = ReceiptFields.parseCents(amount);
+        // Exact for anything else; an amount with fractions of a cent cannot be stored and throws.
+        return cents != ReceiptFields.NOT_CANONICAL ? cents : new BigDecimal(amount).movePointRight(2).longValueExact();
+    }
+
+    @Override
+    public String convertToEntityAttribute(Long cents) {
+        return cents == null ? null : ReceiptFields.formatCents(cents);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.receiptprocessor.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalDate;
+
+/**
+ * Stores a "yyyy-MM-dd" date as days since 1970-01-01. A date that does not exist on the calendar cannot be
+ * stored and throws {@link java.time.format.DateTimeParseException}.
+ */
+@Converter
+public class EpochDayConverter implements AttributeConverter<String, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(String date) {
+        return date == null ? null : Math.toIntExact(LocalDate.parse(date).toEpochDay());
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer epochDay) {
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay).toString();
+    }
+}
@@ -12,8 +12,10 @@ import lombok.Setter;
 public class Item {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Auto-increment ID
-    private Long id;
+    // Generated before the insert, so Hibernate can batch item inserts. Tagged with the shard like receipt IDs, so
+    // item IDs are unique across shards.
+    @ReceiptId
+    private String id;
 
     @ManyToOne
     @JoinColumn(name = "receipt_id", nullable = false)
@@ -25,6 +27,8 @@ public class Item {
 
     @NotBlank
     @Pattern(regexp = "^\\d+\\.\\d{2}$", message = "Price must be in 'xx.xx' format")
+    @Convert(converter = CentsConverter.class)
+    @Column(name = "price_cents")
     private String price;
 
 
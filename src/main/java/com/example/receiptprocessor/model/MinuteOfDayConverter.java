@@ -0,0 +1,33 @@
+package com.example.receiptprocessor.model;
+
+import com.example.receiptprocessor.util.ReceiptFields;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalTime;
+
+/**
+ * Stores an "HH:mm" time as minutes since midnight. A time outside 00:00-23:59 cannot be stored and throws
+ * {@link java.time.format.DateTimeParseException}.
+ */
+@Converter
+public class MinuteOfDayConverter implements AttributeConverter<String, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(String time) {
+        if (time == null) {
+            return null;
+        }
+        int minuteOfDay = ReceiptFields.minuteOfDay(time);
+        if (minuteOfDay == ReceiptFields.NOT_CANONICAL) {
+            LocalTime parsed = LocalTime.parse(time);
+            minuteOfDay = parsed.getHour() * 60 + parsed.getMinute();
+        }
+        return (short) minuteOfDay;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short minuteOfDay) {
+        return minuteOfDay == null ? null : ReceiptFields.formatMinuteOfDay(minuteOfDay);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.receiptprocessor.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * A receipt accepted by asynchronous ingestion whose ID has been returned to the client but which has not been
+ * stored and scored yet. The duplicate-detection key is unique here too, so concurrent submissions of the same
+ * receipt resolve to one queued entry.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "pending_receipt",
+        uniqueConstraints = @UniqueConstraint(name = "uk_pending_receipt_key",
+                columnNames = {"retailer", "purchase_day", "purchase_minute"}),
+        indexes = @Index(name = "idx_pending_receipt_partition", columnList = "partition_id, enqueued_at"))
+public class PendingReceipt implements Persistable<String> {
+
+    @Id
+    private String id;
+
+    private int partitionId;
+
+    private String retailer;
+
+    @Convert(converter = EpochDayConverter.class)
+    @Column(name = "purchase_day")
+    private String purchaseDate;
+
+    @Convert(converter = MinuteOfDayConverter.class)
+    @Column(name = "purchase_minute")
+    private String purchaseTime;
+
+    // Receipt JSON as submitted.
+    @Lob
+    private String payload;
+
+    private long enqueuedAt;
+
+    // Set when the receipt could not be stored; failed entries are kept for inspection and no longer drained.
+    private String error;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity = true;
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.receiptprocessor.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -15,24 +16,35 @@ import java.util.List;
 @Getter
 @Setter
 @Table(name = "receipt", uniqueConstraints =
-@UniqueConstraint(columnNames = {"retailer", "purchase_date", "purchase_time"}))
+@UniqueConstraint(name = "uk_receipt_key", columnNames = {"retailer", "purchase_day", "purchase_minute"}),
+        indexes = @Index(name = "idx_receipt_user_id", columnList = "user_id"))
 
 public class Receipt {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID) // Use UUID as ID
+    @ReceiptId // time-ordered UUID string, or the ID reserved when the receipt was queued
     private String id;
 
+    // ID handed out before the receipt was persisted (asynchronous ingestion); never part of the wire format.
+    @Transient
+    @JsonIgnore
+    private String requestedId;
+
     @NotBlank
     @Pattern(regexp = "^[\\w\\s&-]+$", message = "Retailer must only contain alphanumeric characters, spaces, hyphens, and '&'.")
     private String retailer;
 
+    // Dates, times and amounts keep their wire form here and are stored compactly through converters.
     @NotBlank
     @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "Invalid date format (YYYY-MM-DD)")
+    @Convert(converter = EpochDayConverter.class)
+    @Column(name = "purchase_day")
     private String purchaseDate;
 
     @NotBlank
     @Pattern(regexp = "^\\d{2}:\\d{2}$", message = "Invalid time format (HH:MM)")
+    @Convert(converter = MinuteOfDayConverter.class)
+    @Column(name = "purchase_minute")
     private String purchaseTime;
 
     @NotNull
@@ -41,6 +53,8 @@ public class Receipt {
     private List<Item> items;
 
     @Pattern(regexp = "^\\d+\\.\\d{2}$", message = "Total must be in 'xx.xx' format")
+    @Convert(converter = CentsConverter.class)
+    @Column(name = "total_cents")
     private String total;
 
     @NotBlank
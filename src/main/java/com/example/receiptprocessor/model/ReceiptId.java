@@ -0,0 +1,17 @@
+package com.example.receiptprocessor.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a receipt or item ID that is generated by {@link ReceiptIdGenerator}.
+ */
+@IdGeneratorType(ReceiptIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ReceiptId {
+}
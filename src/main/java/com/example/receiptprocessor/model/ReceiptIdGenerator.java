@@ -0,0 +1,93 @@
+package com.example.receiptprocessor.model;
+
+import com.example.receiptprocessor.shard.ShardRouter;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates receipt and item IDs on insert. A receipt whose ID was handed out before it was persisted
+ * (see {@link Receipt#getRequestedId()}) is inserted under that ID; every other receipt and every item gets a new one.
+ * <p>
+ * IDs are time-ordered version 7 UUIDs (RFC 9562): a millisecond timestamp, a 12-bit counter that keeps IDs from
+ * the same millisecond in order across threads, an 8-bit shard tag and 54 random bits. New receipts therefore land
+ * at the right-hand end of the primary key indexes instead of at random pages, and the canonical strings sort in
+ * creation order. The shard tag is the shard bound by {@link ShardRouter} when the ID is generated, 0 without
+ * sharding; it sits in the top bits after the variant, so it can be read from the string without parsing the UUID.
+ */
+public class ReceiptIdGenerator implements BeforeExecutionGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final int SHARD_TAG_SHIFT = 54;
+
+    // Unix milliseconds << 12 | counter, of the last ID handed out. A counter overflow borrows the next millisecond,
+    // as does a clock that steps back, so IDs never repeat or go backwards.
+    private static final AtomicLong lastTimeAndCounter = new AtomicLong();
+
+    /**
+     * @return a new receipt ID, for callers that must know the ID before the receipt is persisted
+     */
+    public static String newId() {
+        return newUuid().toString();
+    }
+
+    /**
+     * @return a new receipt ID as a {@link UUID}, tagged with the current shard; {@link #newId()} is its canonical
+     * string form
+     */
+    public static UUID newUuid() {
+        return newUuid(ShardRouter.currentShard());
+    }
+
+    /**
+     * @return a new receipt ID as a {@link UUID}, tagged with the given shard
+     */
+    public static UUID newUuid(int shard) {
+        long timeAndCounter = lastTimeAndCounter.accumulateAndGet(System.currentTimeMillis() << 12,
+                (last, now) -> Math.max(now, last + 1));
+        long mostSigBits = (timeAndCounter >>> 12) << 16 | 0x7000L | (timeAndCounter & 0xFFF);
+        long leastSigBits = RANDOM.nextLong() & 0x003FFFFFFFFFFFFFL | (long) shard << SHARD_TAG_SHIFT
+                | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * @return the shard tag of a canonical receipt ID, or -1 if the string is not one
+     */
+    public static int shardTag(String id) {
+        // The top 16 bits of the least significant half are the four hex digits after the third hyphen:
+        // 2 variant bits, the 8-bit tag, then random bits.
+        if (id == null || id.length() != 36 || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return -1;
+        }
+        int topBits = 0;
+        for (int i = 19; i < 23; i++) {
+            int digit = Character.digit(id.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            topBits = topBits << 4 | digit;
+        }
+        return topBits >>> (SHARD_TAG_SHIFT - 48) & (ShardRouter.MAX_SHARDS - 1);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        if (owner instanceof Receipt receipt && receipt.getRequestedId() != null) {
+            return receipt.getRequestedId();
+        }
+        return newId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.receiptprocessor.model;
+
+/**
+ * Natural key used to detect duplicate receipt submissions.
+ */
+public record ReceiptKey(String retailer, String purchaseDate, String purchaseTime) {
+
+    public static ReceiptKey of(Receipt receipt) {
+        return new ReceiptKey(receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime());
+    }
+}
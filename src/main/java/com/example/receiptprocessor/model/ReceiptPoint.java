@@ -2,19 +2,52 @@ package com.example.receiptprocessor.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
-import jakarta.validation.constraints.NotBlank;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.data.domain.Persistable;
 
 @Entity
 @Data
 @Table(name = "receipt_point")
-public class ReceiptPoint {
+public class ReceiptPoint implements Persistable<String> {
     @Id
     private String receipt_id;
 
     @NotNull
     private Integer points;
 
+    // Position of the receipt among its user's receipts (1 for the first), which decides the bonus tier when the
+    // receipt is re-scored. Null for rows stored before ordinals were recorded and for aliases.
+    private Long userOrdinal;
+
+    // For points copied to an ID that resolved to a duplicate (see ReceiptService#aliasPoints): the receipt
+    // the points were copied from. Reads of the alias follow it, so they see the receipt's current points.
+    private String aliasOf;
+
+    // The id is copied from the receipt, so Spring Data cannot tell new rows apart by a null id.
+    // Tracking it here lets save() persist directly instead of issuing a SELECT through merge().
+    @Transient
+    @EqualsAndHashCode.Exclude
+    private boolean newEntity = true;
+
+    @Override
+    public String getId() {
+        return receipt_id;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
 }
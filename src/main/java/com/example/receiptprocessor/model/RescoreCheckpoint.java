@@ -0,0 +1,40 @@
+package com.example.receiptprocessor.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Progress of a {@link RescoreJob} over one key range of the receipt table: the receipts with
+ * {@code lowerBound < id <= upperBound}. {@code lastId} advances in the same transaction as the points it
+ * covers, so a resumed range continues after the last committed batch.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "rescore_checkpoint", indexes = @Index(name = "idx_rescore_checkpoint_job", columnList = "job_id"))
+public class RescoreCheckpoint {
+
+    // jobId:partitionIndex
+    @Id
+    private String id;
+
+    private String jobId;
+
+    private int partitionIndex;
+
+    // Exclusive; the empty string for the first range.
+    private String lowerBound;
+
+    // Inclusive; null for the last range.
+    private String upperBound;
+
+    // Last receipt re-scored, or null before the first batch.
+    private String lastId;
+
+    private long rescored;
+
+    private long changed;
+
+    private boolean done;
+}
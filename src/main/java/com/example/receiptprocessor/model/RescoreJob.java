@@ -0,0 +1,37 @@
+package com.example.receiptprocessor.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A run of the bulk re-scoring job. Progress lives in one {@link RescoreCheckpoint} per key range, so an
+ * interrupted job can be resumed where each range stopped.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "rescore_job")
+public class RescoreJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    @Id
+    private String id;
+
+    // Name of the rule set the receipts are re-scored with.
+    private String ruleSet;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    private String error;
+}
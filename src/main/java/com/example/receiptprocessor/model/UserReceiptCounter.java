@@ -0,0 +1,28 @@
+package com.example.receiptprocessor.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Number of receipts and lifetime points per user, maintained on ingest so bonus tiers never need a COUNT over
+ * receipts and a user's total never needs a SUM over their points.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "user_receipt_counter")
+public class UserReceiptCounter {
+
+    @Id
+    private String userId;
+
+    @NotNull
+    private Long receiptCount;
+
+    // Null for users counted before totals were kept, until the first write or read sums their points once.
+    private Long pointsTotal;
+}
@@ -0,0 +1,26 @@
+package com.example.receiptprocessor.repository;
+
+import com.example.receiptprocessor.model.PendingReceipt;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PendingReceiptRepository extends JpaRepository<PendingReceipt, String> {
+
+    List<PendingReceipt> findByPartitionIdAndErrorIsNullOrderByEnqueuedAt(int partitionId, Limit limit);
+
+    @Query("select p.id from PendingReceipt p where p.retailer = :retailer and p.purchaseDate = :purchaseDate and p.purchaseTime = :purchaseTime")
+    Optional<String> findIdByRetailerAndPurchaseDateAndPurchaseTime(String retailer, String purchaseDate, String purchaseTime);
+
+    boolean existsByIdAndErrorIsNull(String id);
+
+    @Modifying
+    @Query("update PendingReceipt p set p.error = :error where p.id = :id")
+    void markFailed(String id, String error);
+}
@@ -0,0 +1,8 @@
+package com.example.receiptprocessor.repository;
+
+/**
+ * One exported receipt with its points. Built by a constructor expression, so rows are plain values that never
+ * enter the persistence context.
+ */
+public record ReceiptExportRow(String id, String userId, String retailer, String purchaseDate, Integer points) {
+}
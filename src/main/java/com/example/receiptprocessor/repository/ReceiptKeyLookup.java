@@ -0,0 +1,17 @@
+package com.example.receiptprocessor.repository;
+
+import com.example.receiptprocessor.model.ReceiptKey;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Lookup of stored receipts by their exact duplicate-detection keys, for batches.
+ */
+public interface ReceiptKeyLookup {
+
+    /**
+     * @return the IDs of the stored receipts that have any of the keys, by key
+     */
+    Map<ReceiptKey, String> findIdsByKeys(Collection<ReceiptKey> keys);
+}
@@ -0,0 +1,70 @@
+package com.example.receiptprocessor.repository;
+
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.ReceiptKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches each (retailer, purchase date, purchase time) key with its own condition, so every row read is a wanted
+ * receipt and the unique key index serves the lookup. Keys are queried in chunks to bound the bind parameters of a
+ * statement.
+ */
+public class ReceiptKeyLookupImpl implements ReceiptKeyLookup {
+
+    private static final int KEYS_PER_QUERY = 100;
+
+    private final EntityManager entityManager;
+
+    public ReceiptKeyLookupImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Map<ReceiptKey, String> findIdsByKeys(Collection<ReceiptKey> keys) {
+        Map<ReceiptKey, String> ids = new HashMap<>();
+        List<ReceiptKey> chunk = new ArrayList<>(Math.min(keys.size(), KEYS_PER_QUERY));
+        for (ReceiptKey key : keys) {
+            chunk.add(key);
+            if (chunk.size() == KEYS_PER_QUERY) {
+                findIds(chunk, ids);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            findIds(chunk, ids);
+        }
+        return ids;
+    }
+
+    private void findIds(List<ReceiptKey> keys, Map<ReceiptKey, String> ids) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Receipt> receipt = query.from(Receipt.class);
+        Predicate[] matches = new Predicate[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            ReceiptKey key = keys.get(i);
+            // The parameters take the attribute's converter, as in the derived queries.
+            matches[i] = builder.and(
+                    builder.equal(receipt.get("retailer"), key.retailer()),
+                    builder.equal(receipt.get("purchaseDate"), key.purchaseDate()),
+                    builder.equal(receipt.get("purchaseTime"), key.purchaseTime()));
+        }
+        query.multiselect(receipt.get("id"), receipt.get("retailer"), receipt.get("purchaseDate"),
+                receipt.get("purchaseTime")).where(builder.or(matches));
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            ids.put(new ReceiptKey(row.get(1, String.class), row.get(2, String.class), row.get(3, String.class)),
+                    row.get(0, String.class));
+        }
+    }
+}
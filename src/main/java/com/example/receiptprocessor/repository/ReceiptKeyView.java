@@ -0,0 +1,20 @@
+package com.example.receiptprocessor.repository;
+
+import com.example.receiptprocessor.model.ReceiptKey;
+
+/**
+ * Projection of a stored receipt's id and duplicate-detection key, without loading its items.
+ */
+public interface ReceiptKeyView {
+    String getId();
+
+    String getRetailer();
+
+    String getPurchaseDate();
+
+    String getPurchaseTime();
+
+    default ReceiptKey toKey() {
+        return new ReceiptKey(getRetailer(), getPurchaseDate(), getPurchaseTime());
+    }
+}
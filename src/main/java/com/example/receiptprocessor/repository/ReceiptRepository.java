@@ -1,15 +1,39 @@
 package com.example.receiptprocessor.repository;
 
 import com.example.receiptprocessor.model.Receipt;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReceiptRepository extends JpaRepository<Receipt, String> {
-    Optional<Receipt> findByRetailerAndPurchaseDateAndPurchaseTime(String retailer, String purchaseDate, String purchaseTime);
+public interface ReceiptRepository extends JpaRepository<Receipt, String>, ReceiptKeyLookup {
+    @Query("select r.id from Receipt r where r.retailer = :retailer and r.purchaseDate = :purchaseDate and r.purchaseTime = :purchaseTime")
+    Optional<String> findIdByRetailerAndPurchaseDateAndPurchaseTime(String retailer, String purchaseDate, String purchaseTime);
 
-    long countByUserId(String userId);
+    @Query("select r.id from Receipt r where r.userId = :userId")
+    List<String> findIdsByUserId(String userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select r.id as id, r.retailer as retailer, r.purchaseDate as purchaseDate, r.purchaseTime as purchaseTime from Receipt r")
+    Stream<ReceiptKeyView> streamAllKeys();
+
+    /**
+     * Forward-only cursor over every stored receipt and its points, for exports. Points are null when they are kept
+     * outside the {@code receipt_point} table (see {@code PointsStore}).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.example.receiptprocessor.repository.ReceiptExportRow(r.id, r.userId, r.retailer, r.purchaseDate, p.points) "
+            + "from Receipt r left join ReceiptPoint p on p.receipt_id = r.id")
+    Stream<ReceiptExportRow> streamExportRows();
 
 }
@@ -0,0 +1,24 @@
+package com.example.receiptprocessor.repository;
+
+import com.example.receiptprocessor.model.RescoreCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RescoreCheckpointRepository extends JpaRepository<RescoreCheckpoint, String> {
+
+    List<RescoreCheckpoint> findByJobIdOrderByPartitionIndex(String jobId);
+
+    @Modifying
+    @Query("update RescoreCheckpoint c set c.lastId = :lastId, c.rescored = c.rescored + :rescored, "
+            + "c.changed = c.changed + :changed where c.id = :id")
+    void advance(String id, String lastId, long rescored, long changed);
+
+    @Modifying
+    @Query("update RescoreCheckpoint c set c.done = true where c.id = :id")
+    void markDone(String id);
+}
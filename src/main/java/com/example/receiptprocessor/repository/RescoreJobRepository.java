@@ -0,0 +1,9 @@
+package com.example.receiptprocessor.repository;
+
+import com.example.receiptprocessor.model.RescoreJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RescoreJobRepository extends JpaRepository<RescoreJob, String> {
+}
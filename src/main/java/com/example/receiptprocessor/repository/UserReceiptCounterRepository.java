@@ -0,0 +1,40 @@
+package com.example.receiptprocessor.repository;
+
+import com.example.receiptprocessor.model.UserReceiptCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserReceiptCounterRepository extends JpaRepository<UserReceiptCounter, String> {
+
+    @Query("select c.receiptCount from UserReceiptCounter c where c.userId = :userId")
+    Optional<Long> findReceiptCount(String userId);
+
+    @Modifying
+    @Query("update UserReceiptCounter c set c.receiptCount = c.receiptCount + :delta where c.userId = :userId")
+    int incrementBy(String userId, long delta);
+
+    /**
+     * @return the user's lifetime points; empty if the user has no counter or its total was never seeded
+     */
+    @Query("select c.pointsTotal from UserReceiptCounter c where c.userId = :userId")
+    Optional<Long> findPointsTotal(String userId);
+
+    @Modifying
+    @Query("update UserReceiptCounter c set c.pointsTotal = c.pointsTotal + :points "
+            + "where c.userId = :userId and c.pointsTotal is not null")
+    int addPoints(String userId, long points);
+
+    @Modifying
+    @Query("update UserReceiptCounter c set c.pointsTotal = :pointsTotal where c.userId = :userId")
+    int seedPointsTotal(String userId, long pointsTotal);
+
+    @Modifying
+    @Query(value = "insert into user_receipt_counter (user_id, receipt_count, points_total) "
+            + "values (:userId, :receiptCount, :pointsTotal)", nativeQuery = true)
+    void insert(String userId, long receiptCount, long pointsTotal);
+}
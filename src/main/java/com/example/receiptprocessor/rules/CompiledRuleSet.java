@@ -0,0 +1,269 @@
+package com.example.receiptprocessor.rules;
+
+import com.example.receiptprocessor.model.Item;
+import com.example.receiptprocessor.model.Receipt;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.example.receiptprocessor.util.ReceiptFields.NOT_CANONICAL;
+import static com.example.receiptprocessor.util.ReceiptFields.countAlphanumeric;
+import static com.example.receiptprocessor.util.ReceiptFields.dayOfMonth;
+import static com.example.receiptprocessor.util.ReceiptFields.minuteOfDay;
+import static com.example.receiptprocessor.util.ReceiptFields.parseCents;
+import static com.example.receiptprocessor.util.ReceiptFields.trimmedLength;
+
+/**
+ * An immutable rule set compiled by {@link RuleSetCompiler} into one evaluation pass over a receipt.
+ * <p>
+ * Rules of each kind are flattened into parameter arrays, so scoring reads every receipt field once and applies
+ * all rules of that kind in a tight loop, with no per-rule dispatch or reflection. Configured divisors are
+ * precompiled into {@link InvariantDivisor}s, so they cost no more than the literals of the hand-written rules.
+ * Fields in the validated wire format are read without allocating, exactly like {@code PointsCalculator};
+ * anything else falls back to {@link BigDecimal}/{@code java.time} parsing.
+ */
+public final class CompiledRuleSet {
+
+    private final String name;
+    private final RuleSetDefinition definition;
+
+    final int[] retailerPoints;
+    final LongAdder[] retailerHits;
+
+    final InvariantDivisor[] totalMultipleCents;
+    final BigDecimal[] totalMultiples;
+    final int[] totalPoints;
+    final LongAdder[] totalHits;
+
+    final InvariantDivisor[] itemEvery;
+    final int[] itemEveryPoints;
+    final LongAdder[] itemCountHits;
+
+    final InvariantDivisor[] descriptionLengthMultiple;
+    final long[] priceMultiplierUnscaled;
+    final InvariantDivisor[] priceDivisor;
+    final BigDecimal[] priceMultipliers;
+    final LongAdder[] descriptionHits;
+
+    final int[] dayParity;
+    final int[] dayPoints;
+    final LongAdder[] dayHits;
+
+    final int[] windowAfterMinute;
+    final int[] windowBeforeMinute;
+    final LocalTime[] windowAfter;
+    final LocalTime[] windowBefore;
+    final int[] windowPoints;
+    final LongAdder[] windowHits;
+
+    final int[] receiptCountBonuses;
+    final LongAdder[] bonusHits;
+    final LongAdder noBonusHits;
+
+    CompiledRuleSet(String name, RuleSetDefinition definition, Builder builder) {
+        this.name = name;
+        this.definition = definition;
+        this.retailerPoints = builder.retailerPoints;
+        this.retailerHits = builder.retailerHits;
+        this.totalMultipleCents = builder.totalMultipleCents;
+        this.totalMultiples = builder.totalMultiples;
+        this.totalPoints = builder.totalPoints;
+        this.totalHits = builder.totalHits;
+        this.itemEvery = builder.itemEvery;
+        this.itemEveryPoints = builder.itemEveryPoints;
+        this.itemCountHits = builder.itemCountHits;
+        this.descriptionLengthMultiple = builder.descriptionLengthMultiple;
+        this.priceMultiplierUnscaled = builder.priceMultiplierUnscaled;
+        this.priceDivisor = builder.priceDivisor;
+        this.priceMultipliers = builder.priceMultipliers;
+        this.descriptionHits = builder.descriptionHits;
+        this.dayParity = builder.dayParity;
+        this.dayPoints = builder.dayPoints;
+        this.dayHits = builder.dayHits;
+        this.windowAfterMinute = builder.windowAfterMinute;
+        this.windowBeforeMinute = builder.windowBeforeMinute;
+        this.windowAfter = builder.windowAfter;
+        this.windowBefore = builder.windowBefore;
+        this.windowPoints = builder.windowPoints;
+        this.windowHits = builder.windowHits;
+        this.receiptCountBonuses = builder.receiptCountBonuses;
+        this.bonusHits = builder.bonusHits;
+        this.noBonusHits = builder.noBonusHits;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The definition this rule set was compiled from.
+     */
+    public RuleSetDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Base points plus the bonus for the user's {@code receiptCount}-th receipt.
+     */
+    public int points(Receipt receipt, long receiptCount) {
+        return basePoints(receipt) + bonusPoints(receiptCount);
+    }
+
+    public int bonusPoints(long receiptCount) {
+        if (receiptCount >= 1 && receiptCount <= receiptCountBonuses.length) {
+            int tier = (int) receiptCount - 1;
+            bonusHits[tier].increment();
+            return receiptCountBonuses[tier];
+        }
+        noBonusHits.increment();
+        return 0;
+    }
+
+    public int basePoints(Receipt receipt) {
+        int points = 0;
+
+        if (retailerPoints.length > 0) {
+            int alphanumeric = countAlphanumeric(receipt.getRetailer());
+            if (alphanumeric > 0) {
+                for (int i = 0; i < retailerPoints.length; i++) {
+                    points += alphanumeric * retailerPoints[i];
+                    retailerHits[i].increment();
+                }
+            }
+        }
+
+        if (totalMultipleCents.length > 0) {
+            points += totalPoints(receipt.getTotal());
+        }
+
+        List<Item> items = receipt.getItems();
+        int itemCount = items.size();
+        for (int i = 0; i < itemEvery.length; i++) {
+            int groups = (int) itemEvery[i].divide(itemCount);
+            if (groups > 0) {
+                points += groups * itemEveryPoints[i];
+                itemCountHits[i].increment();
+            }
+        }
+
+        for (int j = 0; j < descriptionLengthMultiple.length; j++) {
+            int matchingItems = 0;
+            for (int i = 0; i < itemCount; i++) {
+                Item item = items.get(i);
+                if (descriptionLengthMultiple[j].divides(trimmedLength(item.getShortDescription()))) {
+                    points += pricePoints(item.getPrice(), j);
+                    matchingItems++;
+                }
+            }
+            if (matchingItems > 0) {
+                descriptionHits[j].add(matchingItems);
+            }
+        }
+
+        if (dayParity.length > 0) {
+            int dayParityOfReceipt = dayOfMonth(receipt.getPurchaseDate()) % 2;
+            for (int i = 0; i < dayParity.length; i++) {
+                if (dayParityOfReceipt == dayParity[i]) {
+                    points += dayPoints[i];
+                    dayHits[i].increment();
+                }
+            }
+        }
+
+        if (windowPoints.length > 0) {
+            points += windowPoints(receipt.getPurchaseTime());
+        }
+
+        return points;
+    }
+
+    private int totalPoints(String total) {
+        int points = 0;
+        long cents = parseCents(total);
+        if (cents == NOT_CANONICAL) {
+            BigDecimal amount = new BigDecimal(total);
+            for (int i = 0; i < totalMultiples.length; i++) {
+                if (amount.remainder(totalMultiples[i]).compareTo(BigDecimal.ZERO) == 0) {
+                    points += totalPoints[i];
+                    totalHits[i].increment();
+                }
+            }
+            return points;
+        }
+        for (int i = 0; i < totalMultipleCents.length; i++) {
+            if (totalMultipleCents[i].divides(cents)) {
+                points += totalPoints[i];
+                totalHits[i].increment();
+            }
+        }
+        return points;
+    }
+
+    private int pricePoints(String price, int rule) {
+        long cents = parseCents(price);
+        long unscaled = priceMultiplierUnscaled[rule];
+        InvariantDivisor divisor = priceDivisor[rule];
+        if (cents == NOT_CANONICAL || (unscaled != 0 && cents > (Long.MAX_VALUE - divisor.divisor()) / unscaled)) {
+            return (int) Math.ceil(new BigDecimal(price).multiply(priceMultipliers[rule]).doubleValue());
+        }
+        // ceil(price * multiplier) in integer arithmetic, with the multiplier as a reduced fraction of cents,
+        // saturating at the int range like the (int) cast of the BigDecimal path.
+        return (int) Math.min(divisor.divide(cents * unscaled + divisor.divisor() - 1), Integer.MAX_VALUE);
+    }
+
+    private int windowPoints(String time) {
+        int points = 0;
+        int minuteOfDay = minuteOfDay(time);
+        if (minuteOfDay == NOT_CANONICAL) {
+            LocalTime parsed = LocalTime.parse(time);
+            for (int i = 0; i < windowPoints.length; i++) {
+                if (parsed.isAfter(windowAfter[i]) && parsed.isBefore(windowBefore[i])) {
+                    points += windowPoints[i];
+                    windowHits[i].increment();
+                }
+            }
+            return points;
+        }
+        for (int i = 0; i < windowPoints.length; i++) {
+            if (minuteOfDay > windowAfterMinute[i] && minuteOfDay < windowBeforeMinute[i]) {
+                points += windowPoints[i];
+                windowHits[i].increment();
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Parameter arrays filled by {@link RuleSetCompiler}.
+     */
+    static final class Builder {
+        int[] retailerPoints;
+        LongAdder[] retailerHits;
+        InvariantDivisor[] totalMultipleCents;
+        BigDecimal[] totalMultiples;
+        int[] totalPoints;
+        LongAdder[] totalHits;
+        InvariantDivisor[] itemEvery;
+        int[] itemEveryPoints;
+        LongAdder[] itemCountHits;
+        InvariantDivisor[] descriptionLengthMultiple;
+        long[] priceMultiplierUnscaled;
+        InvariantDivisor[] priceDivisor;
+        BigDecimal[] priceMultipliers;
+        LongAdder[] descriptionHits;
+        int[] dayParity;
+        int[] dayPoints;
+        LongAdder[] dayHits;
+        int[] windowAfterMinute;
+        int[] windowBeforeMinute;
+        LocalTime[] windowAfter;
+        LocalTime[] windowBefore;
+        int[] windowPoints;
+        LongAdder[] windowHits;
+        int[] receiptCountBonuses;
+        LongAdder[] bonusHits;
+        LongAdder noBonusHits;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.receiptprocessor.rules;
+
+/**
+ * Division and divisibility by a divisor fixed when a rule set is compiled.
+ * <p>
+ * The JIT turns division by a literal into a multiplication; a divisor read from configuration would otherwise
+ * cost a hardware divide on every receipt. This precomputes the multiplier instead (Lemire, Kaser and Kurz,
+ * "Faster Remainder by Direct Computation"), exact for dividends and divisors below 2<sup>32</sup>. Larger values
+ * use plain {@code /} and {@code %}.
+ */
+final class InvariantDivisor {
+
+    private static final long MAX_FAST = 0xFFFFFFFFL;
+
+    private final long divisor;
+    private final long magic;
+    private final boolean fast;
+
+    InvariantDivisor(long divisor) {
+        if (divisor <= 0) {
+            throw new IllegalArgumentException("divisor must be positive: " + divisor);
+        }
+        this.divisor = divisor;
+        this.fast = divisor > 1 && divisor <= MAX_FAST;
+        this.magic = fast ? Long.divideUnsigned(-1L, divisor) + 1 : 0L;
+    }
+
+    long divisor() {
+        return divisor;
+    }
+
+    /**
+     * @return {@code dividend / divisor} for a non-negative dividend
+     */
+    long divide(long dividend) {
+        if (fast && dividend <= MAX_FAST) {
+            return Math.unsignedMultiplyHigh(magic, dividend);
+        }
+        return dividend / divisor;
+    }
+
+    /**
+     * @return whether the divisor divides a non-negative dividend
+     */
+    boolean divides(long dividend) {
+        if (fast && dividend <= MAX_FAST) {
+            return Long.compareUnsigned(dividend * magic, magic - 1) <= 0;
+        }
+        return dividend % divisor == 0;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.receiptprocessor.rules;
+
+import com.example.receiptprocessor.exception.InvalidRuleSetException;
+import com.example.receiptprocessor.metrics.RuleHitCounters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the active {@link CompiledRuleSet}, loaded from {@code receipt.points-rules.location}.
+ * <p>
+ * Scoring reads the active rule set with a single volatile load and keeps using that instance for the whole
+ * receipt (or batch), so a reload never pauses ingestion or mixes two rule sets in one score. Reloads compile the
+ * new definition first and swap it in only if it is valid; a file resource is also polled for changes.
+ */
+@Component
+public class PointsRuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointsRuleEngine.class);
+
+    private final Resource location;
+    private final ObjectMapper objectMapper;
+    private final RuleHitCounters counters;
+    private final AtomicReference<CompiledRuleSet> active = new AtomicReference<>();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private long loadedLastModified;
+
+    public PointsRuleEngine(ResourceLoader resourceLoader, ObjectMapper objectMapper, RuleHitCounters counters,
+                            @Value("${receipt.points-rules.location:classpath:points-rules.json}") String location) {
+        this.location = resourceLoader.getResource(location);
+        this.objectMapper = objectMapper;
+        this.counters = counters;
+        reload();
+    }
+
+    public CompiledRuleSet current() {
+        return active.get();
+    }
+
+    /**
+     * Reads and compiles the configured rule set and makes it active.
+     *
+     * @throws InvalidRuleSetException if it cannot be read or compiled; the active rule set is kept
+     */
+    public CompiledRuleSet reload() {
+        reloadLock.lock();
+        try {
+            long lastModified = lastModified();
+            RuleSetDefinition definition;
+            try (InputStream in = location.getInputStream()) {
+                definition = objectMapper.readValue(in, RuleSetDefinition.class);
+            } catch (IOException e) {
+                throw new InvalidRuleSetException("Cannot read rule set from " + location + ": " + e.getMessage(), e);
+            }
+            CompiledRuleSet compiled = install(definition);
+            loadedLastModified = lastModified;
+            return compiled;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Compiles the definition and makes it active.
+     *
+     * @throws InvalidRuleSetException if it does not compile; the active rule set is kept
+     */
+    public CompiledRuleSet install(RuleSetDefinition definition) {
+        CompiledRuleSet compiled = RuleSetCompiler.compile(definition, counters);
+        CompiledRuleSet previous = active.getAndSet(compiled);
+        logger.info("Activated points rule set '{}' with {} rules (previously '{}')", compiled.getName(),
+                definition.getRules().size(), previous == null ? "none" : previous.getName());
+        return compiled;
+    }
+
+    @Scheduled(fixedDelayString = "${receipt.points-rules.poll-interval-ms:10000}")
+    public void reloadIfModified() {
+        if (!location.isFile() || !reloadLock.tryLock()) {
+            return;
+        }
+        try {
+            long lastModified = lastModified();
+            if (lastModified != loadedLastModified) {
+                // Remember the attempt so a broken file is reported once, not on every poll.
+                loadedLastModified = lastModified;
+                reload();
+            }
+        } catch (InvalidRuleSetException e) {
+            logger.error("Keeping points rule set '{}': {}", current().getName(), e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private long lastModified() {
+        try {
+            return location.isFile() ? location.lastModified() : 0L;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
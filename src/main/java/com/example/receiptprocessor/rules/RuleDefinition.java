@@ -0,0 +1,32 @@
+package com.example.receiptprocessor.rules;
+
+import lombok.Data;
+
+/**
+ * One configured scoring rule. {@code type} selects the rule kind; only the parameters that kind uses are read.
+ * <ul>
+ *     <li>{@code retailer-alphanumeric}: {@code points} per alphanumeric character of the retailer name</li>
+ *     <li>{@code total-multiple}: {@code points} when the total is a multiple of {@code multiple} (e.g. "0.25")</li>
+ *     <li>{@code item-count}: {@code points} for every {@code every} items</li>
+ *     <li>{@code item-description-length}: for each item whose trimmed description length is a multiple of
+ *     {@code lengthMultiple}, the price times {@code priceMultiplier}, rounded up</li>
+ *     <li>{@code purchase-day-parity}: {@code points} when the day of month is {@code odd} or {@code even}
+ *     ({@code parity})</li>
+ *     <li>{@code purchase-time-window}: {@code points} when the purchase time is strictly between {@code after}
+ *     and {@code before} ("HH:mm")</li>
+ * </ul>
+ * {@code name} identifies the rule in metrics and must be unique within a rule set.
+ */
+@Data
+public class RuleDefinition {
+    private String name;
+    private String type;
+    private Integer points;
+    private String multiple;
+    private Integer every;
+    private Integer lengthMultiple;
+    private String priceMultiplier;
+    private String parity;
+    private String after;
+    private String before;
+}
@@ -0,0 +1,234 @@
+package com.example.receiptprocessor.rules;
+
+import com.example.receiptprocessor.exception.InvalidRuleSetException;
+import com.example.receiptprocessor.metrics.RuleHitCounters;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validates a {@link RuleSetDefinition} and compiles it into a {@link CompiledRuleSet}. Every parameter is
+ * checked and converted here, so a rule set that compiles cannot fail on configuration while scoring.
+ */
+public final class RuleSetCompiler {
+
+    static final String RETAILER_ALPHANUMERIC = "retailer-alphanumeric";
+    static final String TOTAL_MULTIPLE = "total-multiple";
+    static final String ITEM_COUNT = "item-count";
+    static final String ITEM_DESCRIPTION_LENGTH = "item-description-length";
+    static final String PURCHASE_DAY_PARITY = "purchase-day-parity";
+    static final String PURCHASE_TIME_WINDOW = "purchase-time-window";
+
+    private static final String[] BONUS_TIER_NAMES = {"first_receipt", "second_receipt", "third_receipt"};
+    // Keeps ceil(cents * unscaled / divisor) exact in long arithmetic for realistic multipliers.
+    private static final int MAX_MULTIPLIER_SCALE = 9;
+
+    private RuleSetCompiler() {
+    }
+
+    /**
+     * @throws InvalidRuleSetException if a rule has an unknown type, a duplicate name or an invalid parameter
+     */
+    public static CompiledRuleSet compile(RuleSetDefinition definition, RuleHitCounters counters) {
+        if (definition == null || definition.getRules() == null || definition.getReceiptCountBonuses() == null) {
+            throw new InvalidRuleSetException("A rule set needs 'rules' and 'receiptCountBonuses'");
+        }
+        Map<String, List<RuleDefinition>> byType = new LinkedHashMap<>();
+        for (String type : List.of(RETAILER_ALPHANUMERIC, TOTAL_MULTIPLE, ITEM_COUNT, ITEM_DESCRIPTION_LENGTH,
+                PURCHASE_DAY_PARITY, PURCHASE_TIME_WINDOW)) {
+            byType.put(type, new ArrayList<>());
+        }
+        Set<String> names = new HashSet<>();
+        for (RuleDefinition rule : definition.getRules()) {
+            if (rule.getName() == null || rule.getName().isBlank()) {
+                throw new InvalidRuleSetException("Every rule needs a name");
+            }
+            if (!names.add(rule.getName())) {
+                throw new InvalidRuleSetException("Duplicate rule name '" + rule.getName() + "'");
+            }
+            List<RuleDefinition> rulesOfType = byType.get(rule.getType());
+            if (rulesOfType == null) {
+                throw invalid(rule, "unknown type '" + rule.getType() + "'");
+            }
+            rulesOfType.add(rule);
+        }
+
+        CompiledRuleSet.Builder builder = new CompiledRuleSet.Builder();
+
+        List<RuleDefinition> retailer = byType.get(RETAILER_ALPHANUMERIC);
+        builder.retailerPoints = new int[retailer.size()];
+        for (int i = 0; i < retailer.size(); i++) {
+            builder.retailerPoints[i] = required(retailer.get(i), "points", retailer.get(i).getPoints());
+        }
+
+        List<RuleDefinition> totals = byType.get(TOTAL_MULTIPLE);
+        builder.totalMultipleCents = new InvariantDivisor[totals.size()];
+        builder.totalMultiples = new BigDecimal[totals.size()];
+        builder.totalPoints = new int[totals.size()];
+        for (int i = 0; i < totals.size(); i++) {
+            RuleDefinition rule = totals.get(i);
+            BigDecimal multiple = decimal(rule, "multiple", rule.getMultiple());
+            BigDecimal cents = multiple.movePointRight(2);
+            if (multiple.signum() <= 0 || cents.stripTrailingZeros().scale() > 0) {
+                throw invalid(rule, "'multiple' must be a positive whole number of cents");
+            }
+            builder.totalMultipleCents[i] = new InvariantDivisor(cents.longValueExact());
+            builder.totalMultiples[i] = multiple;
+            builder.totalPoints[i] = required(rule, "points", rule.getPoints());
+        }
+
+        List<RuleDefinition> itemCounts = byType.get(ITEM_COUNT);
+        builder.itemEvery = new InvariantDivisor[itemCounts.size()];
+        builder.itemEveryPoints = new int[itemCounts.size()];
+        for (int i = 0; i < itemCounts.size(); i++) {
+            RuleDefinition rule = itemCounts.get(i);
+            builder.itemEvery[i] = new InvariantDivisor(positive(rule, "every", rule.getEvery()));
+            builder.itemEveryPoints[i] = required(rule, "points", rule.getPoints());
+        }
+
+        List<RuleDefinition> descriptions = byType.get(ITEM_DESCRIPTION_LENGTH);
+        builder.descriptionLengthMultiple = new InvariantDivisor[descriptions.size()];
+        builder.priceMultiplierUnscaled = new long[descriptions.size()];
+        builder.priceDivisor = new InvariantDivisor[descriptions.size()];
+        builder.priceMultipliers = new BigDecimal[descriptions.size()];
+        for (int i = 0; i < descriptions.size(); i++) {
+            RuleDefinition rule = descriptions.get(i);
+            builder.descriptionLengthMultiple[i] = new InvariantDivisor(positive(rule, "lengthMultiple", rule.getLengthMultiple()));
+            BigDecimal multiplier = decimal(rule, "priceMultiplier", rule.getPriceMultiplier());
+            if (multiplier.signum() < 0) {
+                throw invalid(rule, "'priceMultiplier' must not be negative");
+            }
+            BigDecimal normalized = multiplier.scale() < 0 ? multiplier.setScale(0) : multiplier;
+            if (normalized.scale() > MAX_MULTIPLIER_SCALE || normalized.unscaledValue().bitLength() > 31) {
+                throw invalid(rule, "'priceMultiplier' has too many digits");
+            }
+            // price * multiplier == cents * unscaled / 10^(scale + 2); reduced so 0.2 becomes cents / 500.
+            BigInteger numerator = normalized.unscaledValue();
+            BigInteger denominator = BigInteger.TEN.pow(normalized.scale() + 2);
+            BigInteger gcd = numerator.signum() == 0 ? denominator : numerator.gcd(denominator);
+            builder.priceMultiplierUnscaled[i] = numerator.divide(gcd).longValueExact();
+            builder.priceDivisor[i] = new InvariantDivisor(denominator.divide(gcd).longValueExact());
+            builder.priceMultipliers[i] = multiplier;
+        }
+
+        List<RuleDefinition> days = byType.get(PURCHASE_DAY_PARITY);
+        builder.dayParity = new int[days.size()];
+        builder.dayPoints = new int[days.size()];
+        for (int i = 0; i < days.size(); i++) {
+            RuleDefinition rule = days.get(i);
+            if ("odd".equals(rule.getParity())) {
+                builder.dayParity[i] = 1;
+            } else if ("even".equals(rule.getParity())) {
+                builder.dayParity[i] = 0;
+            } else {
+                throw invalid(rule, "'parity' must be 'odd' or 'even'");
+            }
+            builder.dayPoints[i] = required(rule, "points", rule.getPoints());
+        }
+
+        List<RuleDefinition> windows = byType.get(PURCHASE_TIME_WINDOW);
+        builder.windowAfterMinute = new int[windows.size()];
+        builder.windowBeforeMinute = new int[windows.size()];
+        builder.windowAfter = new LocalTime[windows.size()];
+        builder.windowBefore = new LocalTime[windows.size()];
+        builder.windowPoints = new int[windows.size()];
+        for (int i = 0; i < windows.size(); i++) {
+            RuleDefinition rule = windows.get(i);
+            builder.windowAfter[i] = time(rule, "after", rule.getAfter());
+            builder.windowBefore[i] = time(rule, "before", rule.getBefore());
+            builder.windowAfterMinute[i] = builder.windowAfter[i].getHour() * 60 + builder.windowAfter[i].getMinute();
+            builder.windowBeforeMinute[i] = builder.windowBefore[i].getHour() * 60 + builder.windowBefore[i].getMinute();
+            builder.windowPoints[i] = required(rule, "points", rule.getPoints());
+        }
+
+        List<Integer> bonuses = definition.getReceiptCountBonuses();
+        builder.receiptCountBonuses = new int[bonuses.size()];
+        for (int i = 0; i < bonuses.size(); i++) {
+            if (bonuses.get(i) == null) {
+                throw new InvalidRuleSetException("'receiptCountBonuses' must not contain null");
+            }
+            builder.receiptCountBonuses[i] = bonuses.get(i);
+        }
+
+        // Counters are resolved only once the whole definition is valid, so a rejected rule set registers none.
+        builder.retailerHits = hits(retailer, counters);
+        builder.totalHits = hits(totals, counters);
+        builder.itemCountHits = hits(itemCounts, counters);
+        builder.descriptionHits = hits(descriptions, counters);
+        builder.dayHits = hits(days, counters);
+        builder.windowHits = hits(windows, counters);
+        builder.bonusHits = new LongAdder[bonuses.size()];
+        for (int i = 0; i < bonuses.size(); i++) {
+            builder.bonusHits[i] = counters.bonusTier(bonusTierName(i + 1));
+        }
+        builder.noBonusHits = counters.bonusTier("none");
+
+        String name = definition.getName() == null ? "unnamed" : definition.getName();
+        return new CompiledRuleSet(name, definition, builder);
+    }
+
+    static String bonusTierName(int receiptOrdinal) {
+        return receiptOrdinal <= BONUS_TIER_NAMES.length ? BONUS_TIER_NAMES[receiptOrdinal - 1] : "receipt_" + receiptOrdinal;
+    }
+
+    private static LongAdder[] hits(List<RuleDefinition> rules, RuleHitCounters counters) {
+        LongAdder[] hits = new LongAdder[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            hits[i] = counters.rule(rules.get(i).getName());
+        }
+        return hits;
+    }
+
+    private static int required(RuleDefinition rule, String parameter, Integer value) {
+        if (value == null) {
+            throw invalid(rule, "'" + parameter + "' is required");
+        }
+        return value;
+    }
+
+    private static int positive(RuleDefinition rule, String parameter, Integer value) {
+        if (required(rule, parameter, value) <= 0) {
+            throw invalid(rule, "'" + parameter + "' must be positive");
+        }
+        return value;
+    }
+
+    private static BigDecimal decimal(RuleDefinition rule, String parameter, String value) {
+        if (value == null) {
+            throw invalid(rule, "'" + parameter + "' is required");
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw invalid(rule, "'" + parameter + "' is not a decimal number: " + value);
+        }
+    }
+
+    private static LocalTime time(RuleDefinition rule, String parameter, String value) {
+        if (value == null) {
+            throw invalid(rule, "'" + parameter + "' is required");
+        }
+        try {
+            LocalTime time = LocalTime.parse(value);
+            if (time.getSecond() != 0 || time.getNano() != 0) {
+                throw invalid(rule, "'" + parameter + "' must be a whole minute (HH:mm)");
+            }
+            return time;
+        } catch (DateTimeParseException e) {
+            throw invalid(rule, "'" + parameter + "' is not a time (HH:mm): " + value);
+        }
+    }
+
+    private static InvalidRuleSetException invalid(RuleDefinition rule, String problem) {
+        return new InvalidRuleSetException("Rule '" + rule.getName() + "': " + problem);
+    }
+}
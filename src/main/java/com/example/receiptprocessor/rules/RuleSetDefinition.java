@@ -0,0 +1,17 @@
+package com.example.receiptprocessor.rules;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A complete scoring configuration as read from {@code receipt.points-rules.location}: the base rules, and the
+ * bonus for a user's first, second, third ... receipt ({@code receiptCountBonuses[n - 1]} for the n-th).
+ */
+@Data
+public class RuleSetDefinition {
+    private String name;
+    private List<RuleDefinition> rules = new ArrayList<>();
+    private List<Integer> receiptCountBonuses = new ArrayList<>();
+}
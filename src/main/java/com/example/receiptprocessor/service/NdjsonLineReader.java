@@ -0,0 +1,88 @@
+package com.example.receiptprocessor.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads lines of newline-delimited JSON with a cap on line length. A line longer than the cap is skipped to its end
+ * without being buffered, so one oversized line cannot exhaust the heap; the caller sees it as too long.
+ * A trailing {@code \r} is dropped, so CRLF input reads the same. Not thread-safe.
+ */
+class NdjsonLineReader {
+
+    private final Reader in;
+    private final int maxLength;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean tooLong;
+
+    NdjsonLineReader(Reader in, int maxLength) {
+        this.in = in;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the next line without its terminator, empty if it was {@link #tooLong()}, or {@code null} at the
+     * end of the input
+     */
+    String readLine() throws IOException {
+        line.setLength(0);
+        tooLong = false;
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                int count = in.read(buffer, 0, buffer.length);
+                if (count < 0) {
+                    return read ? finishLine() : null;
+                }
+                position = 0;
+                limit = count;
+            }
+            read = true;
+            int end = position;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+            append(position, end);
+            if (end < limit) {
+                position = end + 1;
+                return finishLine();
+            }
+            position = limit;
+        }
+    }
+
+    /**
+     * @return whether the line last returned was longer than the cap
+     */
+    boolean tooLong() {
+        return tooLong;
+    }
+
+    private void append(int from, int to) {
+        if (tooLong) {
+            return;
+        }
+        // One extra character for the \r of a CRLF line at the cap.
+        if (line.length() + (to - from) > maxLength + 1) {
+            tooLong = true;
+            line.setLength(0);
+            return;
+        }
+        line.append(buffer, from, to - from);
+    }
+
+    private String finishLine() {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(--length);
+        }
+        if (length > maxLength) {
+            tooLong = true;
+            return "";
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.repository.ReceiptExportRow;
+import com.example.receiptprocessor.repository.ReceiptRepository;
+import com.example.receiptprocessor.shard.ShardRouter;
+import com.example.receiptprocessor.store.PointsStore;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Writes every stored receipt with its points as NDJSON or CSV.
+ * <p>
+ * Rows come from a forward-only database cursor as constructor-expression values, so nothing is attached to the
+ * persistence context and heap use does not depend on the number of rows. Each row is written as soon as it is
+ * read. Points not kept in the {@code receipt_point} table are looked up in the {@link PointsStore} row by row;
+ * receipts without points yet are left out. With sharded storage the shards are read one after the other, each
+ * in a read-only transaction of its own.
+ */
+@Service
+public class ReceiptExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptExportService.class);
+    private static final String CSV_HEADER = "id,userId,retailer,purchaseDate,points";
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private final ReceiptRepository receiptRepository;
+    private final PointsStore pointsStore;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public ReceiptExportService(ReceiptRepository receiptRepository, PointsStore pointsStore,
+                                ShardRouter shardRouter, PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper) {
+        this.receiptRepository = receiptRepository;
+        this.pointsStore = pointsStore;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Streams the export to {@code out}, which stays open. Returns the number of rows written.
+     */
+    public long export(Format format, OutputStream out) {
+        long start = System.nanoTime();
+        long rows;
+        try (RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out)) {
+            shardRouter.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<ReceiptExportRow> stream = receiptRepository.streamExportRows()) {
+                    Iterator<ReceiptExportRow> exported =
+                            stream.map(this::withPoints).filter(Objects::nonNull).iterator();
+                    while (exported.hasNext()) {
+                        writer.write(exported.next());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            rows = writer.rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Exported {} receipts as {} in {} ms ({} rows/s)",
+                rows, format, elapsedMillis, rows * 1000 / elapsedMillis);
+        return rows;
+    }
+
+    private ReceiptExportRow withPoints(ReceiptExportRow row) {
+        if (row.points() != null) {
+            return row;
+        }
+        return pointsStore.findById(row.id())
+                .map(point -> new ReceiptExportRow(row.id(), row.userId(), row.retailer(), row.purchaseDate(),
+                        point.getPoints()))
+                .orElse(null);
+    }
+
+    /**
+     * Writes rows to the output stream, across the transactions of all shards; closing flushes but leaves the
+     * stream open.
+     */
+    private abstract static class RowWriter implements Closeable {
+        long rows;
+
+        abstract void write(ReceiptExportRow row) throws IOException;
+    }
+
+    private final class NdjsonWriter extends RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(ReceiptExportRow row) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("id", row.id());
+            generator.writeStringField("userId", row.userId());
+            generator.writeStringField("retailer", row.retailer());
+            generator.writeStringField("purchaseDate", row.purchaseDate());
+            generator.writeNumberField("points", row.points());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            rows++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvWriter extends RowWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        void write(ReceiptExportRow row) throws IOException {
+            writeCsvField(writer, row.id());
+            writer.write(',');
+            writeCsvField(writer, row.userId());
+            writer.write(',');
+            writeCsvField(writer, row.retailer());
+            writer.write(',');
+            writeCsvField(writer, row.purchaseDate());
+            writer.write(',');
+            writer.write(Integer.toString(row.points()));
+            writer.write('\n');
+            rows++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * RFC 4180 quoting: fields containing a separator, quote or line break are quoted with quotes doubled.
+     */
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
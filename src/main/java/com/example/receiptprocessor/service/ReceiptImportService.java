@@ -0,0 +1,188 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.dto.ImportReport;
+import com.example.receiptprocessor.dto.ReceiptIdResponse;
+import com.example.receiptprocessor.model.Receipt;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports newline-delimited JSON receipts (one receipt object per line) with memory bounded by the chunk size.
+ * <p>
+ * Lines are read one at a time and parsed on their own, so a malformed line is rejected without losing its
+ * neighbours. Lines longer than {@code receipt.import.max-line-length} characters are rejected without being
+ * buffered, which bounds the memory a single line can take. Valid receipts are stored in chunks through {@link ReceiptSubmissionService#submitBatch}, one
+ * transaction per chunk and shard; the persistence context closes with each transaction, so nothing accumulates
+ * across chunks.
+ */
+@Service
+public class ReceiptImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptImportService.class);
+
+    private final ReceiptSubmissionService receiptSubmissionService;
+
+    private final Validator validator;
+
+    private final ObjectReader receiptReader;
+
+    private final int chunkSize;
+
+    private final int maxReportedRejections;
+
+    private final long progressInterval;
+
+    private final int maxLineLength;
+
+    public ReceiptImportService(ReceiptSubmissionService receiptSubmissionService, Validator validator,
+                                ObjectMapper objectMapper,
+                                @Value("${receipt.import.chunk-size:500}") int chunkSize,
+                                @Value("${receipt.import.max-reported-rejections:100}") int maxReportedRejections,
+                                @Value("${receipt.import.progress-interval:100000}") long progressInterval,
+                                @Value("${receipt.import.max-line-length:1048576}") int maxLineLength) {
+        this.receiptSubmissionService = receiptSubmissionService;
+        this.validator = validator;
+        this.receiptReader = objectMapper.readerFor(Receipt.class)
+                .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+        this.chunkSize = chunkSize;
+        this.maxReportedRejections = maxReportedRejections;
+        this.progressInterval = progressInterval;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Reads NDJSON from the stream until it ends and returns the import summary. Blank lines are skipped.
+     * The caller owns the stream.
+     */
+    public ImportReport importNdjson(InputStream in) throws IOException {
+        ImportReport report = new ImportReport();
+        NdjsonLineReader reader = new NdjsonLineReader(new InputStreamReader(in, StandardCharsets.UTF_8), maxLineLength);
+        List<Receipt> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (reader.tooLong()) {
+                countProcessed(report);
+                reject(report, lineNumber, "Line longer than " + maxLineLength + " characters");
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            countProcessed(report);
+            Receipt receipt;
+            try {
+                receipt = receiptReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                reject(report, lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            String violations = validate(receipt);
+            if (violations != null) {
+                reject(report, lineNumber, violations);
+                continue;
+            }
+            chunk.add(receipt);
+            chunkLines.add(lineNumber);
+            if (chunk.size() == chunkSize) {
+                storeChunk(chunk, chunkLines, report);
+            }
+        }
+        storeChunk(chunk, chunkLines, report);
+        logger.info("Import finished: {} receipts processed, {} imported, {} duplicates, {} rejected",
+                report.getProcessed(), report.getImported(), report.getDuplicates(), report.getRejected());
+        return report;
+    }
+
+    /**
+     * Counts a non-blank line, valid or not, and logs progress every {@code progressInterval} lines.
+     */
+    private void countProcessed(ImportReport report) {
+        report.setProcessed(report.getProcessed() + 1);
+        if (report.getProcessed() % progressInterval == 0) {
+            logger.info("Import progress: {} receipts processed, {} imported, {} duplicates, {} rejected",
+                    report.getProcessed(), report.getImported(), report.getDuplicates(), report.getRejected());
+        }
+    }
+
+    private String validate(Receipt receipt) {
+        Set<ConstraintViolation<Receipt>> violations = validator.validate(receipt);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Stores and clears the chunk. If the chunk transaction fails (for example a concurrent submission of the
+     * same key), its receipts are retried one at a time so only the offending lines are rejected.
+     */
+    private void storeChunk(List<Receipt> chunk, List<Long> chunkLines, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<ReceiptIdResponse> stored = receiptSubmissionService.submitBatch(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                count(report, chunk.get(i), stored.get(i));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Import chunk of {} receipts failed, retrying one at a time: {}", chunk.size(), e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                Receipt receipt = chunk.get(i);
+                // The rolled-back chunk already assigned IDs; clear them so the retry persists fresh rows.
+                receipt.setId(null);
+                receipt.getItems().forEach(item -> item.setId(null));
+                try {
+                    count(report, receipt, receiptSubmissionService.storeSynchronously(receipt));
+                } catch (RuntimeException single) {
+                    reject(report, chunkLines.get(i), single.getMessage());
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * Counts the receipt as imported if it was stored now, or as a duplicate if it resolved to a receipt stored
+     * before (or earlier in the import): only a receipt that was persisted has the ID it is answered with.
+     */
+    private static void count(ImportReport report, Receipt receipt, ReceiptIdResponse response) {
+        if (response.getId().equals(receipt.getId())) {
+            report.setImported(report.getImported() + 1);
+        } else {
+            report.setDuplicates(report.getDuplicates() + 1);
+        }
+    }
+
+    private void reject(ImportReport report, long lineNumber, String error) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getRejectedLines().size() < maxReportedRejections) {
+            report.getRejectedLines().add(new ImportReport.RejectedLine(lineNumber, error));
+        }
+        logger.debug("Rejected import line {}: {}", lineNumber, error);
+    }
+}
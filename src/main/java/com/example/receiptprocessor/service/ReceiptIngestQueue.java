@@ -0,0 +1,219 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.dedup.ReceiptKeyFilter;
+import com.example.receiptprocessor.dto.ReceiptIdResponse;
+import com.example.receiptprocessor.model.PendingReceipt;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.ReceiptIdGenerator;
+import com.example.receiptprocessor.model.ReceiptKey;
+import com.example.receiptprocessor.repository.PendingReceiptRepository;
+import com.example.receiptprocessor.repository.ReceiptRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable queue behind asynchronous ingestion ({@code receipt.ingest.mode=async}).
+ * <p>
+ * {@link #enqueue} reserves the receipt ID, writes the receipt to the {@code pending_receipt} table and returns,
+ * leaving storage and scoring to {@link ReceiptIngestWorker}. Entries are spread over a fixed number of
+ * partitions by ID so each worker drains its own partition without contending with the others.
+ */
+@Service
+public class ReceiptIngestQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptIngestQueue.class);
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final PendingReceiptRepository pendingReceiptRepository;
+    private final ReceiptRepository receiptRepository;
+    private final ReceiptService receiptService;
+    private final ReceiptKeyFilter receiptKeyFilter;
+    private final ObjectMapper objectMapper;
+    private final boolean async;
+    private final int partitions;
+
+    public ReceiptIngestQueue(PendingReceiptRepository pendingReceiptRepository, ReceiptRepository receiptRepository,
+                              ReceiptService receiptService, ReceiptKeyFilter receiptKeyFilter, ObjectMapper objectMapper,
+                              @Value("${receipt.ingest.mode:sync}") String mode,
+                              @Value("${receipt.ingest.partitions:4}") int partitions) {
+        this.pendingReceiptRepository = pendingReceiptRepository;
+        this.receiptRepository = receiptRepository;
+        this.receiptService = receiptService;
+        this.receiptKeyFilter = receiptKeyFilter;
+        this.objectMapper = objectMapper;
+        this.async = isAsyncMode(mode);
+        this.partitions = partitions;
+    }
+
+    /**
+     * Whether {@code receipt.ingest.mode} selects asynchronous ingestion. The value is case-insensitive, as for
+     * {@code @ConditionalOnProperty}, which starts {@link ReceiptIngestWorker}.
+     */
+    public static boolean isAsyncMode(String mode) {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Queues the receipt and returns the ID it will be stored under. A receipt that is already stored or queued
+     * returns the existing ID instead.
+     */
+    public ReceiptIdResponse enqueue(Receipt receipt) {
+        ReceiptKey key = ReceiptKey.of(receipt);
+        if (receiptKeyFilter.mightContain(key)) {
+            Optional<String> existingId = findExistingId(key);
+            if (existingId.isPresent()) {
+                logger.warn("Duplicate receipt submission detected for retailer {} on {} {}. Returning existing id: {}",
+                        receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime(), existingId.get());
+                return new ReceiptIdResponse(existingId.get());
+            }
+        }
+
+        PendingReceipt pending = new PendingReceipt();
+        pending.setId(ReceiptIdGenerator.newId());
+        pending.setPartitionId(Math.floorMod(pending.getId().hashCode(), partitions));
+        pending.setRetailer(key.retailer());
+        pending.setPurchaseDate(key.purchaseDate());
+        pending.setPurchaseTime(key.purchaseTime());
+        pending.setPayload(toJson(receipt));
+        pending.setEnqueuedAt(System.currentTimeMillis());
+        try {
+            pendingReceiptRepository.save(pending);
+        } catch (DataIntegrityViolationException e) {
+            // The same receipt was queued concurrently; hand out the ID of that entry.
+            return findExistingId(key).map(ReceiptIdResponse::new).orElseThrow(() -> e);
+        }
+        receiptKeyFilter.add(key);
+        return new ReceiptIdResponse(pending.getId());
+    }
+
+    /**
+     * Stores and scores up to {@code maxReceipts} of the oldest entries of one partition in a single transaction.
+     *
+     * @return the number of entries drained
+     */
+    @Transactional
+    public int drain(int partition, int maxReceipts) {
+        List<PendingReceipt> batch = pendingReceiptRepository
+                .findByPartitionIdAndErrorIsNullOrderByEnqueuedAt(partition, Limit.of(maxReceipts));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Receipt> receipts = new ArrayList<>(batch.size());
+        for (PendingReceipt pending : batch) {
+            receipts.add(toReceipt(pending));
+        }
+        List<ReceiptIdResponse> responses = receiptService.storeReceipts(receipts);
+        for (int i = 0; i < batch.size(); i++) {
+            String storedId = responses.get(i).getId();
+            if (!storedId.equals(batch.get(i).getId())) {
+                // Stored by another path after this entry was queued; keep the handed-out ID resolvable.
+                receiptService.aliasPoints(batch.get(i).getId(), storedId);
+            }
+        }
+        pendingReceiptRepository.deleteAllInBatch(batch);
+        return batch.size();
+    }
+
+    /**
+     * Drains one entry in its own transaction, used to isolate entries after a batch failed.
+     */
+    @Transactional
+    public void drainOne(String id) {
+        pendingReceiptRepository.findById(id).ifPresent(pending -> {
+            String storedId = receiptService.storeReceipt(toReceipt(pending)).getId();
+            if (!storedId.equals(pending.getId())) {
+                receiptService.aliasPoints(pending.getId(), storedId);
+            }
+            pendingReceiptRepository.delete(pending);
+        });
+    }
+
+    /**
+     * Resolves an entry whose receipt failed on the unique receipt key because the same receipt was stored
+     * concurrently by another path, such as a synchronous submission: the handed-out ID becomes an alias of the
+     * stored receipt, as in {@link #drain}, and the entry is removed.
+     *
+     * @return false if no receipt with the entry's key is stored, so the violation has another cause
+     */
+    @Transactional
+    public boolean resolveStoredConcurrently(String id) {
+        Optional<PendingReceipt> pending = pendingReceiptRepository.findById(id);
+        if (pending.isEmpty()) {
+            return true;
+        }
+        PendingReceipt entry = pending.get();
+        Optional<String> storedId = receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                entry.getRetailer(), entry.getPurchaseDate(), entry.getPurchaseTime());
+        if (storedId.isEmpty()) {
+            return false;
+        }
+        if (!storedId.get().equals(id)) {
+            receiptService.aliasPoints(id, storedId.get());
+        }
+        pendingReceiptRepository.delete(entry);
+        return true;
+    }
+
+    @Transactional
+    public void markFailed(String id, Exception cause) {
+        String error = String.valueOf(cause.getMessage());
+        pendingReceiptRepository.markFailed(id, error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+    }
+
+    public List<String> peekIds(int partition, int maxReceipts) {
+        List<String> ids = new ArrayList<>();
+        for (PendingReceipt pending : pendingReceiptRepository
+                .findByPartitionIdAndErrorIsNullOrderByEnqueuedAt(partition, Limit.of(maxReceipts))) {
+            ids.add(pending.getId());
+        }
+        return ids;
+    }
+
+    private Optional<String> findExistingId(ReceiptKey key) {
+        Optional<String> storedId = receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                key.retailer(), key.purchaseDate(), key.purchaseTime());
+        if (storedId.isPresent()) {
+            return storedId;
+        }
+        return pendingReceiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                key.retailer(), key.purchaseDate(), key.purchaseTime());
+    }
+
+    private String toJson(Receipt receipt) {
+        try {
+            return objectMapper.writeValueAsString(receipt);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Receipt toReceipt(PendingReceipt pending) {
+        try {
+            Receipt receipt = objectMapper.readValue(pending.getPayload(), Receipt.class);
+            receipt.setRequestedId(pending.getId());
+            return receipt;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
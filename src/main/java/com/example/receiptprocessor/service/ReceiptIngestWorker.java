@@ -0,0 +1,201 @@
+package com.example.receiptprocessor.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.validation.ValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background workers of asynchronous ingestion: one per queue partition, each draining its partition in batches.
+ * <p>
+ * When a batch fails, its entries are retried one at a time so a single bad receipt cannot block the partition.
+ * An entry is marked failed, and skipped from then on, only when it cannot be stored as it is: it fails validation
+ * or a constraint, or its payload does not parse. A constraint violation caused by the same receipt being stored
+ * concurrently by another path is not a failure: the entry's ID becomes an alias of the stored receipt. Other errors, such as a lost connection or a lock timeout, are
+ * retried with exponential backoff; an entry that keeps failing stays queued and the partition backs off before
+ * draining again.
+ * Workers run on virtual threads when {@code spring.threads.virtual.enabled} is set.
+ */
+@Component
+@ConditionalOnProperty(name = "receipt.ingest.mode", havingValue = "async")
+public class ReceiptIngestWorker implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptIngestWorker.class);
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+    private final ReceiptIngestQueue queue;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final boolean virtualThreads;
+    private final int retryAttempts;
+    private final long retryBackoffMillis;
+    private volatile boolean running;
+    private ExecutorService executor;
+
+    public ReceiptIngestWorker(ReceiptIngestQueue queue,
+                               @Value("${receipt.ingest.batch-size:200}") int batchSize,
+                               @Value("${receipt.ingest.poll-interval-ms:50}") long pollIntervalMillis,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                               @Value("${receipt.ingest.retry-attempts:5}") int retryAttempts,
+                               @Value("${receipt.ingest.retry-backoff-ms:100}") long retryBackoffMillis) {
+        this.queue = queue;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.virtualThreads = virtualThreads;
+        this.retryAttempts = retryAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("receipt-ingest-", 0).factory()
+                : new CustomizableThreadFactory("receipt-ingest-");
+        executor = Executors.newFixedThreadPool(queue.getPartitions(), threadFactory);
+        for (int partition = 0; partition < queue.getPartitions(); partition++) {
+            int drainedPartition = partition;
+            executor.execute(() -> drainLoop(drainedPartition));
+        }
+        logger.info("Started {} receipt ingest workers", queue.getPartitions());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drainLoop(int partition) {
+        int consecutiveFailures = 0;
+        while (running) {
+            try {
+                try {
+                    if (queue.drain(partition, batchSize) == 0) {
+                        Thread.sleep(pollIntervalMillis);
+                    }
+                    consecutiveFailures = 0;
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    logger.warn("Draining partition {} failed, retrying its entries one by one: {}", partition, e.getMessage());
+                    if (isolateFailures(partition)) {
+                        consecutiveFailures = 0;
+                    } else {
+                        consecutiveFailures++;
+                        Thread.sleep(backoffMillis(consecutiveFailures));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if an entry kept failing with errors worth retrying and was left queued
+     */
+    private boolean isolateFailures(int partition) throws InterruptedException {
+        try {
+            for (String id : queue.peekIds(partition, batchSize)) {
+                if (!drainWithRetries(id)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.warn("Reading the entries of partition {} failed: {}", partition, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Drains one entry, retrying errors worth retrying up to {@code receipt.ingest.retry-attempts} times.
+     *
+     * @return false if the entry is still queued because every attempt failed with an error worth retrying
+     */
+    boolean drainWithRetries(String id) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                queue.drainOne(id);
+                return true;
+            } catch (Exception e) {
+                if (isConstraintViolation(e) && queue.resolveStoredConcurrently(id)) {
+                    logger.warn("Queued receipt {} was stored concurrently by another path, aliased it: {}",
+                            id, e.getMessage());
+                    return true;
+                }
+                if (isPermanent(e)) {
+                    logger.error("Queued receipt {} could not be stored", id, e);
+                    queue.markFailed(id, e);
+                    return true;
+                }
+                if (attempt >= retryAttempts) {
+                    logger.warn("Queued receipt {} still failed after {} attempts, leaving it queued: {}",
+                            id, attempt, e.getMessage());
+                    return false;
+                }
+                Thread.sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    private long backoffMillis(int failures) {
+        return Math.min(retryBackoffMillis << Math.min(failures - 1, 16), MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * A violated constraint, which may be the unique receipt key of a receipt stored concurrently.
+     */
+    static boolean isConstraintViolation(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Errors that storing the same entry again cannot fix: a violated constraint, a failed validation, or a payload
+     * or field that does not parse.
+     */
+    static boolean isPermanent(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof ValidationException
+                    || cause instanceof JsonProcessingException || cause instanceof DateTimeException
+                    || cause instanceof NumberFormatException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,22 +1,38 @@
 package com.example.receiptprocessor.service;
 
-import com.example.receiptprocessor.dto.BonusCalculationRequest;
-import com.example.receiptprocessor.dto.PointsCalculationRequest;
+import com.example.receiptprocessor.analytics.RetailerWindowAggregator;
+import com.example.receiptprocessor.cache.PointsCache;
+import com.example.receiptprocessor.dedup.ReceiptKeyFilter;
 import com.example.receiptprocessor.dto.PointsResponse;
 import com.example.receiptprocessor.dto.ReceiptIdResponse;
 import com.example.receiptprocessor.exception.ReceiptNotFoundException;
+import com.example.receiptprocessor.exception.ReceiptPendingException;
+import com.example.receiptprocessor.metrics.IngestStageTimers;
+import com.example.receiptprocessor.metrics.IngestStageTimers.Stage;
 import com.example.receiptprocessor.model.Item;
 import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.ReceiptKey;
 import com.example.receiptprocessor.model.ReceiptPoint;
-import com.example.receiptprocessor.repository.ReceiptPointRepository;
+import com.example.receiptprocessor.repository.PendingReceiptRepository;
 import com.example.receiptprocessor.repository.ReceiptRepository;
-import com.example.receiptprocessor.util.PointsCalculator;
+import com.example.receiptprocessor.rules.CompiledRuleSet;
+import com.example.receiptprocessor.rules.PointsRuleEngine;
+import com.example.receiptprocessor.shard.ShardRouter;
+import com.example.receiptprocessor.store.PointsStore;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ReceiptService {
@@ -24,61 +40,259 @@ public class ReceiptService {
     private static final Logger logger = LoggerFactory.getLogger(ReceiptService.class);
     private final ReceiptRepository receiptRepository;
 
-    private final ReceiptPointRepository receiptPointRepository;
+    private final PointsStore pointsStore;
 
-    public ReceiptService(ReceiptRepository receiptRepository, ReceiptPointRepository receiptPointRepository) {
+    private final PointsCache pointsCache;
+
+    private final UserReceiptCounterService userReceiptCounterService;
+
+    private final ReceiptKeyFilter receiptKeyFilter;
+
+    private final PendingReceiptRepository pendingReceiptRepository;
+
+    private final IngestStageTimers stageTimers;
+
+    private final PointsRuleEngine pointsRuleEngine;
+
+    private final RetailerWindowAggregator retailerWindows;
+
+    private final ShardRouter shardRouter;
+
+    public ReceiptService(ReceiptRepository receiptRepository, PointsStore pointsStore,
+                          PointsCache pointsCache, UserReceiptCounterService userReceiptCounterService,
+                          ReceiptKeyFilter receiptKeyFilter, PendingReceiptRepository pendingReceiptRepository,
+                          IngestStageTimers stageTimers, PointsRuleEngine pointsRuleEngine,
+                          RetailerWindowAggregator retailerWindows, ShardRouter shardRouter) {
         this.receiptRepository = receiptRepository;
-        this.receiptPointRepository = receiptPointRepository;
+        this.pointsStore = pointsStore;
+        this.pointsCache = pointsCache;
+        this.userReceiptCounterService = userReceiptCounterService;
+        this.receiptKeyFilter = receiptKeyFilter;
+        this.pendingReceiptRepository = pendingReceiptRepository;
+        this.stageTimers = stageTimers;
+        this.pointsRuleEngine = pointsRuleEngine;
+        this.retailerWindows = retailerWindows;
+        this.shardRouter = shardRouter;
     }
 
     /**
      * Stores the receipt and returns a response object containing the receipt ID.
      * If a duplicate receipt exists (based on retailer, purchaseDate, and purchaseTime),
-     * the existing receipt's ID is returned.
+     * the existing receipt's ID is returned. Callers bind the user's shard first (see {@link ShardRouter}), and with
+     * several shards check the others first ({@link #findStoredOnOtherShards}).
      */
     @Transactional
     public ReceiptIdResponse storeReceipt(Receipt receipt) {
+        // Each stage is timed into receipt.ingest.stage; stageStart carries the end of the previous stage.
+        long stageStart = System.nanoTime();
         // Check if a receipt with the same retailer, purchaseDate, and purchaseTime already exists.
-        Optional<Receipt> existingReceipt = receiptRepository.findByRetailerAndPurchaseDateAndPurchaseTime(
-                receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime()
-        );
-        if (existingReceipt.isPresent()) {
+        // The key filter rules out most new receipts without a query; possible hits fetch only the ID.
+        ReceiptKey key = ReceiptKey.of(receipt);
+        Optional<String> existingId = receiptKeyFilter.mightContain(key)
+                ? receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                        receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime())
+                : Optional.empty();
+        stageStart = stageTimers.record(Stage.DEDUP, stageStart);
+        if (existingId.isPresent()) {
             logger.warn("Duplicate receipt submission detected for retailer {} on {} {}. Returning existing id: {}",
-                    receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime(), existingReceipt.get().getId());
-            return new ReceiptIdResponse(existingReceipt.get().getId());
+                    receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime(), existingId.get());
+            retailerWindows.recordDuplicate(receipt.getRetailer());
+            return new ReceiptIdResponse(existingId.get());
         }
+        stageTimers.recordCommit();
+        // get receipt number of current user from the maintained counter
+        long receiptCount = userReceiptCounterService.next(receipt.getUserId());
+        stageStart = stageTimers.record(Stage.COUNT, stageStart);
+
         // Set up bi-directional relationship: assign the receipt to each item.
         for (Item item : receipt.getItems()) {
             item.setReceipt(receipt);
         }
-        Receipt savedReceipt = receiptRepository.save(receipt);
+        // Flush so the inserts are timed as SAVE; otherwise the counter update below would flush them into POINTS_SAVE.
+        Receipt savedReceipt = receiptRepository.saveAndFlush(receipt);
+        receiptKeyFilter.add(key);
+        stageStart = stageTimers.record(Stage.SAVE, stageStart);
 
-        // get receipt number of current user
-        long receiptCount = receiptRepository.countByUserId(receipt.getUserId());
+        // Calculate points with the active rule set (base rules plus the receipt-count bonus).
+        int points = pointsRuleEngine.current().points(savedReceipt, receiptCount);
+        stageStart = stageTimers.record(Stage.SCORE, stageStart);
 
-        // create PointsCalculationRequest, Calculate points using the business logic encapsulated in PointsCalculator.
-        PointsCalculationRequest request = new PointsCalculationRequest();
-        request.setReceipt(savedReceipt);
-        request.setBonusCalculationRequest(new BonusCalculationRequest(receiptCount));
-        int points = PointsCalculator.calculatePoints(request);
-
-        // store the points into table (receipt_point)
+        // store the points (receipt_point table or the points log, see PointsStore)
         ReceiptPoint receiptPoint = new ReceiptPoint();
         receiptPoint.setReceipt_id(savedReceipt.getId());
         receiptPoint.setPoints(points);
-        receiptPointRepository.save(receiptPoint);
+        receiptPoint.setUserOrdinal(receiptCount);
+        pointsStore.save(receiptPoint);
+        userReceiptCounterService.addPoints(Collections.singletonMap(receipt.getUserId(), (long) points));
+        stageTimers.record(Stage.POINTS_SAVE, stageStart);
+        pointsCache.putAfterCommit(savedReceipt.getId(), points);
+        retailerWindows.recordAfterCommit(savedReceipt.getRetailer(), points);
         return new ReceiptIdResponse(savedReceipt.getId());
     }
 
     /**
-     * get the points by user_id from ReceiptPoint
-     *
+     * Stores a batch of receipts in one transaction and returns one response per input, in input order.
+     * Duplicates (against the database or earlier entries of the same batch) resolve to the existing ID.
+     * All receipts must belong to the shard bound by the caller; {@link ShardRouter#routeByUser} splits them, and
+     * {@link #findStoredOnOtherShards} finds duplicates on the other shards.
+     * Receipts, items and points are written with grouped JDBC inserts when the transaction flushes.
+     */
+    @Transactional
+    public List<ReceiptIdResponse> storeReceipts(List<Receipt> receipts) {
+        Map<ReceiptKey, String> existingIds = findExistingIds(receipts);
+
+        // Keep the first occurrence of every key that is not stored yet.
+        Map<ReceiptKey, Receipt> accepted = new LinkedHashMap<>();
+        for (Receipt receipt : receipts) {
+            ReceiptKey key = ReceiptKey.of(receipt);
+            if (existingIds.containsKey(key) || accepted.putIfAbsent(key, receipt) != null) {
+                logger.warn("Duplicate receipt submission detected for retailer {} on {} {} in batch",
+                        receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime());
+                retailerWindows.recordDuplicate(receipt.getRetailer());
+            }
+        }
+        List<Receipt> newReceipts = new ArrayList<>(accepted.values());
+
+        // Reserve ordinals for every user in the batch; each user's new receipts continue from the previous count.
+        Map<String, Integer> receiptsPerUser = new HashMap<>();
+        for (Receipt receipt : newReceipts) {
+            receiptsPerUser.merge(receipt.getUserId(), 1, Integer::sum);
+        }
+        Map<String, Long> receiptCounts = receiptsPerUser.isEmpty()
+                ? new HashMap<>()
+                : new HashMap<>(userReceiptCounterService.reserve(receiptsPerUser));
+
+        for (Receipt receipt : newReceipts) {
+            for (Item item : receipt.getItems()) {
+                item.setReceipt(receipt);
+            }
+        }
+        receiptRepository.saveAll(newReceipts);
+        for (ReceiptKey key : accepted.keySet()) {
+            receiptKeyFilter.add(key);
+        }
+
+        // One rule set for the whole batch, even if a reload lands midway.
+        CompiledRuleSet rules = pointsRuleEngine.current();
+        List<ReceiptPoint> receiptPoints = new ArrayList<>(newReceipts.size());
+        Map<String, Long> pointsPerUser = new HashMap<>();
+        for (Receipt receipt : newReceipts) {
+            long receiptCount = receiptCounts.merge(receipt.getUserId(), 1L, Long::sum);
+
+            ReceiptPoint receiptPoint = new ReceiptPoint();
+            receiptPoint.setReceipt_id(receipt.getId());
+            receiptPoint.setPoints(rules.points(receipt, receiptCount));
+            receiptPoint.setUserOrdinal(receiptCount);
+            receiptPoints.add(receiptPoint);
+            pointsPerUser.merge(receipt.getUserId(), (long) receiptPoint.getPoints(), Long::sum);
+        }
+        pointsStore.saveAll(receiptPoints);
+        if (!pointsPerUser.isEmpty()) {
+            userReceiptCounterService.addPoints(pointsPerUser);
+        }
+        for (int i = 0; i < receiptPoints.size(); i++) {
+            ReceiptPoint receiptPoint = receiptPoints.get(i);
+            pointsCache.putAfterCommit(receiptPoint.getReceipt_id(), receiptPoint.getPoints());
+            retailerWindows.recordAfterCommit(newReceipts.get(i).getRetailer(), receiptPoint.getPoints());
+        }
+
+        List<ReceiptIdResponse> responses = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            ReceiptKey key = ReceiptKey.of(receipt);
+            String id = existingIds.containsKey(key) ? existingIds.get(key) : accepted.get(key).getId();
+            responses.add(new ReceiptIdResponse(id));
+        }
+        return responses;
+    }
+
+    /**
+     * Looks the receipts up on every shard other than their user's and returns the IDs of those already stored
+     * there, by receipt key. The key filter covers every shard, so only possible matches are queried. Returns an
+     * empty map without sharding; {@link #storeReceipt} and {@link #storeReceipts} then see every receipt.
+     * <p>
+     * Runs one read per shard, so it must be called outside a transaction, before the user's shard is bound.
+     */
+    public Map<ReceiptKey, String> findStoredOnOtherShards(List<Receipt> receipts) {
+        Map<ReceiptKey, String> storedIds = new HashMap<>();
+        if (!shardRouter.isSharded()) {
+            return storedIds;
+        }
+        shardRouter.forEachShard(shard -> {
+            List<Receipt> candidates = new ArrayList<>();
+            for (Receipt receipt : receipts) {
+                if (shardRouter.shardOfUser(receipt.getUserId()) != shard
+                        && !storedIds.containsKey(ReceiptKey.of(receipt))) {
+                    candidates.add(receipt);
+                }
+            }
+            if (!candidates.isEmpty()) {
+                storedIds.putAll(findExistingIds(candidates));
+            }
+        });
+        for (Receipt receipt : receipts) {
+            String storedId = storedIds.get(ReceiptKey.of(receipt));
+            if (storedId != null) {
+                logger.warn("Duplicate receipt submission detected for retailer {} on {} {} on another shard. "
+                                + "Returning existing id: {}",
+                        receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime(), storedId);
+                retailerWindows.recordDuplicate(receipt.getRetailer());
+            }
+        }
+        return storedIds;
+    }
+
+    private Map<ReceiptKey, String> findExistingIds(List<Receipt> receipts) {
+        Set<ReceiptKey> keys = new HashSet<>();
+        for (Receipt receipt : receipts) {
+            ReceiptKey key = ReceiptKey.of(receipt);
+            // Only keys the filter cannot rule out need to be looked up.
+            if (receiptKeyFilter.mightContain(key)) {
+                keys.add(key);
+            }
+        }
+        return keys.isEmpty() ? new HashMap<>() : receiptRepository.findIdsByKeys(keys);
+    }
+
+    /**
+     * Makes points available under an ID that was handed out for a receipt which turned out to be a duplicate.
+     * The alias records the receipt that was stored, and reads of the alias follow it, so re-scoring the receipt
+     * also changes the points of its aliases.
+     */
+    @Transactional
+    public void aliasPoints(String aliasId, String receiptId) {
+        ReceiptPoint stored = pointsStore.findById(receiptId)
+                .orElseThrow(() -> new ReceiptNotFoundException(receiptId));
+        ReceiptPoint alias = new ReceiptPoint();
+        alias.setReceipt_id(aliasId);
+        alias.setPoints(stored.getPoints());
+        alias.setAliasOf(receiptId);
+        pointsStore.save(alias);
+    }
+
+    /**
+     * get the points by receipt id, from {@link PointsCache} when possible and otherwise from the {@link PointsStore}
+     * on the shard tagged in the ID. Aliases are not cached: they resolve to the current points of their receipt on
+     * every read.
      */
     public PointsResponse calculatePoints(String id) {
-        // Retrieve the receipt by ID or throw an exception if not found.
-        ReceiptPoint receiptPoint = receiptPointRepository.findById(id)
-                .orElseThrow(() -> new ReceiptNotFoundException(id));
+        Integer cachedPoints = pointsCache.get(id);
+        if (cachedPoints != null) {
+            return new PointsResponse(cachedPoints);
+        }
+        // Taken before the read, so points a concurrent re-score replaces are not cached after its invalidation.
+        long fillStamp = pointsCache.fillStamp();
+        // Retrieve the receipt by ID; a receipt still queued for asynchronous ingestion is reported as pending.
+        ReceiptPoint receiptPoint = shardRouter.findByReceiptId(id, () -> pointsStore.findById(id))
+                .orElseThrow(() -> pendingReceiptRepository.existsByIdAndErrorIsNull(id)
+                        ? new ReceiptPendingException(id)
+                        : new ReceiptNotFoundException(id));
+        if (receiptPoint.getAliasOf() != null) {
+            int points = calculatePoints(receiptPoint.getAliasOf()).getPoints();
+            logger.debug("Return alias [{}]'s points from receipt [{}]: {}", id, receiptPoint.getAliasOf(), points);
+            return new PointsResponse(points);
+        }
         logger.debug("Return receipt [{}]'s points: {}", id, receiptPoint.getPoints());
+        pointsCache.fill(id, receiptPoint.getPoints(), fillStamp);
         return new PointsResponse(receiptPoint.getPoints());
     }
 }
@@ -0,0 +1,234 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.analytics.RetailerWindowAggregator;
+import com.example.receiptprocessor.dedup.SingleFlight;
+import com.example.receiptprocessor.dto.ReceiptIdResponse;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.ReceiptKey;
+import com.example.receiptprocessor.repository.ReceiptRepository;
+import com.example.receiptprocessor.shard.ShardRouter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Entry point for single receipt submissions ({@code POST /receipts/process}), in front of
+ * {@link ReceiptService#storeReceipt} or, in asynchronous mode, {@link ReceiptIngestQueue#enqueue}, and for
+ * batches, which are split by shard (see {@link ShardRouter}) in front of {@link ReceiptService#storeReceipts}.
+ * <p>
+ * Clients retrying a submission often send the same receipt several times within milliseconds. Submissions of the
+ * same receipt key (retailer, purchase date and time) that overlap are coalesced: the first one is stored, and the
+ * others wait for it and return its ID without a transaction of their own. A submission can also carry an
+ * idempotency key; the response is remembered under it for {@code receipt.idempotency.ttl}, for up to
+ * {@code receipt.idempotency.max-keys} keys, and a repeat with the same key returns it without any work. Requests
+ * with the same idempotency key at the same time are coalesced like identical receipts.
+ * <p>
+ * Coalescing only sees submissions to this instance. A receipt or batch that loses the insert race against another
+ * instance or batch fails on the unique receipt key, and resolves to the ID of the receipt that won, as a duplicate
+ * does; a batch is then stored one receipt at a time.
+ * <p>
+ * With several shards, a receipt key the key filter may have seen is also looked up on the other shards before the
+ * user's shard stores the receipt, so the same receipt submitted for two users resolves to the first one stored. The
+ * unique key only holds per shard, so two such submissions at the same moment can still both be stored.
+ */
+@Service
+public class ReceiptSubmissionService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptSubmissionService.class);
+
+    private final ReceiptService receiptService;
+
+    private final ReceiptIngestQueue receiptIngestQueue;
+
+    private final ReceiptRepository receiptRepository;
+
+    private final ShardRouter shardRouter;
+
+    private final RetailerWindowAggregator retailerWindows;
+
+    private final SingleFlight<ReceiptKey, ReceiptIdResponse> inFlight = new SingleFlight<>();
+
+    private final SingleFlight<String, ReceiptIdResponse> idempotentFlights = new SingleFlight<>();
+
+    private final Cache<String, ReceiptIdResponse> idempotentResponses;
+
+    private final LongAdder idempotentReplays = new LongAdder();
+
+    public ReceiptSubmissionService(ReceiptService receiptService, ReceiptIngestQueue receiptIngestQueue,
+                                    ReceiptRepository receiptRepository, ShardRouter shardRouter,
+                                    RetailerWindowAggregator retailerWindows,
+                                    @Value("${receipt.idempotency.max-keys:100000}") long maxKeys,
+                                    @Value("${receipt.idempotency.ttl:PT24H}") Duration ttl) {
+        this.receiptService = receiptService;
+        this.receiptIngestQueue = receiptIngestQueue;
+        this.receiptRepository = receiptRepository;
+        this.shardRouter = shardRouter;
+        this.retailerWindows = retailerWindows;
+        this.idempotentResponses = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Stores (or queues) the receipt unless the idempotency key, if any, was seen before or is being submitted right
+     * now, or the same receipt is being submitted right now, and returns the receipt's ID.
+     */
+    public ReceiptIdResponse submit(Receipt receipt, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return inFlight.run(ReceiptKey.of(receipt), () -> store(receipt));
+        }
+        ReceiptIdResponse previous = replay(idempotencyKey);
+        if (previous != null) {
+            return previous;
+        }
+        // Requests with the same key at the same time share one submission; the key is checked again inside, as a
+        // request can miss the response above and start after the first one finished.
+        return idempotentFlights.run(idempotencyKey, () -> {
+            ReceiptIdResponse stored = replay(idempotencyKey);
+            if (stored != null) {
+                return stored;
+            }
+            ReceiptIdResponse response = inFlight.run(ReceiptKey.of(receipt), () -> store(receipt));
+            idempotentResponses.put(idempotencyKey, response);
+            return response;
+        });
+    }
+
+    private ReceiptIdResponse replay(String idempotencyKey) {
+        ReceiptIdResponse previous = idempotentResponses.getIfPresent(idempotencyKey);
+        if (previous != null) {
+            idempotentReplays.increment();
+            logger.debug("Idempotency key {} seen before, returning receipt id {}", idempotencyKey, previous.getId());
+        }
+        return previous;
+    }
+
+    /**
+     * Stores a batch of receipts and returns one response per input, in input order. Each shard's receipts are
+     * stored in a transaction of their own, so with several shards a failure can leave other shards' receipts
+     * stored. Receipts already stored on another shard, or repeating the key of an earlier receipt of the batch
+     * that belongs to another shard, resolve to that receipt's ID.
+     */
+    public List<ReceiptIdResponse> submitBatch(List<Receipt> receipts) {
+        Map<ReceiptKey, String> storedIds = receiptService.findStoredOnOtherShards(receipts);
+        if (!shardRouter.isSharded()) {
+            return shardRouter.routeByUser(receipts, Receipt::getUserId, this::storeBatchOnShard);
+        }
+        // Duplicates of the same shard are resolved by storeReceipts; hold back those of other shards.
+        Map<ReceiptKey, Integer> firstShards = new HashMap<>();
+        List<Receipt> toStore = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            ReceiptKey key = ReceiptKey.of(receipt);
+            if (storedIds.containsKey(key)) {
+                continue;
+            }
+            int shard = shardRouter.shardOfUser(receipt.getUserId());
+            Integer firstShard = firstShards.putIfAbsent(key, shard);
+            if (firstShard == null || firstShard == shard) {
+                toStore.add(receipt);
+            } else {
+                logger.warn("Duplicate receipt submission detected for retailer {} on {} {} in batch on another shard",
+                        receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime());
+                retailerWindows.recordDuplicate(receipt.getRetailer());
+            }
+        }
+        List<ReceiptIdResponse> stored = toStore.isEmpty()
+                ? List.of()
+                : shardRouter.routeByUser(toStore, Receipt::getUserId, this::storeBatchOnShard);
+        for (int i = 0; i < toStore.size(); i++) {
+            storedIds.putIfAbsent(ReceiptKey.of(toStore.get(i)), stored.get(i).getId());
+        }
+        List<ReceiptIdResponse> responses = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            responses.add(new ReceiptIdResponse(storedIds.get(ReceiptKey.of(receipt))));
+        }
+        return responses;
+    }
+
+    /**
+     * Stores the receipt on its user's shard right away, bypassing coalescing and the asynchronous queue, and
+     * returns its ID, or the ID of the same receipt already stored on any shard.
+     */
+    public ReceiptIdResponse storeSynchronously(Receipt receipt) {
+        String storedId = receiptService.findStoredOnOtherShards(List.of(receipt)).get(ReceiptKey.of(receipt));
+        if (storedId != null) {
+            return new ReceiptIdResponse(storedId);
+        }
+        return shardRouter.onUserShard(receipt.getUserId(), () -> storeOnUserShard(receipt));
+    }
+
+    private ReceiptIdResponse store(Receipt receipt) {
+        if (receiptIngestQueue.isAsync()) {
+            return receiptIngestQueue.enqueue(receipt);
+        }
+        return storeSynchronously(receipt);
+    }
+
+    /**
+     * Stores one shard's part of a batch. A batch that loses the insert race against another submission of an
+     * overlapping key fails on the unique receipt key as a whole; its receipts are then stored one at a time, so
+     * the overlapping ones resolve to the ID of the receipt that won.
+     */
+    private List<ReceiptIdResponse> storeBatchOnShard(List<Receipt> receipts) {
+        try {
+            return receiptService.storeReceipts(receipts);
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Batch of {} receipts conflicted with a concurrent submission, storing them one at a time: {}",
+                    receipts.size(), e.getMessage());
+            List<ReceiptIdResponse> responses = new ArrayList<>(receipts.size());
+            for (Receipt receipt : receipts) {
+                // The rolled-back batch already assigned IDs; clear them so the retry persists fresh rows.
+                receipt.setId(null);
+                receipt.getItems().forEach(item -> item.setId(null));
+                responses.add(storeOnUserShard(receipt));
+            }
+            return responses;
+        }
+    }
+
+    private ReceiptIdResponse storeOnUserShard(Receipt receipt) {
+        try {
+            return receiptService.storeReceipt(receipt);
+        } catch (DataIntegrityViolationException e) {
+            Optional<String> existingId = receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                    receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime());
+            if (existingId.isEmpty()) {
+                throw e;
+            }
+            logger.warn("Receipt for retailer {} on {} {} was stored concurrently elsewhere. Returning existing id: {}",
+                    receipt.getRetailer(), receipt.getPurchaseDate(), receipt.getPurchaseTime(), existingId.get());
+            return new ReceiptIdResponse(existingId.get());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("receipt.submissions.coalesced", inFlight, SingleFlight::coalesced)
+                .description("Submissions that waited for an identical submission in flight and shared its result")
+                .register(registry);
+        FunctionCounter.builder("receipt.submissions.idempotent.replays", this,
+                        service -> service.idempotentReplays.sum() + service.idempotentFlights.coalesced())
+                .description("Submissions answered from an earlier or concurrent response with the same idempotency key")
+                .register(registry);
+        Gauge.builder("receipt.submissions.in.flight", inFlight, SingleFlight::inFlight)
+                .description("Distinct receipts being submitted right now")
+                .register(registry);
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.cache.PointsCache;
+import com.example.receiptprocessor.dto.RescoreJobStatus;
+import com.example.receiptprocessor.exception.RescoreJobConflictException;
+import com.example.receiptprocessor.exception.RescoreJobNotFoundException;
+import com.example.receiptprocessor.metrics.RuleHitCounters;
+import com.example.receiptprocessor.model.CentsConverter;
+import com.example.receiptprocessor.model.EpochDayConverter;
+import com.example.receiptprocessor.model.Item;
+import com.example.receiptprocessor.model.MinuteOfDayConverter;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.ReceiptPoint;
+import com.example.receiptprocessor.model.RescoreCheckpoint;
+import com.example.receiptprocessor.model.RescoreJob;
+import com.example.receiptprocessor.repository.RescoreCheckpointRepository;
+import com.example.receiptprocessor.repository.RescoreJobRepository;
+import com.example.receiptprocessor.rules.CompiledRuleSet;
+import com.example.receiptprocessor.rules.PointsRuleEngine;
+import com.example.receiptprocessor.rules.RuleSetCompiler;
+import com.example.receiptprocessor.shard.ShardRouter;
+import com.example.receiptprocessor.store.PointsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-scores every stored receipt with the active rule set, after the rules changed.
+ * <p>
+ * The receipt table is split into key ranges of about equal size, and the ranges are scored in parallel on a
+ * dedicated fork-join pool. Each range is walked in ID order in batches; every batch reads its receipts and items
+ * with two range queries and their points from the {@link PointsStore}, scores them with the rule set captured when
+ * the job started, saves the changed points, moves the users' points totals by the difference and advances the
+ * range's {@link RescoreCheckpoint}, all in one short transaction. Aliases need no work of their own, since reads
+ * of an alias follow its receipt. A job interrupted by a shutdown or failure resumes from its checkpoints, either
+ * through {@link #resumeJob(String)} or automatically at the next startup.
+ * <p>
+ * To leave room for live ingestion, the pool is small ({@code receipt.rescore.parallelism}) and the job is capped at
+ * {@code receipt.rescore.max-receipts-per-second}. Receipts keep their bonus tier through the user ordinal stored
+ * with their points; rows stored before ordinals were recorded are left unchanged.
+ * <p>
+ * Jobs and checkpoints cover a single database, so re-scoring is refused while receipts are sharded
+ * ({@code receipt.sharding.shards} above 1).
+ */
+@Service
+public class RescoreService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(RescoreService.class);
+
+    private static final CentsConverter CENTS = new CentsConverter();
+    private static final EpochDayConverter EPOCH_DAY = new EpochDayConverter();
+    private static final MinuteOfDayConverter MINUTE_OF_DAY = new MinuteOfDayConverter();
+
+    private static final String RECEIPTS_AFTER = "select id, retailer, purchase_day, purchase_minute, total_cents, user_id "
+            + "from receipt where id > ?";
+    private static final String ITEMS_BETWEEN = "select receipt_id, short_description, price_cents from item "
+            + "where receipt_id > ? and receipt_id <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final RescoreJobRepository jobRepository;
+    private final RescoreCheckpointRepository checkpointRepository;
+    private final PointsRuleEngine pointsRuleEngine;
+    private final PointsStore pointsStore;
+    private final PointsCache pointsCache;
+    private final UserReceiptCounterService userReceiptCounterService;
+    private final ShardRouter shardRouter;
+    private final int partitions;
+    private final int parallelism;
+    private final int batchSize;
+    private final long maxReceiptsPerSecond;
+
+    private final AtomicReference<String> runningJobId = new AtomicReference<>();
+    private volatile boolean cancelRequested;
+    private volatile boolean running;
+    private ForkJoinPool pool;
+
+    public RescoreService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          RescoreJobRepository jobRepository, RescoreCheckpointRepository checkpointRepository,
+                          PointsRuleEngine pointsRuleEngine, PointsStore pointsStore, PointsCache pointsCache,
+                          UserReceiptCounterService userReceiptCounterService, ShardRouter shardRouter,
+                          @Value("${receipt.rescore.partitions:16}") int partitions,
+                          @Value("${receipt.rescore.parallelism:2}") int parallelism,
+                          @Value("${receipt.rescore.batch-size:500}") int batchSize,
+                          @Value("${receipt.rescore.max-receipts-per-second:20000}") long maxReceiptsPerSecond) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.jobRepository = jobRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.pointsRuleEngine = pointsRuleEngine;
+        this.pointsStore = pointsStore;
+        this.pointsCache = pointsCache;
+        this.userReceiptCounterService = userReceiptCounterService;
+        this.shardRouter = shardRouter;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.maxReceiptsPerSecond = maxReceiptsPerSecond;
+    }
+
+    /**
+     * Splits the receipt table into key ranges and starts re-scoring them in the background.
+     */
+    public RescoreJobStatus startJob() {
+        String jobId = UUID.randomUUID().toString();
+        claim(jobId);
+        try {
+            CompiledRuleSet rules = pointsRuleEngine.current();
+            transaction.executeWithoutResult(status -> {
+                RescoreJob job = new RescoreJob();
+                job.setId(jobId);
+                job.setRuleSet(rules.getName());
+                job.setStatus(RescoreJob.Status.RUNNING);
+                job.setStartedAt(Instant.now());
+                jobRepository.save(job);
+                checkpointRepository.saveAll(split(jobId));
+            });
+            submit(jobId, rules);
+        } catch (RuntimeException e) {
+            runningJobId.set(null);
+            throw e;
+        }
+        return getJobStatus(jobId);
+    }
+
+    /**
+     * Continues a cancelled, failed or interrupted job from its checkpoints, with the currently active rule set.
+     */
+    public RescoreJobStatus resumeJob(String jobId) {
+        RescoreJob job = jobRepository.findById(jobId).orElseThrow(() -> new RescoreJobNotFoundException(jobId));
+        if (job.getStatus() == RescoreJob.Status.COMPLETED) {
+            throw new RescoreJobConflictException("Rescore job " + jobId + " has already completed");
+        }
+        claim(jobId);
+        try {
+            CompiledRuleSet rules = pointsRuleEngine.current();
+            transaction.executeWithoutResult(status -> {
+                RescoreJob resumed = jobRepository.findById(jobId).orElseThrow();
+                resumed.setRuleSet(rules.getName());
+                resumed.setStatus(RescoreJob.Status.RUNNING);
+                resumed.setFinishedAt(null);
+                resumed.setError(null);
+            });
+            submit(jobId, rules);
+        } catch (RuntimeException e) {
+            runningJobId.set(null);
+            throw e;
+        }
+        return getJobStatus(jobId);
+    }
+
+    /**
+     * Asks the running job to stop after its current batches; it can be resumed later.
+     */
+    public RescoreJobStatus cancelJob(String jobId) {
+        if (jobId.equals(runningJobId.get())) {
+            cancelRequested = true;
+        }
+        return getJobStatus(jobId);
+    }
+
+    public RescoreJobStatus getJobStatus(String jobId) {
+        RescoreJob job = jobRepository.findById(jobId).orElseThrow(() -> new RescoreJobNotFoundException(jobId));
+        RescoreJobStatus status = new RescoreJobStatus();
+        status.setJobId(job.getId());
+        status.setRuleSet(job.getRuleSet());
+        status.setStatus(job.getStatus());
+        status.setStartedAt(job.getStartedAt());
+        status.setFinishedAt(job.getFinishedAt());
+        status.setError(job.getError());
+        List<RescoreCheckpoint> checkpoints = checkpointRepository.findByJobIdOrderByPartitionIndex(jobId);
+        status.setPartitions(checkpoints.size());
+        status.setPartitionsDone((int) checkpoints.stream().filter(RescoreCheckpoint::isDone).count());
+        status.setRescored(checkpoints.stream().mapToLong(RescoreCheckpoint::getRescored).sum());
+        status.setChanged(checkpoints.stream().mapToLong(RescoreCheckpoint::getChanged).sum());
+        return status;
+    }
+
+    @Override
+    public void start() {
+        pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("receipt-rescore-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        running = true;
+        if (shardRouter.isSharded()) {
+            return;
+        }
+        // A job still marked running was interrupted by the previous shutdown; pick it up where it stopped.
+        jobRepository.findAll().stream()
+                .filter(job -> job.getStatus() == RescoreJob.Status.RUNNING)
+                .findFirst()
+                .ifPresent(job -> {
+                    logger.info("Resuming interrupted rescore job {}", job.getId());
+                    resumeJob(job.getId());
+                });
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        cancelRequested = true;
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void claim(String jobId) {
+        if (shardRouter.isSharded()) {
+            throw new RescoreJobConflictException("Re-scoring is not supported with sharded receipt storage");
+        }
+        if (!runningJobId.compareAndSet(null, jobId)) {
+            throw new RescoreJobConflictException("Rescore job " + runningJobId.get() + " is already running");
+        }
+        cancelRequested = false;
+    }
+
+    private void submit(String jobId, CompiledRuleSet rules) {
+        List<RescoreCheckpoint> ranges = checkpointRepository.findByJobIdOrderByPartitionIndex(jobId).stream()
+                .filter(checkpoint -> !checkpoint.isDone())
+                .toList();
+        RescoreThrottle throttle = new RescoreThrottle(maxReceiptsPerSecond);
+        // A private copy of the rule set, so re-scoring does not count towards the live rule hit metrics.
+        CompiledRuleSet uncounted = RuleSetCompiler.compile(rules.getDefinition(), new RuleHitCounters());
+        pool.execute(() -> run(jobId, ranges, uncounted, throttle));
+    }
+
+    private void run(String jobId, List<RescoreCheckpoint> ranges, CompiledRuleSet rules, RescoreThrottle throttle) {
+        long start = System.nanoTime();
+        RescoreJob.Status outcome = RescoreJob.Status.FAILED;
+        String error = null;
+        try {
+            if (!ranges.isEmpty()) {
+                new RangeTask(ranges, 0, ranges.size(), rules, throttle).invoke();
+            }
+            outcome = cancelRequested ? RescoreJob.Status.CANCELLED : RescoreJob.Status.COMPLETED;
+        } catch (RuntimeException e) {
+            logger.error("Rescore job {} failed", jobId, e);
+            error = e.getMessage();
+        } finally {
+            // Release first, so a caller that sees the final status can start the next job straight away.
+            runningJobId.set(null);
+            finish(jobId, outcome, error);
+        }
+        logger.info("Rescore job {} {} after {} ms", jobId, outcome, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void finish(String jobId, RescoreJob.Status outcome, String error) {
+        transaction.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(outcome);
+            job.setFinishedAt(Instant.now());
+            job.setError(error);
+        }));
+    }
+
+    /**
+     * Cuts the receipt table into up to {@code partitions} ranges of about equal row count, with one pass over
+     * the primary key index.
+     */
+    private List<RescoreCheckpoint> split(String jobId) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from receipt", Long.class);
+        long step = Math.max(1, count / partitions);
+        List<String> bounds = new ArrayList<>();
+        long[] seen = new long[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select id from receipt order by id");
+            statement.setFetchSize(1000);
+            return statement;
+        }, resultSet -> {
+            if (++seen[0] % step == 0 && bounds.size() < partitions - 1) {
+                bounds.add(resultSet.getString(1));
+            }
+        });
+
+        List<RescoreCheckpoint> checkpoints = new ArrayList<>(bounds.size() + 1);
+        for (int i = 0; i <= bounds.size(); i++) {
+            RescoreCheckpoint checkpoint = new RescoreCheckpoint();
+            checkpoint.setId(jobId + ":" + i);
+            checkpoint.setJobId(jobId);
+            checkpoint.setPartitionIndex(i);
+            checkpoint.setLowerBound(i == 0 ? "" : bounds.get(i - 1));
+            checkpoint.setUpperBound(i < bounds.size() ? bounds.get(i) : null);
+            checkpoints.add(checkpoint);
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Halves its slice of ranges until a single range is left, which it re-scores batch by batch.
+     */
+    private final class RangeTask extends RecursiveAction {
+
+        private final List<RescoreCheckpoint> ranges;
+        private final int from;
+        private final int to;
+        private final CompiledRuleSet rules;
+        private final RescoreThrottle throttle;
+
+        RangeTask(List<RescoreCheckpoint> ranges, int from, int to, CompiledRuleSet rules, RescoreThrottle throttle) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+            this.rules = rules;
+            this.throttle = throttle;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(ranges, from, middle, rules, throttle),
+                        new RangeTask(ranges, middle, to, rules, throttle));
+                return;
+            }
+            RescoreCheckpoint range = ranges.get(from);
+            String after = range.getLastId() != null ? range.getLastId() : range.getLowerBound();
+            try {
+                while (!cancelRequested) {
+                    throttle.acquire(batchSize);
+                    String last = after;
+                    String next = transaction.execute(status -> rescoreBatch(range, last, rules));
+                    if (next == null) {
+                        transaction.executeWithoutResult(status -> checkpointRepository.markDone(range.getId()));
+                        return;
+                    }
+                    after = next;
+                }
+            } catch (InterruptedException e) {
+                cancelRequested = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Re-scores the next batch of the range after {@code after} and advances its checkpoint.
+     *
+     * @return the last receipt ID of the batch, or {@code null} when the range is exhausted
+     */
+    private String rescoreBatch(RescoreCheckpoint range, String after, CompiledRuleSet rules) {
+        String upper = range.getUpperBound();
+        Map<String, Receipt> receipts = new LinkedHashMap<>();
+        String[] last = new String[1];
+        String sql = RECEIPTS_AFTER + (upper != null ? " and id <= ?" : "") + " order by id fetch first ? rows only";
+        Object[] args = upper != null ? new Object[]{after, upper, batchSize} : new Object[]{after, batchSize};
+        jdbcTemplate.query(sql, resultSet -> {
+            Receipt receipt = new Receipt();
+            receipt.setId(resultSet.getString(1));
+            receipt.setRetailer(resultSet.getString(2));
+            receipt.setPurchaseDate(EPOCH_DAY.convertToEntityAttribute(resultSet.getInt(3)));
+            receipt.setPurchaseTime(MINUTE_OF_DAY.convertToEntityAttribute((short) resultSet.getInt(4)));
+            receipt.setTotal(CENTS.convertToEntityAttribute(resultSet.getObject(5, Long.class)));
+            receipt.setUserId(resultSet.getString(6));
+            receipt.setItems(new ArrayList<>());
+            receipts.put(receipt.getId(), receipt);
+            last[0] = receipt.getId();
+        }, args);
+        if (receipts.isEmpty()) {
+            return null;
+        }
+        jdbcTemplate.query(ITEMS_BETWEEN, resultSet -> {
+            Receipt receipt = receipts.get(resultSet.getString(1));
+            if (receipt != null) {
+                Item item = new Item();
+                item.setShortDescription(resultSet.getString(2));
+                item.setPrice(CENTS.convertToEntityAttribute(resultSet.getLong(3)));
+                receipt.getItems().add(item);
+            }
+        }, after, last[0]);
+
+        List<ReceiptPoint> updates = new ArrayList<>();
+        Map<String, Long> pointsPerUser = new HashMap<>();
+        long rescored = 0;
+        for (ReceiptPoint stored : pointsStore.findAllById(receipts.keySet()).values()) {
+            if (stored.getUserOrdinal() == null) {
+                continue;
+            }
+            rescored++;
+            Receipt receipt = receipts.get(stored.getReceipt_id());
+            int points = rules.points(receipt, stored.getUserOrdinal());
+            if (points != stored.getPoints()) {
+                pointsPerUser.merge(receipt.getUserId(), (long) points - stored.getPoints(), Long::sum);
+                stored.setPoints(points);
+                updates.add(stored);
+                pointsCache.invalidateAfterCommit(stored.getReceipt_id(), points);
+            }
+        }
+        pointsStore.saveAll(updates);
+        if (!pointsPerUser.isEmpty()) {
+            userReceiptCounterService.addPoints(pointsPerUser);
+        }
+        checkpointRepository.advance(range.getId(), last[0], rescored, updates.size());
+        return receipts.size() < batchSize ? null : last[0];
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.receiptprocessor.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the receipts per second re-scored across all workers of a job. Each batch reserves its share of time up
+ * front and sleeps until its slot; idle time is not banked, so a job never bursts above the rate.
+ */
+final class RescoreThrottle {
+
+    private final long nanosPerReceipt;
+    private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param receiptsPerSecond the cap, or 0 for no cap
+     */
+    RescoreThrottle(long receiptsPerSecond) {
+        this.nanosPerReceipt = receiptsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / receiptsPerSecond : 0;
+    }
+
+    void acquire(int receipts) throws InterruptedException {
+        if (nanosPerReceipt == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long cost = receipts * nanosPerReceipt;
+        long slot = nextSlot.getAndUpdate(next -> (next - now > 0 ? next : now) + cost);
+        long wait = slot - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.leaderboard.PointsLeaderboard;
+import com.example.receiptprocessor.model.ReceiptPoint;
+import com.example.receiptprocessor.repository.ReceiptRepository;
+import com.example.receiptprocessor.repository.UserReceiptCounterRepository;
+import com.example.receiptprocessor.store.PointsStore;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out per-user receipt ordinals for bonus scoring and keeps each user's lifetime points total.
+ * <p>
+ * Users are hashed onto a fixed set of stripes. A transaction that reserves ordinals locks the stripes of its
+ * users (in stripe order, so batches cannot deadlock each other) and keeps them until it completes. That makes
+ * the in-memory count of every user in those stripes exact, so a reservation is a single counter-table UPDATE.
+ * The count is loaded from {@code user_receipt_counter} on first use and seeded from the receipt table for
+ * users stored before the counter existed. A rollback discards the cached counts of the users it touched.
+ * <p>
+ * Points totals live in the same row and are changed by the transactions that write points, under the same stripe
+ * locks, so {@link #pointsTotal(String)} is a primary-key read. A user stored before totals were kept has their
+ * points summed from the {@link PointsStore} once, on the first write or read; increments skip them until then.
+ * Every committed total is handed to the {@link PointsLeaderboard}.
+ */
+@Service
+public class UserReceiptCounterService {
+
+    private static final int STRIPES = 256;
+    private static final int MAX_CACHED_USERS_PER_STRIPE = 4096;
+    private static final int SUM_BATCH_SIZE = 1000;
+
+    private final ReceiptRepository receiptRepository;
+    private final UserReceiptCounterRepository counterRepository;
+    private final PointsStore pointsStore;
+    private final PointsLeaderboard leaderboard;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public UserReceiptCounterService(ReceiptRepository receiptRepository, UserReceiptCounterRepository counterRepository,
+                                     PointsStore pointsStore, PointsLeaderboard leaderboard) {
+        this.receiptRepository = receiptRepository;
+        this.counterRepository = counterRepository;
+        this.pointsStore = pointsStore;
+        this.leaderboard = leaderboard;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Reserves the ordinal of one new receipt for the user.
+     *
+     * @return the 1-based position of the receipt among the user's receipts
+     */
+    public long next(String userId) {
+        return reserve(Collections.singletonMap(userId, 1)).get(userId) + 1;
+    }
+
+    /**
+     * Reserves ordinals for several new receipts per user. Must run inside the transaction that stores them.
+     *
+     * @param receiptsPerUser number of new receipts for each user
+     * @return each user's receipt count before this reservation; the new receipts take the following ordinals
+     */
+    public Map<String, Long> reserve(Map<String, Integer> receiptsPerUser) {
+        Map<Integer, List<String>> usersByStripe = lockStripes(receiptsPerUser.keySet());
+
+        Map<String, Long> previousCounts = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> entry : usersByStripe.entrySet()) {
+            Map<String, Long> counts = stripes[entry.getKey()].counts;
+            for (String userId : entry.getValue()) {
+                int delta = receiptsPerUser.get(userId);
+                Long previous = counts.get(userId);
+                if (previous == null) {
+                    previous = counterRepository.findReceiptCount(userId).orElse(null);
+                    if (previous != null && counterRepository.findPointsTotal(userId).isEmpty()) {
+                        long points = sumPoints(receiptRepository.findIdsByUserId(userId));
+                        counterRepository.seedPointsTotal(userId, points);
+                        publishTotal(userId, points);
+                    }
+                }
+                if (previous == null) {
+                    // First receipt since the counter existed: seed from receipts already stored for the user.
+                    List<String> receiptIds = receiptRepository.findIdsByUserId(userId);
+                    long points = sumPoints(receiptIds);
+                    previous = (long) receiptIds.size();
+                    counterRepository.insert(userId, previous + delta, points);
+                    publishTotal(userId, points);
+                } else {
+                    counterRepository.incrementBy(userId, delta);
+                }
+                counts.put(userId, previous + delta);
+                previousCounts.put(userId, previous);
+            }
+        }
+        return previousCounts;
+    }
+
+    /**
+     * Adds points to the users' totals. Must run inside the transaction that writes the points, after
+     * {@link #reserve(Map)} when it stores new receipts.
+     *
+     * @param pointsPerUser points to add for each user; negative when re-scoring lowered them
+     */
+    public void addPoints(Map<String, Long> pointsPerUser) {
+        for (Map.Entry<Integer, List<String>> entry : lockStripes(pointsPerUser.keySet()).entrySet()) {
+            Map<String, Long> totals = stripes[entry.getKey()].totals;
+            for (String userId : entry.getValue()) {
+                long delta = pointsPerUser.get(userId);
+                // No row changes for a user whose total is not seeded yet.
+                if (delta == 0 || counterRepository.addPoints(userId, delta) == 0) {
+                    continue;
+                }
+                Long cached = totals.get(userId);
+                publishTotal(userId, cached != null
+                        ? cached + delta
+                        : counterRepository.findPointsTotal(userId).orElseThrow());
+            }
+        }
+    }
+
+    /**
+     * @return the user's lifetime points, 0 for a user without receipts
+     */
+    @Transactional
+    public long pointsTotal(String userId) {
+        Optional<Long> total = counterRepository.findPointsTotal(userId);
+        if (total.isPresent()) {
+            return total.get();
+        }
+        // Not seeded yet: take the user's stripe, so no receipt of theirs is stored while their points are summed.
+        lockStripes(List.of(userId));
+        total = counterRepository.findPointsTotal(userId);
+        if (total.isPresent()) {
+            return total.get();
+        }
+        List<String> receiptIds = receiptRepository.findIdsByUserId(userId);
+        if (receiptIds.isEmpty()) {
+            return 0;
+        }
+        long points = sumPoints(receiptIds);
+        if (counterRepository.seedPointsTotal(userId, points) == 0) {
+            counterRepository.insert(userId, receiptIds.size(), points);
+        }
+        publishTotal(userId, points);
+        return points;
+    }
+
+    /**
+     * Remembers a user's new total for the rest of the transaction and hands it to the leaderboard on commit.
+     * Callers hold the user's stripe lock.
+     */
+    private void publishTotal(String userId, long points) {
+        stripes[stripeIndex(userId)].totals.put(userId, points);
+        leaderboard.setAfterCommit(userId, points);
+    }
+
+    /**
+     * Locks the stripes of the users until the current transaction completes.
+     *
+     * @return the users grouped by stripe, in lock order
+     */
+    private Map<Integer, List<String>> lockStripes(Collection<String> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("User counters can only be changed inside a transaction");
+        }
+        Map<Integer, List<String>> usersByStripe = new TreeMap<>();
+        for (String userId : userIds) {
+            usersByStripe.computeIfAbsent(stripeIndex(userId), i -> new ArrayList<>()).add(userId);
+        }
+        List<Stripe> locked = new ArrayList<>(usersByStripe.size());
+        for (Integer index : usersByStripe.keySet()) {
+            Stripe stripe = stripes[index];
+            stripe.lock.lock();
+            locked.add(stripe);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new ReleaseStripes(locked, userIds));
+        return usersByStripe;
+    }
+
+    private long sumPoints(List<String> receiptIds) {
+        long total = 0;
+        for (int from = 0; from < receiptIds.size(); from += SUM_BATCH_SIZE) {
+            List<String> batch = receiptIds.subList(from, Math.min(receiptIds.size(), from + SUM_BATCH_SIZE));
+            for (ReceiptPoint point : pointsStore.findAllById(batch).values()) {
+                total += point.getPoints();
+            }
+        }
+        return total;
+    }
+
+    private static int stripeIndex(String userId) {
+        int hash = userId.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Only read or written while holding the lock.
+        private final Map<String, Long> counts = lruMap();
+        private final Map<String, Long> totals = lruMap();
+
+        private static Map<String, Long> lruMap() {
+            return new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_CACHED_USERS_PER_STRIPE;
+                }
+            };
+        }
+    }
+
+    private final class ReleaseStripes implements TransactionSynchronization {
+        private final List<Stripe> locked;
+        private final Iterable<String> userIds;
+
+        private ReleaseStripes(List<Stripe> locked, Iterable<String> userIds) {
+            this.locked = locked;
+            this.userIds = userIds;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                for (String userId : userIds) {
+                    Stripe stripe = stripes[stripeIndex(userId)];
+                    stripe.counts.remove(userId);
+                    stripe.totals.remove(userId);
+                }
+            }
+            for (Stripe stripe : locked) {
+                stripe.lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.receiptprocessor.shard;
+
+import com.example.receiptprocessor.model.ReceiptIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard holds a user's receipts, items, points and counters, and binds work to a shard.
+ * <p>
+ * A user belongs to the shard picked by a hash of their ID, so everything written for the user, including their
+ * receipt ordinal and points total, stays on one database. Receipt IDs carry the shard they were stored on (see
+ * {@link ReceiptIdGenerator#shardTag(String)}), so a points lookup by ID goes straight to that shard.
+ * <p>
+ * The shard is bound to the current thread by {@link #onShard}; the {@link ShardRoutingDataSource} hands out
+ * connections of the bound shard, and shard 0 when none is bound. A transaction keeps the connection it started
+ * with, so the shard must be bound before the transaction begins and cannot change until it ends. With a single
+ * shard (the default) all of this routes to the one database.
+ */
+@Component
+public class ShardRouter {
+
+    /**
+     * Shard tags have 8 bits.
+     */
+    public static final int MAX_SHARDS = 256;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int shards;
+
+    public ShardRouter(@Value("${receipt.sharding.shards:1}") int shards) {
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException(
+                    "receipt.sharding.shards must be between 1 and " + MAX_SHARDS + ", was " + shards);
+        }
+        this.shards = shards;
+    }
+
+    /**
+     * @return the shard bound to the current thread, 0 if none is
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public boolean isSharded() {
+        return shards > 1;
+    }
+
+    public int shardOfUser(String userId) {
+        // Fibonacci hashing spreads the bits of the string hash, so users of one shard do not share the
+        // low bits UserReceiptCounterService stripes on.
+        long mixed = userId.hashCode() * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(mixed >>> 32, shards);
+    }
+
+    /**
+     * @return the shard tagged in the receipt ID, or -1 if the ID carries no tag of a current shard
+     */
+    public int shardOfReceiptId(String receiptId) {
+        int tag = ReceiptIdGenerator.shardTag(receiptId);
+        return tag < shards ? tag : -1;
+    }
+
+    /**
+     * Runs the work with the shard bound to the current thread, and restores the previous binding afterwards.
+     *
+     * @throws IllegalStateException if a transaction on another shard is active
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        if (shard != currentShard() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on shard "
+                    + currentShard());
+        }
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public <T> T onUserShard(String userId, Supplier<T> work) {
+        return onShard(shardOfUser(userId), work);
+    }
+
+    /**
+     * Runs the work once per shard, in shard order, with the shard bound.
+     */
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < shards; shard++) {
+            int boundShard = shard;
+            onShard(shard, () -> {
+                work.accept(boundShard);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Splits the items by their user's shard and runs the work once per shard with that shard's items, in input
+     * order. The work must return one result per item, in order; the results are put back in input order.
+     * Each shard's work is a transaction of its own, so one shard can commit while another fails.
+     */
+    public <T, R> List<R> routeByUser(List<T> items, Function<T, String> userIdOf, Function<List<T>, List<R>> work) {
+        if (!isSharded()) {
+            return work.apply(items);
+        }
+        List<List<T>> itemsByShard = new ArrayList<>(shards);
+        List<List<Integer>> positionsByShard = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            itemsByShard.add(new ArrayList<>());
+            positionsByShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            int shard = shardOfUser(userIdOf.apply(items.get(i)));
+            itemsByShard.get(shard).add(items.get(i));
+            positionsByShard.get(shard).add(i);
+        }
+        Object[] results = new Object[items.size()];
+        for (int shard = 0; shard < shards; shard++) {
+            List<T> shardItems = itemsByShard.get(shard);
+            if (shardItems.isEmpty()) {
+                continue;
+            }
+            List<R> shardResults = onShard(shard, () -> work.apply(shardItems));
+            List<Integer> positions = positionsByShard.get(shard);
+            for (int i = 0; i < positions.size(); i++) {
+                results[positions.get(i)] = shardResults.get(i);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<R> inInputOrder = (List<R>) Arrays.asList(results);
+        return inInputOrder;
+    }
+
+    /**
+     * Looks a receipt up on the shard tagged in its ID. IDs handed out before sharding, or before the shard count
+     * changed, may point to the wrong shard or none; a miss there is looked up on every other shard.
+     */
+    public <T> Optional<T> findByReceiptId(String receiptId, Supplier<Optional<T>> lookup) {
+        if (!isSharded()) {
+            return lookup.get();
+        }
+        int tagged = shardOfReceiptId(receiptId);
+        if (tagged >= 0) {
+            Optional<T> found = onShard(tagged, lookup);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            if (shard != tagged) {
+                Optional<T> found = onShard(shard, lookup);
+                if (found.isPresent()) {
+                    return found;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.receiptprocessor.shard;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Brings the schema of shards 1 and up to where startup brought shard 0: Flyway migrations first, then Hibernate's
+ * schema action ({@code spring.jpa.hibernate.ddl-auto}) from the same mapping metadata.
+ * <p>
+ * Startup migrates and updates only the database the {@link ShardRoutingDataSource} defaults to. This class is
+ * registered as a Hibernate {@link Integrator} to keep the metadata the session factory was built from, and runs
+ * once every singleton exists, before the application takes requests or rebuilds its in-memory state.
+ */
+public class ShardSchemaInitializer implements Integrator, SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<Flyway> flyway;
+    private volatile Metadata metadata;
+    private volatile ServiceRegistry serviceRegistry;
+    private volatile Map<String, Object> settings;
+
+    public ShardSchemaInitializer(ShardRouter shardRouter, ObjectProvider<Flyway> flyway) {
+        this.shardRouter = shardRouter;
+        this.flyway = flyway;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.serviceRegistry = bootstrapContext.getServiceRegistry();
+        this.settings = new HashMap<>(sessionFactory.getProperties());
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (metadata == null) {
+            throw new IllegalStateException("Hibernate did not hand over its metadata; shard schemas cannot be created");
+        }
+        long start = System.nanoTime();
+        for (int shard = 1; shard < shardRouter.getShards(); shard++) {
+            shardRouter.onShard(shard, () -> {
+                flyway.ifAvailable(Flyway::migrate);
+                // Shards are never dropped on shutdown, even for create-drop.
+                SchemaManagementToolCoordinator.process(metadata, serviceRegistry, settings, dropAction -> {
+                });
+                return null;
+            });
+        }
+        logger.info("Schema of {} additional shards ready after {} ms",
+                shardRouter.getShards() - 1, (System.nanoTime() - start) / 1_000_000);
+    }
+}
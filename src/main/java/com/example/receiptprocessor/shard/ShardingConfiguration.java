@@ -0,0 +1,64 @@
+package com.example.receiptprocessor.shard;
+
+import com.example.receiptprocessor.service.ReceiptIngestQueue;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sharded storage, when {@code receipt.sharding.shards} is above 1: one connection pool per shard behind a
+ * {@link ShardRoutingDataSource}, which replaces the auto-configured data source. Shard 0 is
+ * {@code spring.datasource.url}; shard {@code n} is {@code receipt.sharding.url-template} with {@code {shard}}
+ * replaced by {@code n}. Every pool takes the {@code spring.datasource} driver and credentials.
+ * <p>
+ * Asynchronous ingestion is refused: a queue partition is drained in one transaction that deletes queue rows and
+ * stores receipts, which cannot span shards.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnExpression("${receipt.sharding.shards:1} > 1")
+public class ShardingConfiguration {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties, ShardRouter shardRouter,
+                                             @Value("${receipt.sharding.url-template:jdbc:h2:mem:receiptdb-shard{shard}}")
+                                             String urlTemplate,
+                                             @Value("${receipt.sharding.maximum-pool-size:10}") int maximumPoolSize,
+                                             @Value("${receipt.ingest.mode:sync}") String ingestMode) {
+        if (ReceiptIngestQueue.isAsyncMode(ingestMode)) {
+            throw new IllegalStateException("receipt.ingest.mode=async does not support receipt.sharding.shards > 1");
+        }
+        List<HikariDataSource> shards = new ArrayList<>(shardRouter.getShards());
+        for (int shard = 0; shard < shardRouter.getShards(); shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            if (shard > 0) {
+                dataSource.setJdbcUrl(urlTemplate.replace("{shard}", Integer.toString(shard)));
+            }
+            dataSource.setPoolName("receipt-shard-" + shard);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer(ShardRouter shardRouter, ObjectProvider<Flyway> flyway) {
+        return new ShardSchemaInitializer(shardRouter, flyway);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaIntegrator(ShardSchemaInitializer shardSchemaInitializer) {
+        return properties -> properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(shardSchemaInitializer));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.receiptprocessor.store;
+
+import com.example.receiptprocessor.model.ReceiptPoint;
+import com.example.receiptprocessor.repository.ReceiptPointRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link PointsStore} on the {@code receipt_point} table, written in the same transaction as the receipt.
+ */
+@Component
+@ConditionalOnProperty(name = "receipt.points-store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaPointsStore implements PointsStore {
+
+    private final ReceiptPointRepository receiptPointRepository;
+
+    public JpaPointsStore(ReceiptPointRepository receiptPointRepository) {
+        this.receiptPointRepository = receiptPointRepository;
+    }
+
+    @Override
+    public void save(ReceiptPoint point) {
+        receiptPointRepository.save(point);
+    }
+
+    @Override
+    public void saveAll(Collection<ReceiptPoint> points) {
+        receiptPointRepository.saveAll(points);
+    }
+
+    @Override
+    public Optional<ReceiptPoint> findById(String receiptId) {
+        return receiptPointRepository.findById(receiptId);
+    }
+
+    @Override
+    public Map<String, ReceiptPoint> findAllById(Collection<String> receiptIds) {
+        Map<String, ReceiptPoint> points = new HashMap<>();
+        for (ReceiptPoint point : receiptPointRepository.findAllById(receiptIds)) {
+            points.put(point.getReceipt_id(), point);
+        }
+        return points;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.receiptprocessor.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One fixed-size segment file of the points log, mapped into memory as a whole.
+ * <p>
+ * Only the writer of {@link MappedLogPointsStore} appends, under the store's lock; readers use absolute reads and
+ * never touch the buffer position. Readers only see records that the index points at, and the index is updated
+ * after the record is written, so no further fencing is needed.
+ */
+final class LogSegment {
+
+    private static final Pattern FILE_NAME = Pattern.compile("segment-(\\d{8})\\.log");
+
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private volatile int writePosition;
+    // Bytes of records the index still points at; the rest was overwritten and can be reclaimed by compaction.
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    private LogSegment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps an existing segment file at its current size, or creates a new one of {@code size} bytes.
+     */
+    static LogSegment open(Path directory, int id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long mappedSize = channel.size() > 0 ? channel.size() : size;
+            return new LogSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static String fileName(int id) {
+        return String.format("segment-%08d.log", id);
+    }
+
+    /**
+     * @return the segment ID of a segment file name, or -1 for other files
+     */
+    static int idOf(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    int id() {
+        return id;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    void setWritePosition(int writePosition) {
+        this.writePosition = writePosition;
+    }
+
+    int remaining() {
+        return buffer.capacity() - writePosition;
+    }
+
+    long liveBytes() {
+        return liveBytes.get();
+    }
+
+    void addLiveBytes(long delta) {
+        liveBytes.addAndGet(delta);
+    }
+
+    byte get(int offset) {
+        return buffer.get(offset);
+    }
+
+    short getShort(int offset) {
+        return buffer.getShort(offset);
+    }
+
+    int getInt(int offset) {
+        return buffer.getInt(offset);
+    }
+
+    void read(int offset, byte[] target) {
+        buffer.get(offset, target);
+    }
+
+    /**
+     * Writes an encoded record at the write position: everything after the length field first and the length
+     * last, so a reader of the file never takes a half-written record for a complete one. Returns its offset.
+     */
+    int append(byte[] record) {
+        int offset = writePosition;
+        buffer.put(offset + Integer.BYTES, record, Integer.BYTES, record.length - Integer.BYTES);
+        buffer.put(offset, record, 0, Integer.BYTES);
+        writePosition = offset + record.length;
+        return offset;
+    }
+
+    /**
+     * Zeroes the file from {@code offset} to the end, so a torn record is not replayed again.
+     */
+    void truncate(int offset) {
+        byte[] zeros = new byte[64 * 1024];
+        for (int position = offset; position < buffer.capacity(); position += zeros.length) {
+            buffer.put(position, zeros, 0, Math.min(zeros.length, buffer.capacity() - position));
+        }
+        writePosition = offset;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes and removes the file. The mapping itself stays valid until the buffer is garbage collected, so a
+     * reader that looked the segment up just before it was removed still reads the records it expects.
+     */
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,572 @@
+package com.example.receiptprocessor.store;
+
+import com.example.receiptprocessor.model.ReceiptPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link PointsStore} on append-only segment files under {@code receipt.points-store.directory}, accessed through
+ * memory-mapped buffers, with an index from receipt ID to the location of its latest record in a memory-mapped
+ * file of its own ({@link PointsLogIndex}), off the heap.
+ * <p>
+ * Every save appends a record {@code [length][crc32c][flags][points][ordinal?][alias?][receipt ID]} to the active
+ * segment; a full segment is sealed and the next one started. Reads look the location up in the index and decode
+ * the record with absolute reads, without taking a lock. After a clean shutdown the index is used as it was left,
+ * and only records past the write position it recorded are replayed. Otherwise, after a crash or without an index
+ * file, the segments are replayed in order to rebuild the index; replay stops at the first record whose length or
+ * checksum does not match, which is the tail torn by the crash, and the tail is cleared. With {@code receipt.points-store.sync=true} every append is forced to disk before
+ * the transaction commits; otherwise the operating system writes the pages back, and a crash of the process (but
+ * not of the machine) loses nothing.
+ * <p>
+ * Within a transaction, saves are buffered and appended just before it commits. If the commit then fails, every
+ * record appended for it that is still a receipt's latest is superseded: by a copy of the receipt's record before
+ * the transaction, or by a tombstone record if it had none, so a rolled-back receipt leaves no points behind.
+ * Sealed segments in which less than {@code receipt.points-store.compaction-live-ratio} of the
+ * bytes are still referenced are compacted in the background: their live records are copied to the active segment
+ * and the file is deleted.
+ */
+@Component
+@ConditionalOnProperty(name = "receipt.points-store.type", havingValue = "log")
+public class MappedLogPointsStore implements PointsStore, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedLogPointsStore.class);
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    // Flags, points and the length of an empty receipt ID.
+    private static final int MIN_BODY_BYTES = 1 + Integer.BYTES + Short.BYTES;
+    private static final byte HAS_ORDINAL = 1;
+    private static final byte HAS_ALIAS = 2;
+    // The receipt's points were rolled back; a tombstone has no ordinal or alias.
+    private static final byte TOMBSTONE = 4;
+    // Sizes the index rebuilt after a crash: a record with a UUID receipt ID and an ordinal takes 59 bytes.
+    private static final int ESTIMATED_RECORD_BYTES = 64;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean sync;
+    private final double compactionLiveRatio;
+
+    // Receipt ID to (segment ID << 32 | offset) of its latest record.
+    private final PointsLogIndex index;
+    private final ConcurrentHashMap<Integer, LogSegment> segments = new ConcurrentHashMap<>();
+    // Guards appends, segment rolls and the relocation of records by compaction.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile LogSegment active;
+
+    public MappedLogPointsStore(@Value("${receipt.points-store.directory:data/points}") String directory,
+                                @Value("${receipt.points-store.segment-bytes:67108864}") int segmentBytes,
+                                @Value("${receipt.points-store.sync:false}") boolean sync,
+                                @Value("${receipt.points-store.compaction-live-ratio:0.5}") double compactionLiveRatio)
+            throws IOException {
+        if (segmentBytes <= 0 || segmentBytes > 1 << 30) {
+            throw new IllegalArgumentException("receipt.points-store.segment-bytes must be between 1 and 2^30");
+        }
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.sync = sync;
+        this.compactionLiveRatio = compactionLiveRatio;
+        Files.createDirectories(this.directory);
+        this.index = PointsLogIndex.open(this.directory, this::holds);
+        recover();
+    }
+
+    @Override
+    public void save(ReceiptPoint point) {
+        Map<String, ReceiptPoint> pending = pendingWrites();
+        if (pending != null) {
+            pending.put(point.getReceipt_id(), point);
+        } else {
+            append(List.of(point));
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<ReceiptPoint> points) {
+        Map<String, ReceiptPoint> pending = pendingWrites();
+        if (pending != null) {
+            for (ReceiptPoint point : points) {
+                pending.put(point.getReceipt_id(), point);
+            }
+        } else {
+            append(points);
+        }
+    }
+
+    @Override
+    public Optional<ReceiptPoint> findById(String receiptId) {
+        // The transaction's own writes are visible to it before they are appended.
+        @SuppressWarnings("unchecked")
+        Map<String, ReceiptPoint> pending = (Map<String, ReceiptPoint>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null && pending.containsKey(receiptId)) {
+            return Optional.of(pending.get(receiptId));
+        }
+        while (true) {
+            long location = index.get(receiptId);
+            if (location == PointsLogIndex.NOT_FOUND) {
+                return Optional.empty();
+            }
+            LogSegment segment = segments.get(segmentId(location));
+            if (segment != null) {
+                byte[] body = readBody(segment, offset(location));
+                return (body[0] & TOMBSTONE) != 0 ? Optional.empty() : Optional.of(decode(body));
+            }
+            // Compaction moved the record and removed its segment after the lookup; the index has the new location.
+        }
+    }
+
+    @Override
+    public Map<String, ReceiptPoint> findAllById(Collection<String> receiptIds) {
+        Map<String, ReceiptPoint> points = new HashMap<>();
+        for (String receiptId : receiptIds) {
+            findById(receiptId).ifPresent(point -> points.put(receiptId, point));
+        }
+        return points;
+    }
+
+    /**
+     * @return the number of receipt IDs with a record, including tombstones of rolled-back points
+     */
+    public int size() {
+        return (int) index.size();
+    }
+
+    /**
+     * Copies the live records out of sealed segments that are mostly overwritten, then deletes those segments.
+     */
+    @Scheduled(fixedDelayString = "${receipt.points-store.compaction-interval-ms:60000}")
+    public void compact() {
+        int activeId = active.id();
+        List<LogSegment> candidates = segments.values().stream()
+                .filter(segment -> segment.id() < activeId)
+                .filter(segment -> segment.liveBytes() < compactionLiveRatio * segment.writePosition())
+                .sorted((a, b) -> Integer.compare(a.id(), b.id()))
+                .toList();
+        for (LogSegment segment : candidates) {
+            compact(segment);
+        }
+    }
+
+    private void compact(LogSegment segment) {
+        long start = System.nanoTime();
+        // Copies go to the active segment, and to the ones after it if it fills up and rolls meanwhile.
+        int firstTarget = active.id();
+        int moved = 0;
+        int position = 0;
+        while (position < segment.writePosition()) {
+            int length = segment.getInt(position);
+            byte[] record = new byte[HEADER_BYTES + length];
+            segment.read(position, record);
+            String receiptId = receiptIdOf(record, HEADER_BYTES);
+            long location = location(segment.id(), position);
+            // Checked again under the lock: a concurrent save may have superseded the record meanwhile.
+            if (index.get(receiptId) == location) {
+                writeLock.lock();
+                try {
+                    if (index.get(receiptId) == location) {
+                        appendLocked(receiptId, record);
+                        moved++;
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            position += record.length;
+        }
+
+        // The copies must be on disk before the only other copy of the records goes away. A roll forces the
+        // sealed segment only with sync=true, so force every segment the copies may have gone to.
+        writeLock.lock();
+        try {
+            for (int id = firstTarget; id <= active.id(); id++) {
+                LogSegment target = segments.get(id);
+                if (target != null) {
+                    target.force();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        segments.remove(segment.id());
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            logger.warn("Could not delete compacted points segment {}", segment.id(), e);
+        }
+        logger.info("Compacted points segment {}: moved {} records in {} ms",
+                segment.id(), moved, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            for (LogSegment segment : segments.values()) {
+                segment.force();
+            }
+            index.close(segments.values());
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the writes buffered for the current transaction, or {@code null} outside a transaction
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, ReceiptPoint> pendingWrites() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<String, ReceiptPoint> pending = (Map<String, ReceiptPoint>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<String, ReceiptPoint> writes = new LinkedHashMap<>();
+            List<Appended> appended = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, writes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    append(writes.values(), appended);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MappedLogPointsStore.this);
+                    if (status == STATUS_ROLLED_BACK) {
+                        revert(appended);
+                    }
+                }
+            });
+            pending = writes;
+        }
+        return pending;
+    }
+
+    private void append(Collection<ReceiptPoint> points) {
+        append(points, null);
+    }
+
+    /**
+     * Appends the points; with {@code appended}, also records each record and the one it superseded, for
+     * {@link #revert}.
+     */
+    private void append(Collection<ReceiptPoint> points, List<Appended> appended) {
+        if (points.isEmpty()) {
+            return;
+        }
+        List<byte[]> records = new ArrayList<>(points.size());
+        for (ReceiptPoint point : points) {
+            records.add(encode(point));
+        }
+        writeLock.lock();
+        try {
+            int i = 0;
+            for (ReceiptPoint point : points) {
+                byte[] record = records.get(i++);
+                if (appended != null) {
+                    appended.add(new Appended(point.getReceipt_id(), record, readRecord(index.get(point.getReceipt_id()))));
+                }
+                appendLocked(point.getReceipt_id(), record);
+            }
+            if (sync) {
+                active.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Supersedes the records of a transaction that rolled back after they were appended, newest first. A record
+     * that is no longer its receipt's latest was overwritten by a later save, which is kept.
+     */
+    private void revert(List<Appended> appended) {
+        if (appended.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            for (int i = appended.size() - 1; i >= 0; i--) {
+                Appended write = appended.get(i);
+                // Compared by content, since compaction may have moved the record.
+                if (Arrays.equals(readRecord(index.get(write.receiptId())), write.record())) {
+                    appendLocked(write.receiptId(),
+                            write.previous() != null ? write.previous() : tombstone(write.receiptId()));
+                }
+            }
+            if (sync) {
+                active.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        logger.warn("Reverted the points of {} receipts of a rolled-back transaction", appended.size());
+    }
+
+    /**
+     * @return the whole record at the location, or {@code null} for {@link PointsLogIndex#NOT_FOUND}; called under
+     * the write lock, so the location's segment is still there
+     */
+    private byte[] readRecord(long location) {
+        if (location == PointsLogIndex.NOT_FOUND) {
+            return null;
+        }
+        LogSegment segment = segments.get(segmentId(location));
+        byte[] record = new byte[HEADER_BYTES + segment.getInt(offset(location))];
+        segment.read(offset(location), record);
+        return record;
+    }
+
+    private void appendLocked(String receiptId, byte[] record) {
+        if (active.remaining() < record.length) {
+            roll();
+        }
+        int offset = active.append(record);
+        active.addLiveBytes(record.length);
+        long previous = index.put(receiptId, location(active.id(), offset));
+        if (previous != PointsLogIndex.NOT_FOUND) {
+            release(previous);
+        }
+    }
+
+    private void roll() {
+        LogSegment sealed = active;
+        if (sync) {
+            sealed.force();
+        }
+        try {
+            LogSegment next = LogSegment.open(directory, sealed.id() + 1, segmentBytes);
+            segments.put(next.id(), next);
+            active = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create points segment " + (sealed.id() + 1), e);
+        }
+    }
+
+    /**
+     * Marks the record at {@code location} as overwritten.
+     */
+    private void release(long location) {
+        LogSegment segment = segments.get(segmentId(location));
+        if (segment != null) {
+            segment.addLiveBytes(-(HEADER_BYTES + segment.getInt(offset(location))));
+        }
+    }
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        List<Integer> ids;
+        try (Stream<Path> files = Files.list(directory)) {
+            ids = files.map(LogSegment::idOf).filter(id -> id >= 0).sorted().toList();
+        }
+        long segmentFileBytes = 0;
+        for (int id : ids) {
+            LogSegment segment = LogSegment.open(directory, id, segmentBytes);
+            segments.put(id, segment);
+            segmentFileBytes += segment.capacity();
+            active = segment;
+        }
+        boolean restored = index.restore(segments);
+        if (restored) {
+            if (active != null) {
+                replay(active, active.writePosition());
+            }
+        } else {
+            index.clear(segmentFileBytes / ESTIMATED_RECORD_BYTES);
+            for (int id : ids) {
+                replay(segments.get(id), 0);
+            }
+        }
+        if (active == null) {
+            active = LogSegment.open(directory, 0, segmentBytes);
+            segments.put(0, active);
+        }
+        index.markOpen();
+        logger.info("Recovered {} receipt points from {} segments in {} ms ({})", index.size(), segments.size(),
+                (System.nanoTime() - start) / 1_000_000, restored ? "index reused" : "index rebuilt");
+    }
+
+    /**
+     * Indexes the records of the segment from {@code from} on, and sets its write position after the last one.
+     */
+    private void replay(LogSegment segment, int from) {
+        int position = from;
+        while (position + HEADER_BYTES <= segment.capacity()) {
+            int length = segment.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            byte[] body = length >= MIN_BODY_BYTES && length <= segment.capacity() - position - HEADER_BYTES
+                    ? readBody(segment, position) : null;
+            if (body == null || checksum(body, 0, body.length) != segment.getInt(position + Integer.BYTES)) {
+                logger.warn("Discarding torn points record in segment {} at offset {}", segment.id(), position);
+                segment.truncate(position);
+                break;
+            }
+            String receiptId = receiptIdOf(body, 0);
+            segment.addLiveBytes(HEADER_BYTES + length);
+            long previous = index.put(receiptId, location(segment.id(), position));
+            if (previous != PointsLogIndex.NOT_FOUND) {
+                release(previous);
+            }
+            position += HEADER_BYTES + length;
+        }
+        segment.setWritePosition(position);
+    }
+
+    /**
+     * Whether the record at {@code location} is one of the receipt; see {@link PointsLogIndex.RecordKeys}.
+     */
+    private boolean holds(long location, String receiptId) {
+        LogSegment segment = segments.get(segmentId(location));
+        if (segment == null) {
+            return true;
+        }
+        int position = offset(location) + HEADER_BYTES;
+        byte flags = segment.get(position);
+        position += 1 + Integer.BYTES;
+        if ((flags & HAS_ORDINAL) != 0) {
+            position += Long.BYTES;
+        }
+        if ((flags & HAS_ALIAS) != 0) {
+            position += Short.BYTES + segment.getShort(position);
+        }
+        byte[] bytes = new byte[segment.getShort(position)];
+        segment.read(position + Short.BYTES, bytes);
+        return receiptId.equals(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readBody(LogSegment segment, int offset) {
+        byte[] body = new byte[segment.getInt(offset)];
+        segment.read(offset + HEADER_BYTES, body);
+        return body;
+    }
+
+    private byte[] encode(ReceiptPoint point) {
+        byte[] receiptId = point.getReceipt_id().getBytes(StandardCharsets.UTF_8);
+        byte[] aliasOf = point.getAliasOf() != null ? point.getAliasOf().getBytes(StandardCharsets.UTF_8) : null;
+        if (receiptId.length > Short.MAX_VALUE || aliasOf != null && aliasOf.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Receipt ID too long for the points store: " + point.getReceipt_id());
+        }
+        int bodyLength = MIN_BODY_BYTES + receiptId.length
+                + (point.getUserOrdinal() != null ? Long.BYTES : 0)
+                + (aliasOf != null ? Short.BYTES + aliasOf.length : 0);
+        if (HEADER_BYTES + bodyLength > segmentBytes) {
+            throw new IllegalArgumentException("Points record larger than a segment: " + point.getReceipt_id());
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength).putInt(0);
+        record.put((byte) ((point.getUserOrdinal() != null ? HAS_ORDINAL : 0) | (aliasOf != null ? HAS_ALIAS : 0)));
+        record.putInt(point.getPoints());
+        if (point.getUserOrdinal() != null) {
+            record.putLong(point.getUserOrdinal());
+        }
+        if (aliasOf != null) {
+            record.putShort((short) aliasOf.length).put(aliasOf);
+        }
+        record.putShort((short) receiptId.length).put(receiptId);
+        record.putInt(Integer.BYTES, checksum(record.array(), HEADER_BYTES, bodyLength));
+        return record.array();
+    }
+
+    private static byte[] tombstone(String receiptId) {
+        byte[] id = receiptId.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = MIN_BODY_BYTES + id.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength).putInt(0);
+        record.put(TOMBSTONE).putInt(0);
+        record.putShort((short) id.length).put(id);
+        record.putInt(Integer.BYTES, checksum(record.array(), HEADER_BYTES, bodyLength));
+        return record.array();
+    }
+
+    private static ReceiptPoint decode(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        byte flags = buffer.get();
+        ReceiptPoint point = new ReceiptPoint();
+        point.setPoints(buffer.getInt());
+        if ((flags & HAS_ORDINAL) != 0) {
+            point.setUserOrdinal(buffer.getLong());
+        }
+        if ((flags & HAS_ALIAS) != 0) {
+            point.setAliasOf(readString(buffer));
+        }
+        point.setReceipt_id(readString(buffer));
+        return point;
+    }
+
+    /**
+     * Reads only the receipt ID of a record, skipping the points. {@code bodyOffset} is where the body starts in
+     * {@code bytes}: 0 for a body and {@link #HEADER_BYTES} for a whole record.
+     */
+    private static String receiptIdOf(byte[] bytes, int bodyOffset) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte flags = buffer.get(bodyOffset);
+        int position = bodyOffset + 1 + Integer.BYTES;
+        if ((flags & HAS_ORDINAL) != 0) {
+            position += Long.BYTES;
+        }
+        if ((flags & HAS_ALIAS) != 0) {
+            position += Short.BYTES + buffer.getShort(position);
+        }
+        buffer.position(position);
+        return readString(buffer);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A record appended for a transaction, and the receipt's record it superseded, or {@code null} if none.
+     */
+    private record Appended(String receiptId, byte[] record, byte[] previous) {
+    }
+
+    private static long location(int segmentId, int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+}
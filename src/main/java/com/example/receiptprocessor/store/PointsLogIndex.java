@@ -0,0 +1,363 @@
+package com.example.receiptprocessor.store;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Index of the points log from receipt ID to the location of its latest record, as an open-addressing hash table
+ * with linear probing in a memory-mapped file next to the segments. It takes no heap, and a table closed cleanly is
+ * used again at the next start instead of being rebuilt from the log.
+ * <p>
+ * A slot holds a 64-bit hash of the receipt ID and the location; the ID itself is not stored. A slot whose hash
+ * matches is confirmed by reading the ID of the record it points at through {@link RecordKeys}, so a hash collision
+ * costs one more probe, never a wrong answer. Only the store's writer changes the table, under the store's lock;
+ * readers take no lock. A new slot is published by writing the location first and the hash last with release
+ * semantics; readers load the hash with acquire semantics and treat 0 as an empty slot. A table three quarters full
+ * is rehashed into a new file of twice the size, which then replaces the old one; readers still probing the old
+ * table see the locations it had when it was replaced. Entries are never removed.
+ * <p>
+ * The header records whether the table was closed cleanly, together with the write position and live bytes of
+ * every segment at that moment. {@link #restore} trusts only such a table: after a crash the table may lag behind
+ * the log or be partly written back, and the store rebuilds it by replaying every segment. Opening marks the table
+ * dirty on disk before anything changes, so a crash is never taken for a clean close.
+ */
+final class PointsLogIndex {
+
+    static final long NOT_FOUND = -1;
+
+    /**
+     * Confirms that the record at a location belongs to a receipt ID.
+     */
+    interface RecordKeys {
+
+        /**
+         * @return whether the record at {@code location} is one of {@code receiptId}; {@code true} if the location's
+         * segment is gone, in which case the caller finds the segment missing and looks the ID up again
+         */
+        boolean holds(long location, String receiptId);
+    }
+
+    static final String FILE_NAME = "points-index.dat";
+
+    private static final int MAGIC = 0x50495831;
+    // Magic, clean flag, segment count, padding, slot count, size; then the segments of a clean close.
+    private static final int CLEAN_OFFSET = 4;
+    private static final int SEGMENT_COUNT_OFFSET = 8;
+    private static final int SLOTS_OFFSET = 16;
+    private static final int SIZE_OFFSET = 24;
+    private static final int SEGMENTS_OFFSET = 64;
+    // Segment ID, write position and live bytes.
+    private static final int SEGMENT_ENTRY_BYTES = 16;
+    private static final int HEADER_BYTES = 64 * 1024;
+    private static final int MAX_SEGMENTS = (HEADER_BYTES - SEGMENTS_OFFSET) / SEGMENT_ENTRY_BYTES;
+
+    // Hash and location, so both stay 8-byte aligned.
+    private static final int SLOT_BYTES = 16;
+    private static final int LOCATION_OFFSET = 8;
+    private static final long MIN_SLOTS = 1024;
+    // A file is mapped in chunks, since one mapping holds at most 2 GiB.
+    private static final int CHUNK_SHIFT = 26;
+    private static final long CHUNK_SLOTS = 1L << CHUNK_SHIFT;
+    private static final long MAX_SLOTS = 1L << 32;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final RecordKeys keys;
+    private volatile Table table;
+    // Written under the store's lock; volatile only for size().
+    private volatile long size;
+
+    private PointsLogIndex(Path directory, RecordKeys keys, Table table) {
+        this.directory = directory;
+        this.keys = keys;
+        this.table = table;
+        this.size = (long) LONGS.get(table.header, SIZE_OFFSET);
+    }
+
+    /**
+     * Opens the index file of the directory as it is, or creates an empty one. Call {@link #restore} or
+     * {@link #clear} next, then {@link #markOpen}.
+     */
+    static PointsLogIndex open(Path directory, RecordKeys keys) throws IOException {
+        Path path = directory.resolve(FILE_NAME);
+        if (Files.exists(path)) {
+            Table table = Table.map(path, -1);
+            if (table != null) {
+                return new PointsLogIndex(directory, keys, table);
+            }
+        }
+        return new PointsLogIndex(directory, keys, Table.create(directory, path, MIN_SLOTS));
+    }
+
+    /**
+     * Restores the write position and live bytes of every segment from a clean close.
+     *
+     * @return whether the table was closed cleanly with exactly these segments; if not, nothing is changed
+     */
+    boolean restore(Map<Integer, LogSegment> segments) {
+        Table current = table;
+        if ((int) INTS.get(current.header, CLEAN_OFFSET) != 1) {
+            return false;
+        }
+        int count = (int) INTS.get(current.header, SEGMENT_COUNT_OFFSET);
+        if (count != segments.size()) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int entry = SEGMENTS_OFFSET + i * SEGMENT_ENTRY_BYTES;
+            LogSegment segment = segments.get((int) INTS.get(current.header, entry));
+            if (segment == null || (int) INTS.get(current.header, entry + 4) > segment.capacity()) {
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int entry = SEGMENTS_OFFSET + i * SEGMENT_ENTRY_BYTES;
+            LogSegment segment = segments.get((int) INTS.get(current.header, entry));
+            segment.setWritePosition((int) INTS.get(current.header, entry + 4));
+            segment.addLiveBytes((long) LONGS.get(current.header, entry + 8));
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the table with an empty one sized for {@code expectedEntries}.
+     */
+    void clear(long expectedEntries) throws IOException {
+        Table old = table;
+        Path path = directory.resolve(FILE_NAME);
+        table = Table.create(directory, path, slotsFor(expectedEntries));
+        size = 0;
+        old.close();
+    }
+
+    /**
+     * Marks the table dirty on disk, so it is rebuilt unless {@link #close} completes.
+     */
+    void markOpen() {
+        Table current = table;
+        INTS.setVolatile(current.header, CLEAN_OFFSET, 0);
+        current.header.force(0, SEGMENTS_OFFSET);
+    }
+
+    /**
+     * @return the location of the latest record of the receipt, or {@link #NOT_FOUND}
+     */
+    long get(String receiptId) {
+        long hash = hash(receiptId);
+        Table current = table;
+        for (long slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+            MappedByteBuffer chunk = current.chunk(slot);
+            int base = Table.offset(slot);
+            long slotHash = (long) LONGS.getAcquire(chunk, base);
+            if (slotHash == 0) {
+                return NOT_FOUND;
+            }
+            if (slotHash == hash) {
+                long location = (long) LONGS.getAcquire(chunk, base + LOCATION_OFFSET);
+                if (keys.holds(location, receiptId)) {
+                    return location;
+                }
+            }
+        }
+    }
+
+    /**
+     * Points the receipt at a new location. Only called by the store's writer, under its lock.
+     *
+     * @return the previous location, or {@link #NOT_FOUND} if the receipt was not indexed
+     */
+    long put(String receiptId, long location) {
+        if (size >= table.maxSize()) {
+            grow();
+        }
+        long hash = hash(receiptId);
+        Table current = table;
+        for (long slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+            MappedByteBuffer chunk = current.chunk(slot);
+            int base = Table.offset(slot);
+            long slotHash = (long) LONGS.get(chunk, base);
+            if (slotHash == 0) {
+                LONGS.set(chunk, base + LOCATION_OFFSET, location);
+                LONGS.setRelease(chunk, base, hash);
+                size++;
+                return NOT_FOUND;
+            }
+            if (slotHash == hash) {
+                long previous = (long) LONGS.get(chunk, base + LOCATION_OFFSET);
+                if (keys.holds(previous, receiptId)) {
+                    LONGS.setRelease(chunk, base + LOCATION_OFFSET, location);
+                    return previous;
+                }
+            }
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Records the segments and marks the table clean, forces it to disk and closes it. Only called by the store's
+     * writer, under its lock, after the segments were forced.
+     */
+    void close(Collection<LogSegment> segments) throws IOException {
+        Table current = table;
+        LONGS.set(current.header, SIZE_OFFSET, size);
+        if (segments.size() <= MAX_SEGMENTS) {
+            int i = 0;
+            for (LogSegment segment : segments) {
+                int entry = SEGMENTS_OFFSET + i++ * SEGMENT_ENTRY_BYTES;
+                INTS.set(current.header, entry, segment.id());
+                INTS.set(current.header, entry + 4, segment.writePosition());
+                LONGS.set(current.header, entry + 8, segment.liveBytes());
+            }
+            INTS.set(current.header, SEGMENT_COUNT_OFFSET, segments.size());
+            // The slots and segments first, so the flag is never on disk without them.
+            current.force();
+            INTS.set(current.header, CLEAN_OFFSET, 1);
+            current.header.force(0, SEGMENTS_OFFSET);
+        }
+        current.close();
+    }
+
+    private void grow() {
+        Table old = table;
+        long slots = (old.mask + 1) * 2;
+        if (slots > MAX_SLOTS) {
+            throw new IllegalStateException("Points index is full at " + size + " entries");
+        }
+        Path path = directory.resolve(FILE_NAME);
+        Path grownPath = directory.resolve(FILE_NAME + ".grow");
+        try {
+            Table grown = Table.create(directory, grownPath, slots);
+            for (long slot = 0; slot <= old.mask; slot++) {
+                MappedByteBuffer chunk = old.chunk(slot);
+                int base = Table.offset(slot);
+                long hash = (long) LONGS.get(chunk, base);
+                if (hash == 0) {
+                    continue;
+                }
+                long target = hash & grown.mask;
+                while ((long) LONGS.get(grown.chunk(target), Table.offset(target)) != 0) {
+                    target = (target + 1) & grown.mask;
+                }
+                MappedByteBuffer targetChunk = grown.chunk(target);
+                LONGS.set(targetChunk, Table.offset(target) + LOCATION_OFFSET,
+                        (long) LONGS.get(chunk, base + LOCATION_OFFSET));
+                LONGS.set(targetChunk, Table.offset(target), hash);
+            }
+            Files.move(grownPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The volatile write publishes the filled table to readers. The old mapping stays valid for readers
+            // still probing it until it is garbage collected.
+            table = grown;
+            old.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow the points index to " + slots + " slots", e);
+        }
+    }
+
+    private static long slotsFor(long expectedEntries) {
+        // At most three quarters of the slots are used, so probes stay short and always reach an empty slot.
+        long slots = Math.max(MIN_SLOTS, Long.highestOneBit(Math.max(1, expectedEntries * 4 / 3)) << 1);
+        return Math.min(slots, MAX_SLOTS);
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the ID's characters, mixed so the time-ordered prefix of version 7 UUIDs does not
+     * cluster the probes; never 0, which marks an empty slot.
+     */
+    static long hash(String receiptId) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < receiptId.length(); i++) {
+            hash = (hash ^ receiptId.charAt(i)) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        hash ^= hash >>> 32;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private record Table(FileChannel channel, MappedByteBuffer header, MappedByteBuffer[] chunks, long mask) {
+
+        /**
+         * Creates a zeroed table file of {@code slots} slots; the file is sparse until slots are written.
+         */
+        static Table create(Path directory, Path path, long slots) throws IOException {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(path);
+            Table table = map(path, slots);
+            INTS.set(table.header, 0, MAGIC);
+            LONGS.set(table.header, SLOTS_OFFSET, slots);
+            return table;
+        }
+
+        /**
+         * Maps a table file; {@code slots} is the size of a new file, or -1 to read it from the header.
+         *
+         * @return the table, or {@code null} if an existing file is not a table this code wrote
+         */
+        static Table map(Path path, long slots) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                if (slots < 0 && channel.size() < HEADER_BYTES) {
+                    channel.close();
+                    return null;
+                }
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                long slotCount = slots >= 0 ? slots : (long) LONGS.get(header, SLOTS_OFFSET);
+                if (slots < 0 && ((int) INTS.get(header, 0) != MAGIC || Long.bitCount(slotCount) != 1
+                        || slotCount > MAX_SLOTS || channel.size() != HEADER_BYTES + slotCount * SLOT_BYTES)) {
+                    channel.close();
+                    return null;
+                }
+                int chunkCount = (int) ((slotCount + CHUNK_SLOTS - 1) / CHUNK_SLOTS);
+                MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+                for (int i = 0; i < chunkCount; i++) {
+                    long chunkSlots = Math.min(CHUNK_SLOTS, slotCount - (long) i * CHUNK_SLOTS);
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                            HEADER_BYTES + (long) i * CHUNK_SLOTS * SLOT_BYTES, chunkSlots * SLOT_BYTES);
+                }
+                return new Table(channel, header, chunks, slotCount - 1);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        MappedByteBuffer chunk(long slot) {
+            return chunks[(int) (slot >>> CHUNK_SHIFT)];
+        }
+
+        static int offset(long slot) {
+            return (int) (slot & (CHUNK_SLOTS - 1)) * SLOT_BYTES;
+        }
+
+        long maxSize() {
+            return (mask + 1) / 4 * 3;
+        }
+
+        void force() {
+            header.force();
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
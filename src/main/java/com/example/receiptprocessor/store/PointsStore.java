@@ -0,0 +1,27 @@
+package com.example.receiptprocessor.store;
+
+import com.example.receiptprocessor.model.ReceiptPoint;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stored points by receipt ID. The {@code receipt_point} table backs it by default ({@link JpaPointsStore});
+ * {@code receipt.points-store.type=log} selects the memory-mapped {@link MappedLogPointsStore}.
+ * <p>
+ * To change stored points, modify an instance returned by one of the find methods and save it again.
+ */
+public interface PointsStore {
+
+    void save(ReceiptPoint point);
+
+    void saveAll(Collection<ReceiptPoint> points);
+
+    Optional<ReceiptPoint> findById(String receiptId);
+
+    /**
+     * @return the stored points of the given receipts, keyed by receipt ID; IDs without points are left out
+     */
+    Map<String, ReceiptPoint> findAllById(Collection<String> receiptIds);
+}
@@ -0,0 +1,87 @@
+package com.example.receiptprocessor.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over caller-supplied 64-bit hashes.
+ * <p>
+ * Bits are set with CAS, so concurrent {@link #put} and {@link #mightContain} calls need no locking.
+ * Probe positions use double hashing, with the second hash derived from the first by a multiplicative mix.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate in (0, 1)");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(long hash) {
+        long step = probeStep(hash);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(hash + i * step);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the hash was definitely never added, {@code true} if it may have been
+     */
+    public boolean mightContain(long hash) {
+        long step = probeStep(hash);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(hash + i * step);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long probeStep(long hash) {
+        return Long.rotateLeft(hash, 32) * 0x9e3779b97f4a7c15L | 1;
+    }
+
+    private long bitIndex(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * 64-bit hash of three strings, computed over their chars without allocating.
+     */
+    public static long hash(String first, String second, String third) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mixIn(hash, first);
+        hash = mixIn(hash, second);
+        hash = mixIn(hash, third);
+        // MurmurHash3 finalizer spreads FNV's weak low bits across the whole word.
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long mixIn(long hash, String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") hash differently.
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
+}
@@ -6,14 +6,31 @@ import com.example.receiptprocessor.model.Item;
 import com.example.receiptprocessor.model.Receipt;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 
+import static com.example.receiptprocessor.util.ReceiptFields.NOT_CANONICAL;
+import static com.example.receiptprocessor.util.ReceiptFields.countAlphanumeric;
+import static com.example.receiptprocessor.util.ReceiptFields.dayOfMonth;
+import static com.example.receiptprocessor.util.ReceiptFields.minuteOfDay;
+import static com.example.receiptprocessor.util.ReceiptFields.parseCents;
+import static com.example.receiptprocessor.util.ReceiptFields.trimmedLength;
+
+/**
+ * The original hand-written scoring rules. Ingestion scores through
+ * {@link com.example.receiptprocessor.rules.PointsRuleEngine}; this class stays as the reference its default rule
+ * set is tested against.
+ */
 public class PointsCalculator {
 
     private static final BigDecimal QUARTER = BigDecimal.valueOf(0.25);
+    private static final BigDecimal ITEM_PRICE_MULTIPLIER = BigDecimal.valueOf(0.2);
     private static final int ROUND_DOLLAR_POINTS = 50;
     private static final int MULTIPLE_OF_QUARTER_POINTS = 25;
+    private static final int ODD_DAY_POINTS = 6;
+    private static final int AFTERNOON_POINTS = 10;
+    private static final int AFTERNOON_START_MINUTE = 14 * 60;
+    private static final int AFTERNOON_END_MINUTE = 16 * 60;
 
     /**
      * calculate total points include base point and bonus points
@@ -48,6 +65,10 @@ public class PointsCalculator {
 
     /**
      * Pure function that calculates points from a given Receipt.
+     * <p>
+     * Amounts are read as integer cents and the date, time and retailer are scanned character by character,
+     * so a receipt in the validated wire format is scored without allocating. Values outside that format
+     * fall back to the {@link BigDecimal}/{@code java.time} parsing, which keeps results and exceptions identical.
      *
      * @param receipt the receipt object
      * @return the calculated points
@@ -56,47 +77,76 @@ public class PointsCalculator {
         int points = 0;
 
         // 1. Retailer name: 1 point for every alphanumeric character.
-        int retailerPoints = receipt.getRetailer().replaceAll("[^a-zA-Z0-9]", "").length();
-        points += retailerPoints;
+        points += countAlphanumeric(receipt.getRetailer());
 
         // 2. Total is a round dollar amount: 50 points.
-        BigDecimal total = new BigDecimal(receipt.getTotal());
-        if (total.remainder(BigDecimal.ONE).compareTo(BigDecimal.ZERO) == 0) {
-            points += ROUND_DOLLAR_POINTS;
-        }
-
         // 3. Total is a multiple of 0.25: 25 points.
-        if (total.remainder(QUARTER).compareTo(BigDecimal.ZERO) == 0) {
-            points += MULTIPLE_OF_QUARTER_POINTS;
-        }
+        points += totalPoints(receipt.getTotal());
 
         // 4. 5 points for every two items on the receipt.
-        int itemPairPoints = (receipt.getItems().size() / 2) * 5;
-        points += itemPairPoints;
+        List<Item> items = receipt.getItems();
+        int itemCount = items.size();
+        points += (itemCount / 2) * 5;
 
         // 5. For each item: if trimmed description length is a multiple of 3,
         //    multiply the price by 0.2 and round up to get additional points.
-        for (Item item : receipt.getItems()) {
-            String desc = item.getShortDescription().trim();
-            if (desc.length() % 3 == 0) {
-                BigDecimal itemPrice = new BigDecimal(item.getPrice());
-                int bonus = (int) Math.ceil(itemPrice.multiply(BigDecimal.valueOf(0.2)).doubleValue());
-                points += bonus;
+        for (int i = 0; i < itemCount; i++) {
+            Item item = items.get(i);
+            if (trimmedLength(item.getShortDescription()) % 3 == 0) {
+                points += itemPricePoints(item.getPrice());
             }
         }
 
         // 6. If the day in the purchase date is odd: add 6 points.
-        int day = LocalDate.parse(receipt.getPurchaseDate()).getDayOfMonth();
-        if (day % 2 == 1) {
-            points += 6;
+        if (dayOfMonth(receipt.getPurchaseDate()) % 2 == 1) {
+            points += ODD_DAY_POINTS;
         }
 
         // 7. If the purchase time is after 2:00pm and before 4:00pm: add 10 points.
-        LocalTime time = LocalTime.parse(receipt.getPurchaseTime());
-        if (time.isAfter(LocalTime.of(14, 0)) && time.isBefore(LocalTime.of(16, 0))) {
-            points += 10;
-        }
+        points += afternoonPoints(receipt.getPurchaseTime());
+
+        return points;
+    }
 
+    private static int totalPoints(String total) {
+        long cents = parseCents(total);
+        if (cents == NOT_CANONICAL) {
+            BigDecimal amount = new BigDecimal(total);
+            int points = 0;
+            if (amount.remainder(BigDecimal.ONE).compareTo(BigDecimal.ZERO) == 0) {
+                points += ROUND_DOLLAR_POINTS;
+            }
+            if (amount.remainder(QUARTER).compareTo(BigDecimal.ZERO) == 0) {
+                points += MULTIPLE_OF_QUARTER_POINTS;
+            }
+            return points;
+        }
+        int points = 0;
+        if (cents % 100 == 0) {
+            points += ROUND_DOLLAR_POINTS;
+        }
+        if (cents % 25 == 0) {
+            points += MULTIPLE_OF_QUARTER_POINTS;
+        }
         return points;
     }
+
+    private static int itemPricePoints(String price) {
+        long cents = parseCents(price);
+        if (cents == NOT_CANONICAL) {
+            return (int) Math.ceil(new BigDecimal(price).multiply(ITEM_PRICE_MULTIPLIER).doubleValue());
+        }
+        // ceil(cents / 100 * 0.2) == ceil(cents / 500) for non-negative cents. Below the int range a double holds
+        // the product closely enough to round up the same way; above it the old (int) cast saturated, so clamp.
+        return (int) Math.min((cents + 499) / 500, Integer.MAX_VALUE);
+    }
+
+    private static int afternoonPoints(String time) {
+        int minuteOfDay = minuteOfDay(time);
+        if (minuteOfDay == NOT_CANONICAL) {
+            LocalTime parsed = LocalTime.parse(time);
+            return parsed.isAfter(LocalTime.of(14, 0)) && parsed.isBefore(LocalTime.of(16, 0)) ? AFTERNOON_POINTS : 0;
+        }
+        return minuteOfDay > AFTERNOON_START_MINUTE && minuteOfDay < AFTERNOON_END_MINUTE ? AFTERNOON_POINTS : 0;
+    }
 }
@@ -0,0 +1,130 @@
+package com.example.receiptprocessor.util;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Allocation-free readers for receipt fields in the validated wire format, shared by {@link PointsCalculator}
+ * and the compiled rule sets. Each reader reports {@link #NOT_CANONICAL} (or defers to {@code java.time}) when
+ * the value is outside that format, so callers can fall back to exact general-purpose parsing.
+ */
+public final class ReceiptFields {
+
+    /** Marker returned by the parsers when the input is not in the validated wire format. */
+    public static final int NOT_CANONICAL = -1;
+
+    private ReceiptFields() {
+    }
+
+    /**
+     * Parses an amount in "digits.dd" form into cents, or returns {@link #NOT_CANONICAL}.
+     */
+    public static long parseCents(String amount) {
+        int length = amount.length();
+        // At most 16 integer digits keeps the result well inside a long.
+        if (length < 4 || length > 19 || amount.charAt(length - 3) != '.') {
+            return NOT_CANONICAL;
+        }
+        long cents = 0;
+        for (int i = 0; i < length; i++) {
+            if (i == length - 3) {
+                continue;
+            }
+            int digit = amount.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_CANONICAL;
+            }
+            cents = cents * 10 + digit;
+        }
+        return cents;
+    }
+
+    /**
+     * Formats cents in the "digits.dd" wire form; the inverse of {@link #parseCents} for canonical amounts.
+     */
+    public static String formatCents(long cents) {
+        long fraction = cents % 100;
+        return (cents / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    public static int countAlphanumeric(String value) {
+        int count = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Length of the value after {@link String#trim()}, without creating the trimmed string.
+     */
+    public static int trimmedLength(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end - start;
+    }
+
+    /**
+     * Day of month of a "yyyy-MM-dd" date. Anything else is left to {@link LocalDate#parse}, which either accepts
+     * it or throws.
+     */
+    public static int dayOfMonth(String date) {
+        if (date.length() == 10 && date.charAt(4) == '-' && date.charAt(7) == '-') {
+            int year = parseDigits(date, 0, 4);
+            int month = parseDigits(date, 5, 7);
+            int day = parseDigits(date, 8, 10);
+            if (year != NOT_CANONICAL && month >= 1 && month <= 12
+                    && day >= 1 && day <= Month.of(month).length(Year.isLeap(year))) {
+                return day;
+            }
+        }
+        return LocalDate.parse(date).getDayOfMonth();
+    }
+
+    /**
+     * Minute of day of a valid "HH:mm" time, or {@link #NOT_CANONICAL}.
+     */
+    public static int minuteOfDay(String time) {
+        if (time.length() == 5 && time.charAt(2) == ':') {
+            int hour = parseDigits(time, 0, 2);
+            int minute = parseDigits(time, 3, 5);
+            if (hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59) {
+                return hour * 60 + minute;
+            }
+        }
+        return NOT_CANONICAL;
+    }
+
+    /**
+     * Formats a minute of day in the "HH:mm" wire form; the inverse of {@link #minuteOfDay}.
+     */
+    public static String formatMinuteOfDay(int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        return new String(new char[]{
+                (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+                (char) ('0' + minute / 10), (char) ('0' + minute % 10)});
+    }
+
+    private static int parseDigits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_CANONICAL;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.receiptprocessor.util;
+
+import com.example.receiptprocessor.dto.ItemRequest;
+import com.example.receiptprocessor.dto.ReceiptRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates a {@link ReceiptRequest} in one pass over its fields, with the constraints of the {@code Receipt} and
+ * {@code Item} entities compiled by hand into character checks: no reflection, no regex matchers and no
+ * violation objects, and nothing is allocated for a valid receipt.
+ * <p>
+ * Errors read exactly like the bean validation errors {@code GlobalExceptionHandler} reports ("field: message"),
+ * in field order. Unlike the entity constraints, items are checked too, as {@code items[i].field}.
+ */
+public final class ReceiptRequestValidator {
+
+    static final String NOT_BLANK = "must not be blank";
+    static final String NOT_NULL = "must not be null";
+    static final String RETAILER = "Retailer must only contain alphanumeric characters, spaces, hyphens, and '&'.";
+    static final String DATE = "Invalid date format (YYYY-MM-DD)";
+    static final String TIME = "Invalid time format (HH:MM)";
+    static final String ITEMS = "At least one item is required";
+    static final String TOTAL = "Total must be in 'xx.xx' format";
+    static final String DESCRIPTION = "Short description must only contain alphanumeric characters, spaces, and hyphens.";
+    static final String PRICE = "Price must be in 'xx.xx' format";
+
+    private ReceiptRequestValidator() {
+    }
+
+    /**
+     * @return the violations, or an empty list if the receipt is valid
+     */
+    public static List<String> validate(ReceiptRequest request) {
+        List<String> errors = null;
+        String retailer = request.getRetailer();
+        errors = notBlank(errors, "retailer", retailer);
+        if (retailer != null && !isWordText(retailer, true)) {
+            errors = add(errors, "retailer", RETAILER);
+        }
+        String purchaseDate = request.getPurchaseDate();
+        errors = notBlank(errors, "purchaseDate", purchaseDate);
+        if (purchaseDate != null && !isDate(purchaseDate)) {
+            errors = add(errors, "purchaseDate", DATE);
+        }
+        String purchaseTime = request.getPurchaseTime();
+        errors = notBlank(errors, "purchaseTime", purchaseTime);
+        if (purchaseTime != null && !isTime(purchaseTime)) {
+            errors = add(errors, "purchaseTime", TIME);
+        }
+        List<ItemRequest> items = request.getItems();
+        if (items == null) {
+            errors = add(errors, "items", NOT_NULL);
+        } else if (items.isEmpty()) {
+            errors = add(errors, "items", ITEMS);
+        } else {
+            for (int i = 0, size = items.size(); i < size; i++) {
+                errors = validateItem(errors, i, items.get(i));
+            }
+        }
+        String total = request.getTotal();
+        if (total != null && !isAmount(total)) {
+            errors = add(errors, "total", TOTAL);
+        }
+        errors = notBlank(errors, "userId", request.getUserId());
+        return errors == null ? List.of() : errors;
+    }
+
+    private static List<String> validateItem(List<String> errors, int index, ItemRequest item) {
+        if (item == null) {
+            return add(errors, "items[" + index + "]", NOT_NULL);
+        }
+        String shortDescription = item.getShortDescription();
+        if (shortDescription == null || ReceiptFields.trimmedLength(shortDescription) == 0) {
+            errors = add(errors, "items[" + index + "].shortDescription", NOT_BLANK);
+        }
+        if (shortDescription != null && !isWordText(shortDescription, false)) {
+            errors = add(errors, "items[" + index + "].shortDescription", DESCRIPTION);
+        }
+        String price = item.getPrice();
+        if (price == null || ReceiptFields.trimmedLength(price) == 0) {
+            errors = add(errors, "items[" + index + "].price", NOT_BLANK);
+        }
+        if (price != null && !isAmount(price)) {
+            errors = add(errors, "items[" + index + "].price", PRICE);
+        }
+        return errors;
+    }
+
+    private static List<String> notBlank(List<String> errors, String field, String value) {
+        return value == null || ReceiptFields.trimmedLength(value) == 0 ? add(errors, field, NOT_BLANK) : errors;
+    }
+
+    private static List<String> add(List<String> errors, String field, String message) {
+        List<String> result = errors == null ? new ArrayList<>(4) : errors;
+        result.add(field + ": " + message);
+        return result;
+    }
+
+    /**
+     * {@code ^[\w\s-]+$}, or {@code ^[\w\s&-]+$} when {@code ampersand} is set.
+     */
+    static boolean isWordText(String value, boolean ampersand) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            boolean word = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+            boolean space = c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+            if (!word && !space && c != '-' && !(ampersand && c == '&')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code ^\d{4}-\d{2}-\d{2}$}: the shape only, as the entity constraint checks it.
+     */
+    static boolean isDate(String value) {
+        return value.length() == 10 && value.charAt(4) == '-' && value.charAt(7) == '-'
+                && digits(value, 0, 4) && digits(value, 5, 7) && digits(value, 8, 10);
+    }
+
+    /**
+     * {@code ^\d{2}:\d{2}$}: the shape only, as the entity constraint checks it.
+     */
+    static boolean isTime(String value) {
+        return value.length() == 5 && value.charAt(2) == ':' && digits(value, 0, 2) && digits(value, 3, 5);
+    }
+
+    /**
+     * {@code ^\d+\.\d{2}$}
+     */
+    static boolean isAmount(String value) {
+        int length = value.length();
+        return length >= 4 && value.charAt(length - 3) == '.'
+                && digits(value, 0, length - 3) && digits(value, length - 2, length);
+    }
+
+    private static boolean digits(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.receiptprocessor.analytics;
+
+import com.example.receiptprocessor.analytics.RetailerWindowAggregator.Granularity;
+import com.example.receiptprocessor.analytics.RetailerWindowAggregator.RetailerCounts;
+import com.example.receiptprocessor.analytics.RetailerWindowAggregator.Window;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+class RetailerWindowAggregatorTest {
+
+    private static final long MINUTE = 60_000;
+    // 2025-03-05T12:00:00Z
+    private static final long NOON = 1_741_176_000_000L;
+
+    @Test
+    void test_recent_CountsPerRetailerInTumblingWindows() {
+        // Arrange: Two retailers in the current minute, one of them also in the minute before.
+        RetailerWindowAggregator aggregator = new RetailerWindowAggregator(60, 48, 30, 1024);
+        aggregator.record("Target", 1, 28, 0, NOON - MINUTE + 5_000);
+        aggregator.record("Target", 1, 20, 0, NOON + 1_000);
+        aggregator.record("Target", 1, 30, 0, NOON + 2_000);
+        aggregator.record("Target", 0, 0, 1, NOON + 3_000);
+        aggregator.record("Walgreens", 1, 15, 0, NOON + 4_000);
+
+        // Act
+        List<Window> minutes = aggregator.recent(Granularity.MINUTE, 3, 10, NOON + 30_000);
+        List<Window> hours = aggregator.recent(Granularity.HOUR, 2, 10, NOON + 30_000);
+
+        // Assert: Newest window first, retailers by receipts, and the hour before noon holds the earlier receipt.
+        Truth.assertThat(minutes).hasSize(3);
+        Window current = minutes.get(0);
+        Truth.assertThat(current.start()).isEqualTo(Instant.ofEpochMilli(NOON));
+        Truth.assertThat(current.end()).isEqualTo(Instant.ofEpochMilli(NOON + MINUTE));
+        Truth.assertThat(current.receipts()).isEqualTo(3L);
+        Truth.assertThat(current.points()).isEqualTo(65L);
+        Truth.assertThat(current.duplicates()).isEqualTo(1L);
+        Truth.assertThat(current.retailers()).containsExactly(new RetailerCounts("Target", 2, 50, 1, 0),
+                new RetailerCounts("Walgreens", 1, 15, 0, 0)).inOrder();
+        Truth.assertThat(minutes.get(1).retailers()).containsExactly(new RetailerCounts("Target", 1, 28, 0, 0));
+        Truth.assertThat(minutes.get(2).receipts()).isEqualTo(0L);
+        Truth.assertThat(hours.get(0).receipts()).isEqualTo(3L);
+        Truth.assertThat(hours.get(1).receipts()).isEqualTo(1L);
+    }
+
+    @Test
+    void test_record_WhenRingWrapsAround_ReusesSlotForNewWindow() {
+        // Arrange: A ring of two minute windows.
+        RetailerWindowAggregator aggregator = new RetailerWindowAggregator(2, 1, 1, 1024);
+        aggregator.record("Target", 1, 10, 0, NOON);
+
+        // Act: Two minutes later the same slot is taken by the new window; a late receipt for the old one is dropped.
+        aggregator.record("Walgreens", 1, 5, 0, NOON + 2 * MINUTE);
+        aggregator.record("Target", 1, 10, 0, NOON + 1_000);
+        List<Window> minutes = aggregator.recent(Granularity.MINUTE, 5, 10, NOON + 2 * MINUTE);
+
+        // Assert: Only as many windows as the ring holds, and the old minute's counts are gone.
+        Truth.assertThat(minutes).hasSize(2);
+        Truth.assertThat(minutes.get(0).retailers()).containsExactly(new RetailerCounts("Walgreens", 1, 5, 0, 0));
+        Truth.assertThat(minutes.get(1).receipts()).isEqualTo(0L);
+    }
+
+    @Test
+    void test_record_BeyondTrackedRetailers_KeepsTotalsExactAndTracksAtMostTheLimit() {
+        // Arrange: Room for one retailer per stripe, 16 in all.
+        RetailerWindowAggregator aggregator = new RetailerWindowAggregator(1, 1, 1, 16);
+
+        // Act: Far more retailers than that.
+        for (int i = 0; i < 500; i++) {
+            aggregator.record("Retailer " + i, 1, 2, 0, NOON);
+        }
+        Window window = aggregator.recent(Granularity.MINUTE, 1, 1000, NOON).get(0);
+
+        // Assert
+        Truth.assertThat(window.receipts()).isEqualTo(500L);
+        Truth.assertThat(window.points()).isEqualTo(1000L);
+        Truth.assertThat(window.retailers().size()).isAtMost(16);
+    }
+
+    @Test
+    void test_record_BusyRetailerAfterBucketsFill_ReplacesLeastBusyAndRanksFirst() {
+        // Arrange: Room for one retailer per stripe, already taken by retailers with one receipt each.
+        RetailerWindowAggregator aggregator = new RetailerWindowAggregator(1, 1, 1, 16);
+        for (int i = 0; i < 500; i++) {
+            aggregator.record("Retailer " + i, 1, 2, 0, NOON);
+        }
+
+        // Act: A retailer only seen after every bucket is full, with far more receipts than the others.
+        for (int i = 0; i < 100; i++) {
+            aggregator.record("Target", 1, 10, 0, NOON);
+        }
+        Window window = aggregator.recent(Granularity.MINUTE, 1, 1, NOON).get(0);
+
+        // Assert: It ranks first, and its counts are the true ones plus what it took over.
+        RetailerCounts top = window.retailers().get(0);
+        Truth.assertThat(top.retailer()).isEqualTo("Target");
+        Truth.assertThat(top.overcount()).isGreaterThan(0L);
+        Truth.assertThat(top.receipts() - top.overcount()).isEqualTo(100L);
+        Truth.assertThat(top.points() - 2 * top.overcount()).isEqualTo(1000L);
+        Truth.assertThat(window.receipts()).isEqualTo(600L);
+    }
+
+    @Test
+    void test_record_FromConcurrentThreads_LosesNoCounts() throws Exception {
+        // Arrange
+        RetailerWindowAggregator aggregator = new RetailerWindowAggregator(60, 48, 30, 1024);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    aggregator.record("Retailer " + (i % 7), 1, 3, 0, NOON);
+                }
+            }));
+        }
+
+        // Act
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        Window day = aggregator.recent(Granularity.DAY, 1, 10, NOON).get(0);
+        Truth.assertThat(day.receipts()).isEqualTo(200_000L);
+        Truth.assertThat(day.points()).isEqualTo(600_000L);
+        Truth.assertThat(day.retailers()).hasSize(7);
+    }
+}
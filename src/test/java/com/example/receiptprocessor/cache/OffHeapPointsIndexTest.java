@@ -0,0 +1,146 @@
+package com.example.receiptprocessor.cache;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapPointsIndexTest {
+
+    @Test
+    void test_getOrDefault_AfterPutAndReplace_ReturnsLatestPoints() {
+        // Arrange
+        OffHeapPointsIndex index = new OffHeapPointsIndex(4, 16);
+        UUID receipt = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        index.put(receipt.getMostSignificantBits(), receipt.getLeastSignificantBits(), 28);
+        index.put(receipt.getMostSignificantBits(), receipt.getLeastSignificantBits(), 109);
+
+        // Act
+        int points = index.getOrDefault(receipt.getMostSignificantBits(), receipt.getLeastSignificantBits(), -1);
+        int missing = index.getOrDefault(other.getMostSignificantBits(), other.getLeastSignificantBits(), -1);
+
+        // Assert
+        Truth.assertThat(points).isEqualTo(109);
+        Truth.assertThat(missing).isEqualTo(-1);
+        Truth.assertThat(index.size()).isEqualTo(1L);
+    }
+
+    @Test
+    void test_putIfAbsent_WithExistingEntry_KeepsItsPoints() {
+        // Arrange
+        OffHeapPointsIndex index = new OffHeapPointsIndex(4, 16);
+        String receipt = UUID.randomUUID().toString();
+        String other = UUID.randomUUID().toString();
+        index.put(receipt, 90);
+
+        // Act
+        index.putIfAbsent(receipt, 28);
+        index.putIfAbsent(other, 28);
+
+        // Assert
+        Truth.assertThat(index.getOrDefault(receipt, -1)).isEqualTo(90);
+        Truth.assertThat(index.getOrDefault(other, -1)).isEqualTo(28);
+    }
+
+    @Test
+    void test_getOrDefault_ByIdString_MatchesUuidBits() {
+        // Arrange: One receipt stored by its ID string, another by its UUID bits.
+        OffHeapPointsIndex index = new OffHeapPointsIndex(4, 16);
+        UUID byString = UUID.randomUUID();
+        UUID byBits = UUID.randomUUID();
+        index.put(byString.toString(), 31);
+        index.put(byBits.getMostSignificantBits(), byBits.getLeastSignificantBits(), 42);
+
+        // Act & Assert: Both spellings reach the same entry; other spellings of the ID are not indexed.
+        Truth.assertThat(index.getOrDefault(byString.getMostSignificantBits(), byString.getLeastSignificantBits(), -1))
+                .isEqualTo(31);
+        Truth.assertThat(index.getOrDefault(byBits.toString(), -1)).isEqualTo(42);
+        Truth.assertThat(index.getOrDefault(byBits.toString().toUpperCase(), -1)).isEqualTo(-1);
+        Truth.assertThat(index.getOrDefault("nonexistent-id", -1)).isEqualTo(-1);
+        assertThrows(IllegalArgumentException.class, () -> index.put("nonexistent-id", 1));
+    }
+
+    @Test
+    void test_put_BeyondInitialCapacity_GrowsAndKeepsEveryEntry() {
+        // Arrange: Far more entries than the tables start with.
+        OffHeapPointsIndex index = new OffHeapPointsIndex(8, 64);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), i);
+        }
+
+        // Act & Assert
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            Truth.assertThat(index.getOrDefault(id.getMostSignificantBits(), id.getLeastSignificantBits(), -1))
+                    .isEqualTo(i);
+        }
+        Truth.assertThat(index.size()).isEqualTo(200_000L);
+        Truth.assertThat(index.offHeapBytes()).isAtLeast(200_000L * 24);
+    }
+
+    @Test
+    void test_getOrDefault_DuringConcurrentPuts_NeverReturnsForeignPoints() throws Exception {
+        // Arrange: Every key's points encode the key, so a torn or misplaced read is detectable.
+        OffHeapPointsIndex index = new OffHeapPointsIndex(2, 16);
+        int keys = 50_000;
+        long[] msbs = new long[keys];
+        long[] lsbs = new long[keys];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < keys; i++) {
+            msbs[i] = random.nextLong() | 1L << 62;
+            lsbs[i] = random.nextLong();
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger wrong = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < keys; i++) {
+                    index.put(msbs[i], lsbs[i], i * 4 + round);
+                }
+            }
+            writing.set(false);
+        });
+
+        // Act: Read all keys while the writer inserts them, grows the tables and rewrites them.
+        writer.start();
+        while (writing.get()) {
+            for (int i = 0; i < keys; i++) {
+                int points = index.getOrDefault(msbs[i], lsbs[i], -1);
+                if (points != -1 && points / 4 != i) {
+                    wrong.incrementAndGet();
+                }
+            }
+        }
+        writer.join();
+
+        // Assert
+        Truth.assertThat(wrong.get()).isEqualTo(0);
+        Truth.assertThat(index.getOrDefault(msbs[keys - 1], lsbs[keys - 1], -1)).isEqualTo((keys - 1) * 4 + 2);
+    }
+
+    @Test
+    void test_put_ZeroHighBits_Rejected() {
+        OffHeapPointsIndex index = new OffHeapPointsIndex(1, 16);
+
+        assertThrows(IllegalArgumentException.class, () -> index.put(0, 42, 5));
+    }
+
+    @Test
+    void test_isCanonicalUuid_OnlyLowerCaseFullLength() {
+        Truth.assertThat(OffHeapPointsIndex.isCanonicalUuid("7fb1377b-b223-49d9-a31a-5a02701dd310")).isTrue();
+        Truth.assertThat(OffHeapPointsIndex.isCanonicalUuid("7FB1377B-B223-49D9-A31A-5A02701DD310")).isFalse();
+        Truth.assertThat(OffHeapPointsIndex.isCanonicalUuid("1-1-1-1-1")).isFalse();
+        Truth.assertThat(OffHeapPointsIndex.isCanonicalUuid("nonexistent-id")).isFalse();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.receiptprocessor.cache;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+class PointsCacheTest {
+
+    @Test
+    void test_fill_AfterRescoreInvalidatedSinceRead_KeepsOldPointsOut() {
+        // Arrange: A read misses and loads the old points, then a re-score commits new points before it fills.
+        PointsCache cache = new PointsCache(1000, 1 << 20, false, 1, 16);
+        String id = UUID.randomUUID().toString();
+        long stamp = cache.fillStamp();
+        cache.invalidateAfterCommit(id, 90);
+
+        // Act: The read fills with the points it loaded.
+        cache.fill(id, 28, stamp);
+
+        // Assert: Nothing stale is cached; the next read goes to the store.
+        Truth.assertThat(cache.get(id)).isNull();
+    }
+
+    @Test
+    void test_fill_WithoutInvalidationSinceRead_CachesPoints() {
+        // Arrange
+        PointsCache cache = new PointsCache(1000, 1 << 20, false, 1, 16);
+        String id = UUID.randomUUID().toString();
+        long stamp = cache.fillStamp();
+
+        // Act
+        cache.fill(id, 28, stamp);
+
+        // Assert
+        Truth.assertThat(cache.get(id)).isEqualTo(28);
+    }
+
+    @Test
+    void test_invalidateAfterCommit_AfterFill_DropsFilledPoints() {
+        // Arrange: A read fills the old points just before a re-score commits.
+        PointsCache cache = new PointsCache(1000, 1 << 20, false, 1, 16);
+        String id = UUID.randomUUID().toString();
+        cache.fill(id, 28, cache.fillStamp());
+
+        // Act
+        cache.invalidateAfterCommit(id, 90);
+
+        // Assert
+        Truth.assertThat(cache.get(id)).isNull();
+    }
+
+    @Test
+    void test_fill_OffHeapAfterRescoreSinceRead_KeepsRescoredPoints() {
+        // Arrange: The same interleaving with the off-heap index, which takes the re-scored points.
+        PointsCache cache = new PointsCache(1000, 1 << 20, true, 1, 16);
+        String id = UUID.randomUUID().toString();
+        long stamp = cache.fillStamp();
+        cache.invalidateAfterCommit(id, 90);
+
+        // Act
+        cache.fill(id, 28, stamp);
+
+        // Assert
+        Truth.assertThat(cache.get(id)).isEqualTo(90);
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -96,4 +97,107 @@ class ReceiptControllerTest {
         String content = mvcResult.getResponse().getContentAsString();
         Truth.assertThat(content).isEqualTo("Receipt with ID 'invalid-id' not found");
     }
+
+    @Test
+    void test_storeReceipts_WithValidBatch_ReturnsOneIdPerReceipt() throws Exception {
+        // Arrange: A batch of two distinct receipts.
+        Receipt other = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        other.setRetailer("Walgreens");
+
+        // Act: Perform a POST request to /receipts/process/batch.
+        MvcResult mvcResult = mockMvc.perform(post("/receipts/process/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(testReceipt, other))))
+                .andReturn();
+
+        // Assert: Status 200 and one distinct id per input.
+        Truth.assertThat(mvcResult.getResponse().getStatus()).isEqualTo(200);
+        List<Map<String, String>> responses = objectMapper.readValue(mvcResult.getResponse().getContentAsString(),
+                new TypeReference<List<Map<String, String>>>() {});
+        Truth.assertThat(responses).hasSize(2);
+        Truth.assertThat(responses.get(0).get("id")).isNotEqualTo(responses.get(1).get("id"));
+    }
+
+    @Test
+    void test_storeReceipt_WithInvalidReceipt_ReturnsValidationErrors() throws Exception {
+        // Arrange: A receipt with an invalid purchase date and no user.
+        testReceipt.setPurchaseDate("01/01/2022");
+        testReceipt.setUserId(null);
+
+        // Act: Perform a POST request to /receipts/process.
+        MvcResult mvcResult = mockMvc.perform(post("/receipts/process")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testReceipt)))
+                .andReturn();
+
+        // Assert: Status 400 with one "field: message" entry per violation.
+        Truth.assertThat(mvcResult.getResponse().getStatus()).isEqualTo(400);
+        List<String> errors = objectMapper.readValue(mvcResult.getResponse().getContentAsString(),
+                new TypeReference<List<String>>() {});
+        Truth.assertThat(errors).containsExactly("purchaseDate: Invalid date format (YYYY-MM-DD)",
+                "userId: must not be blank");
+    }
+
+    @Test
+    void test_storeReceipts_WithInvalidReceipt_ReturnsBadRequest() throws Exception {
+        // Arrange: A batch containing a receipt with an invalid purchase date.
+        Receipt invalid = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        invalid.setPurchaseDate("01/01/2022");
+
+        // Act: Perform a POST request to /receipts/process/batch.
+        MvcResult mvcResult = mockMvc.perform(post("/receipts/process/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(testReceipt, invalid))))
+                .andReturn();
+
+        // Assert: The whole batch is rejected with a validation error.
+        Truth.assertThat(mvcResult.getResponse().getStatus()).isEqualTo(400);
+        Truth.assertThat(mvcResult.getResponse().getContentAsString()).contains("Invalid date format (YYYY-MM-DD)");
+    }
+
+    @Test
+    void test_importReceipts_WithNdjsonBody_ReturnsImportReport() throws Exception {
+        // Arrange: Two receipts, one per line.
+        Receipt other = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        other.setRetailer("Walgreens");
+        String ndjson = objectMapper.writeValueAsString(testReceipt) + "\n" + objectMapper.writeValueAsString(other) + "\n";
+
+        // Act: Perform a POST request to /receipts/import.
+        MvcResult mvcResult = mockMvc.perform(post("/receipts/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andReturn();
+
+        // Assert: Status 200 and both receipts imported.
+        Truth.assertThat(mvcResult.getResponse().getStatus()).isEqualTo(200);
+        Map<String, Object> report = objectMapper.readValue(mvcResult.getResponse().getContentAsString(),
+                new TypeReference<Map<String, Object>>() {});
+        Truth.assertThat(report.get("imported")).isEqualTo(2);
+        Truth.assertThat(report.get("rejected")).isEqualTo(0);
+    }
+
+    @Test
+    void test_getUserPoints_AfterStoringReceipt_ReturnsUserTotal() throws Exception {
+        // Arrange: Store a receipt for a user without other receipts and read its points.
+        testReceipt.setUserId("controllerTotalUser");
+        MvcResult processResult = mockMvc.perform(post("/receipts/process")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testReceipt)))
+                .andReturn();
+        String receiptId = objectMapper.readValue(processResult.getResponse().getContentAsString(),
+                new TypeReference<Map<String, String>>() {}).get("id");
+        MvcResult pointsResult = mockMvc.perform(get("/receipts/" + receiptId + "/points")).andReturn();
+        Map<String, Integer> receiptPoints = objectMapper.readValue(pointsResult.getResponse().getContentAsString(),
+                new TypeReference<Map<String, Integer>>() {});
+
+        // Act: Perform a GET request to /users/{userId}/points.
+        MvcResult mvcResult = mockMvc.perform(get("/users/controllerTotalUser/points")).andReturn();
+
+        // Assert: Status 200 and the user's total equals the points of their only receipt.
+        Truth.assertThat(mvcResult.getResponse().getStatus()).isEqualTo(200);
+        Map<String, Object> response = objectMapper.readValue(mvcResult.getResponse().getContentAsString(),
+                new TypeReference<Map<String, Object>>() {});
+        Truth.assertThat(response.get("userId")).isEqualTo("controllerTotalUser");
+        Truth.assertThat(response.get("points")).isEqualTo(receiptPoints.get("points"));
+    }
 }
@@ -0,0 +1,99 @@
+package com.example.receiptprocessor.dedup;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    @Test
+    void test_run_OverlappingCallsForSameKey_RunOnceAndShareResult() throws Exception {
+        // Arrange: The first call blocks until the test releases it.
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        int callers = 8;
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Act: Release the call once the other callers have had time to join it.
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> singleFlight.run("key", () -> {
+                runs.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return 42;
+            })));
+        }
+        Thread.sleep(200);
+        release.countDown();
+        List<Integer> values = new ArrayList<>();
+        for (Future<Integer> result : results) {
+            values.add(result.get());
+        }
+        executor.shutdown();
+
+        // Assert: One run, every caller got its result, and nothing is left in flight.
+        Truth.assertThat(runs.get()).isEqualTo(1);
+        Truth.assertThat(values).containsExactly(42, 42, 42, 42, 42, 42, 42, 42);
+        Truth.assertThat(singleFlight.coalesced()).isEqualTo(7L);
+        Truth.assertThat(singleFlight.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    void test_run_AfterCallFinished_RunsAgain() {
+        // Arrange
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger runs = new AtomicInteger();
+
+        // Act
+        singleFlight.run("key", runs::incrementAndGet);
+        int second = singleFlight.run("key", runs::incrementAndGet);
+
+        // Assert
+        Truth.assertThat(second).isEqualTo(2);
+        Truth.assertThat(singleFlight.coalesced()).isEqualTo(0L);
+    }
+
+    @Test
+    void test_run_WhenRunningCallFails_WaitingCallerMakesOwnAttempt() throws Exception {
+        // Arrange: The first call fails once a second caller is waiting on it.
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> first = executor.submit(() -> singleFlight.run("key", () -> {
+            firstRunning.countDown();
+            try {
+                fail.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new IllegalStateException("first caller failed");
+        }));
+        firstRunning.await();
+        Future<String> second = executor.submit(() -> singleFlight.run("key", () -> "stored"));
+
+        // Act
+        Thread.sleep(100);
+        fail.countDown();
+
+        // Assert: The failure stays with the first caller; the second stores on its own.
+        Exception failure = assertThrows(Exception.class, first::get);
+        Truth.assertThat(failure.getCause().getMessage()).isEqualTo("first caller failed");
+        Truth.assertThat(second.get()).isEqualTo("stored");
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.receiptprocessor.leaderboard;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class PointsLeaderboardTest {
+
+    @Test
+    void test_top_AfterUpdates_ReturnsUsersByPointsThenUserId() {
+        // Arrange
+        PointsLeaderboard leaderboard = new PointsLeaderboard(null, null, 1024);
+        leaderboard.set("alice", 300);
+        leaderboard.set("bob", 500);
+        leaderboard.set("carol", 300);
+        leaderboard.set("dave", 100);
+
+        // Act: Bob drops behind the others, Dave overtakes everyone.
+        leaderboard.set("bob", 200);
+        leaderboard.set("dave", 900);
+        List<PointsLeaderboard.Standing> top = leaderboard.top(3);
+
+        // Assert
+        Truth.assertThat(top).containsExactly(new PointsLeaderboard.Standing("dave", 900),
+                new PointsLeaderboard.Standing("alice", 300), new PointsLeaderboard.Standing("carol", 300)).inOrder();
+        Truth.assertThat(leaderboard.top(10)).hasSize(4);
+        Truth.assertThat(leaderboard.size()).isEqualTo(4);
+        Truth.assertThat(leaderboard.pointsOf("bob")).isEqualTo(200L);
+        Truth.assertThat(leaderboard.pointsOf("erin")).isNull();
+    }
+
+    @Test
+    void test_rankOf_CountsUsersWithMorePoints() {
+        // Arrange: Two users above the rank index bound of 1000 points and three below it.
+        PointsLeaderboard leaderboard = new PointsLeaderboard(null, null, 1000);
+        leaderboard.set("a", 5000);
+        leaderboard.set("b", 1000);
+        leaderboard.set("c", 700);
+        leaderboard.set("d", 700);
+        leaderboard.set("e", 0);
+
+        // Act & Assert: Ties share a rank, and points nobody has rank behind everyone with more.
+        Truth.assertThat(leaderboard.rankOf(5000)).isEqualTo(1L);
+        Truth.assertThat(leaderboard.rankOf(1000)).isEqualTo(2L);
+        Truth.assertThat(leaderboard.rankOf(999)).isEqualTo(3L);
+        Truth.assertThat(leaderboard.rankOf(700)).isEqualTo(3L);
+        Truth.assertThat(leaderboard.rankOf(0)).isEqualTo(5L);
+        Truth.assertThat(leaderboard.rankOf(10_000)).isEqualTo(1L);
+
+        // Moving a user across the bound moves every rank it passes.
+        leaderboard.set("a", 10);
+        Truth.assertThat(leaderboard.rankOf(1000)).isEqualTo(1L);
+        Truth.assertThat(leaderboard.rankOf(10)).isEqualTo(4L);
+        Truth.assertThat(leaderboard.rankOf(0)).isEqualTo(5L);
+    }
+
+    @Test
+    void test_rankOf_MatchesSortedTotals() {
+        // Arrange: Random totals, some of them updated again.
+        PointsLeaderboard leaderboard = new PointsLeaderboard(null, null, 4096);
+        SplittableRandom random = new SplittableRandom(11);
+        long[] points = new long[2000];
+        for (int round = 0; round < 2; round++) {
+            for (int user = 0; user < points.length; user++) {
+                points[user] = random.nextInt(5000);
+                leaderboard.set("user-" + user, points[user]);
+            }
+        }
+
+        // Act & Assert
+        for (int user = 0; user < points.length; user += 97) {
+            long above = 0;
+            for (long other : points) {
+                if (other > points[user]) {
+                    above++;
+                }
+            }
+            Truth.assertThat(leaderboard.rankOf(points[user])).isEqualTo(above + 1);
+        }
+    }
+
+    @Test
+    void test_top_DuringConcurrentUpdates_NeverRepeatsOrDropsUsers() throws Exception {
+        // Arrange: Ten users whose points keep changing on two writer threads.
+        PointsLeaderboard leaderboard = new PointsLeaderboard(null, null, 1024);
+        for (int user = 0; user < 10; user++) {
+            leaderboard.set("user-" + user, user);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            int seed = w;
+            writers.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    leaderboard.set("user-" + random.nextInt(10), random.nextInt(2000));
+                }
+            }));
+        }
+        AtomicInteger wrongSize = new AtomicInteger();
+
+        // Act
+        writers.forEach(Thread::start);
+        Thread monitor = new Thread(() -> {
+            for (Thread writer : writers) {
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writing.set(false);
+        });
+        monitor.start();
+        while (writing.get()) {
+            if (leaderboard.top(10).size() != 10) {
+                wrongSize.incrementAndGet();
+            }
+        }
+        monitor.join();
+
+        // Assert: Every read saw each user exactly once, and the final state holds one standing per user.
+        Truth.assertThat(wrongSize.get()).isEqualTo(0);
+        Truth.assertThat(leaderboard.top(20)).hasSize(10);
+        Truth.assertThat(leaderboard.rankOf(Long.MAX_VALUE)).isEqualTo(1L);
+        Truth.assertThat(leaderboard.rankOf(-1)).isEqualTo(11L);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.receiptprocessor.migration;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class V1__TypedReceiptColumnsTest {
+
+    @Test
+    void test_migrate_WithTextColumns_ConvertsValuesAndRebuildsUniqueConstraint() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "");
+             Statement statement = connection.createStatement()) {
+            // Arrange: The schema as it was created with text columns, with one receipt and its item.
+            statement.execute("create table receipt (id varchar(255) primary key, retailer varchar(255), "
+                    + "purchase_date varchar(255), purchase_time varchar(255), total varchar(255), user_id varchar(255), "
+                    + "constraint uk_text_key unique (retailer, purchase_date, purchase_time))");
+            statement.execute("create table item (id bigint primary key, receipt_id varchar(255) not null "
+                    + "references receipt (id), short_description varchar(255), price varchar(255))");
+            statement.execute("create table pending_receipt (id varchar(255) primary key, partition_id integer, "
+                    + "retailer varchar(255), purchase_date varchar(255), purchase_time varchar(255), payload clob, "
+                    + "enqueued_at bigint, error varchar(255), "
+                    + "constraint uk_pending_text_key unique (retailer, purchase_date, purchase_time))");
+            statement.execute("insert into receipt values ('r1', 'Target', '2022-01-01', '13:01', '35.35', 'u1')");
+            statement.execute("insert into item values (1, 'r1', 'Pepsi - 12-oz', '1.25')");
+            statement.execute("insert into pending_receipt values ('p1', 0, 'Walgreens', '2022-01-02', '08:13', '{}', 0, null)");
+
+            // Act: Run the migration.
+            new V1__TypedReceiptColumns().migrate(connection);
+
+            // Assert: Values are stored typed and the text columns are gone.
+            try (ResultSet receipt = statement.executeQuery(
+                    "select purchase_day, purchase_minute, total_cents from receipt where id = 'r1'")) {
+                Truth.assertThat(receipt.next()).isTrue();
+                Truth.assertThat(receipt.getInt(1)).isEqualTo(18993);
+                Truth.assertThat(receipt.getInt(2)).isEqualTo(781);
+                Truth.assertThat(receipt.getLong(3)).isEqualTo(3535L);
+            }
+            try (ResultSet item = statement.executeQuery("select price_cents from item where id = 1")) {
+                Truth.assertThat(item.next()).isTrue();
+                Truth.assertThat(item.getLong(1)).isEqualTo(125L);
+            }
+            try (ResultSet pending = statement.executeQuery(
+                    "select purchase_day, purchase_minute from pending_receipt where id = 'p1'")) {
+                Truth.assertThat(pending.next()).isTrue();
+                Truth.assertThat(pending.getInt(1)).isEqualTo(18994);
+                Truth.assertThat(pending.getInt(2)).isEqualTo(493);
+            }
+            assertThrows(SQLException.class, () -> statement.executeQuery("select total from receipt"));
+
+            // The duplicate-detection key is enforced on the typed columns.
+            assertThrows(SQLException.class, () -> statement.execute(
+                    "insert into receipt (id, retailer, purchase_day, purchase_minute) values ('r2', 'Target', 18993, 781)"));
+        }
+    }
+
+    @Test
+    void test_migrate_WithoutTextColumns_DoesNothing() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "")) {
+            // Arrange & Act: A new, empty database.
+            new V1__TypedReceiptColumns().migrate(connection);
+
+            // Assert: No tables were created; Hibernate creates the typed schema.
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, "RECEIPT", null)) {
+                Truth.assertThat(tables.next()).isFalse();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.receiptprocessor.migration;
+
+import com.example.receiptprocessor.model.ReceiptIdGenerator;
+import com.example.receiptprocessor.shard.ShardRouter;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class V2__ShardTaggedItemIdsTest {
+
+    @Test
+    void test_migrate_WithNumericItemIds_ReplacesThemWithIdsTaggedForTheBoundShard() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "");
+             Statement statement = connection.createStatement()) {
+            // Arrange: Items numbered by the old sequence, on shard 2 of 4.
+            statement.execute("create table receipt (id varchar(255) primary key)");
+            statement.execute("create table item (id bigint primary key, receipt_id varchar(255) not null "
+                    + "references receipt (id), short_description varchar(255), price_cents bigint)");
+            statement.execute("create sequence item_seq start with 1 increment by 50");
+            statement.execute("insert into receipt values ('r1')");
+            statement.execute("insert into item values (1, 'r1', 'Pepsi - 12-oz', 125), (2, 'r1', 'Dasani', 140)");
+
+            // Act
+            new ShardRouter(4).onShard(2, () -> {
+                try {
+                    new V2__ShardTaggedItemIds().migrate(connection);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+
+            // Assert: The items keep their columns and order under new IDs of shard 2, and the sequence is gone.
+            List<String> ids = new ArrayList<>();
+            try (ResultSet items = statement.executeQuery(
+                    "select id, receipt_id, short_description, price_cents from item order by id")) {
+                while (items.next()) {
+                    ids.add(items.getString(1));
+                    Truth.assertThat(items.getString(2)).isEqualTo("r1");
+                }
+            }
+            Truth.assertThat(ids).hasSize(2);
+            for (String id : ids) {
+                Truth.assertThat(ReceiptIdGenerator.shardTag(id)).isEqualTo(2);
+            }
+            try (ResultSet first = statement.executeQuery("select short_description from item where id = '"
+                    + ids.get(0) + "'")) {
+                Truth.assertThat(first.next()).isTrue();
+                Truth.assertThat(first.getString(1)).isEqualTo("Pepsi - 12-oz");
+            }
+            assertThrows(SQLException.class, () -> statement.execute(
+                    "insert into item values ('" + ids.get(0) + "', 'r1', 'Copy', 1)"));
+            assertThrows(SQLException.class, () -> statement.executeQuery("select next value for item_seq"));
+        }
+    }
+
+    @Test
+    void test_migrate_WithoutItemTable_DoesNothing() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "")) {
+            // Arrange & Act: A new, empty database.
+            new V2__ShardTaggedItemIds().migrate(connection);
+
+            // Assert: No tables were created; Hibernate creates the item table with text IDs.
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, "ITEM", null)) {
+                Truth.assertThat(tables.next()).isFalse();
+            }
+        }
+    }
+}
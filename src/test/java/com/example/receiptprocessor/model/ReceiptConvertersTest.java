@@ -0,0 +1,53 @@
+package com.example.receiptprocessor.model;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReceiptConvertersTest {
+
+    private final CentsConverter cents = new CentsConverter();
+    private final EpochDayConverter epochDay = new EpochDayConverter();
+    private final MinuteOfDayConverter minuteOfDay = new MinuteOfDayConverter();
+
+    @Test
+    void test_centsConverter_RoundTripsWireAmounts() {
+        // Act & Assert: Amounts are stored as cents and read back in wire form.
+        Truth.assertThat(cents.convertToDatabaseColumn("35.35")).isEqualTo(3535L);
+        Truth.assertThat(cents.convertToDatabaseColumn("0.05")).isEqualTo(5L);
+        Truth.assertThat(cents.convertToEntityAttribute(3535L)).isEqualTo("35.35");
+        Truth.assertThat(cents.convertToEntityAttribute(5L)).isEqualTo("0.05");
+        Truth.assertThat(cents.convertToEntityAttribute(100L)).isEqualTo("1.00");
+        Truth.assertThat(cents.convertToDatabaseColumn(null)).isNull();
+        Truth.assertThat(cents.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    void test_epochDayConverter_RoundTripsWireDates() {
+        // Act & Assert: Dates are stored as days since 1970-01-01.
+        Truth.assertThat(epochDay.convertToDatabaseColumn("1970-01-02")).isEqualTo(1);
+        Truth.assertThat(epochDay.convertToEntityAttribute(epochDay.convertToDatabaseColumn("2022-01-01")))
+                .isEqualTo("2022-01-01");
+        Truth.assertThat(epochDay.convertToEntityAttribute(epochDay.convertToDatabaseColumn("2024-02-29")))
+                .isEqualTo("2024-02-29");
+    }
+
+    @Test
+    void test_minuteOfDayConverter_RoundTripsWireTimes() {
+        // Act & Assert: Times are stored as minutes since midnight.
+        Truth.assertThat(minuteOfDay.convertToDatabaseColumn("13:01")).isEqualTo((short) 781);
+        Truth.assertThat(minuteOfDay.convertToEntityAttribute((short) 781)).isEqualTo("13:01");
+        Truth.assertThat(minuteOfDay.convertToEntityAttribute((short) 0)).isEqualTo("00:00");
+        Truth.assertThat(minuteOfDay.convertToEntityAttribute((short) 1439)).isEqualTo("23:59");
+    }
+
+    @Test
+    void test_converters_WithValuesOffTheCalendar_ThrowDateTimeParseException() {
+        // Act & Assert: Values that match the wire pattern but are not real dates or times cannot be stored.
+        assertThrows(DateTimeParseException.class, () -> epochDay.convertToDatabaseColumn("2022-02-30"));
+        assertThrows(DateTimeParseException.class, () -> minuteOfDay.convertToDatabaseColumn("24:00"));
+    }
+}
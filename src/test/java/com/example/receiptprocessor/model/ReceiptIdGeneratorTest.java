@@ -0,0 +1,80 @@
+package com.example.receiptprocessor.model;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ReceiptIdGeneratorTest {
+
+    @Test
+    void test_newId_IsCanonicalVersion7UuidWithCurrentTimestamp() {
+        // Arrange
+        long before = System.currentTimeMillis();
+
+        // Act
+        String id = ReceiptIdGenerator.newId();
+
+        // Assert
+        UUID uuid = UUID.fromString(id);
+        Truth.assertThat(uuid.toString()).isEqualTo(id);
+        Truth.assertThat(uuid.version()).isEqualTo(7);
+        Truth.assertThat(uuid.variant()).isEqualTo(2);
+        Truth.assertThat(uuid.getMostSignificantBits() >>> 16).isAtLeast(before);
+        Truth.assertThat(uuid.getMostSignificantBits() >>> 16).isAtMost(System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void test_newId_AcrossThreads_IdsAreUniqueAndIncreasePerThread() throws Exception {
+        // Arrange: Far more IDs per thread than fit in one millisecond's counter.
+        int threads = 4;
+        int perThread = 50_000;
+        ConcurrentHashMap<String, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                String previous = "";
+                for (int i = 0; i < perThread; i++) {
+                    String id = ReceiptIdGenerator.newId();
+                    seen.put(id, Boolean.TRUE);
+                    if (id.compareTo(previous) <= 0) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    previous = id;
+                }
+            }));
+        }
+
+        // Act
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Assert: The ID strings sort in the order each thread received them.
+        Truth.assertThat(seen.size()).isEqualTo(threads * perThread);
+        Truth.assertThat(outOfOrder.get()).isEqualTo(0);
+    }
+
+    @Test
+    void test_shardTag_WithIdOfEveryShard_ReadsTheShardBack() {
+        for (int shard = 0; shard < 256; shard++) {
+            // Act
+            UUID uuid = ReceiptIdGenerator.newUuid(shard);
+
+            // Assert: Still a version 7 UUID.
+            Truth.assertThat(uuid.version()).isEqualTo(7);
+            Truth.assertThat(uuid.variant()).isEqualTo(2);
+            Truth.assertThat(ReceiptIdGenerator.shardTag(uuid.toString())).isEqualTo(shard);
+        }
+        Truth.assertThat(ReceiptIdGenerator.shardTag("not-a-receipt-id")).isEqualTo(-1);
+        Truth.assertThat(ReceiptIdGenerator.shardTag("0190a6e2-7c4d-7abc-zzzz-0123456789ab")).isEqualTo(-1);
+    }
+}
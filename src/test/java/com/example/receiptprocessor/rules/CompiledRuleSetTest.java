@@ -0,0 +1,124 @@
+package com.example.receiptprocessor.rules;
+
+import com.example.receiptprocessor.dto.BonusCalculationRequest;
+import com.example.receiptprocessor.exception.InvalidRuleSetException;
+import com.example.receiptprocessor.metrics.RuleHitCounters;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.util.PointsCalculator;
+import com.example.receiptprocessor.util.RandomReceipts;
+import com.example.receiptprocessor.util.TestUtils;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Differential test of the default rule set against the hand-written {@link PointsCalculator}.
+ */
+class CompiledRuleSetTest {
+
+    private static final int RANDOM_RECEIPTS = 20_000;
+
+    private RuleHitCounters counters;
+    private CompiledRuleSet defaultRules;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        counters = new RuleHitCounters();
+        defaultRules = RuleSetCompiler.compile(TestUtils.loadJson("points-rules.json", RuleSetDefinition.class), counters);
+    }
+
+    @Test
+    void test_basePoints_DefaultRulesOnRandomReceipts_MatchPointsCalculator() {
+        // Arrange: A fixed seed keeps failures reproducible.
+        Random random = new Random(20250302L);
+
+        for (int i = 0; i < RANDOM_RECEIPTS; i++) {
+            Receipt receipt = RandomReceipts.receipt(random);
+
+            // Act
+            int actual = defaultRules.basePoints(receipt);
+
+            // Assert: The compiled rules and the hand-written rules agree on every receipt.
+            Truth.assertWithMessage(RandomReceipts.describe(receipt)).that(actual)
+                    .isEqualTo(PointsCalculator.calculateBasePoints(receipt));
+        }
+    }
+
+    @Test
+    void test_bonusPoints_DefaultRules_MatchPointsCalculator() {
+        for (long receiptCount = 0; receiptCount <= 6; receiptCount++) {
+            // Act & Assert
+            Truth.assertThat(defaultRules.bonusPoints(receiptCount))
+                    .isEqualTo(PointsCalculator.calculateBonusPoints(new BonusCalculationRequest(receiptCount)));
+        }
+    }
+
+    @Test
+    void test_basePoints_MeetAllRules_CountsEveryRule() throws Exception {
+        // Arrange: A receipt that meets all rules, two of its three items by description length.
+        Receipt receipt = TestUtils.loadJson("testReceipt_AllRules.json", Receipt.class);
+
+        // Act
+        defaultRules.points(receipt, 1);
+
+        // Assert: Every rule fired once, the description rule once per qualifying item.
+        for (String rule : List.of("retailer_name", "round_dollar_total", "quarter_multiple_total", "item_pairs",
+                "odd_purchase_day", "afternoon_purchase")) {
+            Truth.assertWithMessage(rule).that(counters.rule(rule).sum()).isEqualTo(1L);
+        }
+        Truth.assertThat(counters.rule("item_description").sum()).isEqualTo(2L);
+        Truth.assertThat(counters.bonusTier("first_receipt").sum()).isEqualTo(1L);
+    }
+
+    @Test
+    void test_basePoints_WithCustomRules_AppliesConfiguredParameters() throws Exception {
+        // Arrange: Double points per retailer character and an evening window instead of the afternoon one.
+        RuleSetDefinition definition = new RuleSetDefinition();
+        definition.setName("evening");
+        definition.setRules(List.of(
+                rule("retailer", "retailer-alphanumeric", r -> r.setPoints(2)),
+                rule("evening", "purchase-time-window", r -> {
+                    r.setAfter("18:00");
+                    r.setBefore("21:00");
+                    r.setPoints(40);
+                })));
+        definition.setReceiptCountBonuses(List.of(7));
+        CompiledRuleSet rules = RuleSetCompiler.compile(definition, counters);
+        Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt.setRetailer("Target");
+        receipt.setPurchaseTime("19:30");
+
+        // Act & Assert: 6 characters x 2 points, the evening window, and the first-receipt bonus.
+        Truth.assertThat(rules.points(receipt, 1)).isEqualTo(12 + 40 + 7);
+        Truth.assertThat(rules.points(receipt, 2)).isEqualTo(12 + 40);
+    }
+
+    @Test
+    void test_compile_WithInvalidRule_ThrowsInvalidRuleSetException() {
+        // Arrange: A total multiple that is not a whole number of cents.
+        RuleSetDefinition definition = new RuleSetDefinition();
+        definition.setRules(List.of(rule("eighth", "total-multiple", r -> {
+            r.setMultiple("0.125");
+            r.setPoints(5);
+        })));
+
+        // Act & Assert
+        InvalidRuleSetException e = assertThrows(InvalidRuleSetException.class,
+                () -> RuleSetCompiler.compile(definition, counters));
+        Truth.assertThat(e.getMessage()).isEqualTo("Rule 'eighth': 'multiple' must be a positive whole number of cents");
+    }
+
+    private static RuleDefinition rule(String name, String type, Consumer<RuleDefinition> parameters) {
+        RuleDefinition rule = new RuleDefinition();
+        rule.setName(name);
+        rule.setType(type);
+        parameters.accept(rule);
+        return rule;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.receiptprocessor.rules;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class InvariantDivisorTest {
+
+    @Test
+    void test_divideAndDivides_MatchHardwareDivision() {
+        // Arrange: Small, odd, power-of-two and near-32-bit divisors, with dividends on both sides of 2^32.
+        long[] divisors = {1, 2, 3, 5, 7, 25, 100, 500, 1024, 65_537, 0xFFFFFFFFL, 0x100000000L};
+        Random random = new Random(20250302L);
+
+        for (long divisor : divisors) {
+            InvariantDivisor invariant = new InvariantDivisor(divisor);
+            for (int i = 0; i < 20_000; i++) {
+                long dividend = switch (i % 4) {
+                    case 0 -> i;
+                    case 1 -> random.nextLong(0x100000000L);
+                    case 2 -> divisor * random.nextLong(0x100000000L / divisor + 1);
+                    default -> random.nextLong(Long.MAX_VALUE);
+                };
+
+                // Act & Assert: Both fast and fallback paths agree with / and %.
+                Truth.assertThat(invariant.divide(dividend)).isEqualTo(dividend / divisor);
+                Truth.assertThat(invariant.divides(dividend)).isEqualTo(dividend % divisor == 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.receiptprocessor.service;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+class NdjsonLineReaderTest {
+
+    @Test
+    void test_readLine_WithMixedTerminators_ReturnsLinesWithoutThem() throws Exception {
+        // Arrange
+        NdjsonLineReader reader = new NdjsonLineReader(new StringReader("{\"a\":1}\r\n\n{\"b\":2}"), 100);
+
+        // Act / Assert: CRLF, an empty line, and a last line without a terminator.
+        Truth.assertThat(reader.readLine()).isEqualTo("{\"a\":1}");
+        Truth.assertThat(reader.readLine()).isEqualTo("");
+        Truth.assertThat(reader.readLine()).isEqualTo("{\"b\":2}");
+        Truth.assertThat(reader.readLine()).isNull();
+    }
+
+    @Test
+    void test_readLine_LineOverCapAcrossBuffers_SkipsItAndReadsTheNext() throws Exception {
+        // Arrange: A line spanning several 8 KiB reads, between two short ones.
+        String input = "short\n" + "x".repeat(50_000) + "\nnext\n";
+        NdjsonLineReader reader = new NdjsonLineReader(new StringReader(input), 10_000);
+
+        // Act / Assert
+        Truth.assertThat(reader.readLine()).isEqualTo("short");
+        Truth.assertThat(reader.tooLong()).isFalse();
+        Truth.assertThat(reader.readLine()).isEqualTo("");
+        Truth.assertThat(reader.tooLong()).isTrue();
+        Truth.assertThat(reader.readLine()).isEqualTo("next");
+        Truth.assertThat(reader.tooLong()).isFalse();
+        Truth.assertThat(reader.readLine()).isNull();
+    }
+
+    @Test
+    void test_readLine_LineExactlyAtCap_ReturnsIt() throws Exception {
+        // Arrange
+        NdjsonLineReader reader = new NdjsonLineReader(new StringReader("abcde\r\nabcdef\n"), 5);
+
+        // Act / Assert
+        Truth.assertThat(reader.readLine()).isEqualTo("abcde");
+        Truth.assertThat(reader.tooLong()).isFalse();
+        Truth.assertThat(reader.readLine()).isEqualTo("");
+        Truth.assertThat(reader.tooLong()).isTrue();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.dto.ReceiptIdResponse;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.util.TestUtils;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+@SpringBootTest
+@Transactional // Ensures that each test runs in isolation
+class ReceiptExportServiceTest {
+
+    @Autowired
+    private ReceiptExportService receiptExportService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Test
+    void test_export_Csv_WritesHeaderAndStoredReceipt() throws Exception {
+        // Arrange: Store a receipt that meets all rules for a new user.
+        Receipt receipt = TestUtils.loadJson("testReceipt_AllRules.json", Receipt.class);
+        receipt.setUserId("testUserExport1");
+        ReceiptIdResponse response = receiptService.storeReceipt(receipt);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act: Export as CSV.
+        long rows = receiptExportService.export(ReceiptExportService.Format.CSV, out);
+
+        // Assert: Header first, then one line per receipt with its points.
+        String csv = out.toString(StandardCharsets.UTF_8);
+        Truth.assertThat(rows).isAtLeast(1);
+        Truth.assertThat(csv).startsWith("id,userId,retailer,purchaseDate,points\n");
+        Truth.assertThat(csv).contains(response.getId() + ",testUserExport1," + receipt.getRetailer() + ","
+                + receipt.getPurchaseDate() + ",1113\n");
+    }
+
+    @Test
+    void test_export_Ndjson_WritesOneObjectPerLine() throws Exception {
+        // Arrange: Store a receipt that meets all rules for a new user.
+        Receipt receipt = TestUtils.loadJson("testReceipt_AllRules.json", Receipt.class);
+        receipt.setUserId("testUserExport2");
+        ReceiptIdResponse response = receiptService.storeReceipt(receipt);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act: Export as NDJSON.
+        long rows = receiptExportService.export(ReceiptExportService.Format.NDJSON, out);
+
+        // Assert: One line per row, including the stored receipt.
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        Truth.assertThat(ndjson.split("\n")).hasLength((int) rows);
+        Truth.assertThat(ndjson).contains("{\"id\":\"" + response.getId() + "\",\"userId\":\"testUserExport2\"");
+        Truth.assertThat(ndjson).contains("\"points\":1113}\n");
+    }
+
+    @Test
+    void test_writeCsvField_WithSeparatorsAndQuotes_QuotesField() throws Exception {
+        // Arrange
+        StringWriter writer = new StringWriter();
+
+        // Act: A plain value, then one that needs quoting.
+        ReceiptExportService.writeCsvField(writer, "Target");
+        writer.write(',');
+        ReceiptExportService.writeCsvField(writer, "M&M \"Corner\", Market");
+
+        // Assert
+        Truth.assertThat(writer.toString()).isEqualTo("Target,\"M&M \"\"Corner\"\", Market\"");
+    }
+}
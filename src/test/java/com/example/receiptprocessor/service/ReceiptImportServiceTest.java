@@ -0,0 +1,105 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.dto.ImportReport;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.util.TestUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+@SpringBootTest
+@Transactional // Ensures that each test runs in isolation
+class ReceiptImportServiceTest {
+
+    @Autowired
+    private ReceiptImportService receiptImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void test_importNdjson_WithMixedLines_ImportsValidAndReportsRejected() throws Exception {
+        // Arrange: Two distinct receipts, a duplicate, a blank line, malformed JSON and an invalid date.
+        Receipt first = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        first.setRetailer("ImportRetailerA");
+        Receipt second = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        second.setRetailer("ImportRetailerB");
+        Receipt invalid = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        invalid.setPurchaseDate("01/01/2022");
+        String ndjson = String.join("\n",
+                objectMapper.writeValueAsString(first),
+                objectMapper.writeValueAsString(second),
+                "",
+                "{\"retailer\": ",
+                objectMapper.writeValueAsString(invalid),
+                objectMapper.writeValueAsString(first));
+
+        // Act: Import the stream.
+        ImportReport report = receiptImportService.importNdjson(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert: Blank lines are skipped, the duplicate resolves to the stored receipt, bad lines are reported by number.
+        Truth.assertThat(report.getProcessed()).isEqualTo(5);
+        Truth.assertThat(report.getImported()).isEqualTo(2);
+        Truth.assertThat(report.getDuplicates()).isEqualTo(1);
+        Truth.assertThat(report.getRejected()).isEqualTo(2);
+        Truth.assertThat(report.getRejectedLines().get(0).getLine()).isEqualTo(4);
+        Truth.assertThat(report.getRejectedLines().get(0).getError()).startsWith("Malformed JSON");
+        Truth.assertThat(report.getRejectedLines().get(1).getLine()).isEqualTo(5);
+        Truth.assertThat(report.getRejectedLines().get(1).getError())
+                .isEqualTo("purchaseDate: Invalid date format (YYYY-MM-DD)");
+    }
+
+    @Test
+    void test_importNdjson_WithLineOverMaxLength_RejectsItAndImportsNeighbours() throws Exception {
+        // Arrange: A receipt whose retailer name pushes the line past the default 1 MiB cap.
+        Receipt before = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        before.setRetailer("ImportRetailerBeforeLongLine");
+        Receipt huge = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        huge.setRetailer("x".repeat(2 * 1024 * 1024));
+        Receipt after = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        after.setRetailer("ImportRetailerAfterLongLine");
+        String ndjson = String.join("\n",
+                objectMapper.writeValueAsString(before),
+                objectMapper.writeValueAsString(huge),
+                objectMapper.writeValueAsString(after));
+
+        // Act
+        ImportReport report = receiptImportService.importNdjson(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        Truth.assertThat(report.getProcessed()).isEqualTo(3);
+        Truth.assertThat(report.getImported()).isEqualTo(2);
+        Truth.assertThat(report.getRejected()).isEqualTo(1);
+        Truth.assertThat(report.getRejectedLines().get(0).getLine()).isEqualTo(2);
+        Truth.assertThat(report.getRejectedLines().get(0).getError()).isEqualTo("Line longer than 1048576 characters");
+    }
+
+    @Test
+    void test_importNdjson_RunTwice_ReportsSecondRunAsDuplicates() throws Exception {
+        // Arrange: An import of two receipts that already ran once.
+        Receipt first = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        first.setRetailer("ImportRetailerRerunA");
+        Receipt second = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        second.setRetailer("ImportRetailerRerunB");
+        String ndjson = objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second);
+        receiptImportService.importNdjson(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        // Act: Import the same stream again.
+        ImportReport report = receiptImportService.importNdjson(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert: Nothing is reported as newly imported.
+        Truth.assertThat(report.getProcessed()).isEqualTo(2);
+        Truth.assertThat(report.getImported()).isEqualTo(0);
+        Truth.assertThat(report.getDuplicates()).isEqualTo(2);
+        Truth.assertThat(report.getRejected()).isEqualTo(0);
+    }
+}
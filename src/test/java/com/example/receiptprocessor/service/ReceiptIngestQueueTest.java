@@ -0,0 +1,84 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.dto.ReceiptIdResponse;
+import com.example.receiptprocessor.exception.ReceiptPendingException;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.util.TestUtils;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Transactional // Ensures that each test runs in isolation
+class ReceiptIngestQueueTest {
+
+    @Autowired
+    private ReceiptIngestQueue receiptIngestQueue;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Test
+    void test_enqueue_BeforeAndAfterDrain_PointsMoveFromPendingToAvailable() throws Exception {
+        // Arrange: Queue a receipt that meets all rules for a new user.
+        Receipt receipt = TestUtils.loadJson("testReceipt_AllRules.json", Receipt.class);
+        receipt.setUserId("testUserAsync1");
+        ReceiptIdResponse response = receiptIngestQueue.enqueue(receipt);
+
+        // Assert: Points are pending until the queue is drained.
+        assertThrows(ReceiptPendingException.class, () -> receiptService.calculatePoints(response.getId()));
+
+        // Act: Drain every partition.
+        for (int partition = 0; partition < receiptIngestQueue.getPartitions(); partition++) {
+            receiptIngestQueue.drain(partition, 100);
+        }
+
+        // Assert: The receipt is stored under the handed-out ID with base points plus the first-receipt bonus.
+        Truth.assertThat(receiptService.calculatePoints(response.getId()).getPoints()).isEqualTo(1113);
+    }
+
+    @Test
+    void test_enqueue_DuplicateSubmission_ReturnsSameId() throws Exception {
+        // Arrange: Load test receipt from JSON
+        Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+
+        // Act: Queue the receipt twice, then once more after it has been stored.
+        ReceiptIdResponse response1 = receiptIngestQueue.enqueue(receipt);
+        ReceiptIdResponse response2 = receiptIngestQueue.enqueue(TestUtils.loadJson("testReceipt.json", Receipt.class));
+        for (int partition = 0; partition < receiptIngestQueue.getPartitions(); partition++) {
+            receiptIngestQueue.drain(partition, 100);
+        }
+        ReceiptIdResponse response3 = receiptIngestQueue.enqueue(TestUtils.loadJson("testReceipt.json", Receipt.class));
+
+        // Assert: Every submission resolves to the first ID.
+        Truth.assertThat(response2.getId()).isEqualTo(response1.getId());
+        Truth.assertThat(response3.getId()).isEqualTo(response1.getId());
+    }
+
+    @Test
+    void test_resolveStoredConcurrently_AfterSynchronousInsertOfSameReceipt_AliasesQueuedId() throws Exception {
+        // Arrange: A queued receipt, and the same receipt stored synchronously before the queue drains it.
+        Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt.setRetailer("Concurrent Async Retailer");
+        receipt.setUserId("testUserAsyncRace");
+        String queuedId = receiptIngestQueue.enqueue(receipt).getId();
+        Receipt synchronous = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        synchronous.setRetailer("Concurrent Async Retailer");
+        synchronous.setUserId("testUserAsyncRace");
+        String storedId = receiptService.storeReceipt(synchronous).getId();
+
+        // Act: The drain lost the insert race on the unique key and resolves the entry.
+        boolean resolved = receiptIngestQueue.resolveStoredConcurrently(queuedId);
+
+        // Assert: The handed-out ID reads the stored receipt's points, and the entry is gone.
+        Truth.assertThat(resolved).isTrue();
+        Truth.assertThat(receiptService.calculatePoints(queuedId).getPoints())
+                .isEqualTo(receiptService.calculatePoints(storedId).getPoints());
+        Truth.assertThat(receiptIngestQueue.peekIds(Math.floorMod(queuedId.hashCode(), receiptIngestQueue.getPartitions()),
+                100)).doesNotContain(queuedId);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.receiptprocessor.service;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class ReceiptIngestWorkerTest {
+
+    @Test
+    void test_drainWithRetries_TransientErrorThenSuccess_StoresWithoutMarkingFailed() throws Exception {
+        // Arrange: Two lock timeouts, then the entry stores.
+        ScriptedQueue queue = new ScriptedQueue(new QueryTimeoutException("timeout"),
+                new QueryTimeoutException("timeout"), null);
+        ReceiptIngestWorker worker = new ReceiptIngestWorker(queue, 200, 50, false, 5, 1);
+
+        // Act
+        boolean done = worker.drainWithRetries("id-1");
+
+        // Assert
+        Truth.assertThat(done).isTrue();
+        Truth.assertThat(queue.attempts).isEqualTo(3);
+        Truth.assertThat(queue.failedIds).isEmpty();
+    }
+
+    @Test
+    void test_drainWithRetries_TransientErrorEveryAttempt_LeavesEntryQueued() throws Exception {
+        // Arrange
+        ScriptedQueue queue = new ScriptedQueue(new QueryTimeoutException("timeout"),
+                new QueryTimeoutException("timeout"), new QueryTimeoutException("timeout"));
+        ReceiptIngestWorker worker = new ReceiptIngestWorker(queue, 200, 50, false, 3, 1);
+
+        // Act
+        boolean done = worker.drainWithRetries("id-1");
+
+        // Assert
+        Truth.assertThat(done).isFalse();
+        Truth.assertThat(queue.attempts).isEqualTo(3);
+        Truth.assertThat(queue.failedIds).isEmpty();
+    }
+
+    @Test
+    void test_drainWithRetries_ConstraintViolation_MarksFailedWithoutRetrying() throws Exception {
+        // Arrange: No receipt is stored under the entry's key, so the violation has another cause.
+        ScriptedQueue queue = new ScriptedQueue(new DataIntegrityViolationException("duplicate key"));
+        ReceiptIngestWorker worker = new ReceiptIngestWorker(queue, 200, 50, false, 5, 1);
+
+        // Act
+        boolean done = worker.drainWithRetries("id-1");
+
+        // Assert
+        Truth.assertThat(done).isTrue();
+        Truth.assertThat(queue.attempts).isEqualTo(1);
+        Truth.assertThat(queue.failedIds).containsExactly("id-1");
+    }
+
+    @Test
+    void test_drainWithRetries_ConstraintViolationFromConcurrentInsert_ResolvesWithoutMarkingFailed() throws Exception {
+        // Arrange: A synchronous submission of the same receipt committed first.
+        ScriptedQueue queue = new ScriptedQueue(new DataIntegrityViolationException("duplicate key"));
+        queue.storedConcurrently = true;
+        ReceiptIngestWorker worker = new ReceiptIngestWorker(queue, 200, 50, false, 5, 1);
+
+        // Act
+        boolean done = worker.drainWithRetries("id-1");
+
+        // Assert
+        Truth.assertThat(done).isTrue();
+        Truth.assertThat(queue.attempts).isEqualTo(1);
+        Truth.assertThat(queue.resolvedIds).containsExactly("id-1");
+        Truth.assertThat(queue.failedIds).isEmpty();
+    }
+
+    /**
+     * Fails or succeeds each drain attempt as scripted: an exception to throw, or null to succeed.
+     */
+    private static class ScriptedQueue extends ReceiptIngestQueue {
+
+        private final List<RuntimeException> outcomes;
+        private final List<String> failedIds = new ArrayList<>();
+        private final List<String> resolvedIds = new ArrayList<>();
+        private boolean storedConcurrently;
+        private int attempts;
+
+        ScriptedQueue(RuntimeException... outcomes) {
+            super(null, null, null, null, null, "async", 1);
+            this.outcomes = Arrays.asList(outcomes);
+        }
+
+        @Override
+        public void drainOne(String id) {
+            RuntimeException outcome = outcomes.get(attempts++);
+            if (outcome != null) {
+                throw outcome;
+            }
+        }
+
+        @Override
+        public boolean resolveStoredConcurrently(String id) {
+            if (storedConcurrently) {
+                resolvedIds.add(id);
+            }
+            return storedConcurrently;
+        }
+
+        @Override
+        public void markFailed(String id, Exception cause) {
+            failedIds.add(id);
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.receiptprocessor.service;
 
+import com.example.receiptprocessor.cache.PointsCache;
 import com.example.receiptprocessor.dto.PointsResponse;
 import com.example.receiptprocessor.dto.ReceiptIdResponse;
 import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.ReceiptKey;
 import com.example.receiptprocessor.repository.ReceiptRepository;
+import com.example.receiptprocessor.repository.UserReceiptCounterRepository;
+import com.example.receiptprocessor.rules.PointsRuleEngine;
+import com.example.receiptprocessor.rules.RuleDefinition;
+import com.example.receiptprocessor.rules.RuleSetDefinition;
 import com.example.receiptprocessor.util.PointsCalculator;
 import com.example.receiptprocessor.util.TestUtils;
 import com.google.common.truth.Truth;
@@ -12,9 +18,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -29,6 +43,18 @@ class ReceiptServiceTest {
     @Autowired
     private ReceiptService receiptService;
 
+    @Autowired
+    private PointsCache pointsCache;
+
+    @Autowired
+    private PointsRuleEngine pointsRuleEngine;
+
+    @Autowired
+    private UserReceiptCounterService userReceiptCounterService;
+
+    @Autowired
+    private UserReceiptCounterRepository userReceiptCounterRepository;
+
     @Test
     void test_storeReceipt_WithValidReceipt_ReturnsReceiptIdResponse() throws Exception {
         // Arrange: Load test receipt from JSON
@@ -182,4 +208,199 @@ class ReceiptServiceTest {
         Truth.assertThat(pointsResponse3.getPoints()).isEqualTo(expectedPoints);
     }
 
+    @Test
+    void test_storeReceipts_WithBatch_ReturnsOneIdPerInputInOrder() throws Exception {
+        // Arrange: Three receipts for the same user, where the third duplicates the first.
+        Receipt receipt1 = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt1.setUserId("testUserBatch1");
+        receipt1.setRetailer("BatchRetailer1");
+        Receipt receipt2 = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt2.setUserId("testUserBatch1");
+        receipt2.setRetailer("BatchRetailer2");
+        Receipt receipt3 = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt3.setUserId("testUserBatch1");
+        receipt3.setRetailer("BatchRetailer1");
+
+        // Act: Store the batch.
+        List<ReceiptIdResponse> responses = receiptService.storeReceipts(List.of(receipt1, receipt2, receipt3));
+
+        // Assert: One id per input, the duplicate resolves to the first id, and bonuses follow the user's ordinals.
+        Truth.assertThat(responses).hasSize(3);
+        Truth.assertThat(responses.get(2).getId()).isEqualTo(responses.get(0).getId());
+        Truth.assertThat(responses.get(1).getId()).isNotEqualTo(responses.get(0).getId());
+        Truth.assertThat(receiptService.calculatePoints(responses.get(0).getId()).getPoints())
+                .isEqualTo(PointsCalculator.calculateBasePoints(receipt1) + 1000);
+        Truth.assertThat(receiptService.calculatePoints(responses.get(1).getId()).getPoints())
+                .isEqualTo(PointsCalculator.calculateBasePoints(receipt2) + 500);
+    }
+
+    @Test
+    void test_storeReceipts_WithPreviouslyStoredReceipt_ReturnsExistingId() throws Exception {
+        // Arrange: Store a receipt through the single-receipt path first.
+        Receipt stored = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        stored.setUserId("testUserBatch2");
+        stored.setRetailer("BatchRetailer3");
+        ReceiptIdResponse existing = receiptService.storeReceipt(stored);
+
+        Receipt duplicate = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        duplicate.setUserId("testUserBatch2");
+        duplicate.setRetailer("BatchRetailer3");
+        Receipt fresh = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        fresh.setUserId("testUserBatch2");
+        fresh.setRetailer("BatchRetailer4");
+
+        // Act: Submit the duplicate together with a new receipt.
+        List<ReceiptIdResponse> responses = receiptService.storeReceipts(List.of(duplicate, fresh));
+
+        // Assert: The duplicate maps to the stored id and the new receipt is the user's second.
+        Truth.assertThat(responses.get(0).getId()).isEqualTo(existing.getId());
+        Truth.assertThat(receiptService.calculatePoints(responses.get(1).getId()).getPoints())
+                .isEqualTo(PointsCalculator.calculateBasePoints(fresh) + 500);
+    }
+
+    @Test
+    void test_findIdsByKeys_WithNeighbouringKeysStored_ReturnsOnlyExactMatches() throws Exception {
+        // Arrange: A stored receipt, and others sharing its retailer or date with other times.
+        String[][] keys = {{"KeyLookupA", "2022-01-01", "13:01"}, {"KeyLookupA", "2022-01-02", "14:00"},
+                {"KeyLookupB", "2022-01-01", "14:00"}};
+        List<String> ids = new ArrayList<>();
+        for (String[] key : keys) {
+            Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            receipt.setUserId("testUserKeyLookup");
+            receipt.setRetailer(key[0]);
+            receipt.setPurchaseDate(key[1]);
+            receipt.setPurchaseTime(key[2]);
+            ids.add(receiptService.storeReceipt(receipt).getId());
+        }
+
+        // Act: Look up the first key and one made of the others' retailer, date and time, which is not stored.
+        Map<ReceiptKey, String> found = receiptRepository.findIdsByKeys(List.of(
+                new ReceiptKey("KeyLookupA", "2022-01-01", "13:01"), new ReceiptKey("KeyLookupA", "2022-01-01", "14:00")));
+
+        // Assert
+        Truth.assertThat(found).containsExactly(new ReceiptKey("KeyLookupA", "2022-01-01", "13:01"), ids.get(0));
+    }
+
+    @Test
+    void test_calculatePoints_RepeatedLookup_ServedFromCache() throws Exception {
+        // Arrange: Store a receipt. The test transaction never commits, so the first lookup misses the cache.
+        Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        ReceiptIdResponse response = receiptService.storeReceipt(receipt);
+        long hitsBefore = pointsCache.stats().hitCount();
+
+        // Act: Look up the points twice.
+        PointsResponse first = receiptService.calculatePoints(response.getId());
+        PointsResponse second = receiptService.calculatePoints(response.getId());
+
+        // Assert: The second lookup is a cache hit with the same points.
+        Truth.assertThat(second.getPoints()).isEqualTo(first.getPoints());
+        Truth.assertThat(pointsCache.stats().hitCount()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // each store commits on its own thread
+    void test_storeReceipt_ConcurrentReceiptsForSameUser_AwardEachBonusTierOnce() throws Exception {
+        // Arrange: Eight distinct receipts for one user, released at the same time.
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> bonuses = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            receipt.setUserId("testUserConcurrent");
+            receipt.setRetailer("ConcurrentRetailer" + i);
+            bonuses.add(executor.submit(() -> {
+                start.await();
+                String id = receiptService.storeReceipt(receipt).getId();
+                return receiptService.calculatePoints(id).getPoints() - PointsCalculator.calculateBasePoints(receipt);
+            }));
+        }
+
+        // Act: Store them concurrently.
+        start.countDown();
+        List<Integer> awarded = new ArrayList<>();
+        for (Future<Integer> bonus : bonuses) {
+            awarded.add(bonus.get());
+        }
+        executor.shutdown();
+
+        // Assert: Exactly one receipt gets each of the 1000/500/250 tiers.
+        Truth.assertThat(awarded).containsExactly(1000, 500, 250, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    void test_storeReceipt_AfterRuleSetSwap_ScoresWithNewRules() throws Exception {
+        // Arrange: Replace the active rule set with one that only awards 3 points per retailer character.
+        RuleDefinition retailer = new RuleDefinition();
+        retailer.setName("retailer_name");
+        retailer.setType("retailer-alphanumeric");
+        retailer.setPoints(3);
+        RuleSetDefinition definition = new RuleSetDefinition();
+        definition.setName("retailer-only");
+        definition.setRules(List.of(retailer));
+        definition.setReceiptCountBonuses(List.of());
+        Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt.setRetailer("Swap Mart");
+
+        try {
+            pointsRuleEngine.install(definition);
+
+            // Act: Store the receipt under the new rule set.
+            ReceiptIdResponse response = receiptService.storeReceipt(receipt);
+
+            // Assert: 8 alphanumeric characters x 3 points, no bonus.
+            Truth.assertThat(receiptService.calculatePoints(response.getId()).getPoints()).isEqualTo(24);
+        } finally {
+            pointsRuleEngine.reload();
+        }
+        Truth.assertThat(pointsRuleEngine.current().getName()).isEqualTo("default");
+    }
+
+    @Test
+    void test_pointsTotal_AfterSingleAndBatchStores_SumsUserPoints() throws Exception {
+        // Arrange: One receipt stored alone and two in a batch, one of them a duplicate of the first.
+        Receipt first = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        first.setUserId("testUserTotal1");
+        first.setRetailer("TotalRetailer1");
+        Receipt second = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        second.setUserId("testUserTotal1");
+        second.setRetailer("TotalRetailer2");
+        Receipt duplicate = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        duplicate.setUserId("testUserTotal1");
+        duplicate.setRetailer("TotalRetailer1");
+
+        // Act
+        String firstId = receiptService.storeReceipt(first).getId();
+        List<ReceiptIdResponse> batch = receiptService.storeReceipts(List.of(second, duplicate));
+
+        // Assert: The total is the sum of both receipts' points; the duplicate adds nothing.
+        long expected = receiptService.calculatePoints(firstId).getPoints()
+                + receiptService.calculatePoints(batch.get(0).getId()).getPoints();
+        Truth.assertThat(userReceiptCounterService.pointsTotal("testUserTotal1")).isEqualTo(expected);
+        Truth.assertThat(userReceiptCounterService.pointsTotal("testUserWithoutReceipts")).isEqualTo(0L);
+    }
+
+    @Test
+    void test_pointsTotal_UserStoredBeforeTotals_SeedsFromStoredPointsOnce() throws Exception {
+        // Arrange: A user whose counter row is missing, as for receipts stored before the counter existed.
+        Receipt first = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        first.setUserId("testUserTotal2");
+        first.setRetailer("TotalRetailer3");
+        String firstId = receiptService.storeReceipt(first).getId();
+        userReceiptCounterRepository.deleteById("testUserTotal2");
+        userReceiptCounterRepository.flush();
+
+        // Act: Read the total, then store another receipt.
+        long seeded = userReceiptCounterService.pointsTotal("testUserTotal2");
+        Receipt second = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        second.setUserId("testUserTotal2");
+        second.setRetailer("TotalRetailer4");
+        String secondId = receiptService.storeReceipt(second).getId();
+
+        // Assert: The seed sums the stored points and later receipts are added to it.
+        int firstPoints = receiptService.calculatePoints(firstId).getPoints();
+        Truth.assertThat(seeded).isEqualTo((long) firstPoints);
+        Truth.assertThat(userReceiptCounterRepository.findPointsTotal("testUserTotal2"))
+                .isEqualTo(Optional.of((long) firstPoints + receiptService.calculatePoints(secondId).getPoints()));
+    }
 }
@@ -0,0 +1,161 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.repository.ReceiptRepository;
+import com.example.receiptprocessor.util.TestUtils;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest
+@Transactional
+class ReceiptSubmissionServiceTest {
+
+    @Autowired
+    private ReceiptSubmissionService receiptSubmissionService;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // each submission commits on its own thread
+    void test_submit_ConcurrentIdenticalSubmissions_StoreOnceAndShareId() throws Exception {
+        // Arrange: Eight copies of one receipt, released at the same time. The receipt is committed, so it gets a
+        // user of its own: other classes score the fixture user's first receipt.
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> ids = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            receipt.setUserId("testUserCoalesced");
+            receipt.setRetailer("Coalesced Retailer");
+            ids.add(executor.submit(() -> {
+                start.await();
+                return receiptSubmissionService.submit(receipt, null).getId();
+            }));
+        }
+
+        // Act: Submit them concurrently.
+        start.countDown();
+        Set<String> distinctIds = new HashSet<>();
+        for (Future<String> id : ids) {
+            distinctIds.add(id.get());
+        }
+        executor.shutdown();
+
+        // Assert: Every submission succeeded with the one stored receipt's ID.
+        Truth.assertThat(distinctIds).hasSize(1);
+        Truth.assertThat(receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                "Coalesced Retailer", "2022-01-01", "13:01").orElseThrow()).isEqualTo(distinctIds.iterator().next());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // each batch commits on its own thread
+    void test_submitBatch_ConcurrentBatchesWithOverlappingKey_ResolveToOneId() throws Exception {
+        // Arrange: Eight batches that share one receipt and each add one of their own, released at the same time.
+        // The receipts are committed, so they get a user of their own.
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> sharedIds = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Receipt shared = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            shared.setUserId("testUserBatchRace");
+            shared.setRetailer("Batch Race Retailer");
+            Receipt own = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            own.setUserId("testUserBatchRace");
+            own.setRetailer("Batch Race Retailer " + i);
+            sharedIds.add(executor.submit(() -> {
+                start.await();
+                return receiptSubmissionService.submitBatch(List.of(shared, own)).get(0).getId();
+            }));
+        }
+
+        // Act: Submit them concurrently.
+        start.countDown();
+        Set<String> distinctIds = new HashSet<>();
+        for (Future<String> id : sharedIds) {
+            distinctIds.add(id.get());
+        }
+        executor.shutdown();
+
+        // Assert: Every batch succeeded, and the shared receipt has one ID, the stored one.
+        Truth.assertThat(distinctIds).hasSize(1);
+        Truth.assertThat(receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                "Batch Race Retailer", "2022-01-01", "13:01").orElseThrow()).isEqualTo(distinctIds.iterator().next());
+        for (int i = 0; i < threads; i++) {
+            Truth.assertThat(receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                    "Batch Race Retailer " + i, "2022-01-01", "13:01").isPresent()).isTrue();
+        }
+    }
+
+    @Test
+    void test_submit_WithRepeatedIdempotencyKey_ReturnsFirstResponse() throws Exception {
+        // Arrange: Two different receipts sent under the same idempotency key.
+        Receipt first = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        first.setRetailer("Idempotent Retailer");
+        Receipt retry = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        retry.setRetailer("Idempotent Retailer Retry");
+
+        // Act
+        String firstId = receiptSubmissionService.submit(first, "key-1").getId();
+        String retryId = receiptSubmissionService.submit(retry, "key-1").getId();
+
+        // Assert: The retry gets the first response and stores nothing.
+        Truth.assertThat(retryId).isEqualTo(firstId);
+        Truth.assertThat(receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                "Idempotent Retailer Retry", "2022-01-01", "13:01").isPresent()).isFalse();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // each submission commits on its own thread
+    void test_submit_ConcurrentRequestsWithSameIdempotencyKey_StoreOnce() throws Exception {
+        // Arrange: Eight different receipts under one idempotency key, released at the same time. The receipts are
+        // committed, so they get a user of their own.
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> ids = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            receipt.setUserId("testUserIdempotentRace");
+            receipt.setRetailer("Idempotent Race Retailer " + i);
+            ids.add(executor.submit(() -> {
+                start.await();
+                return receiptSubmissionService.submit(receipt, "race-key").getId();
+            }));
+        }
+
+        // Act: Submit them concurrently.
+        start.countDown();
+        Set<String> distinctIds = new HashSet<>();
+        for (Future<String> id : ids) {
+            distinctIds.add(id.get());
+        }
+        executor.shutdown();
+
+        // Assert: Every request got the same response, and only one of the receipts was stored.
+        Truth.assertThat(distinctIds).hasSize(1);
+        int stored = 0;
+        for (int i = 0; i < threads; i++) {
+            if (receiptRepository.findIdByRetailerAndPurchaseDateAndPurchaseTime(
+                    "Idempotent Race Retailer " + i, "2022-01-01", "13:01").isPresent()) {
+                stored++;
+            }
+        }
+        Truth.assertThat(stored).isEqualTo(1);
+    }
+}
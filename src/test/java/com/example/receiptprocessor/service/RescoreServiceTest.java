@@ -0,0 +1,247 @@
+package com.example.receiptprocessor.service;
+
+import com.example.receiptprocessor.cache.PointsCache;
+import com.example.receiptprocessor.dto.RescoreJobStatus;
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.RescoreJob;
+import com.example.receiptprocessor.repository.RescoreCheckpointRepository;
+import com.example.receiptprocessor.repository.RescoreJobRepository;
+import com.example.receiptprocessor.rules.PointsRuleEngine;
+import com.example.receiptprocessor.rules.RuleDefinition;
+import com.example.receiptprocessor.rules.RuleSetDefinition;
+import com.example.receiptprocessor.shard.ShardRouter;
+import com.example.receiptprocessor.store.PointsStore;
+import com.example.receiptprocessor.util.TestUtils;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Not @Transactional: the job reads committed receipts from its own threads.
+@SpringBootTest
+class RescoreServiceTest {
+
+    @Autowired
+    private RescoreService rescoreService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private PointsRuleEngine pointsRuleEngine;
+
+    @Autowired
+    private UserReceiptCounterService userReceiptCounterService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RescoreJobRepository jobRepository;
+
+    @Autowired
+    private RescoreCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PointsStore pointsStore;
+
+    @Autowired
+    private PointsCache pointsCache;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void test_startJob_AfterRuleSetSwap_RescoresStoredReceiptsAndAliases() throws Exception {
+        // Arrange: Three receipts of a fresh user scored with the default rules, plus an alias of the first one.
+        String userId = "rescore-" + UUID.randomUUID();
+        List<String> ids = new ArrayList<>();
+        for (String retailer : List.of("Rescore Alpha", "Rescore Beta", "Rescore Gamma")) {
+            Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            receipt.setRetailer(retailer);
+            receipt.setUserId(userId);
+            ids.add(receiptService.storeReceipt(receipt).getId());
+        }
+        String aliasId = UUID.randomUUID().toString();
+        receiptService.aliasPoints(aliasId, ids.get(0));
+
+        try {
+            pointsRuleEngine.install(retailerOnlyRules());
+
+            // Act: Re-score everything with the new rules.
+            RescoreJobStatus status = awaitCompletion(rescoreService.startJob().getJobId());
+
+            // Assert: Every receipt keeps its bonus tier, the alias follows its receipt and reads see the new points.
+            Truth.assertThat(status.getStatus()).isEqualTo(RescoreJob.Status.COMPLETED);
+            Truth.assertThat(status.getPartitionsDone()).isEqualTo(status.getPartitions());
+            Truth.assertThat(status.getChanged()).isAtLeast(3L);
+            Truth.assertThat(receiptService.calculatePoints(ids.get(0)).getPoints()).isEqualTo(12 * 3 + 100);
+            Truth.assertThat(receiptService.calculatePoints(ids.get(1)).getPoints()).isEqualTo(11 * 3);
+            Truth.assertThat(receiptService.calculatePoints(ids.get(2)).getPoints()).isEqualTo(12 * 3);
+            Truth.assertThat(receiptService.calculatePoints(aliasId).getPoints()).isEqualTo(12 * 3 + 100);
+            Truth.assertThat(userReceiptCounterService.pointsTotal(userId)).isEqualTo(12 * 3 + 100 + 11 * 3 + 12 * 3L);
+        } finally {
+            // Restore the default rules and the points of everything committed so far.
+            pointsRuleEngine.reload();
+            awaitCompletion(rescoreService.startJob().getJobId());
+        }
+    }
+
+    @Test
+    void test_resumeJob_AfterCancelMidJob_RescoresEveryReceiptExactlyOnce() throws Exception {
+        // Arrange: Receipts of a fresh user, and a job slow enough to be cancelled between batches.
+        String userId = "rescore-" + UUID.randomUUID();
+        List<String> ids = storeReceipts(userId, 40);
+        RescoreService slowService = newService(5, 50);
+        slowService.start();
+        RescoreService fastService = newService(500, 0);
+        fastService.start();
+        try {
+            pointsRuleEngine.install(retailerOnlyRules());
+
+            // Act: Cancel once the first batch has committed, then resume without the rate cap.
+            String jobId = slowService.startJob().getJobId();
+            awaitRescored(slowService, jobId);
+            slowService.cancelJob(jobId);
+            RescoreJobStatus cancelled = awaitCompletion(slowService, jobId);
+            RescoreJobStatus resumed = awaitCompletion(fastService, fastService.resumeJob(jobId).getJobId());
+            RescoreJobStatus uninterrupted = awaitCompletion(rescoreService.startJob().getJobId());
+
+            // Assert: The cancelled job stopped partway, and with the resumed part it scored each receipt once,
+            // as many as a job that ran through.
+            Truth.assertThat(cancelled.getStatus()).isEqualTo(RescoreJob.Status.CANCELLED);
+            Truth.assertThat(cancelled.getRescored()).isLessThan(uninterrupted.getRescored());
+            Truth.assertThat(resumed.getStatus()).isEqualTo(RescoreJob.Status.COMPLETED);
+            Truth.assertThat(resumed.getPartitionsDone()).isEqualTo(resumed.getPartitions());
+            Truth.assertThat(resumed.getRescored()).isEqualTo(uninterrupted.getRescored());
+            Truth.assertThat(uninterrupted.getChanged()).isEqualTo(0L);
+            assertRetailerOnlyPoints(userId, ids);
+        } finally {
+            slowService.stop();
+            fastService.stop();
+            pointsRuleEngine.reload();
+            awaitCompletion(rescoreService.startJob().getJobId());
+        }
+    }
+
+    @Test
+    void test_start_WithJobLeftRunning_ResumesItToCompletion() throws Exception {
+        // Arrange: A job stopped partway and left marked running, as a crash would leave it.
+        String userId = "rescore-" + UUID.randomUUID();
+        List<String> ids = storeReceipts(userId, 40);
+        RescoreService crashedService = newService(5, 50);
+        crashedService.start();
+        RescoreService restartedService = newService(500, 0);
+        try {
+            pointsRuleEngine.install(retailerOnlyRules());
+            String jobId = crashedService.startJob().getJobId();
+            awaitRescored(crashedService, jobId);
+            crashedService.cancelJob(jobId);
+            awaitCompletion(crashedService, jobId);
+            crashedService.stop();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                RescoreJob job = jobRepository.findById(jobId).orElseThrow();
+                job.setStatus(RescoreJob.Status.RUNNING);
+                job.setFinishedAt(null);
+            });
+
+            // Act: Start a new instance, as at the next startup.
+            restartedService.start();
+            RescoreJobStatus status = awaitCompletion(restartedService, jobId);
+
+            // Assert
+            Truth.assertThat(status.getStatus()).isEqualTo(RescoreJob.Status.COMPLETED);
+            Truth.assertThat(status.getPartitionsDone()).isEqualTo(status.getPartitions());
+            assertRetailerOnlyPoints(userId, ids);
+        } finally {
+            crashedService.stop();
+            restartedService.stop();
+            pointsRuleEngine.reload();
+            awaitCompletion(rescoreService.startJob().getJobId());
+        }
+    }
+
+    /**
+     * 3 points per retailer character and 100 for a user's first receipt.
+     */
+    private static RuleSetDefinition retailerOnlyRules() {
+        RuleDefinition retailer = new RuleDefinition();
+        retailer.setName("retailer_name");
+        retailer.setType("retailer-alphanumeric");
+        retailer.setPoints(3);
+        RuleSetDefinition definition = new RuleSetDefinition();
+        definition.setName("retailer-only");
+        definition.setRules(List.of(retailer));
+        definition.setReceiptCountBonuses(List.of(100));
+        return definition;
+    }
+
+    /**
+     * Stores receipts of the user at retailers "Rescore 0 " + userId, "Rescore 1 " + userId, ... The receipts are
+     * committed, so the user ID in the retailer keeps their keys apart from those of the other tests.
+     */
+    private List<String> storeReceipts(String userId, int count) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            receipt.setRetailer(retailer(userId, i));
+            receipt.setUserId(userId);
+            ids.add(receiptService.storeReceipt(receipt).getId());
+        }
+        return ids;
+    }
+
+    private static String retailer(String userId, int i) {
+        return "Rescore " + i + " " + userId;
+    }
+
+    private void assertRetailerOnlyPoints(String userId, List<String> ids) {
+        long total = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            int expected = retailer(userId, i).replaceAll("[^A-Za-z0-9]", "").length() * 3 + (i == 0 ? 100 : 0);
+            Truth.assertThat(receiptService.calculatePoints(ids.get(i)).getPoints()).isEqualTo(expected);
+            total += expected;
+        }
+        Truth.assertThat(userReceiptCounterService.pointsTotal(userId)).isEqualTo(total);
+    }
+
+    /**
+     * A service of its own with the given batch size and rate cap, started and stopped by the test.
+     */
+    private RescoreService newService(int batchSize, long maxReceiptsPerSecond) {
+        return new RescoreService(jdbcTemplate, transactionManager, jobRepository, checkpointRepository,
+                pointsRuleEngine, pointsStore, pointsCache, userReceiptCounterService, shardRouter, 4, 1, batchSize,
+                maxReceiptsPerSecond);
+    }
+
+    private void awaitRescored(RescoreService service, String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (service.getJobStatus(jobId).getRescored() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private RescoreJobStatus awaitCompletion(String jobId) throws InterruptedException {
+        return awaitCompletion(rescoreService, jobId);
+    }
+
+    private RescoreJobStatus awaitCompletion(RescoreService service, String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        RescoreJobStatus status = service.getJobStatus(jobId);
+        while (status.getStatus() == RescoreJob.Status.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = service.getJobStatus(jobId);
+        }
+        return status;
+    }
+}
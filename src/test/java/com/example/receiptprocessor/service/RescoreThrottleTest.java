@@ -0,0 +1,54 @@
+package com.example.receiptprocessor.service;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class RescoreThrottleTest {
+
+    @Test
+    void test_acquire_FromSeveralThreads_StaysAtOrBelowRate() throws Exception {
+        // Arrange: 1000 receipts per second, shared by four workers taking batches of 50.
+        RescoreThrottle throttle = new RescoreThrottle(1000);
+        List<Thread> workers = new ArrayList<>();
+
+        // Act: 4 x 5 batches of 50 receipts, 1000 receipts in all.
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    for (int batch = 0; batch < 5; batch++) {
+                        throttle.acquire(50);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert: The first batch goes at once, the other 950 receipts take at least 950 ms.
+        Truth.assertThat(elapsedMillis).isAtLeast(950L);
+    }
+
+    @Test
+    void test_acquire_WithoutCap_NeverWaits() throws Exception {
+        // Arrange
+        RescoreThrottle throttle = new RescoreThrottle(0);
+
+        // Act
+        long start = System.nanoTime();
+        for (int batch = 0; batch < 1000; batch++) {
+            throttle.acquire(500);
+        }
+
+        // Assert
+        Truth.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(100L);
+    }
+}
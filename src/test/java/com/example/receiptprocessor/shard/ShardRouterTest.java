@@ -0,0 +1,96 @@
+package com.example.receiptprocessor.shard;
+
+import com.example.receiptprocessor.model.ReceiptIdGenerator;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class ShardRouterTest {
+
+    @Test
+    void test_shardOfUser_WithManyUsers_SpreadsThemEvenly() {
+        // Arrange
+        ShardRouter router = new ShardRouter(4);
+        int[] usersPerShard = new int[4];
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            usersPerShard[router.shardOfUser("user-" + i)]++;
+        }
+
+        // Assert: Within 5% of an even share, and the same user always maps to the same shard.
+        for (int users : usersPerShard) {
+            Truth.assertThat(users).isAtLeast(23_750);
+            Truth.assertThat(users).isAtMost(26_250);
+        }
+        Truth.assertThat(router.shardOfUser("user-42")).isEqualTo(router.shardOfUser("user-42"));
+    }
+
+    @Test
+    void test_routeByUser_RunsEachShardsItemsOnThatShard_ReturnsResultsInInputOrder() {
+        // Arrange
+        ShardRouter router = new ShardRouter(3);
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            userIds.add("user-" + i);
+        }
+        List<Integer> boundShards = new ArrayList<>();
+
+        // Act
+        List<String> results = router.routeByUser(userIds, userId -> userId, shardUsers -> {
+            boundShards.add(ShardRouter.currentShard());
+            List<String> shardResults = new ArrayList<>();
+            for (String userId : shardUsers) {
+                Truth.assertThat(router.shardOfUser(userId)).isEqualTo(ShardRouter.currentShard());
+                shardResults.add("stored " + userId);
+            }
+            return shardResults;
+        });
+
+        // Assert
+        Truth.assertThat(boundShards).containsExactly(0, 1, 2).inOrder();
+        for (int i = 0; i < userIds.size(); i++) {
+            Truth.assertThat(results.get(i)).isEqualTo("stored " + userIds.get(i));
+        }
+        Truth.assertThat(ShardRouter.currentShard()).isEqualTo(0);
+    }
+
+    @Test
+    void test_findByReceiptId_WithTaggedId_LooksOnTaggedShardOnly() {
+        // Arrange
+        ShardRouter router = new ShardRouter(4);
+        String id = ReceiptIdGenerator.newUuid(2).toString();
+        List<Integer> visited = new ArrayList<>();
+
+        // Act
+        Optional<Integer> found = router.findByReceiptId(id, () -> {
+            visited.add(ShardRouter.currentShard());
+            return ShardRouter.currentShard() == 2 ? Optional.of(2) : Optional.empty();
+        });
+
+        // Assert
+        Truth.assertThat(found.orElseThrow()).isEqualTo(2);
+        Truth.assertThat(visited).containsExactly(2);
+    }
+
+    @Test
+    void test_findByReceiptId_WithIdFromOtherShard_LooksOnEveryShard() {
+        // Arrange: Tagged for shard 1, but stored on shard 3 (for example before the shard count changed).
+        ShardRouter router = new ShardRouter(4);
+        String id = ReceiptIdGenerator.newUuid(1).toString();
+        List<Integer> visited = new ArrayList<>();
+
+        // Act
+        Optional<Integer> found = router.findByReceiptId(id, () -> {
+            visited.add(ShardRouter.currentShard());
+            return ShardRouter.currentShard() == 3 ? Optional.of(3) : Optional.empty();
+        });
+
+        // Assert
+        Truth.assertThat(found.orElseThrow()).isEqualTo(3);
+        Truth.assertThat(visited).containsExactly(1, 0, 2, 3).inOrder();
+    }
+}
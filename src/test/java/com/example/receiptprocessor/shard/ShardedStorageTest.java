@@ -0,0 +1,166 @@
+package com.example.receiptprocessor.shard;
+
+import com.example.receiptprocessor.model.Receipt;
+import com.example.receiptprocessor.model.ReceiptIdGenerator;
+import com.example.receiptprocessor.util.TestUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * End to end over HTTP with two shards, each its own in-memory database.
+ */
+@SpringBootTest(properties = {
+        "receipt.sharding.shards=2",
+        "spring.datasource.url=jdbc:h2:mem:sharded-storage",
+        "receipt.sharding.url-template=jdbc:h2:mem:sharded-storage-shard{shard}"})
+@AutoConfigureMockMvc
+class ShardedStorageTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void test_processReceipt_WithUsersOnBothShards_StoresItemsUnderIdsUniqueAcrossShards() throws Exception {
+        // Arrange: One user per shard, and more items per shard than the old sequence handed out per block (50).
+        String[] users = {userOnShard("item-user-", 0), userOnShard("item-user-", 1)};
+        List<String> receiptIds = new ArrayList<>();
+
+        // Act: Alternate between the shards, so item IDs are generated for both in turn.
+        for (int i = 0; i < 60; i++) {
+            Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+            receipt.setUserId(users[i % 2]);
+            receipt.setRetailer("Item Id Retailer " + i);
+            receipt.setPurchaseTime(String.format("10:%02d", i));
+            receiptIds.add(process(receipt));
+        }
+
+        // Assert: Every shard holds its own items, all under distinct IDs tagged with that shard, and every
+        // receipt's points are readable.
+        List<String> itemIds = new ArrayList<>();
+        for (int shard = 0; shard < 2; shard++) {
+            List<String> shardItemIds = shardRouter.onShard(shard,
+                    () -> jdbcTemplate.queryForList("select id from item", String.class));
+            Truth.assertThat(shardItemIds.size()).isAtLeast(60);
+            for (String itemId : shardItemIds) {
+                Truth.assertThat(ReceiptIdGenerator.shardTag(itemId)).isEqualTo(shard);
+            }
+            itemIds.addAll(shardItemIds);
+        }
+        Set<String> distinctItemIds = new HashSet<>(itemIds);
+        Truth.assertThat(distinctItemIds).hasSize(itemIds.size());
+        for (String receiptId : receiptIds) {
+            int status = mockMvc.perform(get("/receipts/" + receiptId + "/points")).andReturn().getResponse().getStatus();
+            Truth.assertThat(status).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void test_getRank_WithUnrankedUserOnSecondShard_ReadsTotalFromThatShard() throws Exception {
+        // Arrange: A total on shard 1 that the leaderboard never saw, as for a total stored but not yet handed over.
+        String userId = userOnShard("unranked-user-", 1);
+        shardRouter.onShard(1, () -> jdbcTemplate.update(
+                "insert into user_receipt_counter (user_id, receipt_count, points_total) values (?, 1, 4242)", userId));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/leaderboard/" + userId)).andReturn();
+
+        // Assert
+        Truth.assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        Truth.assertThat(objectMapper.readTree(result.getResponse().getContentAsString()).path("points").asLong())
+                .isEqualTo(4242L);
+    }
+
+    @Test
+    void test_processReceipt_WithSameReceiptForUsersOnBothShards_ReturnsIdStoredOnFirstShard() throws Exception {
+        // Arrange: The same receipt, stored for a user on shard 0.
+        Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt.setRetailer("Cross Shard Retailer");
+        receipt.setUserId(userOnShard("duplicate-user-", 0));
+        String firstId = process(receipt);
+
+        // Act: Submitted again for a user on shard 1, on its own and in a batch.
+        receipt.setUserId(userOnShard("duplicate-user-", 1));
+        String secondId = process(receipt);
+        MvcResult batch = mockMvc.perform(post("/receipts/process/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(receipt))))
+                .andReturn();
+
+        // Assert: Both resolve to the receipt on shard 0, and shard 1 stored nothing under the key.
+        Truth.assertThat(secondId).isEqualTo(firstId);
+        Truth.assertThat(batch.getResponse().getStatus()).isEqualTo(200);
+        Truth.assertThat(objectMapper.readTree(batch.getResponse().getContentAsString()).path(0).path("id").asText())
+                .isEqualTo(firstId);
+        Truth.assertThat(shardRouter.onShard(1, () -> jdbcTemplate.queryForObject(
+                "select count(*) from receipt where retailer = ?", Long.class, "Cross Shard Retailer"))).isEqualTo(0L);
+    }
+
+    @Test
+    void test_processBatch_WithSameReceiptForUsersOnBothShards_StoresItOnce() throws Exception {
+        // Arrange: One batch with the same receipt for a user on shard 1 and then for a user on shard 0.
+        Receipt first = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        first.setRetailer("Cross Shard Batch Retailer");
+        first.setUserId(userOnShard("batch-duplicate-user-", 1));
+        Receipt second = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        second.setRetailer("Cross Shard Batch Retailer");
+        second.setUserId(userOnShard("batch-duplicate-user-", 0));
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/receipts/process/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(first, second))))
+                .andReturn();
+
+        // Assert: Both entries return the ID stored on shard 1, and shard 0 stored nothing under the key.
+        Truth.assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        JsonNode responses = objectMapper.readTree(result.getResponse().getContentAsString());
+        Truth.assertThat(ReceiptIdGenerator.shardTag(responses.path(0).path("id").asText())).isEqualTo(1);
+        Truth.assertThat(responses.path(1).path("id").asText()).isEqualTo(responses.path(0).path("id").asText());
+        Truth.assertThat(shardRouter.onShard(0, () -> jdbcTemplate.queryForObject(
+                "select count(*) from receipt where retailer = ?", Long.class, "Cross Shard Batch Retailer")))
+                .isEqualTo(0L);
+    }
+
+    private String process(Receipt receipt) throws Exception {
+        MvcResult result = mockMvc.perform(post("/receipts/process")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(receipt)))
+                .andReturn();
+        Truth.assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        return objectMapper.readTree(result.getResponse().getContentAsString()).path("id").asText();
+    }
+
+    private String userOnShard(String prefix, int shard) {
+        for (int i = 0; ; i++) {
+            if (shardRouter.shardOfUser(prefix + i) == shard) {
+                return prefix + i;
+            }
+        }
+    }
+}
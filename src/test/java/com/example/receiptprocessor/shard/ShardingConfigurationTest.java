@@ -0,0 +1,21 @@
+package com.example.receiptprocessor.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardingConfigurationTest {
+
+    @Test
+    void test_dataSource_WithAsyncIngestInAnyCase_IsRefused() {
+        // Arrange
+        ShardingConfiguration configuration = new ShardingConfiguration();
+        ShardRouter shardRouter = new ShardRouter(2);
+
+        // Act & Assert: The mode is matched case-insensitively, as the ingest queue and worker match it.
+        for (String mode : new String[]{"async", "ASYNC", "Async"}) {
+            assertThrows(IllegalStateException.class, () -> configuration.dataSource(null, shardRouter,
+                    "jdbc:h2:mem:shard{shard}", 10, mode));
+        }
+    }
+}
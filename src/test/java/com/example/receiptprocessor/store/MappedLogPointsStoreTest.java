@@ -0,0 +1,198 @@
+package com.example.receiptprocessor.store;
+
+import com.example.receiptprocessor.model.ReceiptPoint;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+class MappedLogPointsStoreTest {
+
+    private static final int SEGMENT_BYTES = 1024 * 1024;
+
+    @Test
+    void test_save_ThenFind_ReturnsLatestPoints() throws Exception {
+        Path directory = Files.createTempDirectory("points-store");
+        try (MappedLogPointsStore store = open(directory, SEGMENT_BYTES)) {
+            // Arrange: A receipt saved twice and an alias of it.
+            store.save(point("r1", 10, 1L, null));
+            store.save(point("r1", 25, 1L, null));
+            store.save(point("a1", 25, null, "r1"));
+
+            // Act
+            ReceiptPoint receipt = store.findById("r1").orElseThrow();
+            ReceiptPoint alias = store.findById("a1").orElseThrow();
+
+            // Assert: Reads see the last write, with every field.
+            Truth.assertThat(receipt.getPoints()).isEqualTo(25);
+            Truth.assertThat(receipt.getUserOrdinal()).isEqualTo(1L);
+            Truth.assertThat(receipt.getAliasOf()).isNull();
+            Truth.assertThat(alias.getUserOrdinal()).isNull();
+            Truth.assertThat(alias.getAliasOf()).isEqualTo("r1");
+            Truth.assertThat(store.findById("missing").isPresent()).isFalse();
+            Truth.assertThat(store.findAllById(List.of("r1", "a1", "missing")).keySet()).containsExactly("r1", "a1");
+        }
+    }
+
+    @Test
+    void test_open_AfterRestart_RecoversIndexFromSegments() throws Exception {
+        // Arrange: Points written across several segments before a restart.
+        Path directory = Files.createTempDirectory("points-store");
+        try (MappedLogPointsStore store = open(directory, 256)) {
+            for (int i = 0; i < 50; i++) {
+                store.save(point("r" + i, i, (long) i, null));
+            }
+            store.save(point("r7", 700, 7L, null));
+        }
+
+        // Act
+        try (MappedLogPointsStore store = open(directory, 256)) {
+
+            // Assert: Every receipt is found with its latest points.
+            Truth.assertThat(segmentCount(directory)).isGreaterThan(1);
+            Truth.assertThat(store.size()).isEqualTo(50);
+            Truth.assertThat(store.findById("r0").orElseThrow().getPoints()).isEqualTo(0);
+            Truth.assertThat(store.findById("r7").orElseThrow().getPoints()).isEqualTo(700);
+            Truth.assertThat(store.findById("r49").orElseThrow().getUserOrdinal()).isEqualTo(49L);
+        }
+    }
+
+    @Test
+    void test_open_WithTornTail_DropsTornRecordAndKeepsAppending() throws Exception {
+        // Arrange: Two records, the second one damaged as if the process died while writing it. The store is
+        // never closed, as after a crash.
+        Path directory = Files.createTempDirectory("points-store");
+        MappedLogPointsStore crashed = open(directory, SEGMENT_BYTES);
+        crashed.save(point("r1", 10, 1L, null));
+        crashed.save(point("r2", 20, 2L, null));
+        Path segment = directory.resolve(LogSegment.fileName(0));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(lastNonZero(segment));
+            file.writeByte(0x7f);
+        }
+
+        // Act
+        try (MappedLogPointsStore store = open(directory, SEGMENT_BYTES)) {
+            store.save(point("r3", 30, 3L, null));
+        }
+        try (MappedLogPointsStore store = open(directory, SEGMENT_BYTES)) {
+
+            // Assert: The intact record survives, the torn one is gone and later writes replay normally.
+            Truth.assertThat(store.findById("r1").orElseThrow().getPoints()).isEqualTo(10);
+            Truth.assertThat(store.findById("r2").isPresent()).isFalse();
+            Truth.assertThat(store.findById("r3").orElseThrow().getPoints()).isEqualTo(30);
+        }
+    }
+
+    @Test
+    void test_open_AfterCleanCloseThenCrash_RebuildsIndexWithLaterWrites() throws Exception {
+        // Arrange: A clean close, then writes of a process that never closes the store.
+        Path directory = Files.createTempDirectory("points-store");
+        try (MappedLogPointsStore store = open(directory, 256)) {
+            for (int i = 0; i < 20; i++) {
+                store.save(point("r" + i, i, (long) i, null));
+            }
+        }
+        MappedLogPointsStore crashed = open(directory, 256);
+        crashed.save(point("r3", 300, 3L, null));
+        crashed.save(point("r20", 20, 20L, null));
+
+        // Act
+        try (MappedLogPointsStore store = open(directory, 256)) {
+
+            // Assert: The index left by the clean close is not trusted; the writes after it are found.
+            Truth.assertThat(store.size()).isEqualTo(21);
+            Truth.assertThat(store.findById("r3").orElseThrow().getPoints()).isEqualTo(300);
+            Truth.assertThat(store.findById("r20").orElseThrow().getPoints()).isEqualTo(20);
+            Truth.assertThat(store.findById("r19").orElseThrow().getPoints()).isEqualTo(19);
+        }
+    }
+
+    @Test
+    void test_compact_MostlyOverwrittenSegments_RemovesThemAndKeepsLivePoints() throws Exception {
+        Path directory = Files.createTempDirectory("points-store");
+        try (MappedLogPointsStore store = open(directory, 256)) {
+            // Arrange: One receipt overwritten often enough to fill many segments, next to one written once.
+            store.save(point("stable", 5, 1L, null));
+            for (int i = 0; i < 100; i++) {
+                store.save(point("hot", i, 2L, null));
+            }
+            int segmentsBefore = segmentCount(directory);
+
+            // Act
+            store.compact();
+
+            // Assert: Dead segments are deleted and both receipts keep their points, also after a restart.
+            Truth.assertThat(segmentCount(directory)).isLessThan(segmentsBefore);
+            Truth.assertThat(store.findById("stable").orElseThrow().getPoints()).isEqualTo(5);
+            Truth.assertThat(store.findById("hot").orElseThrow().getPoints()).isEqualTo(99);
+        }
+        try (MappedLogPointsStore store = open(directory, 256)) {
+            Truth.assertThat(store.findById("stable").orElseThrow().getPoints()).isEqualTo(5);
+            Truth.assertThat(store.findById("hot").orElseThrow().getPoints()).isEqualTo(99);
+        }
+    }
+
+    @Test
+    void test_save_InTransactionRolledBackAfterAppend_LeavesNoPointsBehind() throws Exception {
+        Path directory = Files.createTempDirectory("points-store");
+        try (MappedLogPointsStore store = open(directory, SEGMENT_BYTES)) {
+            // Arrange: A stored receipt, then a transaction that re-scores it and saves a new one.
+            store.save(point("kept", 10, 1L, null));
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                store.save(point("kept", 99, 1L, null));
+                store.save(point("new", 42, 2L, null));
+
+                // Act: The points are appended before the commit, which then fails.
+                TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            // Assert: The stored receipt keeps its old points and the new one has none.
+            Truth.assertThat(store.findById("kept").orElseThrow().getPoints()).isEqualTo(10);
+            Truth.assertThat(store.findById("new").isPresent()).isFalse();
+        }
+        try (MappedLogPointsStore store = open(directory, SEGMENT_BYTES)) {
+            Truth.assertThat(store.findById("kept").orElseThrow().getPoints()).isEqualTo(10);
+            Truth.assertThat(store.findById("new").isPresent()).isFalse();
+        }
+    }
+
+    private static MappedLogPointsStore open(Path directory, int segmentBytes) throws Exception {
+        return new MappedLogPointsStore(directory.toString(), segmentBytes, false, 0.5);
+    }
+
+    private static ReceiptPoint point(String receiptId, int points, Long userOrdinal, String aliasOf) {
+        ReceiptPoint point = new ReceiptPoint();
+        point.setReceipt_id(receiptId);
+        point.setPoints(points);
+        point.setUserOrdinal(userOrdinal);
+        point.setAliasOf(aliasOf);
+        return point;
+    }
+
+    private static long lastNonZero(Path file) throws Exception {
+        byte[] bytes = Files.readAllBytes(file);
+        int last = bytes.length - 1;
+        while (bytes[last] == 0) {
+            last--;
+        }
+        return last;
+    }
+
+    private static int segmentCount(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.filter(file -> LogSegment.idOf(file) >= 0).count();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.receiptprocessor.store;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class PointsLogIndexTest {
+
+    @Test
+    void test_put_ManyKeys_GrowsAndFindsEveryLatestLocation() throws Exception {
+        // Arrange: Locations are positions in a list of keys, as record offsets are in the log.
+        Path directory = Files.createTempDirectory("points-index");
+        List<String> records = new ArrayList<>();
+        PointsLogIndex index = PointsLogIndex.open(directory, (location, receiptId) ->
+                records.get((int) location).equals(receiptId));
+        index.clear(0);
+
+        // Act: Far more keys than the initial table holds, then every tenth one again.
+        for (int i = 0; i < 10_000; i++) {
+            records.add("receipt-" + i);
+            Truth.assertThat(index.put("receipt-" + i, i)).isEqualTo(PointsLogIndex.NOT_FOUND);
+        }
+        for (int i = 0; i < 10_000; i += 10) {
+            records.add("receipt-" + i);
+            Truth.assertThat(index.put("receipt-" + i, records.size() - 1)).isEqualTo((long) i);
+        }
+
+        // Assert
+        Truth.assertThat(index.size()).isEqualTo(10_000L);
+        Truth.assertThat(index.get("receipt-9")).isEqualTo(9L);
+        Truth.assertThat(index.get("receipt-10")).isEqualTo(10_001L);
+        Truth.assertThat(index.get("missing")).isEqualTo(PointsLogIndex.NOT_FOUND);
+        index.close(List.of());
+    }
+
+    @Test
+    void test_get_WhenRecordAtLocationHoldsOtherId_ReturnsNotFound() throws Exception {
+        // Arrange: The slot of "a" matches by hash, but its record is one of another ID, as on a hash collision.
+        Path directory = Files.createTempDirectory("points-index");
+        Map<Long, String> records = new HashMap<>(Map.of(1L, "a"));
+        PointsLogIndex index = PointsLogIndex.open(directory, (location, receiptId) ->
+                records.get(location).equals(receiptId));
+        index.clear(0);
+        index.put("a", 1L);
+        records.put(1L, "b");
+
+        // Act
+        long location = index.get("a");
+
+        // Assert
+        Truth.assertThat(location).isEqualTo(PointsLogIndex.NOT_FOUND);
+    }
+
+    @Test
+    void test_restore_AfterCleanClose_RestoresSegmentsAndEntries() throws Exception {
+        // Arrange
+        Path directory = Files.createTempDirectory("points-index");
+        LogSegment segment = LogSegment.open(directory, 0, 1024);
+        segment.setWritePosition(100);
+        segment.addLiveBytes(60);
+        PointsLogIndex index = PointsLogIndex.open(directory, (location, receiptId) -> true);
+        index.clear(0);
+        index.markOpen();
+        index.put("r1", 40L);
+        index.close(List.of(segment));
+        segment.close();
+        LogSegment reopened = LogSegment.open(directory, 0, 1024);
+
+        // Act
+        PointsLogIndex restored = PointsLogIndex.open(directory, (location, receiptId) -> true);
+        boolean clean = restored.restore(Map.of(0, reopened));
+
+        // Assert
+        Truth.assertThat(clean).isTrue();
+        Truth.assertThat(reopened.writePosition()).isEqualTo(100);
+        Truth.assertThat(reopened.liveBytes()).isEqualTo(60L);
+        Truth.assertThat(restored.size()).isEqualTo(1L);
+        Truth.assertThat(restored.get("r1")).isEqualTo(40L);
+        restored.close(List.of(reopened));
+        reopened.close();
+    }
+
+    @Test
+    void test_restore_WithoutCleanCloseOrWithOtherSegments_ReturnsFalse() throws Exception {
+        // Arrange: One index left open, as after a crash, and one closed with a segment that is gone since.
+        Path crashedDirectory = Files.createTempDirectory("points-index");
+        PointsLogIndex crashed = PointsLogIndex.open(crashedDirectory, (location, receiptId) -> true);
+        crashed.clear(0);
+        crashed.markOpen();
+        crashed.put("r1", 40L);
+        Path closedDirectory = Files.createTempDirectory("points-index");
+        LogSegment segment = LogSegment.open(closedDirectory, 0, 1024);
+        PointsLogIndex closed = PointsLogIndex.open(closedDirectory, (location, receiptId) -> true);
+        closed.clear(0);
+        closed.markOpen();
+        closed.close(List.of(segment));
+        LogSegment other = LogSegment.open(closedDirectory, 1, 1024);
+
+        // Act
+        boolean crashedRestored = PointsLogIndex.open(crashedDirectory, (location, receiptId) -> true)
+                .restore(Map.of());
+        boolean closedRestored = PointsLogIndex.open(closedDirectory, (location, receiptId) -> true)
+                .restore(Map.of(1, other));
+
+        // Assert
+        Truth.assertThat(crashedRestored).isFalse();
+        Truth.assertThat(closedRestored).isFalse();
+        segment.close();
+        other.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.receiptprocessor.util;
+
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void test_mightContain_AddedKeys_NeverFalseNegative() {
+        // Arrange: A filter sized for the keys it receives.
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(BloomFilter.hash("Retailer" + i, "2025-03-05", "12:00"));
+        }
+
+        // Act & Assert: Every added key is reported as a possible hit.
+        for (int i = 0; i < 10_000; i++) {
+            Truth.assertThat(filter.mightContain(BloomFilter.hash("Retailer" + i, "2025-03-05", "12:00"))).isTrue();
+        }
+    }
+
+    @Test
+    void test_mightContain_UnknownKeys_FalsePositiveRateNearConfigured() {
+        // Arrange: A full filter with a 1% target false positive rate.
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(BloomFilter.hash("Retailer" + i, "2025-03-05", "12:00"));
+        }
+
+        // Act: Probe keys that were never added.
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(BloomFilter.hash("Retailer" + i, "2025-03-06", "12:00"))) {
+                falsePositives++;
+            }
+        }
+
+        // Assert: Allow some slack over the 1% target.
+        Truth.assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void test_hash_FieldBoundaries_ProduceDifferentHashes() {
+        // Act & Assert: Moving characters across fields changes the hash.
+        Truth.assertThat(BloomFilter.hash("ab", "c", "d")).isNotEqualTo(BloomFilter.hash("a", "bc", "d"));
+    }
+}
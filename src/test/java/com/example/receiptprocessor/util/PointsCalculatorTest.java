@@ -0,0 +1,86 @@
+package com.example.receiptprocessor.util;
+
+import com.example.receiptprocessor.model.Item;
+import com.example.receiptprocessor.model.Receipt;
+import com.google.common.truth.Truth;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Differential test of the allocation-free scoring path against the original BigDecimal/java.time implementation.
+ */
+class PointsCalculatorTest {
+
+    private static final int RANDOM_RECEIPTS = 20_000;
+
+    @Test
+    void test_calculateBasePoints_RandomReceipts_MatchReferenceImplementation() {
+        // Arrange: A fixed seed keeps failures reproducible.
+        Random random = new Random(20250301L);
+
+        for (int i = 0; i < RANDOM_RECEIPTS; i++) {
+            Receipt receipt = RandomReceipts.receipt(random);
+
+            // Act
+            int actual = PointsCalculator.calculateBasePoints(receipt);
+
+            // Assert: Both implementations agree on every receipt.
+            Truth.assertWithMessage(RandomReceipts.describe(receipt)).that(actual).isEqualTo(referenceBasePoints(receipt));
+        }
+    }
+
+    @Test
+    void test_calculateBasePoints_MeetAllRules_ReturnExpectedResult() throws Exception {
+        // Arrange: Load a receipt that meets all rules from JSON
+        Receipt receipt = TestUtils.loadJson("testReceipt_AllRules.json", Receipt.class);
+
+        // Act & Assert: The README documents 113 base points for this receipt.
+        Truth.assertThat(PointsCalculator.calculateBasePoints(receipt)).isEqualTo(113);
+    }
+
+    @Test
+    void test_calculateBasePoints_WithInvalidCalendarDate_ThrowsDateTimeParseException() throws Exception {
+        // Arrange: A date that matches the wire pattern but does not exist.
+        Receipt receipt = TestUtils.loadJson("testReceipt.json", Receipt.class);
+        receipt.setPurchaseDate("2023-02-29");
+
+        // Act & Assert: The fast path defers to java.time, which rejects the date as before.
+        assertThrows(DateTimeParseException.class, () -> PointsCalculator.calculateBasePoints(receipt));
+    }
+
+    /**
+     * The scoring rules exactly as they were implemented with BigDecimal, regex and java.time parsing.
+     */
+    private static int referenceBasePoints(Receipt receipt) {
+        int points = receipt.getRetailer().replaceAll("[^a-zA-Z0-9]", "").length();
+        BigDecimal total = new BigDecimal(receipt.getTotal());
+        if (total.remainder(BigDecimal.ONE).compareTo(BigDecimal.ZERO) == 0) {
+            points += 50;
+        }
+        if (total.remainder(BigDecimal.valueOf(0.25)).compareTo(BigDecimal.ZERO) == 0) {
+            points += 25;
+        }
+        points += (receipt.getItems().size() / 2) * 5;
+        for (Item item : receipt.getItems()) {
+            if (item.getShortDescription().trim().length() % 3 == 0) {
+                BigDecimal itemPrice = new BigDecimal(item.getPrice());
+                points += (int) Math.ceil(itemPrice.multiply(BigDecimal.valueOf(0.2)).doubleValue());
+            }
+        }
+        if (LocalDate.parse(receipt.getPurchaseDate()).getDayOfMonth() % 2 == 1) {
+            points += 6;
+        }
+        LocalTime time = LocalTime.parse(receipt.getPurchaseTime());
+        if (time.isAfter(LocalTime.of(14, 0)) && time.isBefore(LocalTime.of(16, 0))) {
+            points += 10;
+        }
+        return points;
+    }
+}
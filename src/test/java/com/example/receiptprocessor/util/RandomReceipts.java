@@ -0,0 +1,101 @@
+package com.example.receiptprocessor.util;
+
+import com.example.receiptprocessor.model.Item;
+import com.example.receiptprocessor.model.Receipt;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random receipts for differential scoring tests: mostly in the validated wire format, with a share of amounts
+ * and times outside it, and dates, times and totals biased towards rule boundaries. Some amounts are long: up to
+ * and past the 16 integer digits the cents parser takes, and around the price where item points leave the int
+ * range.
+ */
+public class RandomReceipts {
+
+    private static final String RETAILER_CHARS = "abcxyzABCXYZ0189 &-_!\u00e9\u00df";
+    private static final String DESCRIPTION_CHARS = "abcdeXYZ0189 -";
+    private static final String[] NON_CANONICAL_AMOUNTS = {"12", "12.5", "0.125", "007.50", "1.0", "3.999"};
+    // Item points are ceil(cents / 500); above this many cents they no longer fit in an int.
+    private static final long INT_POINTS_LIMIT_CENTS = 500L * Integer.MAX_VALUE;
+    private static final String[] NON_CANONICAL_TIMES = {"14:00:00", "14:00:01", "15:59:59", "16:00:00", "09:30:15"};
+
+    public static Receipt receipt(Random random) {
+        Receipt receipt = new Receipt();
+        receipt.setRetailer(randomString(random, RETAILER_CHARS, 1 + random.nextInt(30)));
+        receipt.setTotal(randomAmount(random));
+        receipt.setPurchaseDate(LocalDate.ofEpochDay(random.nextInt(50_000)).toString());
+        receipt.setPurchaseTime(randomTime(random));
+        List<Item> items = new ArrayList<>();
+        int itemCount = random.nextInt(9);
+        for (int i = 0; i < itemCount; i++) {
+            Item item = new Item();
+            item.setShortDescription(padding(random) + randomString(random, DESCRIPTION_CHARS, random.nextInt(13)) + padding(random));
+            item.setPrice(randomAmount(random));
+            items.add(item);
+        }
+        receipt.setItems(items);
+        return receipt;
+    }
+
+    private static String randomAmount(Random random) {
+        int shape = random.nextInt(20);
+        if (shape == 0) {
+            return NON_CANONICAL_AMOUNTS[random.nextInt(NON_CANONICAL_AMOUNTS.length)];
+        }
+        if (shape == 1) {
+            // 8 to 20 integer digits, so both sides of the 16-digit limit.
+            return randomString(random, "0123456789", 8 + random.nextInt(13)) + "."
+                    + randomString(random, "0123456789", 2);
+        }
+        if (shape == 2) {
+            long cents = INT_POINTS_LIMIT_CENTS - 1_500 + random.nextInt(3_000);
+            return String.format("%d.%02d", cents / 100, cents % 100);
+        }
+        long cents = random.nextInt(1_000_000);
+        if (shape < 5) {
+            cents -= cents % 100;
+        } else if (shape < 10) {
+            cents -= cents % 25;
+        }
+        return String.format("%d.%02d", cents / 100, cents % 100);
+    }
+
+    private static String randomTime(Random random) {
+        int shape = random.nextInt(20);
+        if (shape == 0) {
+            return NON_CANONICAL_TIMES[random.nextInt(NON_CANONICAL_TIMES.length)];
+        }
+        // Bias towards the 14:00-16:00 window and its edges.
+        int hour = shape < 10 ? 13 + random.nextInt(4) : random.nextInt(24);
+        int minute = shape < 5 ? (random.nextBoolean() ? 0 : 59) : random.nextInt(60);
+        return String.format("%02d:%02d", hour, minute);
+    }
+
+    private static String padding(Random random) {
+        return random.nextInt(4) == 0 ? (random.nextBoolean() ? " " : "\t ") : "";
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    public static String describe(Receipt receipt) {
+        StringBuilder builder = new StringBuilder()
+                .append("retailer=").append(receipt.getRetailer())
+                .append(", total=").append(receipt.getTotal())
+                .append(", date=").append(receipt.getPurchaseDate())
+                .append(", time=").append(receipt.getPurchaseTime());
+        for (Item item : receipt.getItems()) {
+            builder.append(", item=[").append(item.getShortDescription()).append("|").append(item.getPrice()).append("]");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.receiptprocessor.util;
+
+import com.example.receiptprocessor.dto.ItemRequest;
+import com.example.receiptprocessor.dto.ReceiptRequest;
+import com.example.receiptprocessor.model.Item;
+import com.example.receiptprocessor.model.Receipt;
+import com.google.common.truth.Truth;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class ReceiptRequestValidatorTest {
+
+    private static final String CHARS = "aZ09_ -&.:\t\né!";
+
+    private static ReceiptRequest validRequest() {
+        return new ReceiptRequest("M&M Corner Market", "2022-03-20", "14:33",
+                new ArrayList<>(List.of(new ItemRequest("Gatorade", "2.25"))), "2.25", "user-1");
+    }
+
+    @Test
+    void test_validate_WithValidRequest_ReturnsNoErrors() {
+        // Arrange
+        ReceiptRequest request = validRequest();
+
+        // Act
+        List<String> errors = ReceiptRequestValidator.validate(request);
+
+        // Assert
+        Truth.assertThat(errors).isEmpty();
+    }
+
+    @Test
+    void test_validate_WithInvalidFields_ReturnsBeanValidationMessagesInFieldOrder() {
+        // Arrange
+        ReceiptRequest request = validRequest();
+        request.setRetailer("");
+        request.setPurchaseDate("2022/03/20");
+        request.setPurchaseTime(null);
+        request.getItems().add(new ItemRequest("Pepsi!", "1.5"));
+        request.setTotal("12");
+
+        // Act
+        List<String> errors = ReceiptRequestValidator.validate(request);
+
+        // Assert
+        Truth.assertThat(errors).containsExactly(
+                "retailer: must not be blank",
+                "retailer: Retailer must only contain alphanumeric characters, spaces, hyphens, and '&'.",
+                "purchaseDate: Invalid date format (YYYY-MM-DD)",
+                "purchaseTime: must not be blank",
+                "items[1].shortDescription: Short description must only contain alphanumeric characters, spaces, and hyphens.",
+                "items[1].price: Price must be in 'xx.xx' format",
+                "total: Total must be in 'xx.xx' format").inOrder();
+    }
+
+    @Test
+    void test_validate_WithMissingOrEmptyItems_ReportsItems() {
+        // Arrange
+        ReceiptRequest missing = validRequest();
+        missing.setItems(null);
+        ReceiptRequest empty = validRequest();
+        empty.setItems(List.of());
+
+        // Act & Assert
+        Truth.assertThat(ReceiptRequestValidator.validate(missing)).containsExactly("items: must not be null");
+        Truth.assertThat(ReceiptRequestValidator.validate(empty)).containsExactly("items: At least one item is required");
+    }
+
+    @Test
+    void test_validate_MatchesEntityBeanValidation() {
+        // Arrange: Random field values around the edges of each constraint, checked against the entity annotations.
+        Random random = new Random(21);
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = factory.getValidator();
+            for (int n = 0; n < 20_000; n++) {
+                ReceiptRequest request = new ReceiptRequest(randomValue(random), randomDate(random), randomTime(random),
+                        List.of(new ItemRequest(randomValue(random), randomAmount(random))), randomAmount(random),
+                        randomValue(random));
+                Receipt receipt = request.toReceipt();
+                List<String> expected = new ArrayList<>();
+                validator.validate(receipt).forEach(violation ->
+                        expected.add(violation.getPropertyPath() + ": " + violation.getMessage()));
+                for (Item item : receipt.getItems()) {
+                    validator.validate(item).forEach(violation ->
+                            expected.add("items[0]." + violation.getPropertyPath() + ": " + violation.getMessage()));
+                }
+
+                // Act
+                List<String> errors = ReceiptRequestValidator.validate(request);
+
+                // Assert
+                Truth.assertThat(errors).containsExactlyElementsIn(expected);
+            }
+        }
+    }
+
+    private static String randomValue(Random random) {
+        if (random.nextInt(10) == 0) {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            value.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return value.toString();
+    }
+
+    private static String randomDate(Random random) {
+        return random.nextBoolean() ? "20" + random.nextInt(10) + random.nextInt(10) + "-0" + random.nextInt(10)
+                + "-1" + random.nextInt(10) : mutate(random, "2022-01-01");
+    }
+
+    private static String randomTime(Random random) {
+        return random.nextBoolean() ? "1" + random.nextInt(10) + ":" + random.nextInt(6) + random.nextInt(10)
+                : mutate(random, "13:01");
+    }
+
+    private static String randomAmount(Random random) {
+        return random.nextBoolean() ? random.nextInt(1000) + "." + random.nextInt(10) + random.nextInt(10)
+                : mutate(random, "35.35");
+    }
+
+    private static String mutate(Random random, String value) {
+        if (random.nextInt(10) == 0) {
+            return null;
+        }
+        StringBuilder mutated = new StringBuilder(value);
+        int position = random.nextInt(value.length() + 1);
+        switch (random.nextInt(3)) {
+            case 0 -> mutated.insert(position, CHARS.charAt(random.nextInt(CHARS.length())));
+            case 1 -> mutated.deleteCharAt(Math.min(position, value.length() - 1));
+            default -> mutated.setCharAt(Math.min(position, value.length() - 1), CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return mutated.toString();
+    }
+}